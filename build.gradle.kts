@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.5"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.execodex"
@@ -54,3 +55,10 @@ tasks.withType<Test> {
     forkEvery = 1 // Run tests sequentially, for better isolation but also because ./gradlew test --parallel does not work with TestContainers
 
 }
+
+// Microbenchmarks in src/jmh, run with ./gradlew jmh
+jmh {
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+}
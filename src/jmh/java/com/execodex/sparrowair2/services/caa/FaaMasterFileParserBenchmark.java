@@ -0,0 +1,128 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FaaMasterFileParser} with decoding every buffer to a String, splitting it into lines and parsing
+ * each with {@code parseAircraftRegistrationFromCsvLine2}, the way uploads of the MASTER file were read before.
+ * <p>
+ * The input is the sample {@code master-100.txt} scaled to a million lines: a block of its lines repeated, cut into
+ * buffers the size of those of an upload, is fed over and over after the header. Besides the time, compare the
+ * allocation per line, with the {@code gc} profiler.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FaaMasterFileParserBenchmark {
+
+    private static final int BLOCK_COPIES = 10;
+    private static final int BLOCKS = 1011;
+    // the 99 lines of the sample, times the copies and blocks: 1,000,890
+    private static final int LINES = 99 * BLOCK_COPIES * BLOCKS;
+
+    @Param({"8192"})
+    public int bufferSize;
+
+    private DataBuffer header;
+    private List<DataBuffer> block;
+
+    @Setup
+    public void setUp() throws IOException {
+        String sample = new String(new ClassPathResource("stuff/data/faa/master-100.txt").getContentAsByteArray(),
+                StandardCharsets.UTF_8);
+        int headerEnd = sample.indexOf('\n') + 1;
+        header = DefaultDataBufferFactory.sharedInstance.wrap(
+                sample.substring(0, headerEnd).getBytes(StandardCharsets.UTF_8));
+
+        byte[] bytes = sample.substring(headerEnd).repeat(BLOCK_COPIES).getBytes(StandardCharsets.UTF_8);
+        block = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += bufferSize) {
+            block.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, from, Math.min(from + bufferSize, bytes.length))));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int stringLines(Blackhole blackhole) {
+        StringBuilder leftover = new StringBuilder();
+        int count = readLines(header, leftover, true, blackhole);
+        for (int i = 0; i < BLOCKS; i++) {
+            for (DataBuffer buffer : block) {
+                count += readLines(buffer, leftover, false, blackhole);
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int tokenizer(Blackhole blackhole) {
+        FaaMasterFileParser parser = new FaaMasterFileParser();
+        int count = consume(parser.feed(header), blackhole);
+        for (int i = 0; i < BLOCKS; i++) {
+            for (DataBuffer buffer : block) {
+                count += consume(parser.feed(buffer), blackhole);
+            }
+        }
+        return count + consume(parser.finish(), blackhole);
+    }
+
+    private static int consume(List<FaaAircraftRegistration> registrations, Blackhole blackhole) {
+        for (FaaAircraftRegistration registration : registrations) {
+            blackhole.consume(registration);
+        }
+        return registrations.size();
+    }
+
+    // The complete lines of the leftover and the buffer, as the upload handler read them
+    private static int readLines(DataBuffer buffer, StringBuilder leftover, boolean isHeader, Blackhole blackhole) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        buffer.readPosition(0);
+        String content = leftover + new String(bytes, StandardCharsets.UTF_8);
+        leftover.setLength(0);
+
+        int lastNewlineIndex = content.lastIndexOf('\n');
+        if (lastNewlineIndex < 0) {
+            leftover.append(content);
+            return 0;
+        }
+        leftover.append(content, lastNewlineIndex + 1, content.length());
+        int count = 0;
+        for (String line : content.substring(0, lastNewlineIndex + 1).split("\n")) {
+            if (isHeader || line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                blackhole.consume(FaaAircraftRegistration.parseAircraftRegistrationFromCsvLine2(line));
+                count++;
+            } catch (IllegalArgumentException e) {
+                blackhole.consume(e);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Haversine formula with {@link GreatCircleDistanceCache} on the flights of a random network,
+ * the way building the route graph calls {@code AirportNewService.distance}: a few thousand airports,
+ * and many flights sharing the same airport pairs.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GreatCircleDistanceBenchmark {
+
+    private static final int FLIGHTS = 100_000;
+
+    @Param({"5000"})
+    public int airportCount;
+
+    @Param({"20000"})
+    public int routeCount;
+
+    private final AirportNewService airportNewService = new AirportNewService(null, null);
+    private final GreatCircleDistanceCache cache = new GreatCircleDistanceCache();
+    private AirportNew[] departures;
+    private AirportNew[] arrivals;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        AirportNew[] airports = new AirportNew[airportCount];
+        for (int i = 0; i < airportCount; i++) {
+            airports[i] = AirportNew.builder()
+                    .icaoCode("A" + i)
+                    .latitude(random.nextDouble() * 180 - 90)
+                    .longitude(random.nextDouble() * 360 - 180)
+                    .build();
+        }
+
+        // every flight flies one of the routes, like several airlines and departures per day on the same airport pair
+        AirportNew[][] routes = new AirportNew[routeCount][];
+        for (int i = 0; i < routeCount; i++) {
+            routes[i] = new AirportNew[]{airports[random.nextInt(airportCount)], airports[random.nextInt(airportCount)]};
+        }
+        departures = new AirportNew[FLIGHTS];
+        arrivals = new AirportNew[FLIGHTS];
+        for (int i = 0; i < FLIGHTS; i++) {
+            AirportNew[] route = routes[random.nextInt(routeCount)];
+            departures[i] = route[0];
+            arrivals[i] = route[1];
+        }
+
+        // warm the memo, as after the first graph build
+        for (int i = 0; i < FLIGHTS; i++) {
+            cache.distance(departures[i], arrivals[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLIGHTS)
+    public double haversine() {
+        double total = 0;
+        for (int i = 0; i < FLIGHTS; i++) {
+            total += airportNewService.haversineDistance(departures[i], arrivals[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLIGHTS)
+    public double cached() {
+        double total = 0;
+        for (int i = 0; i < FLIGHTS; i++) {
+            total += cache.distance(departures[i], arrivals[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLIGHTS)
+    public double coldCache() {
+        GreatCircleDistanceCache empty = new GreatCircleDistanceCache();
+        double total = 0;
+        for (int i = 0; i < FLIGHTS; i++) {
+            total += empty.distance(departures[i], arrivals[i]);
+        }
+        return total;
+    }
+}
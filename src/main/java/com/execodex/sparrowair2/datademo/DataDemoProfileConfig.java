@@ -24,12 +24,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 @Configuration
 @Profile("datademo")
 public class DataDemoProfileConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(DataDemoProfileConfig.class);
+    private static final String AIRPORTS_FILE = "stuff/data/airports/iaka_airports.jsonl";
+    private static final String AIRLINES_FILE = "stuff/data/airlines/airlines.csv";
 
     @Bean
     public CommandLineRunner initializeAirportData( AirportNewService airportNewService,
@@ -39,15 +42,19 @@ public class DataDemoProfileConfig {
                                                     FlightService flightService,
                                                    PassengerService passengerService, AirlineFleetService airlineFleetService,
                                                    BookingService bookingService, SeatService seatService,
-                                                   BookingSegmentService bookingSegmentService) {
+                                                   BookingSegmentService bookingSegmentService,
+                                                   ImportJobService importJobService) {
         return args -> {
             logger.info("Initializing sample data for 'datademo' profile");
 
             // Insert sample airports, aircraft types, airlines, airline fleet, flights, and passengers into the database
-            generateAirportNewFromFile(airportNewService)
+            // The airport and airline files are loaded as import jobs, tracked like uploaded files
+            runImportJob(importJobService, "airports", job -> createAirportsIfAbsent(
+                    job.track(AirportDataDemo.getDemoAirportsFromFile(AIRPORTS_FILE)), airportNewService).count())
 //                    .thenMany(generateAirportNewFromFile(airportNewService))
                     .thenMany(generateCountry(countryService))
-                    .thenMany(generateAirlineNewFromFile(airlineNewService))
+                    .thenMany(runImportJob(importJobService, "airlines", job -> createAirlinesIfAbsent(
+                            job.track(AirlineDataDemo.getDemoAirlinesFromFile(AIRLINES_FILE)), airlineNewService, job::rowFailed).count()))
                     .thenMany(generateFaaAircraftRegistrationFromFile(faaAircraftRegistrationService))
                     .thenMany(generateAirline(airlineService))
                     .thenMany(generateAircraftFromFile(aircraftService))
@@ -64,10 +71,20 @@ public class DataDemoProfileConfig {
     }
 
 
+    // Run the import as a job and wait for it to finish, whatever the outcome
+    private static Mono<ImportJob> runImportJob(ImportJobService importJobService, String type,
+                                                Function<ImportJob, Mono<Long>> importer) {
+        return Mono.defer(() -> importJobService.submit(type, importer).completion())
+                .doOnNext(job -> logger.info("Import of {} finished: {}", type, job.progress(importJobService.now())));
+    }
+
     @Bean(name = "airportNewDataGeneratorFromFile")
     public Flux<AirportNew> generateAirportNewFromFile(AirportNewService airportNewService) {
-        Flux<AirportNew> demoAirportsFromFile = AirportDataDemo.getDemoAirportsFromFile("stuff/data/airports/iaka_airports.jsonl");
-        return demoAirportsFromFile.flatMap(airport -> airportNewService
+        return createAirportsIfAbsent(AirportDataDemo.getDemoAirportsFromFile(AIRPORTS_FILE), airportNewService);
+    }
+
+    private static Flux<AirportNew> createAirportsIfAbsent(Flux<AirportNew> airports, AirportNewService airportNewService) {
+        return airports.flatMap(airport -> airportNewService
                 .getAirportByIcaoCode(airport.getIcaoCode())
                 .hasElement()
                 .flatMap(existingAirport -> {
@@ -98,10 +115,14 @@ public class DataDemoProfileConfig {
 
     @Bean(name = "airlineNewDataGenerator")
     public Flux<AirlineNew> generateAirlineNewFromFile(AirlineNewService airlineNewService) {
-        Flux<AirlineNew> demoAirlinesFromFile = AirlineDataDemo.getDemoAirlinesFromFile("stuff/data/airlines/airlines.csv");
+        return createAirlinesIfAbsent(AirlineDataDemo.getDemoAirlinesFromFile(AIRLINES_FILE), airlineNewService, () -> {
+        });
+    }
 
+    private static Flux<AirlineNew> createAirlinesIfAbsent(Flux<AirlineNew> airlines, AirlineNewService airlineNewService,
+                                                           Runnable onFailed) {
         // Insert sample airlines into the database
-        Flux<AirlineNew> airlineFlux = demoAirlinesFromFile
+        Flux<AirlineNew> airlineFlux = airlines
                 .flatMap(airline -> airlineNewService
                         .getAirlineByIcaoCode(airline.getIcaoCode())
                         .hasElement()
@@ -114,6 +135,7 @@ public class DataDemoProfileConfig {
                         })
                         .onErrorResume(e -> {
                             logger.warn("Could not create airline {}: {}", airline.getIcaoCode(), e.getMessage());
+                            onFailed.run();
                             return Mono.empty();
                         })
                 );
@@ -1,7 +1,10 @@
 package com.execodex.sparrowair2.datademo.faa;
 
 import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import com.execodex.sparrowair2.services.caa.FaaMasterFileParser;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import reactor.core.publisher.Flux;
 
 import java.io.BufferedReader;
@@ -71,14 +74,14 @@ public class FaaAircraftRegistrationDataDemo {
     }
     
     /**
-     * Get FAA aircraft registrations from file with a specified buffer size (for compatibility)
+     * Get FAA aircraft registrations from file, reading it in buffers of the specified size
      * @param path Path to the CSV file
-     * @param bufferSize Buffer size (ignored in this implementation)
+     * @param bufferSize Bytes read from the file at a time
      * @return Flux of FaaAircraftRegistration objects
      */
     public static Flux<FaaAircraftRegistration> getFaaAircraftRegistrationsFromFile(String path, int bufferSize) {
-        // Buffer size is ignored in this implementation
-        return getFaaAircraftRegistrationsFromFile(path);
+        return FaaMasterFileParser.parse(
+                DataBufferUtils.read(new ClassPathResource(path), DefaultDataBufferFactory.sharedInstance, bufferSize));
     }
 
     /**
@@ -0,0 +1,45 @@
+package com.execodex.sparrowair2.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("idempotency_keys")
+public class IdempotencyKey {
+    @Id
+    private Long id;
+
+    @Column("scope")
+    private String scope; // method and path the key was sent to
+
+    @Column("idempotency_key")
+    private String idempotencyKey;
+
+    @Column("request_hash")
+    private String requestHash;
+
+    @Column("status_code")
+    private Integer statusCode; // null while the request is being processed
+
+    @Column("content_type")
+    private String contentType;
+
+    @Column("response_body")
+    private String responseBody;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -8,6 +8,8 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,6 +28,19 @@ public class Seat {
     @Column("class")
     private SeatClass seatClass;
 
+    // row, letter and position are also in the seat number, as text, these are for queries
+    @Column("row_num")
+    private Integer rowNumber;
+
+    @Column("seat_letter")
+    private String seatLetter;
+
+    @Column("position")
+    private SeatPosition position;
+
     @Column("status")
     private SeatStatus status;
+
+    @Column("hold_expires_at")
+    private LocalDateTime holdExpiresAt; // only set while the seat is on HOLD
 }
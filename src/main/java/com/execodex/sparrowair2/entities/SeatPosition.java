@@ -0,0 +1,18 @@
+package com.execodex.sparrowair2.entities;
+
+public enum SeatPosition {
+    WINDOW("Window"),
+    MIDDLE("Middle"),
+    AISLE("Aisle"),
+    UNKNOWN("Unknown");
+
+    private final String displayName;
+
+    SeatPosition(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
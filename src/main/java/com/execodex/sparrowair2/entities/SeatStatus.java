@@ -1,5 +1,6 @@
 package com.execodex.sparrowair2.entities;
 
 public enum SeatStatus {
-    AVAILABLE, BOOKED, RESERVED
-}
\ No newline at end of file
+    // HOLD: locked for a checkout until the seat's holdExpiresAt, then available again
+    AVAILABLE, HOLD, BOOKED, RESERVED
+}
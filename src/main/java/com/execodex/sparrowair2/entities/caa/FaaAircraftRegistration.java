@@ -1,5 +1,6 @@
 package com.execodex.sparrowair2.entities.caa;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -86,6 +87,11 @@ public class FaaAircraftRegistration {
     @Column("mode_scode_hex")
     private String modeScodeHex; // Positions 602-611: Mode S Code in Hexadecimal Format
 
+    // Fingerprint of the fields above as last loaded from the FAA MASTER file, see FaaRegistrationFingerprint; not
+    // part of the API, so a registration saved through it has none and is rewritten by the next delta sync
+    @JsonIgnore
+    private Long rowHash;
+
 
     /**
      * Parses a line from the FAA aircraft registration fixed-width text file.
@@ -2,6 +2,8 @@ package com.execodex.sparrowair2.handlers;
 
 import com.execodex.sparrowair2.entities.Booking;
 import com.execodex.sparrowair2.services.BookingService;
+import com.execodex.sparrowair2.services.IdempotencyKeyConflictException;
+import com.execodex.sparrowair2.services.IdempotencyService;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -12,9 +14,11 @@ import reactor.core.publisher.Mono;
 @Component
 public class BookingHandler {
     private final BookingService bookingService;
+    private final IdempotencyService idempotencyService;
 
-    public BookingHandler(BookingService bookingService) {
+    public BookingHandler(BookingService bookingService, IdempotencyService idempotencyService) {
         this.bookingService = bookingService;
+        this.idempotencyService = idempotencyService;
     }
 
     public Mono<ServerResponse> handleGetAllBookings(ServerRequest request) {
@@ -23,10 +27,13 @@ public class BookingHandler {
 
     public Mono<ServerResponse> createBooking(ServerRequest request) {
         return request.bodyToMono(Booking.class)
-                .flatMap(bookingService::createBooking)
-                .flatMap(booking -> ServerResponse.ok().bodyValue(booking))
+                .flatMap(booking -> IdempotentRequests.respond(idempotencyService, request, booking, HttpStatus.OK,
+                        () -> bookingService.createBooking(booking)))
                 .switchIfEmpty(ServerResponse.badRequest().build())
                 .onErrorResume(e -> {
+                    if (e instanceof IdempotencyKeyConflictException conflict) {
+                        return IdempotentRequests.conflict(conflict);
+                    }
                     if (e instanceof DuplicateKeyException) {
                         return ServerResponse
                                 .status(HttpStatus.CONFLICT)
@@ -54,6 +61,14 @@ public class BookingHandler {
                 .onErrorResume(this::handleError);
     }
 
+    public Mono<ServerResponse> handleGetBookingByReference(ServerRequest request) {
+        String reference = request.pathVariable("reference");
+        return bookingService.getBookingByReference(reference)
+                .flatMap(booking -> ServerResponse.ok().bodyValue(booking))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(this::handleError);
+    }
+
     public Mono<ServerResponse> updateBooking(ServerRequest request) {
         Long id = Long.parseLong(request.pathVariable("id"));
         return request.bodyToMono(Booking.class)
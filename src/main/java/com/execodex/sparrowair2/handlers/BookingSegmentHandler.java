@@ -1,7 +1,12 @@
 package com.execodex.sparrowair2.handlers;
 
 import com.execodex.sparrowair2.entities.BookingSegment;
+import com.execodex.sparrowair2.model.AdjacentSeatsRequest;
+import com.execodex.sparrowair2.model.ItineraryBookingRequest;
 import com.execodex.sparrowair2.services.BookingSegmentService;
+import com.execodex.sparrowair2.services.IdempotencyKeyConflictException;
+import com.execodex.sparrowair2.services.IdempotencyService;
+import com.execodex.sparrowair2.services.SeatNotAvailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -18,9 +23,11 @@ public class BookingSegmentHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(BookingSegmentService.class);
     private final BookingSegmentService bookingSegmentService;
+    private final IdempotencyService idempotencyService;
 
-    public BookingSegmentHandler(BookingSegmentService bookingSegmentService) {
+    public BookingSegmentHandler(BookingSegmentService bookingSegmentService, IdempotencyService idempotencyService) {
         this.bookingSegmentService = bookingSegmentService;
+        this.idempotencyService = idempotencyService;
     }
 
     public Mono<ServerResponse> getAllBookingSegments(ServerRequest request) {
@@ -51,21 +58,85 @@ public class BookingSegmentHandler {
         Mono<BookingSegment> bookingSegmentMono = request.bodyToMono(BookingSegment.class);
         return bookingSegmentMono
                 .doOnNext(segment -> logger.info("Received booking segment request: {}", segment))
-                .flatMap(bookingSegmentService::createBookingSegment)
-                .doOnSuccess(segment -> logger.info("Successfully created booking segment: {}", segment))
+                .flatMap(segment -> IdempotentRequests.respond(idempotencyService, request, segment, HttpStatus.CREATED,
+                        () -> bookingSegmentService.createBookingSegment(segment)
+                                .doOnSuccess(created -> logger.info("Successfully created booking segment: {}", created))))
                 .doOnError(e -> logger.error("Failed to create booking segment", e))
-
-                .flatMap(bookingSegment -> ServerResponse
-                        .status(HttpStatus.CREATED)
-                        .contentType(APPLICATION_JSON)
-                        .bodyValue(bookingSegment))
                 .onErrorResume(e -> {
-                    System.err.println("Error creating booking segment: " + e.getMessage());
+                    if (e instanceof IdempotencyKeyConflictException conflict) {
+                        return IdempotentRequests.conflict(conflict);
+                    }
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
                     return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .bodyValue("Error creating booking segment");
                 });
     }
 
+    public Mono<ServerResponse> reserveBookingSegment(ServerRequest request) {
+        return request.bodyToMono(BookingSegment.class)
+                .flatMap(segment -> IdempotentRequests.respond(idempotencyService, request, segment, HttpStatus.CREATED,
+                        () -> bookingSegmentService.reserveBookingSegment(segment)))
+                .onErrorResume(e -> {
+                    if (e instanceof IdempotencyKeyConflictException conflict) {
+                        return IdempotentRequests.conflict(conflict);
+                    }
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
+                    logger.error("Error reserving booking segment", e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error reserving booking segment");
+                });
+    }
+
+    public Mono<ServerResponse> bookItinerary(ServerRequest request) {
+        return request.bodyToMono(ItineraryBookingRequest.class)
+                .flatMap(itinerary -> IdempotentRequests.respond(idempotencyService, request, itinerary, HttpStatus.CREATED,
+                        () -> bookingSegmentService.bookItinerary(itinerary.getBookingId(), itinerary.getLegs())))
+                .onErrorResume(e -> {
+                    if (e instanceof IdempotencyKeyConflictException conflict) {
+                        return IdempotentRequests.conflict(conflict);
+                    }
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
+                    if (e instanceof IllegalArgumentException) {
+                        return ServerResponse.badRequest()
+                                .bodyValue(e.getMessage());
+                    }
+                    logger.error("Error booking itinerary", e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error booking itinerary");
+                });
+    }
+
+    public Mono<ServerResponse> bookAdjacentSeats(ServerRequest request) {
+        return request.bodyToMono(AdjacentSeatsRequest.class)
+                .flatMap(adjacentSeats -> IdempotentRequests.respond(idempotencyService, request, adjacentSeats, HttpStatus.CREATED,
+                        () -> bookingSegmentService.bookAdjacentSeats(adjacentSeats)))
+                .onErrorResume(e -> {
+                    if (e instanceof IdempotencyKeyConflictException conflict) {
+                        return IdempotentRequests.conflict(conflict);
+                    }
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
+                    if (e instanceof IllegalArgumentException) {
+                        return ServerResponse.badRequest()
+                                .bodyValue(e.getMessage());
+                    }
+                    logger.error("Error booking adjacent seats", e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error booking adjacent seats");
+                });
+    }
+
     private Mono<ServerResponse> handleError(Throwable error) {
         return ServerResponse
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -81,12 +152,31 @@ public class BookingSegmentHandler {
                         .contentType(APPLICATION_JSON)
                         .bodyValue(bookingSegment))
                 .onErrorResume(e -> {
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
                     System.err.println("Error updating booking segment with ID " + id + ": " + e.getMessage());
                     return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .bodyValue("Error updating booking segment with ID " + id);
                 });
     }
 
+    // Cancel all segments of a booking, responds with the cancelled segments
+    public Mono<ServerResponse> cancelBookingSegments(ServerRequest request) {
+        Long bookingId = Long.parseLong(request.pathVariable("bookingId"));
+        return bookingSegmentService.cancelBookingSegments(bookingId)
+                .collectList()
+                .flatMap(cancelledSegments -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(cancelledSegments))
+                .onErrorResume(e -> {
+                    logger.error("Error cancelling the booking segments of booking ID {}", bookingId, e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error cancelling the booking segments of booking ID " + bookingId);
+                });
+    }
+
     public Mono<ServerResponse> createBookingSegment2(ServerRequest request) {
         Mono<ServerResponse> errorCreatingBookingSegment = request.bodyToMono(BookingSegment.class)
                 .flatMap(bookingSegment -> bookingSegmentService.createBookingSegment2(bookingSegment))
@@ -95,7 +185,10 @@ public class BookingSegmentHandler {
                         .contentType(APPLICATION_JSON)
                         .bodyValue(bookingSegment))
                 .onErrorResume(e -> {
-                    System.err.println("Error creating booking segment: " + e.getMessage());
+                    if (e instanceof SeatNotAvailableException) {
+                        return ServerResponse.status(HttpStatus.CONFLICT)
+                                .bodyValue(e.getMessage());
+                    }
                     return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .bodyValue("Error creating booking segment");
                 });
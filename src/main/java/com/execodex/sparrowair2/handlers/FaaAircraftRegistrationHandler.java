@@ -2,7 +2,11 @@ package com.execodex.sparrowair2.handlers;
 
 import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
 import com.execodex.sparrowair2.services.FaaAircraftRegistrationService;
-import org.springframework.core.io.buffer.DataBufferUtils;
+import com.execodex.sparrowair2.services.ImportJob;
+import com.execodex.sparrowair2.services.ImportJobService;
+import com.execodex.sparrowair2.services.caa.MappedFaaMasterFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.codec.multipart.FilePart;
@@ -11,24 +15,37 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
-
-import static com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration.parseAircraftRegistrationFromCsvLine2;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @Component
 public class FaaAircraftRegistrationHandler {
 
+    private static final Logger logger = LoggerFactory.getLogger(FaaAircraftRegistrationHandler.class);
+
+    // the type of the import jobs of uploaded files
+    private static final String IMPORT_TYPE = "faa-aircraft-registrations";
+    // how an uploaded file is imported: only adding new registrations, or syncing the registrations with it
+    private static final String FULL_MODE = "full";
+    private static final String DELTA_MODE = "delta";
+
+    // prefix of the temp files the uploaded files are copied to
+    private static final String UPLOAD_PREFIX = "faa-master-";
+
     private final FaaAircraftRegistrationService faaAircraftRegistrationService;
+    private final ImportJobService importJobService;
 
-    public FaaAircraftRegistrationHandler(FaaAircraftRegistrationService faaAircraftRegistrationService) {
+    public FaaAircraftRegistrationHandler(FaaAircraftRegistrationService faaAircraftRegistrationService,
+                                          ImportJobService importJobService) {
         this.faaAircraftRegistrationService = faaAircraftRegistrationService;
+        this.importJobService = importJobService;
     }
 
     // Get all FAA aircraft registrations
@@ -150,8 +167,13 @@ public class FaaAircraftRegistrationHandler {
                 .bodyValue("An error in FaaAircraftRegistrationHandler occurred: " + error.getMessage());
     }
 
-    // Upload and process FAA aircraft registrations from a file
+    // Upload and process FAA aircraft registrations from a file; mode=delta syncs the registrations with the file
+    // instead of only adding the new ones
     public Mono<ServerResponse> uploadFaaAircraftRegistrationsFile(ServerRequest request) {
+        String mode = request.queryParam("mode").orElse(FULL_MODE);
+        if (!mode.equals(FULL_MODE) && !mode.equals(DELTA_MODE)) {
+            return ServerResponse.badRequest().bodyValue("Unknown import mode: " + mode + ", expected " + FULL_MODE + " or " + DELTA_MODE);
+        }
         return request.multipartData()
                 .flatMap(multipartData -> {
                     if (!multipartData.containsKey("file")) {
@@ -163,108 +185,20 @@ public class FaaAircraftRegistrationHandler {
                         return ServerResponse.badRequest().bodyValue("File part is null");
                     }
 
-                    // This will hold any leftover bytes from the previous buffer that didn't contain a newline
-                    AtomicReference<String> leftover = new AtomicReference<>("");
-
-                    // Flag to skip the header row
-                    AtomicReference<Boolean> headerSkipped = new AtomicReference<>(false);
-
-                    // Process the file content
-                    Flux<FaaAircraftRegistration> registrationsFlux = filePart.content()
-                            .concatMap(dataBuffer -> {
-                                // Convert buffer to string
-                                byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                                dataBuffer.read(bytes);
-                                DataBufferUtils.release(dataBuffer);
-                                String content = leftover.getAndSet("") + new String(bytes, StandardCharsets.UTF_8);
-
-                                // Process the content to extract complete lines
-                                List<String> lines = new ArrayList<>();
-                                int lastNewlineIndex = content.lastIndexOf('\n');
-
-                                if (lastNewlineIndex >= 0) {
-                                    // We have at least one complete line
-                                    String completeLines = content.substring(0, lastNewlineIndex + 1);
-
-                                    // Store any remaining content for the next buffer
-                                    if (lastNewlineIndex < content.length() - 1) {
-                                        leftover.set(content.substring(lastNewlineIndex + 1));
-                                    }
-
-                                    // Split complete lines and add to our list
-                                    for (String line : completeLines.split("\n")) {
-                                        if (!line.trim().isEmpty()) {
-                                            lines.add(line);
-                                        }
-                                    }
-                                } else {
-                                    // No newline found, add all content to leftover
-                                    leftover.set(content);
-                                }
-
-                                return Flux.fromIterable(lines);
-                            })
-                            // Process any remaining content after all buffers are read
-                            .concatWith(Mono.fromSupplier(() -> {
-                                String remaining = leftover.getAndSet("");
-                                if (!remaining.trim().isEmpty()) {
-                                    return remaining;
-                                }
-                                return null;
-                            }).filter(Objects::nonNull).flux())
-                            // Skip header if present (first line)
-                            .flatMap(line -> {
-                                if (line == null || line.trim().isEmpty()) {
-                                    return Mono.empty();
-                                }
-
-                                // Skip the header row
-                                if (!headerSkipped.get()) {
-                                    headerSkipped.set(true);
-                                    return Mono.empty();
-                                }
-
-                                try {
-                                    // Parse CSV line into FaaAircraftRegistration object
-                                    FaaAircraftRegistration registration = parseAircraftRegistrationFromCsvLine2(line);
-                                    return Mono.justOrEmpty(registration);
-                                } catch (Exception e) {
-                                    // Only log errors for non-empty lines
-                                    if (!line.trim().isEmpty()) {
-                                        System.err.println("Error parsing line: " + e.getMessage());
-                                    }
-                                    return Mono.empty();
-                                }
-                            })
-                            // Add onErrorContinue to handle errors without breaking the stream
-                            .onErrorContinue((throwable, o) -> {
-                                System.err.println("Error processing registration: " + throwable.getMessage());
-                            });
-
-                    // Process registrations in the background and return a quick response
-                    // This prevents connection reset issues when clients disconnect before processing completes
-                    Mono<Void> processingMono = faaAircraftRegistrationService.bulkInsertFaaAircraftRegistrations(registrationsFlux)
-                            .doOnNext(registration -> {
-                                // Process each registration but don't include in response
-                            })
-                            .then()
-                            .doOnError(e -> {
-                                if (e instanceof java.net.SocketException && e.getMessage().contains("Connection reset")) {
-                                    // Log but don't propagate connection reset errors
-                                    System.err.println("Client disconnected before processing completed: " + e.getMessage());
-                                } else {
-                                    System.err.println("Error during bulk insert: " + e.getMessage());
-                                }
-                            })
-                            .onErrorComplete(); // Complete even if there's an error
-
-                    // Start processing in the background
-                    processingMono.subscribe();
-
-                    // Return immediate success response to the client
-                    return ServerResponse.accepted()
-                            .contentType(APPLICATION_JSON)
-                            .bodyValue("File upload accepted for processing");
+                    // The multipart temp files are deleted once the response is sent, and a queued job starts
+                    // later: the upload is copied to a file of the job before answering
+                    return Mono.fromCallable(() -> Files.createTempFile(UPLOAD_PREFIX, ".txt"))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(file -> filePart.transferTo(file)
+                                    .then(Mono.fromSupplier(() -> submitImport(file, mode)))
+                                    .onErrorResume(e -> {
+                                        deleteUpload(file);
+                                        return Mono.error(e);
+                                    }))
+                            .flatMap(job -> ServerResponse.accepted()
+                                    .location(URI.create("/faa-aircraft-registrations/imports/" + job.getId()))
+                                    .contentType(APPLICATION_JSON)
+                                    .bodyValue(job.progress(importJobService.now())));
                 })
                 .onErrorResume(e -> {
                     if (e instanceof java.net.SocketException && e.getMessage().contains("Connection reset")) {
@@ -275,4 +209,57 @@ public class FaaAircraftRegistrationHandler {
                     return this.handleError(e);
                 });
     }
+
+    // Import the uploaded file in the background as a job, mapping it in chunks parsed in parallel; the client follows
+    // its progress, so a client disconnecting doesn't stop the import. The file is deleted once the job has read it,
+    // or once it is finished if it never started
+    private ImportJob submitImport(Path file, String mode) {
+        ImportJob job = importJobService.submit(IMPORT_TYPE, importJob -> {
+            // a sync doesn't delete what a skipped line may still hold
+            AtomicLong skippedLines = new AtomicLong();
+            Flux<FaaAircraftRegistration> registrations = importJob.track(MappedFaaMasterFileReader.read(file, () -> {
+                skippedLines.incrementAndGet();
+                importJob.rowFailed();
+            }));
+            return (mode.equals(DELTA_MODE)
+                    ? faaAircraftRegistrationService.syncFaaAircraftRegistrations(registrations, skippedLines::get)
+                    : faaAircraftRegistrationService.loadFaaAircraftRegistrations(registrations))
+                    .doFinally(signal -> deleteUpload(file));
+        });
+        job.completion().subscribe(finished -> deleteUpload(file));
+        return job;
+    }
+
+    private void deleteUpload(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete uploaded file {}", file, e);
+        }
+    }
+
+    // Get the progress of the import of an uploaded file
+    public Mono<ServerResponse> getImportJob(ServerRequest request) {
+        return Mono.justOrEmpty(importJobService.getJob(request.pathVariable("id")))
+                .filter(job -> IMPORT_TYPE.equals(job.getType()))
+                .flatMap(job -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(job.progress(importJobService.now())))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // Cancel the import of an uploaded file; the rows written so far stay
+    public Mono<ServerResponse> cancelImportJob(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return Mono.justOrEmpty(importJobService.getJob(id))
+                .filter(job -> IMPORT_TYPE.equals(job.getType()))
+                .flatMap(job -> {
+                    importJobService.cancel(id);
+                    HttpStatus status = job.getStatus() == ImportJob.Status.CANCELLED ? HttpStatus.OK : HttpStatus.CONFLICT;
+                    return ServerResponse.status(status)
+                            .contentType(APPLICATION_JSON)
+                            .bodyValue(job.progress(importJobService.now()));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
 }
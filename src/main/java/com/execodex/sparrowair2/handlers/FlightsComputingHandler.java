@@ -5,33 +5,53 @@ package com.execodex.sparrowair2.handlers;
 import com.execodex.sparrowair2.entities.skybrary.AirportNew;
 import com.execodex.sparrowair2.services.AirportNewService;
 import com.execodex.sparrowair2.services.computing.FlightsComputing;
+import com.execodex.sparrowair2.services.computing.FlightsComputingProperties;
+import com.execodex.sparrowair2.services.computing.RouteSearchStrategy;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 
 @Component
 public class FlightsComputingHandler {
 
+    private static final int DEFAULT_ROUTES = 3;
+    private static final int MAX_ROUTES = 10;
+
     private final FlightsComputing flightsComputing;
     private final AirportNewService airportService;
+    private final FlightsComputingProperties properties;
 
-    public FlightsComputingHandler(FlightsComputing flightsComputing, AirportNewService airportService) {
+    public FlightsComputingHandler(FlightsComputing flightsComputing, AirportNewService airportService,
+                                   FlightsComputingProperties properties) {
         this.flightsComputing = flightsComputing;
         this.airportService = airportService;
+        this.properties = properties;
     }
 
     // Get airport to airports flights mapping
     public Mono<ServerResponse> getAirportToAirportsFlights(ServerRequest request) {
         return ServerResponse.ok()
-                .contentType(APPLICATION_JSON)
+                .contentType(streamingContentType(request))
                 .body(flightsComputing.airpotToAirportsIcao(), Object.class)
                 .onErrorResume(this::handleError);
     }
 
+    // Clients asking for NDJSON get one line per airport, written as soon as it is read from the database
+    private MediaType streamingContentType(ServerRequest request) {
+        boolean ndjson = request.headers().accept().stream()
+                .anyMatch(APPLICATION_NDJSON::equalsTypeAndSubtype);
+        return ndjson ? APPLICATION_NDJSON : APPLICATION_JSON;
+    }
+
     // Common error handler
     private Mono<ServerResponse> handleError(Throwable error) {
         return ServerResponse
@@ -41,12 +61,13 @@ public class FlightsComputingHandler {
 
     public Mono<ServerResponse> getAirportsToFlights(ServerRequest request) {
         return ServerResponse.ok()
-                .contentType(APPLICATION_JSON)
+                .contentType(streamingContentType(request))
                 .body(flightsComputing.airpotsToFlights(), Object.class)
                 .onErrorResume(this::handleError);
     }
 
-    // Get route between two airports
+    // Get route between two airports, by default with the original depth-first search; strategy=bfs or bidirectional
+    // returns the one with the fewest legs
     public Mono<ServerResponse> getRoute(ServerRequest request) {
         String departureIcao = request.queryParam("departure").orElse("");
         String arrivalIcao = request.queryParam("arrival").orElse("");
@@ -56,6 +77,24 @@ public class FlightsComputingHandler {
                     .bodyValue("Both departure and arrival airport ICAO codes are required");
         }
 
+        RouteSearchStrategy strategy;
+        int maxHops;
+        try {
+            strategy = request.queryParam("strategy")
+                    .map(RouteSearchStrategy::fromParameter)
+                    .orElse(RouteSearchStrategy.DFS);
+            maxHops = request.queryParam("maxHops")
+                    .map(Integer::parseInt)
+                    .orElse(properties.maxHops());
+        } catch (IllegalArgumentException e) { // also covers NumberFormatException
+            return ServerResponse.badRequest()
+                    .bodyValue("Invalid strategy or maxHops: " + e.getMessage());
+        }
+        if (maxHops < 1) {
+            return ServerResponse.badRequest()
+                    .bodyValue("maxHops must be at least 1");
+        }
+
         return Mono.zip(
                         airportService.getAirportByIcaoCode(departureIcao),
                         airportService.getAirportByIcaoCode(arrivalIcao)
@@ -69,7 +108,7 @@ public class FlightsComputingHandler {
                                 .bodyValue("One or both of the specified airports could not be found");
                     }
 
-                    return flightsComputing.getRoute(departureAirport, arrivalAirport)
+                    return flightsComputing.getRoute(departureAirport, arrivalAirport, strategy, maxHops)
                             .flatMap(route -> ServerResponse.ok()
                                     .contentType(APPLICATION_JSON)
                                     .bodyValue(route));
@@ -107,4 +146,75 @@ public class FlightsComputingHandler {
                 })
                 .onErrorResume(this::handleError);
     }
+
+    // Get up to k alternative routes between two airports, shortest first
+    public Mono<ServerResponse> getKShortestRoutes(ServerRequest request) {
+        String departureIcao = request.queryParam("departure").orElse("");
+        String arrivalIcao = request.queryParam("arrival").orElse("");
+
+        if (departureIcao.isEmpty() || arrivalIcao.isEmpty()) {
+            return ServerResponse.badRequest()
+                    .bodyValue("Both departure and arrival airport ICAO codes are required");
+        }
+
+        int k;
+        int maxLegs;
+        try {
+            k = request.queryParam("k").map(Integer::parseInt).orElse(DEFAULT_ROUTES);
+            maxLegs = request.queryParam("maxLegs").map(Integer::parseInt).orElse(properties.maxHops());
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest()
+                    .bodyValue("k and maxLegs must be numbers");
+        }
+        // maxLegs bounds the work of a search, so it can't go beyond the configured maximum
+        if (k < 1 || k > MAX_ROUTES || maxLegs < 1 || maxLegs > properties.maxHops()) {
+            return ServerResponse.badRequest()
+                    .bodyValue("k must be between 1 and " + MAX_ROUTES + " and maxLegs between 1 and " + properties.maxHops());
+        }
+
+        return Mono.zip(
+                        airportService.getAirportByIcaoCode(departureIcao),
+                        airportService.getAirportByIcaoCode(arrivalIcao)
+                )
+                .flatMap(tuple -> flightsComputing.getKShortestRoutes(tuple.getT1(), tuple.getT2(), k, maxLegs)
+                        .flatMap(routes -> ServerResponse.ok()
+                                .contentType(APPLICATION_JSON)
+                                .bodyValue(routes)))
+                .switchIfEmpty(ServerResponse.badRequest()
+                        .bodyValue("One or both of the specified airports could not be found"))
+                .onErrorResume(this::handleError);
+    }
+
+    // Get the route arriving the earliest, respecting flight schedules and minimum connection times
+    public Mono<ServerResponse> getEarliestArrival(ServerRequest request) {
+        String departureIcao = request.queryParam("departure").orElse("");
+        String arrivalIcao = request.queryParam("arrival").orElse("");
+
+        if (departureIcao.isEmpty() || arrivalIcao.isEmpty()) {
+            return ServerResponse.badRequest()
+                    .bodyValue("Both departure and arrival airport ICAO codes are required");
+        }
+
+        LocalDateTime departureAfter;
+        try {
+            departureAfter = request.queryParam("departureAfter")
+                    .map(LocalDateTime::parse)
+                    .orElseGet(LocalDateTime::now);
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest()
+                    .bodyValue("departureAfter must be an ISO date-time, e.g. 2025-06-01T08:00:00");
+        }
+
+        return Mono.zip(
+                        airportService.getAirportByIcaoCode(departureIcao),
+                        airportService.getAirportByIcaoCode(arrivalIcao)
+                )
+                .flatMap(tuple -> flightsComputing.getEarliestArrival(tuple.getT1(), tuple.getT2(), departureAfter)
+                        .flatMap(route -> ServerResponse.ok()
+                                .contentType(APPLICATION_JSON)
+                                .bodyValue(route)))
+                .switchIfEmpty(ServerResponse.badRequest()
+                        .bodyValue("One or both of the specified airports could not be found"))
+                .onErrorResume(this::handleError);
+    }
 }
@@ -0,0 +1,64 @@
+package com.execodex.sparrowair2.handlers;
+
+import com.execodex.sparrowair2.services.IdempotencyKeyConflictException;
+import com.execodex.sparrowair2.services.IdempotencyService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+// Handling of the Idempotency-Key header, for the handlers of requests that create something
+final class IdempotentRequests {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    // set on a response that was stored for an earlier request with the same key
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private IdempotentRequests() {
+    }
+
+    /**
+     * Responds with the result of the action, as JSON with the given status. With an Idempotency-Key the action runs
+     * once per key, retries get the response of the first request.
+     *
+     * @param body the body of the request, a retry with the same key has to send the same one
+     */
+    static <T> Mono<ServerResponse> respond(IdempotencyService idempotencyService, ServerRequest request, Object body,
+                                            HttpStatus status, Supplier<Mono<T>> action) {
+        String key = request.headers().firstHeader(IDEMPOTENCY_KEY);
+        if (key == null) {
+            return action.get()
+                    .flatMap(result -> ServerResponse
+                            .status(status)
+                            .contentType(APPLICATION_JSON)
+                            .bodyValue(result));
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ServerResponse.badRequest()
+                    .bodyValue("The Idempotency-Key has to be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String scope = request.method().name() + ' ' + request.path();
+        return idempotencyService.execute(scope, key, body, status, Mono.defer(action))
+                .flatMap(response -> ServerResponse
+                        .status(response.status())
+                        .contentType(MediaType.parseMediaType(response.contentType()))
+                        .headers(headers -> {
+                            if (response.replayed()) {
+                                headers.set(IDEMPOTENT_REPLAYED, "true");
+                            }
+                        })
+                        .bodyValue(response.body()));
+    }
+
+    // 409 while the request with the key still runs, 422 if the key was used with another request
+    static Mono<ServerResponse> conflict(IdempotencyKeyConflictException e) {
+        return ServerResponse.status(e.isInProgress() ? HttpStatus.CONFLICT : HttpStatus.UNPROCESSABLE_ENTITY)
+                .bodyValue(e.getMessage());
+    }
+}
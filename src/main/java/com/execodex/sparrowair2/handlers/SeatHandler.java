@@ -1,6 +1,8 @@
 package com.execodex.sparrowair2.handlers;
 
 import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
 import com.execodex.sparrowair2.services.SeatService;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -8,6 +10,9 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 @Component
@@ -68,6 +73,51 @@ public class SeatHandler {
                 .onErrorResume(this::handleError);
     }
 
+    // Available seats of a flight, optionally only of a seatClass and a position (WINDOW, MIDDLE, AISLE)
+    public Mono<ServerResponse> getAvailableSeats(ServerRequest request) {
+        return Mono.fromCallable(() -> Long.parseLong(request.pathVariable("flightId")))
+                .flatMap(flightId -> {
+                    SeatClass seatClass = request.queryParam("seatClass").map(String::toUpperCase).map(SeatClass::valueOf).orElse(null);
+                    SeatPosition position = request.queryParam("position").map(String::toUpperCase).map(SeatPosition::valueOf).orElse(null);
+                    return ServerResponse.ok()
+                            .contentType(APPLICATION_JSON)
+                            .body(seatService.getAvailableSeats(flightId, seatClass, position), Seat.class);
+                })
+                .onErrorResume(this::handleError);
+    }
+
+    // Seat counts of the flights given as flightIds query parameters, each a single ID or comma-separated IDs
+    public Mono<ServerResponse> getAvailability(ServerRequest request) {
+        return Mono.fromCallable(() -> request.queryParams().getOrDefault("flightIds", List.of()).stream()
+                        .flatMap(ids -> Arrays.stream(ids.split(",")))
+                        .map(String::trim)
+                        .filter(id -> !id.isEmpty())
+                        .map(Long::parseLong)
+                        .toList())
+                .flatMap(this::availabilityResponse)
+                .onErrorResume(this::handleError);
+    }
+
+    // Seat counts of the flights whose IDs are in the body, a JSON array; for more flights than fit in a URL
+    public Mono<ServerResponse> getAvailabilityInBatch(ServerRequest request) {
+        return request.bodyToMono(Long[].class)
+                .map(Arrays::asList)
+                .defaultIfEmpty(List.of())
+                .flatMap(this::availabilityResponse)
+                .onErrorResume(this::handleError);
+    }
+
+    private Mono<ServerResponse> availabilityResponse(List<Long> flightIds) {
+        if (flightIds.isEmpty()) {
+            return ServerResponse.badRequest().bodyValue("No flight IDs given");
+        }
+        return seatService.getAvailability(flightIds)
+                .collectList()
+                .flatMap(availability -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(availability));
+    }
+
     public Mono<ServerResponse> getSeatsByFlightNumber(ServerRequest request) {
         String flightNumber = request.pathVariable("flightNumber");
         return ServerResponse.ok()
@@ -78,6 +128,10 @@ public class SeatHandler {
 
     // Common error handler
     private Mono<ServerResponse> handleError(Throwable error) {
+        if (error instanceof IllegalArgumentException) {
+            return ServerResponse.badRequest()
+                    .bodyValue(error.getMessage());
+        }
         return ServerResponse
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .bodyValue("An error in SeatHandler occurred: " + error.getMessage());
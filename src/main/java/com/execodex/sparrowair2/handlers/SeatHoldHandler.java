@@ -0,0 +1,74 @@
+package com.execodex.sparrowair2.handlers;
+
+import com.execodex.sparrowair2.services.SeatHoldService;
+import com.execodex.sparrowair2.services.SeatNotAvailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@Component
+public class SeatHoldHandler {
+
+    private final SeatHoldService seatHoldService;
+
+    public SeatHoldHandler(SeatHoldService seatHoldService) {
+        this.seatHoldService = seatHoldService;
+    }
+
+    // Hold a seat, for the ISO-8601 duration of the optional ttl query parameter (e.g. PT5M)
+    public Mono<ServerResponse> holdSeat(ServerRequest request) {
+        Long seatId = Long.parseLong(request.pathVariable("seatId"));
+        String ttl = request.queryParam("ttl").orElse("");
+        Duration holdFor;
+        try {
+            holdFor = ttl.isEmpty() ? null : Duration.parse(ttl);
+        } catch (DateTimeParseException e) {
+            return ServerResponse.badRequest().bodyValue("Invalid ttl, expected an ISO-8601 duration such as PT5M");
+        }
+        return seatHoldService.holdSeat(seatId, holdFor)
+                .flatMap(seat -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(seat))
+                .onErrorResume(this::handleError);
+    }
+
+    public Mono<ServerResponse> confirmHold(ServerRequest request) {
+        Long seatId = Long.parseLong(request.pathVariable("seatId"));
+        return seatHoldService.confirmHold(seatId)
+                .flatMap(seat -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(seat))
+                .onErrorResume(this::handleError);
+    }
+
+    public Mono<ServerResponse> releaseHold(ServerRequest request) {
+        Long seatId = Long.parseLong(request.pathVariable("seatId"));
+        return seatHoldService.releaseHold(seatId)
+                .flatMap(seat -> ServerResponse.ok()
+                        .contentType(APPLICATION_JSON)
+                        .bodyValue(seat))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(this::handleError);
+    }
+
+    private Mono<ServerResponse> handleError(Throwable error) {
+        if (error instanceof SeatNotAvailableException) {
+            return ServerResponse.status(HttpStatus.CONFLICT)
+                    .bodyValue(error.getMessage());
+        }
+        if (error instanceof IllegalArgumentException) {
+            return ServerResponse.badRequest()
+                    .bodyValue(error.getMessage());
+        }
+        return ServerResponse
+                .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .bodyValue("An error in SeatHoldHandler occurred: " + error.getMessage());
+    }
+}
@@ -0,0 +1,17 @@
+package com.execodex.sparrowair2.model;
+
+import com.execodex.sparrowair2.entities.SeatClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdjacentSeatsRequest {
+    private Long bookingId;
+    private Long flightId;
+    private SeatClass seatClass;
+    private int seatCount; // seats side by side in one row, without an aisle in between
+    private SeatPreference preference; // preferred, not required; null is ANY
+}
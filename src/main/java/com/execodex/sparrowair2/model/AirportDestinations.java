@@ -0,0 +1,13 @@
+package com.execodex.sparrowair2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AirportDestinations {
+    private String departureAirportIcao; // e.g. "EGLL"
+    private String[] arrivalAirportIcaos; // arrival airport of each flight from the departure airport, e.g. ["KJFK", "LFPG"]
+}
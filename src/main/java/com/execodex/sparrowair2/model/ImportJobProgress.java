@@ -0,0 +1,25 @@
+package com.execodex.sparrowair2.model;
+
+import com.execodex.sparrowair2.services.ImportJob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobProgress {
+    private String id;
+    private String type;
+    private ImportJob.Status status;
+    private long rowsRead;
+    private long rowsWritten; // once the job completed
+    private long rowsFailed;
+    private double rowsPerSecond;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.execodex.sparrowair2.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItineraryBookingRequest {
+    private Long bookingId;
+    private List<ItineraryLeg> legs; // the flights of the itinerary, in order, each with the seat class wanted
+}
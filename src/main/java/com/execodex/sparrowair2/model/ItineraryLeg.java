@@ -0,0 +1,14 @@
+package com.execodex.sparrowair2.model;
+
+import com.execodex.sparrowair2.entities.SeatClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItineraryLeg {
+    private Long flightId;
+    private SeatClass seatClass; // a seat of that class is assigned on the flight
+}
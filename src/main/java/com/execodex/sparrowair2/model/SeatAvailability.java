@@ -0,0 +1,17 @@
+package com.execodex.sparrowair2.model;
+
+import com.execodex.sparrowair2.entities.SeatClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatAvailability {
+    private Long flightId;
+    private SeatClass seatClass;
+    private int available;
+    private int reserved; // reserved or booked
+    private int held;
+}
@@ -0,0 +1,8 @@
+package com.execodex.sparrowair2.model;
+
+// Seat position a group would like one of its seats to have
+public enum SeatPreference {
+    ANY,
+    WINDOW,
+    AISLE
+}
@@ -12,6 +12,11 @@ public interface BookingRepository extends ReactiveCrudRepository<Booking, Long>
     @Query("INSERT INTO bookings (booking_reference, passenger_id, status, created_at) " +
             "VALUES ( :#{#booking.bookingReference}, :#{#booking.passengerId}, :#{#booking.status}, :#{#booking.createdAt}) RETURNING *")
     Mono<Booking> insert(Booking booking);
+
+    // insert a booking with the ID it was given, e.g. by BookingReferenceGenerator
+    @Query("INSERT INTO bookings (id, booking_reference, passenger_id, status, created_at) " +
+            "VALUES (:#{#booking.id}, :#{#booking.bookingReference}, :#{#booking.passengerId}, :#{#booking.status}, :#{#booking.createdAt}) RETURNING *")
+    Mono<Booking> insertWithId(Booking booking);
     // FIND BY flight id
     @Query("SELECT * FROM bookings WHERE flight_id = :flightId RETURNING *")
     Flux<Booking> findByFlightId(Long flightId);
@@ -0,0 +1,13 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.BookingSegment;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Bulk writes of booking segments, implemented by BookingSegmentBatchRepositoryImpl and mixed into BookingSegmentRepository
+public interface BookingSegmentBatchRepository {
+
+    // Insert all booking segments with a single multi-row INSERT, emits them with their IDs
+    Flux<BookingSegment> insertAll(List<BookingSegment> bookingSegments);
+}
@@ -0,0 +1,61 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.BookingSegment;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public class BookingSegmentBatchRepositoryImpl implements BookingSegmentBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public BookingSegmentBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // An itinerary has a handful of segments, they always fit in one statement
+    @Override
+    public Flux<BookingSegment> insertAll(List<BookingSegment> bookingSegments) {
+        if (bookingSegments.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO booking_segments (booking_id, flight_id, seat_id, fare_class, ticket_number) VALUES ");
+        for (int row = 0; row < bookingSegments.size(); row++) {
+            int first = row * 5 + 1;
+            sql.append(row > 0 ? ", " : "")
+                    .append("($").append(first)
+                    .append(", $").append(first + 1)
+                    .append(", $").append(first + 2)
+                    .append(", $").append(first + 3)
+                    .append(", $").append(first + 4)
+                    .append(')');
+        }
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql.append(" RETURNING *").toString());
+        int parameter = 0;
+        for (BookingSegment segment : bookingSegments) {
+            statement = bindNullable(statement, parameter++, segment.getBookingId(), Long.class);
+            statement = bindNullable(statement, parameter++, segment.getFlightId(), Long.class);
+            statement = bindNullable(statement, parameter++, segment.getSeatId(), Long.class);
+            statement = bindNullable(statement, parameter++, segment.getFareClass(), String.class);
+            statement = bindNullable(statement, parameter++, segment.getTicketNumber(), String.class);
+        }
+        return statement.map(BookingSegmentBatchRepositoryImpl::toBookingSegment).all();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec statement, int index, Object value, Class<?> type) {
+        return value != null ? statement.bind(index, value) : statement.bindNull(index, type);
+    }
+
+    private static BookingSegment toBookingSegment(Readable row) {
+        return BookingSegment.builder()
+                .id(row.get("id", Long.class))
+                .bookingId(row.get("booking_id", Long.class))
+                .flightId(row.get("flight_id", Long.class))
+                .seatId(row.get("seat_id", Long.class))
+                .fareClass(row.get("fare_class", String.class))
+                .ticketNumber(row.get("ticket_number", String.class))
+                .build();
+    }
+}
@@ -4,10 +4,11 @@ import com.execodex.sparrowair2.entities.BookingSegment;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface BookingSegmentRepository extends ReactiveCrudRepository<BookingSegment, Long> {
+public interface BookingSegmentRepository extends ReactiveCrudRepository<BookingSegment, Long>, BookingSegmentBatchRepository {
     @Query("SELECT * FROM booking_segments WHERE flight_id = :flightId AND seat_id = :seatId")
     Mono<BookingSegment> findByFlightIdAndSeatId(Long flightId, Long seatId);
 
@@ -15,5 +16,19 @@ public interface BookingSegmentRepository extends ReactiveCrudRepository<Booking
             "VALUES (:#{#bookingSegment.bookingId}, :#{#bookingSegment.flightId}, :#{#bookingSegment.seatId}, " +
             ":#{#bookingSegment.fareClass}, :#{#bookingSegment.ticketNumber}) RETURNING *")
     Mono<BookingSegment> insert(BookingSegment bookingSegment);
+
+    // Delete the booking segment and make its seat available again, in a single statement so both or neither happen
+    @Query("WITH deleted AS (DELETE FROM booking_segments WHERE id = :id RETURNING *), " +
+            "released AS (UPDATE seats SET status = 'AVAILABLE', hold_expires_at = NULL FROM deleted " +
+            "WHERE seats.id = deleted.seat_id AND seats.status IN ('RESERVED', 'BOOKED')) " +
+            "SELECT * FROM deleted")
+    Mono<BookingSegment> deleteAndReleaseSeat(Long id);
+
+    // Delete all segments of the booking and make their seats available again, in a single statement
+    @Query("WITH deleted AS (DELETE FROM booking_segments WHERE booking_id = :bookingId RETURNING *), " +
+            "released AS (UPDATE seats SET status = 'AVAILABLE', hold_expires_at = NULL FROM deleted " +
+            "WHERE seats.id = deleted.seat_id AND seats.status IN ('RESERVED', 'BOOKED')) " +
+            "SELECT * FROM deleted")
+    Flux<BookingSegment> deleteByBookingIdAndReleaseSeats(Long bookingId);
     // Custom query methods can be defined here if needed
 }
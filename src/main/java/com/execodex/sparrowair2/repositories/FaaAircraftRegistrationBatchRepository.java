@@ -0,0 +1,27 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// Bulk writes of FAA aircraft registrations, implemented by FaaAircraftRegistrationBatchRepositoryImpl and mixed into
+// FaaAircraftRegistrationRepository
+public interface FaaAircraftRegistrationBatchRepository {
+
+    // Insert all registrations with a single statement, skipping N-Numbers that already exist.
+    // Emits the number of registrations actually inserted.
+    Mono<Long> insertAll(List<FaaAircraftRegistration> registrations);
+
+    // Insert all registrations with a single statement, overwriting those whose N-Number exists.
+    // Emits the number of registrations written.
+    Mono<Long> upsertAll(List<FaaAircraftRegistration> registrations);
+
+    // Delete the registrations of all the N-Numbers with a single statement.
+    // Emits the number of registrations deleted.
+    Mono<Long> deleteAllByNNumber(List<String> nNumbers);
+
+    // The row hash of every registration by N-Number, null for registrations without one
+    Mono<Map<String, Long>> findAllRowHashes();
+}
@@ -0,0 +1,128 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class FaaAircraftRegistrationBatchRepositoryImpl implements FaaAircraftRegistrationBatchRepository {
+
+    // The columns in table order, with the field each is read from
+    private static final List<Map.Entry<String, Function<FaaAircraftRegistration, String>>> COLUMNS = List.of(
+            Map.entry("n_number", FaaAircraftRegistration::getNNumber),
+            Map.entry("serial_number", FaaAircraftRegistration::getSerialNumber),
+            Map.entry("aircraft_mfr_model_code", FaaAircraftRegistration::getAircraftMfrModelCode),
+            Map.entry("engine_mfr_model_code", FaaAircraftRegistration::getEngineMfrModelCode),
+            Map.entry("year_manufactured", FaaAircraftRegistration::getYearManufactured),
+            Map.entry("type_registrant", FaaAircraftRegistration::getTypeRegistrant),
+            Map.entry("registrant_name", FaaAircraftRegistration::getRegistrantName),
+            Map.entry("street1", FaaAircraftRegistration::getStreet1),
+            Map.entry("street2", FaaAircraftRegistration::getStreet2),
+            Map.entry("registrant_city", FaaAircraftRegistration::getRegistrantCity),
+            Map.entry("registrant_state", FaaAircraftRegistration::getRegistrantState),
+            Map.entry("registrant_zip_code", FaaAircraftRegistration::getRegistrantZipCode),
+            Map.entry("registrant_region", FaaAircraftRegistration::getRegistrantRegion),
+            Map.entry("county_mail", FaaAircraftRegistration::getCountyMail),
+            Map.entry("country_mail", FaaAircraftRegistration::getCountryMail),
+            Map.entry("last_activity_date", FaaAircraftRegistration::getLastActivityDate),
+            Map.entry("certificate_issue_date", FaaAircraftRegistration::getCertificateIssueDate),
+            Map.entry("airworthiness_classification_code", FaaAircraftRegistration::getAirworthinessClassificationCode),
+            Map.entry("approved_operation_codes", FaaAircraftRegistration::getApprovedOperationCodes),
+            Map.entry("type_aircraft", FaaAircraftRegistration::getTypeAircraft),
+            Map.entry("type_engine", FaaAircraftRegistration::getTypeEngine),
+            Map.entry("status_code", FaaAircraftRegistration::getStatusCode),
+            Map.entry("mode_s_code", FaaAircraftRegistration::getModeSCode),
+            Map.entry("fractional_ownership", FaaAircraftRegistration::getFractionalOwnership),
+            Map.entry("airworthiness_date", FaaAircraftRegistration::getAirworthinessDate),
+            Map.entry("other_name1", FaaAircraftRegistration::getOtherName1),
+            Map.entry("other_name2", FaaAircraftRegistration::getOtherName2),
+            Map.entry("other_name3", FaaAircraftRegistration::getOtherName3),
+            Map.entry("other_name4", FaaAircraftRegistration::getOtherName4),
+            Map.entry("other_name5", FaaAircraftRegistration::getOtherName5),
+            Map.entry("expiration_date", FaaAircraftRegistration::getExpirationDate),
+            Map.entry("unique_id", FaaAircraftRegistration::getUniqueId),
+            Map.entry("kit_mfr", FaaAircraftRegistration::getKitMfr),
+            Map.entry("kit_model", FaaAircraftRegistration::getKitModel),
+            Map.entry("mode_scode_hex", FaaAircraftRegistration::getModeScodeHex));
+
+    // One array parameter per column whatever the number of rows, so a batch is never near the limit of bind
+    // parameters of a statement and the statement text is always the same; the row hash comes last
+    private static final String INSERT_FROM_ARRAYS = "INSERT INTO faa_aircraft_registration (" +
+            COLUMNS.stream().map(Map.Entry::getKey).collect(Collectors.joining(", ")) + ", row_hash) " +
+            "SELECT * FROM unnest(" +
+            IntStream.rangeClosed(1, COLUMNS.size()).mapToObj(i -> "$" + i + "::varchar[]").collect(Collectors.joining(", ")) +
+            ", $" + (COLUMNS.size() + 1) + "::bigint[]) ";
+
+    private static final String INSERT_ALL = INSERT_FROM_ARRAYS + "ON CONFLICT (n_number) DO NOTHING";
+
+    private static final String UPSERT_ALL = INSERT_FROM_ARRAYS + "ON CONFLICT (n_number) DO UPDATE SET " +
+            COLUMNS.stream().skip(1).map(column -> column.getKey() + " = EXCLUDED." + column.getKey())
+                    .collect(Collectors.joining(", ")) + ", row_hash = EXCLUDED.row_hash";
+
+    private static final String DELETE_ALL_BY_N_NUMBER = "DELETE FROM faa_aircraft_registration WHERE n_number = ANY($1::varchar[])";
+
+    private static final String SELECT_ROW_HASHES = "SELECT n_number, row_hash FROM faa_aircraft_registration";
+
+    private final DatabaseClient databaseClient;
+
+    public FaaAircraftRegistrationBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Long> insertAll(List<FaaAircraftRegistration> registrations) {
+        return write(INSERT_ALL, registrations);
+    }
+
+    @Override
+    public Mono<Long> upsertAll(List<FaaAircraftRegistration> registrations) {
+        return write(UPSERT_ALL, registrations);
+    }
+
+    @Override
+    public Mono<Long> deleteAllByNNumber(List<String> nNumbers) {
+        if (nNumbers.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql(DELETE_ALL_BY_N_NUMBER)
+                .bind(0, nNumbers.toArray(new String[0]))
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public Mono<Map<String, Long>> findAllRowHashes() {
+        // a row hash may be null, which Map.entry doesn't take
+        return databaseClient.sql(SELECT_ROW_HASHES)
+                .map((row, metadata) -> new AbstractMap.SimpleEntry<>(row.get("n_number", String.class), row.get("row_hash", Long.class)))
+                .all()
+                .<Map<String, Long>>collect(HashMap::new, (rowHashes, entry) -> rowHashes.put(entry.getKey(), entry.getValue()));
+    }
+
+    private Mono<Long> write(String sql, List<FaaAircraftRegistration> registrations) {
+        if (registrations.isEmpty()) {
+            return Mono.just(0L);
+        }
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(sql);
+        for (int column = 0; column < COLUMNS.size(); column++) {
+            Function<FaaAircraftRegistration, String> field = COLUMNS.get(column).getValue();
+            String[] values = new String[registrations.size()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = field.apply(registrations.get(row));
+            }
+            statement = statement.bind(column, values);
+        }
+        Long[] rowHashes = new Long[registrations.size()];
+        for (int row = 0; row < rowHashes.length; row++) {
+            rowHashes[row] = registrations.get(row).getRowHash();
+        }
+        return statement.bind(COLUMNS.size(), rowHashes).fetch().rowsUpdated();
+    }
+}
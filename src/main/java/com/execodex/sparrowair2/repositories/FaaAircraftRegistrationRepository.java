@@ -9,7 +9,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface FaaAircraftRegistrationRepository extends ReactiveCrudRepository<FaaAircraftRegistration, String> {
+public interface FaaAircraftRegistrationRepository extends ReactiveCrudRepository<FaaAircraftRegistration, String>, FaaAircraftRegistrationBatchRepository {
     // The primary key of FaaAircraftRegistration is nNumber, which is a String
     // ReactiveCrudRepository provides basic CRUD operations with reactive return types
 
@@ -1,6 +1,7 @@
 package com.execodex.sparrowair2.repositories;
 
 import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.model.AirportDestinations;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
@@ -28,4 +29,12 @@ public interface FlightRepository extends ReactiveCrudRepository<Flight, Long> {
     Flux<Flight> findByDepartureAirportIcao(String airportCode);
 
     Flux<Flight> findByArrivalAirportIcao(String airportCode);
+
+    // One row per departure airport with the arrival airports of all its flights, in a single query
+    @Query("SELECT departure_airport_icao, array_agg(arrival_airport_icao ORDER BY arrival_airport_icao) AS arrival_airport_icaos " +
+            "FROM flights GROUP BY departure_airport_icao ORDER BY departure_airport_icao")
+    Flux<AirportDestinations> findDestinationsGroupedByDepartureAirport();
+
+    // All flights, those of the same departure airport next to each other
+    Flux<Flight> findAllByOrderByDepartureAirportIcaoAscIdAsc();
 }
@@ -0,0 +1,39 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.IdempotencyKey;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends ReactiveCrudRepository<IdempotencyKey, Long> {
+
+    // Take the key for a request, empty if another request has it: one that completed and hasn't expired, or one
+    // still being processed that started after staleBefore. An expired or stale key is taken over.
+    @Query("INSERT INTO idempotency_keys (scope, idempotency_key, request_hash, created_at, expires_at) " +
+            "VALUES (:scope, :idempotencyKey, :requestHash, :now, :expiresAt) " +
+            "ON CONFLICT (scope, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "status_code = NULL, content_type = NULL, response_body = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at " +
+            "OR (idempotency_keys.status_code IS NULL AND idempotency_keys.created_at <= :staleBefore) " +
+            "RETURNING *")
+    Mono<IdempotencyKey> claim(String scope, String idempotencyKey, String requestHash, LocalDateTime now,
+                               LocalDateTime expiresAt, LocalDateTime staleBefore);
+
+    Mono<IdempotencyKey> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+
+    // Store the response of the request that took the key
+    @Modifying
+    @Query("UPDATE idempotency_keys SET status_code = :statusCode, content_type = :contentType, response_body = :responseBody " +
+            "WHERE id = :id")
+    Mono<Integer> complete(Long id, int statusCode, String contentType, String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM idempotency_keys WHERE expires_at <= :now")
+    Mono<Integer> deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,19 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+// Bulk writes of seats, implemented by SeatBatchRepositoryImpl and mixed into SeatRepository
+public interface SeatBatchRepository {
+
+    // Insert all seats with multi-row INSERTs, skipping seats whose flight_id and seat_number already exist.
+    // Emits the seats actually inserted.
+    Flux<Seat> insertAll(List<Seat> seats);
+
+    // Reserve the first available seat of the class on each flight, all in a single statement.
+    // Emits the seats reserved, flights that are cancelled or without such a seat left have none.
+    Flux<Seat> reserveFirstAvailable(List<Long> flightIds, List<SeatClass> seatClasses);
+}
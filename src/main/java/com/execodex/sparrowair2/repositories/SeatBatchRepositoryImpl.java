@@ -0,0 +1,115 @@
+package com.execodex.sparrowair2.repositories;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class SeatBatchRepositoryImpl implements SeatBatchRepository {
+
+    // 7 parameters per seat, well below the 65535 bind parameters a Postgres statement can take
+    static final int ROWS_PER_STATEMENT = 500;
+    private static final int COLUMNS_PER_ROW = 7;
+
+    private final DatabaseClient databaseClient;
+
+    public SeatBatchRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Seat> insertAll(List<Seat> seats) {
+        if (seats.isEmpty()) {
+            return Flux.empty();
+        }
+        // one statement per chunk, chunks one after the other so a flight's seats don't take every pooled connection
+        return Flux.range(0, (seats.size() + ROWS_PER_STATEMENT - 1) / ROWS_PER_STATEMENT)
+                .concatMap(chunk -> insertChunk(seats.subList(
+                        chunk * ROWS_PER_STATEMENT,
+                        Math.min(seats.size(), (chunk + 1) * ROWS_PER_STATEMENT))));
+    }
+
+    // Each flight's seat is picked by a locking subquery, SKIP LOCKED makes concurrent bookings take different seats
+    // instead of waiting on each other
+    private static final String RESERVE_FIRST_AVAILABLE_SQL = "UPDATE seats SET status = 'RESERVED' " +
+            "FROM (SELECT (SELECT s.id FROM seats s " +
+            "              WHERE s.flight_id = leg.flight_id AND s.class = leg.class AND s.status = 'AVAILABLE' " +
+            "              AND EXISTS (SELECT 1 FROM flights f WHERE f.id = leg.flight_id AND f.status IS DISTINCT FROM 'CANCELLED') " +
+            "              ORDER BY s.id LIMIT 1 FOR UPDATE SKIP LOCKED) AS seat_id " +
+            "      FROM unnest(:flightIds::bigint[], :seatClasses::varchar[]) AS leg(flight_id, class)) AS picked " +
+            "WHERE seats.id = picked.seat_id " +
+            "RETURNING seats.*";
+
+    @Override
+    public Flux<Seat> reserveFirstAvailable(List<Long> flightIds, List<SeatClass> seatClasses) {
+        if (flightIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(RESERVE_FIRST_AVAILABLE_SQL)
+                .bind("flightIds", flightIds.toArray(new Long[0]))
+                .bind("seatClasses", seatClasses.stream().map(SeatClass::name).toArray(String[]::new))
+                .map(SeatBatchRepositoryImpl::toSeat)
+                .all();
+    }
+
+    private Flux<Seat> insertChunk(List<Seat> seats) {
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(insertSql(seats.size()));
+        int parameter = 0;
+        for (Seat seat : seats) {
+            statement = statement
+                    .bind(parameter++, seat.getFlightId())
+                    .bind(parameter++, seat.getSeatNumber())
+                    .bind(parameter++, seat.getSeatClass().name())
+                    .bind(parameter++, seat.getStatus().name());
+            statement = seat.getRowNumber() != null
+                    ? statement.bind(parameter++, seat.getRowNumber().shortValue())
+                    : statement.bindNull(parameter++, Short.class);
+            statement = seat.getSeatLetter() != null
+                    ? statement.bind(parameter++, seat.getSeatLetter())
+                    : statement.bindNull(parameter++, String.class);
+            statement = seat.getPosition() != null
+                    ? statement.bind(parameter++, seat.getPosition().name())
+                    : statement.bindNull(parameter++, String.class);
+        }
+        return statement.map(SeatBatchRepositoryImpl::toSeat).all();
+    }
+
+    // INSERT INTO seats (...) VALUES ($1, ..., $7), ($8, ..., $14), ... ON CONFLICT DO NOTHING RETURNING *
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(128 + rows * 40)
+                .append("INSERT INTO seats (flight_id, seat_number, class, status, row_num, seat_letter, position) VALUES ");
+        for (int row = 0; row < rows; row++) {
+            int first = row * COLUMNS_PER_ROW + 1;
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append("($").append(first);
+            for (int column = 1; column < COLUMNS_PER_ROW; column++) {
+                sql.append(", $").append(first + column);
+            }
+            sql.append(')');
+        }
+        return sql.append(" ON CONFLICT (flight_id, seat_number) DO NOTHING RETURNING *").toString();
+    }
+
+    private static Seat toSeat(Readable row) {
+        String position = row.get("position", String.class);
+        return Seat.builder()
+                .id(row.get("id", Long.class))
+                .flightId(row.get("flight_id", Long.class))
+                .seatNumber(row.get("seat_number", String.class))
+                .seatClass(SeatClass.valueOf(row.get("class", String.class)))
+                .status(SeatStatus.valueOf(row.get("status", String.class)))
+                .rowNumber(row.get("row_num", Integer.class))
+                .seatLetter(row.get("seat_letter", String.class))
+                .position(position != null ? SeatPosition.valueOf(position) : null)
+                .holdExpiresAt(row.get("hold_expires_at", LocalDateTime.class))
+                .build();
+    }
+}
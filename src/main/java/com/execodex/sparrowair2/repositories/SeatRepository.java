@@ -1,6 +1,9 @@
 package com.execodex.sparrowair2.repositories;
 
 import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
+import com.execodex.sparrowair2.entities.SeatStatus;
 import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
@@ -8,12 +11,15 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 @Repository
-public interface SeatRepository extends ReactiveCrudRepository<Seat, Long> {
+public interface SeatRepository extends ReactiveCrudRepository<Seat, Long>, SeatBatchRepository {
     // ReactiveCrudRepository provides basic CRUD operations with reactive return types
 
 
-    // Insert a new seat
+    // Insert a new seat, without its row, letter and position: SeatBatchRepository.insertAll writes those
     @Query("INSERT INTO seats (flight_id, seat_number, class, status) " +
             "VALUES (:#{#seat.flightId}, :#{#seat.seatNumber}, :#{#seat.seatClass}, :#{#seat.status}) " +
             "RETURNING *")
@@ -27,6 +33,77 @@ public interface SeatRepository extends ReactiveCrudRepository<Seat, Long> {
     @Query("SELECT * FROM seats WHERE flight_id = :flightId")
     Flux<Seat> findByFlightId(Long flightId);
 
+    // Claim the seat if it is still available and its flight is not cancelled, in a single statement,
+    // so of concurrent reservations of a seat exactly one gets the seat back
+    @Query("UPDATE seats SET status = 'RESERVED' " +
+            "WHERE id = :seatId AND flight_id = :flightId AND status = 'AVAILABLE' " +
+            "AND EXISTS (SELECT 1 FROM flights WHERE id = :flightId AND status IS DISTINCT FROM 'CANCELLED') " +
+            "RETURNING *")
+    Mono<Seat> reserveIfAvailable(Long flightId, Long seatId);
+
+    // Claim the seats that are still available if their flight is not cancelled, in a single statement
+    @Query("UPDATE seats SET status = 'RESERVED' " +
+            "WHERE id IN (:seatIds) AND flight_id = :flightId AND status = 'AVAILABLE' " +
+            "AND EXISTS (SELECT 1 FROM flights WHERE id = :flightId AND status IS DISTINCT FROM 'CANCELLED') " +
+            "RETURNING *")
+    Flux<Seat> reserveAllIfAvailable(Long flightId, Collection<Long> seatIds);
+
+    // Make a reserved or booked seat available again
+    @Query("UPDATE seats SET status = 'AVAILABLE' " +
+            "WHERE id = :seatId AND status IN ('RESERVED', 'BOOKED') " +
+            "RETURNING *")
+    Mono<Seat> releaseReserved(Long seatId);
+
+    // Hold the seat until expiresAt if it is available and its flight is not cancelled
+    @Query("UPDATE seats SET status = 'HOLD', hold_expires_at = :expiresAt " +
+            "WHERE id = :seatId AND status = 'AVAILABLE' " +
+            "AND EXISTS (SELECT 1 FROM flights WHERE id = seats.flight_id AND status IS DISTINCT FROM 'CANCELLED') " +
+            "RETURNING *")
+    Mono<Seat> holdIfAvailable(Long seatId, LocalDateTime expiresAt);
+
+    // Turn a hold that hasn't expired yet into a reservation
+    @Query("UPDATE seats SET status = 'RESERVED', hold_expires_at = NULL " +
+            "WHERE id = :seatId AND status = 'HOLD' AND hold_expires_at > :now " +
+            "RETURNING *")
+    Mono<Seat> confirmHold(Long seatId, LocalDateTime now);
+
+    // Release the hold of the seat, expired or not
+    @Query("UPDATE seats SET status = 'AVAILABLE', hold_expires_at = NULL " +
+            "WHERE id = :seatId AND status = 'HOLD' " +
+            "RETURNING *")
+    Mono<Seat> releaseHold(Long seatId);
+
+    // Release the holds of these seats that have expired, a seat held again since keeps its new hold
+    @Query("UPDATE seats SET status = 'AVAILABLE', hold_expires_at = NULL " +
+            "WHERE id IN (:seatIds) AND status = 'HOLD' AND hold_expires_at <= :now " +
+            "RETURNING *")
+    Flux<Seat> releaseExpiredHolds(Collection<Long> seatIds, LocalDateTime now);
+
+    // Release every expired hold, and holds without an expiry
+    @Query("UPDATE seats SET status = 'AVAILABLE', hold_expires_at = NULL " +
+            "WHERE status = 'HOLD' AND (hold_expires_at <= :now OR hold_expires_at IS NULL) " +
+            "RETURNING *")
+    Flux<Seat> releaseAllExpiredHolds(LocalDateTime now);
+
+    // Seats on hold
+    @Query("SELECT * FROM seats WHERE status = 'HOLD'")
+    Flux<Seat> findHeld();
+
+    // All seats, grouped by flight
+    Flux<Seat> findAllByOrderByFlightIdAscIdAsc();
+
+    // Seats of the flights, grouped by flight
+    Flux<Seat> findByFlightIdInOrderByFlightIdAscIdAsc(Collection<Long> flightIds);
+
+    // Seats of a flight in a status, optionally of a class and a position, on the (flight_id, class, status) index
+    Flux<Seat> findByFlightIdAndStatusOrderByIdAsc(Long flightId, SeatStatus status);
+
+    Flux<Seat> findByFlightIdAndSeatClassAndStatusOrderByIdAsc(Long flightId, SeatClass seatClass, SeatStatus status);
+
+    Flux<Seat> findByFlightIdAndStatusAndPositionOrderByIdAsc(Long flightId, SeatStatus status, SeatPosition position);
+
+    Flux<Seat> findByFlightIdAndSeatClassAndStatusAndPositionOrderByIdAsc(Long flightId, SeatClass seatClass, SeatStatus status, SeatPosition position);
+
     // Delete seats by flight ID
     @Modifying
     @Query("DELETE FROM seats WHERE flight_id = :flightId")
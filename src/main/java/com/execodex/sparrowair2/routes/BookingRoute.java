@@ -65,6 +65,33 @@ public class BookingRoute {
                                 }
                         )
              ),
+             @RouterOperation(
+                        path = "/bookings/reference/{reference}",
+                        method = RequestMethod.GET,
+                        beanClass = BookingHandler.class,
+                        beanMethod = "handleGetBookingByReference",
+                        operation = @Operation(
+                                operationId = "getBookingByReference",
+                                summary = "Get booking by reference",
+                                description = "Returns a booking by its booking reference; a generated reference is decoded to the booking ID",
+                                tags = {"Bookings \uD83C\uDFAB\uD83D\uDCBA"},
+                                parameters = {
+                                        @io.swagger.v3.oas.annotations.Parameter(name = "reference", in = ParameterIn.PATH, description = "Booking reference", required = true,
+                                              content = @Content(schema = @Schema(type = "string")))
+                                },
+                                responses = {
+                                        @ApiResponse(
+                                                responseCode = "200",
+                                                description = "Successful operation",
+                                                content = @Content(mediaType = "application/json")
+                                        ),
+                                        @ApiResponse(
+                                                responseCode = "404",
+                                                description = "No booking with that reference"
+                                        )
+                                }
+                        )
+             ),
              @RouterOperation(
                      path = "/bookings",
                      method = RequestMethod.POST,
@@ -150,6 +177,7 @@ public class BookingRoute {
          return RouterFunctions.route()
                  .GET("/bookings", bookingHandler::handleGetAllBookings)
                  .GET("/bookings/{id}", bookingHandler::handleGetBookingById)
+                 .GET("/bookings/reference/{reference}", bookingHandler::handleGetBookingByReference)
                  .POST("/bookings", bookingHandler::createBooking)
                  .PUT("/bookings/{id}", bookingHandler::updateBooking)
                  .DELETE("/bookings/{id}", bookingHandler::deleteBooking)
@@ -2,6 +2,8 @@ package com.execodex.sparrowair2.routes;
 
 import com.execodex.sparrowair2.entities.BookingSegment;
 import com.execodex.sparrowair2.handlers.BookingSegmentHandler;
+import com.execodex.sparrowair2.model.AdjacentSeatsRequest;
+import com.execodex.sparrowair2.model.ItineraryBookingRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -91,6 +93,138 @@ public class BookingSegmentRoute {
                                             responseCode = "201",
                                             description = "Booking segment created successfully",
                                             content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "409",
+                                            description = "Seat not available"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/booking-segments/reserve",
+                    method = RequestMethod.POST,
+                    beanClass = BookingSegmentHandler.class,
+                    beanMethod = "reserveBookingSegment",
+                    operation = @Operation(
+                            operationId = "reserveBookingSegment",
+                            summary = "Reserve a seat with a new booking segment",
+                            description = "Atomically claims the seat of the booking segment, if it is available, and creates the booking segment",
+                            tags = {"Booking Segments \uD83C\uDFAB\uD83D\uDCBA"},
+                            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                                    description = "Booking Segment",
+                                    required = true,
+                                    content = @Content(
+                                            mediaType = "application/json",
+                                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = BookingSegment.class)
+                                    )
+                            ),
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "201",
+                                            description = "Seat reserved and booking segment created",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "409",
+                                            description = "Seat not available"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/booking-segments/itinerary",
+                    method = RequestMethod.POST,
+                    beanClass = BookingSegmentHandler.class,
+                    beanMethod = "bookItinerary",
+                    operation = @Operation(
+                            operationId = "bookItinerary",
+                            summary = "Book every flight of an itinerary",
+                            description = "Assigns a seat of the requested class on every flight and creates a booking segment for each, in a single transaction: either all legs are booked or none",
+                            tags = {"Booking Segments \uD83C\uDFAB\uD83D\uDCBA"},
+                            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                                    description = "Booking ID and the legs of the itinerary, each a flight ID and a seat class",
+                                    required = true,
+                                    content = @Content(
+                                            mediaType = "application/json",
+                                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = ItineraryBookingRequest.class)
+                                    )
+                            ),
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "201",
+                                            description = "Booking segments created, in the order of the legs",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Invalid itinerary"
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "409",
+                                            description = "No seat of the class left on one of the flights, nothing was booked"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/booking-segments/adjacent",
+                    method = RequestMethod.POST,
+                    beanClass = BookingSegmentHandler.class,
+                    beanMethod = "bookAdjacentSeats",
+                    operation = @Operation(
+                            operationId = "bookAdjacentSeats",
+                            summary = "Book adjacent seats for a group",
+                            description = "Assigns the best available block of seats side by side in one row of the requested class, front of the cabin first and preferably with a window or aisle seat, and creates a booking segment for each seat in a single transaction",
+                            tags = {"Booking Segments \uD83C\uDFAB\uD83D\uDCBA"},
+                            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                                    description = "Booking ID, flight ID, seat class, number of seats and an optional WINDOW or AISLE preference",
+                                    required = true,
+                                    content = @Content(
+                                            mediaType = "application/json",
+                                            schema = @io.swagger.v3.oas.annotations.media.Schema(implementation = AdjacentSeatsRequest.class)
+                                    )
+                            ),
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "201",
+                                            description = "Booking segments created, seats left to right",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Invalid request"
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "409",
+                                            description = "No block of that many adjacent seats available, nothing was booked"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/booking-segments/bookings/{bookingId}",
+                    method = RequestMethod.DELETE,
+                    beanClass = BookingSegmentHandler.class,
+                    beanMethod = "cancelBookingSegments",
+                    operation = @Operation(
+                            operationId = "cancelBookingSegments",
+                            summary = "Cancel all segments of a booking",
+                            description = "Deletes every booking segment of the booking and makes their seats available again, in a single statement",
+                            tags = {"Booking Segments \uD83C\uDFAB\uD83D\uDCBA"},
+                            parameters = {
+                                    @io.swagger.v3.oas.annotations.Parameter(
+                                            name = "bookingId",
+                                            in = ParameterIn.PATH,
+                                            required = true,
+                                            description = "ID of the booking"
+                                    )
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "The cancelled booking segments, none if the booking had none",
+                                            content = @Content(mediaType = "application/json")
                                     )
                             }
                     )
@@ -104,7 +238,11 @@ public class BookingSegmentRoute {
                                 .GET("/{id}", bookingSegmentHandler::getBookingSegmentById)
 //                                .POST("", accept(MediaType.APPLICATION_JSON), bookingSegmentHandler::createBookingSegment)
                                 .POST("", bookingSegmentHandler::createBookingSegment)
+                                .POST("/reserve", bookingSegmentHandler::reserveBookingSegment)
+                                .POST("/itinerary", bookingSegmentHandler::bookItinerary)
+                                .POST("/adjacent", bookingSegmentHandler::bookAdjacentSeats)
                                 .PUT("/{id}", bookingSegmentHandler::updateBookingSegment)
+                                .DELETE("/bookings/{bookingId}", bookingSegmentHandler::cancelBookingSegments)
                                 .DELETE("/{id}", bookingSegmentHandler::deleteBookingSegment)
 
                 )
@@ -2,6 +2,7 @@ package com.execodex.sparrowair2.routes;
 
 import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
 import com.execodex.sparrowair2.handlers.FaaAircraftRegistrationHandler;
+import com.execodex.sparrowair2.model.ImportJobProgress;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -281,6 +282,18 @@ public class FaaAircraftRegistrationRoutes {
                             summary = "Upload FAA aircraft registrations from a file",
                             description = "Uploads and processes a file containing FAA aircraft registrations",
                             tags = {"FAA Aircraft Registration 📝"},
+                            parameters = {
+                                    @Parameter(
+                                            name = "mode",
+                                            description = "full adds the registrations that are new; delta syncs the " +
+                                                    "registrations with the file, inserting, updating and deleting only " +
+                                                    "those that changed since the last file; nothing is deleted " +
+                                                    "if the file has no registrations or lines that were skipped",
+                                            in = ParameterIn.QUERY,
+                                            required = false,
+                                            schema = @Schema(type = "string", allowableValues = {"full", "delta"}, defaultValue = "full")
+                                    )
+                            },
                             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                                     description = "File containing FAA aircraft registrations",
                                     required = true,
@@ -288,13 +301,14 @@ public class FaaAircraftRegistrationRoutes {
                             ),
                             responses = {
                                     @ApiResponse(
-                                            responseCode = "200",
-                                            description = "File processed successfully",
-                                            content = @Content(mediaType = "application/json")
+                                            responseCode = "202",
+                                            description = "File accepted, imported by the job at the Location",
+                                            content = @Content(mediaType = "application/json",
+                                                    schema = @Schema(implementation = ImportJobProgress.class))
                                     ),
                                     @ApiResponse(
                                             responseCode = "400",
-                                            description = "Bad request, file not provided or invalid"
+                                            description = "Bad request, file not provided or invalid, or unknown mode"
                                     ),
                                     @ApiResponse(
                                             responseCode = "500",
@@ -302,6 +316,57 @@ public class FaaAircraftRegistrationRoutes {
                                     )
                             }
                     )
+            ),
+            @RouterOperation(
+                    path = "/faa-aircraft-registrations/imports/{id}",
+                    method = RequestMethod.GET,
+                    beanClass = FaaAircraftRegistrationHandler.class,
+                    beanMethod = "getImportJob",
+                    operation = @Operation(
+                            operationId = "getFaaAircraftRegistrationsImportJob",
+                            summary = "Get the progress of the import of an uploaded file",
+                            description = "Returns the status, row counters and rows per second of an import job 📝",
+                            tags = {"FAA Aircraft Registration 📝"},
+                            parameters = {
+                                    @Parameter(name = "id", in = ParameterIn.PATH, required = true,
+                                              content = @Content(schema = @Schema(type = "string")))
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json",
+                                                    schema = @Schema(implementation = ImportJobProgress.class))
+                                    ),
+                                    @ApiResponse(responseCode = "404", description = "Import job not found")
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/faa-aircraft-registrations/imports/{id}",
+                    method = RequestMethod.DELETE,
+                    beanClass = FaaAircraftRegistrationHandler.class,
+                    beanMethod = "cancelImportJob",
+                    operation = @Operation(
+                            operationId = "cancelFaaAircraftRegistrationsImportJob",
+                            summary = "Cancel the import of an uploaded file",
+                            description = "Stops an import job 📝, the registrations written so far are kept",
+                            tags = {"FAA Aircraft Registration 📝"},
+                            parameters = {
+                                    @Parameter(name = "id", in = ParameterIn.PATH, required = true,
+                                              content = @Content(schema = @Schema(type = "string")))
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Import job cancelled",
+                                            content = @Content(mediaType = "application/json",
+                                                    schema = @Schema(implementation = ImportJobProgress.class))
+                                    ),
+                                    @ApiResponse(responseCode = "404", description = "Import job not found"),
+                                    @ApiResponse(responseCode = "409", description = "Import job already finished")
+                            }
+                    )
             )
     })
     public RouterFunction<ServerResponse> faaAircraftRegistrationRoutesFunction() {
@@ -313,10 +378,12 @@ public class FaaAircraftRegistrationRoutes {
                 .GET("faa-aircraft-registrations/aircraft-mfr-model-code/{aircraftMfrModelCode}", accept(MediaType.APPLICATION_JSON), faaAircraftRegistrationHandler::getFaaAircraftRegistrationsByAircraftMfrModelCode)
                 .GET("faa-aircraft-registrations/mode-s-code/{modeSCode}", accept(MediaType.APPLICATION_JSON), faaAircraftRegistrationHandler::getFaaAircraftRegistrationsByModeSCode)
                 .GET("faa-aircraft-registrations/mode-scode-hex/{modeScodeHex}", accept(MediaType.APPLICATION_JSON), faaAircraftRegistrationHandler::getFaaAircraftRegistrationsByModeScodeHex)
+                .GET("faa-aircraft-registrations/imports/{id}", faaAircraftRegistrationHandler::getImportJob)
                 .POST("faa-aircraft-registrations", accept(MediaType.APPLICATION_JSON), faaAircraftRegistrationHandler::createFaaAircraftRegistration)
                 .POST("faa-aircraft-registrations/upload", faaAircraftRegistrationHandler::uploadFaaAircraftRegistrationsFile)
                 .PUT("faa-aircraft-registrations/{nNumber}", accept(MediaType.APPLICATION_JSON), faaAircraftRegistrationHandler::updateFaaAircraftRegistration)
                 .DELETE("faa-aircraft-registrations/{nNumber}", faaAircraftRegistrationHandler::deleteFaaAircraftRegistration)
+                .DELETE("faa-aircraft-registrations/imports/{id}", faaAircraftRegistrationHandler::cancelImportJob)
                 .build();
     }
 }
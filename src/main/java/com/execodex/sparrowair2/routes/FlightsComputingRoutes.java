@@ -35,13 +35,13 @@ public class FlightsComputingRoutes {
                     operation = @Operation(
                             operationId = "getAirportToAirportsFlights",
                             summary = "Get airport to airports flights mapping",
-                            description = "Returns a mapping of departure airports to their destination airports",
+                            description = "Returns a mapping of departure airports to their destination airports, one entry per departure airport. Ask for application/x-ndjson to get one line per airport as it is read",
                             tags = {"Flights Computing ✈️ \uD83C\uDF10"},
                             responses = {
                                     @ApiResponse(
                                             responseCode = "200",
                                             description = "Successful operation",
-                                            content = @Content(mediaType = "application/json")
+                                            content = {@Content(mediaType = "application/json"), @Content(mediaType = "application/x-ndjson")}
                                     )
                             }
                     )
@@ -54,13 +54,13 @@ public class FlightsComputingRoutes {
                     operation = @Operation(
                             operationId = "getAirportsToFlights",
                             summary = "Get airports to flights mapping",
-                            description = "Returns a mapping of airports to their flights",
+                            description = "Returns a mapping of airports to their flights, one entry per departure airport. Ask for application/x-ndjson to get one line per airport as it is read",
                             tags = {"Flights Computing ✈️ \uD83C\uDF10"},
                             responses = {
                                     @ApiResponse(
                                             responseCode = "200",
                                             description = "Successful operation",
-                                            content = @Content(mediaType = "application/json")
+                                            content = {@Content(mediaType = "application/json"), @Content(mediaType = "application/x-ndjson")}
                                     )
                             }
                     )
@@ -73,13 +73,17 @@ public class FlightsComputingRoutes {
                     operation = @Operation(
                             operationId = "getRoute",
                             summary = "Get route between two airports",
-                            description = "Returns a list of flights that form a route between the specified departure and arrival airports",
+                            description = "Returns a list of flights that form a route between the specified departure and arrival airports. By default the first route found by a depth-first search, with any number of legs; the bfs and bidirectional strategies return the route with the fewest legs, up to maxHops legs",
                             tags = {"Flights Computing ✈️ \uD83C\uDF10"},
                             parameters = {
                                     @io.swagger.v3.oas.annotations.Parameter(name = "departure", description = "ICAO code of the departure airport", required = true,
                                               content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
                                     @io.swagger.v3.oas.annotations.Parameter(name = "arrival", description = "ICAO code of the arrival airport", required = true,
-                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string")))
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "strategy", description = "Search strategy: dfs (default, the original depth-first search), bfs or bidirectional", required = false,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string", allowableValues = {"bfs", "bidirectional", "dfs"}))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "maxHops", description = "Maximum number of legs of the bfs and bidirectional strategies, defaults to flights-computing.max-hops", required = false,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "integer")))
                             },
                             responses = {
                                     @ApiResponse(
@@ -122,18 +126,86 @@ public class FlightsComputingRoutes {
                                     )
                             }
                     )
+            ),
+            @RouterOperation(
+                    path = "/flights-computing/k-shortest-routes",
+                    method = RequestMethod.GET,
+                    beanClass = FlightsComputingHandler.class,
+                    beanMethod = "getKShortestRoutes",
+                    operation = @Operation(
+                            operationId = "getKShortestRoutes",
+                            summary = "Get alternative routes between two airports",
+                            description = "Returns up to k routes without loops between the specified departure and arrival airports, shortest distance first. If the search takes too long, the routes found so far are returned",
+                            tags = {"Flights Computing ✈️ \uD83C\uDF10"},
+                            parameters = {
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "departure", description = "ICAO code of the departure airport", required = true,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "arrival", description = "ICAO code of the arrival airport", required = true,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "k", description = "Number of routes, 1 to 10, defaults to 3", required = false,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "integer"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "maxLegs", description = "Maximum number of flights of a route, at most and by default flights-computing.max-hops", required = false,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "integer")))
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request - missing or invalid parameters"
+                                    )
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/flights-computing/earliest-arrival",
+                    method = RequestMethod.GET,
+                    beanClass = FlightsComputingHandler.class,
+                    beanMethod = "getEarliestArrival",
+                    operation = @Operation(
+                            operationId = "getEarliestArrival",
+                            summary = "Get the earliest arriving route between two airports",
+                            description = "Returns the list of flights reaching the arrival airport the earliest. Every connecting flight departs after the previous one landed, plus the minimum connection time of the airport",
+                            tags = {"Flights Computing ✈️ \uD83C\uDF10"},
+                            parameters = {
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "departure", description = "ICAO code of the departure airport", required = true,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "arrival", description = "ICAO code of the arrival airport", required = true,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string"))),
+                                    @io.swagger.v3.oas.annotations.Parameter(name = "departureAfter", description = "Earliest departure, ISO date-time (e.g. 2025-06-01T08:00:00), defaults to now", required = false,
+                                              content = @Content(schema = @io.swagger.v3.oas.annotations.media.Schema(type = "string", format = "date-time")))
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(
+                                            responseCode = "400",
+                                            description = "Bad request - missing or invalid parameters"
+                                    )
+                            }
+                    )
             )
     })
     public RouterFunction<ServerResponse> flightsComputingRoutesFunction() {
         return RouterFunctions.route()
                 .path("/flights-computing", builder -> builder
                         // GET /flights-computing/airport-to-airports - Get airport to airports flights mapping
-                        .GET("/airport-to-airports", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getAirportToAirportsFlights)
-                        .GET("/airports-to-flights", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getAirportsToFlights)
+                        .GET("/airport-to-airports", accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON), flightsComputingHandler::getAirportToAirportsFlights)
+                        .GET("/airports-to-flights", accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON), flightsComputingHandler::getAirportsToFlights)
                         // GET /flights-computing/route - Get route between two airports
                         .GET("/route", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getRoute)
                         // GET /flights-computing/route-minimum-cost - Get minimum cost route between two airports
                         .GET("/route-minimum-cost", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getRouteMinimumCost)
+                        // GET /flights-computing/k-shortest-routes - Get alternative routes between two airports
+                        .GET("/k-shortest-routes", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getKShortestRoutes)
+                        // GET /flights-computing/earliest-arrival - Get the earliest arriving route between two airports
+                        .GET("/earliest-arrival", accept(MediaType.APPLICATION_JSON), flightsComputingHandler::getEarliestArrival)
                 )
                 .build();
     }
@@ -0,0 +1,106 @@
+package com.execodex.sparrowair2.routes;
+
+import com.execodex.sparrowair2.handlers.SeatHoldHandler;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springdoc.core.annotations.RouterOperation;
+import org.springdoc.core.annotations.RouterOperations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+public class SeatHoldRoutes {
+
+    private final SeatHoldHandler seatHoldHandler;
+
+    public SeatHoldRoutes(SeatHoldHandler seatHoldHandler) {
+        this.seatHoldHandler = seatHoldHandler;
+    }
+
+    @Bean
+    @RouterOperations({
+            @RouterOperation(
+                    path = "/seats/{seatId}/hold",
+                    method = RequestMethod.POST,
+                    beanClass = SeatHoldHandler.class,
+                    beanMethod = "holdSeat",
+                    operation = @Operation(
+                            operationId = "holdSeat",
+                            summary = "Hold a seat",
+                            description = "Locks an available seat for a checkout, it is released automatically once the hold expires",
+                            tags = {"Seats 💺"},
+                            parameters = {
+                                    @Parameter(name = "seatId", in = ParameterIn.PATH, description = "ID of the seat to hold", required = true,
+                                            schema = @Schema(type = "integer")),
+                                    @Parameter(name = "ttl", in = ParameterIn.QUERY, description = "How long to hold the seat, ISO-8601 duration (default: seat-holds.default-ttl)",
+                                            schema = @Schema(type = "string", example = "PT5M"))
+                            },
+                            responses = {
+                                    @ApiResponse(responseCode = "200", description = "Seat held, with the time its hold expires",
+                                            content = @Content(mediaType = "application/json")),
+                                    @ApiResponse(responseCode = "400", description = "Invalid ttl"),
+                                    @ApiResponse(responseCode = "409", description = "Seat not available")
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/seats/{seatId}/hold/confirm",
+                    method = RequestMethod.POST,
+                    beanClass = SeatHoldHandler.class,
+                    beanMethod = "confirmHold",
+                    operation = @Operation(
+                            operationId = "confirmHold",
+                            summary = "Confirm a seat hold",
+                            description = "Turns the hold of the seat into a reservation, if it hasn't expired",
+                            tags = {"Seats 💺"},
+                            parameters = {
+                                    @Parameter(name = "seatId", in = ParameterIn.PATH, description = "ID of the held seat", required = true,
+                                            schema = @Schema(type = "integer"))
+                            },
+                            responses = {
+                                    @ApiResponse(responseCode = "200", description = "Seat reserved",
+                                            content = @Content(mediaType = "application/json")),
+                                    @ApiResponse(responseCode = "409", description = "Seat not held or hold expired")
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/seats/{seatId}/hold",
+                    method = RequestMethod.DELETE,
+                    beanClass = SeatHoldHandler.class,
+                    beanMethod = "releaseHold",
+                    operation = @Operation(
+                            operationId = "releaseHold",
+                            summary = "Release a seat hold",
+                            description = "Makes the held seat available again",
+                            tags = {"Seats 💺"},
+                            parameters = {
+                                    @Parameter(name = "seatId", in = ParameterIn.PATH, description = "ID of the held seat", required = true,
+                                            schema = @Schema(type = "integer"))
+                            },
+                            responses = {
+                                    @ApiResponse(responseCode = "200", description = "Hold released",
+                                            content = @Content(mediaType = "application/json")),
+                                    @ApiResponse(responseCode = "404", description = "Seat not held")
+                            }
+                    )
+            )
+    })
+    public RouterFunction<ServerResponse> seatHoldRoutesFunction() {
+        return RouterFunctions.route()
+                .path("/seats/{seatId}/hold", builder -> builder
+                        .POST("", seatHoldHandler::holdSeat)
+                        .POST("/confirm", seatHoldHandler::confirmHold)
+                        .DELETE("", seatHoldHandler::releaseHold)
+                )
+                .build();
+    }
+}
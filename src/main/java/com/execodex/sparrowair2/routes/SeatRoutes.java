@@ -1,9 +1,11 @@
 package com.execodex.sparrowair2.routes;
 
 import com.execodex.sparrowair2.handlers.SeatHandler;
+import com.execodex.sparrowair2.model.SeatAvailability;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -77,6 +79,63 @@ public class SeatRoutes {
                             }
                     )
             ),
+            @RouterOperation(
+                    path = "/seats/availability",
+                    method = RequestMethod.GET,
+                    beanClass = SeatHandler.class,
+                    beanMethod = "getAvailability",
+                    operation = @Operation(
+                            operationId = "getSeatAvailability",
+                            summary = "Get seat availability of flights",
+                            description = "Returns the number of available, reserved and held seats per seat class of each flight",
+                            tags = {"Seats \uD83D\uDCBA"},
+                            parameters = {
+                                    @Parameter(
+                                            name = "flightIds",
+                                            in = ParameterIn.QUERY,
+                                            description = "IDs of the flights, comma-separated or repeated",
+                                            required = true,
+                                            schema = @Schema(type = "string", example = "1,2,3")
+                                    )
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json",
+                                                    array = @ArraySchema(schema = @Schema(implementation = SeatAvailability.class)))
+                                    ),
+                                    @ApiResponse(responseCode = "400", description = "Missing or invalid flight IDs")
+                            }
+                    )
+            ),
+            @RouterOperation(
+                    path = "/seats/availability",
+                    method = RequestMethod.POST,
+                    beanClass = SeatHandler.class,
+                    beanMethod = "getAvailabilityInBatch",
+                    operation = @Operation(
+                            operationId = "getSeatAvailabilityInBatch",
+                            summary = "Get seat availability of many flights",
+                            description = "Like GET /seats/availability, for the flight IDs in the request body",
+                            tags = {"Seats \uD83D\uDCBA"},
+                            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                                    description = "IDs of the flights",
+                                    required = true,
+                                    content = @Content(mediaType = "application/json",
+                                            array = @ArraySchema(schema = @Schema(type = "integer")))
+                            ),
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json",
+                                                    array = @ArraySchema(schema = @Schema(implementation = SeatAvailability.class)))
+                                    ),
+                                    @ApiResponse(responseCode = "400", description = "Missing or too many flight IDs")
+                            }
+                    )
+            ),
             @RouterOperation(
                     path = "/seats/flights/{flightId}",
                     method = RequestMethod.GET,
@@ -105,6 +164,47 @@ public class SeatRoutes {
                             }
                     )
             ),
+            @RouterOperation(
+                    path = "/seats/flights/{flightId}/available",
+                    method = RequestMethod.GET,
+                    beanClass = SeatHandler.class,
+                    beanMethod = "getAvailableSeats",
+                    operation = @Operation(
+                            operationId = "getAvailableSeats",
+                            summary = "Get available seats of a flight",
+                            description = "Returns the available seats of a flight, optionally only those of a seat class and in a position",
+                            tags = {"Seats \uD83D\uDCBA"},
+                            parameters = {
+                                    @Parameter(
+                                            name = "flightId",
+                                            in = ParameterIn.PATH,
+                                            description = "ID of the flight",
+                                            required = true,
+                                            schema = @Schema(type = "integer")
+                                    ),
+                                    @Parameter(
+                                            name = "seatClass",
+                                            in = ParameterIn.QUERY,
+                                            description = "Seat class: FIRST_CLASS, BUSINESS, PREMIUM_ECONOMY or ECONOMY",
+                                            schema = @Schema(type = "string")
+                                    ),
+                                    @Parameter(
+                                            name = "position",
+                                            in = ParameterIn.QUERY,
+                                            description = "Seat position: WINDOW, MIDDLE or AISLE",
+                                            schema = @Schema(type = "string")
+                                    )
+                            },
+                            responses = {
+                                    @ApiResponse(
+                                            responseCode = "200",
+                                            description = "Successful operation",
+                                            content = @Content(mediaType = "application/json")
+                                    ),
+                                    @ApiResponse(responseCode = "400", description = "Invalid flight ID, seat class or position")
+                            }
+                    )
+            ),
             @RouterOperation(
                     path = "/seats/flightNumber/{flightNumber}",
                     method = RequestMethod.GET,
@@ -208,8 +308,12 @@ public class SeatRoutes {
                 .path("/seats", builder -> builder
                         // GET /seats - Get all seats
                         .GET("", accept(MediaType.APPLICATION_JSON), seatHandler::getAllSeats)
+                        // before {seatId}, which would match it too
+                        .GET("/availability", accept(MediaType.APPLICATION_JSON), seatHandler::getAvailability)
+                        .POST("/availability", accept(MediaType.APPLICATION_JSON), seatHandler::getAvailabilityInBatch)
                         .GET("{seatId}", accept(MediaType.APPLICATION_JSON), seatHandler::getSeatById)
                         .GET("/flights/{flightId}", accept(MediaType.APPLICATION_JSON), seatHandler::getSeatsByFlightId)
+                        .GET("/flights/{flightId}/available", accept(MediaType.APPLICATION_JSON), seatHandler::getAvailableSeats)
                         // not really the proper way, because you might have multiple flights with the same flight number from different airlines
                         .GET("/flightNumber/{flightNumber}", accept(MediaType.APPLICATION_JSON), seatHandler::getSeatsByFlightNumber)
                         // proper way, but you need to know the airline ICAO code
@@ -2,6 +2,8 @@ package com.execodex.sparrowair2.services;
 
 import com.execodex.sparrowair2.entities.skybrary.AirportNew;
 import com.execodex.sparrowair2.repositories.AirportNewRepository;
+import com.execodex.sparrowair2.services.computing.GreatCircleDistanceCache;
+import com.execodex.sparrowair2.services.computing.RouteGraphService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
@@ -16,9 +18,12 @@ public class AirportNewService {
 
     private static final Logger logger = LoggerFactory.getLogger(AirportNewService.class);
     private final AirportNewRepository airportNewRepository;
+    private final RouteGraphService routeGraphService;
+    private final GreatCircleDistanceCache distanceCache = new GreatCircleDistanceCache();
 
-    public AirportNewService(AirportNewRepository airportNewRepository) {
+    public AirportNewService(AirportNewRepository airportNewRepository, RouteGraphService routeGraphService) {
         this.airportNewRepository = airportNewRepository;
+        this.routeGraphService = routeGraphService;
     }
 
     // Get all airports
@@ -74,6 +79,7 @@ public class AirportNewService {
     // Create a new airport
     public Mono<AirportNew> createAirport(AirportNew airport) {
         return airportNewRepository.insert(airport)
+                .doOnNext(routeGraphService::airportSaved)
                 .doOnSuccess(a -> logger.info("Created airport with ICAO code: {}", a.getIcaoCode()))
                 .doOnError(e -> {
                     if (e instanceof DuplicateKeyException) {
@@ -89,6 +95,7 @@ public class AirportNewService {
     public Mono<AirportNew> updateAirport(String icaoCode, AirportNew airport) {
         airport.setIcaoCode(icaoCode); // Ensure the ID is set correctly
         return airportNewRepository.save(airport)
+                .doOnNext(routeGraphService::airportSaved)
                 .doOnSuccess(a -> logger.info("Updated airport with ICAO code: {}", a.getIcaoCode()))
                 .doOnError(e -> logger.error("Error updating airport with ICAO code: {}", icaoCode, e))
                 .onErrorResume(e -> Mono.error(e));
@@ -98,6 +105,7 @@ public class AirportNewService {
     public Mono<Void> deleteAirport(String icaoCode) {
         return airportNewRepository.findById(icaoCode)
                 .flatMap(airport -> airportNewRepository.delete(airport)
+                        .doOnSuccess(v -> routeGraphService.airportDeleted(icaoCode))
                         .doOnSuccess(v -> logger.info("Deleted airport with ICAO code: {}", icaoCode))
                         .doOnError(e -> logger.error("Error deleting airport with ICAO code: {}", icaoCode, e))
                         .onErrorResume(e -> Mono.error(e))
@@ -105,8 +113,15 @@ public class AirportNewService {
                 .switchIfEmpty(Mono.empty());
     }
 
-    // Calculates the distance between two airports using Haversine formula, in kilometers
+    // Calculates the great-circle distance between two airports, in kilometers
+    // Positions are precomputed and distances memoized per airport pair, see GreatCircleDistanceCache
     public double distance(AirportNew airport1, AirportNew airport2) {
+        return distanceCache.distance(airport1, airport2);
+    }
+
+    // Calculates the distance between two airports using Haversine formula, in kilometers
+    // This is the reference for distance(), it recomputes everything on each call
+    public double haversineDistance(AirportNew airport1, AirportNew airport2) {
         double lat1 = airport1.getLatitude();
         double lon1 = airport1.getLongitude();
         double lat2 = airport2.getLatitude();
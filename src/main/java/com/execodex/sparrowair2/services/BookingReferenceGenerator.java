@@ -0,0 +1,116 @@
+package com.execodex.sparrowair2.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Generates booking IDs that are unique without asking the database, and their booking references.
+ * <p>
+ * An ID is laid out like a Snowflake ID: the seconds since {@link #EPOCH} in the high 32 bits, then the node ID of the
+ * instance in 6 bits and a per-second sequence in 12 bits, 50 bits in all. Its reference is the ID in Crockford
+ * base 32, exactly {@value #REFERENCE_LENGTH} characters to fit the {@code booking_reference} column, so a reference
+ * decodes back to the primary key of its booking.
+ * <p>
+ * An instance generates up to 4096 IDs a second. Past that, and when the clock goes back, it borrows the next
+ * seconds rather than waiting: IDs stay unique as long as the instance doesn't generate more than 4096 a second on
+ * average, and are in generation order.
+ */
+@Component
+public class BookingReferenceGenerator {
+
+    static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+    static final int REFERENCE_LENGTH = 10;
+    static final int MAX_NODE_ID = 63;
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+    private static final long MAX_SECONDS = (1L << 32) - 1;
+    // Crockford's alphabet: no I, L, O or U, so a reference read out aloud can't be mistaken
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+        // the letters left out read as the digits they look like
+        DECODE['O'] = DECODE['o'] = 0;
+        DECODE['I'] = DECODE['i'] = DECODE['L'] = DECODE['l'] = 1;
+    }
+
+    private final int nodeId;
+    private final Clock clock;
+    private long lastSecond = -1;
+    private int sequence;
+
+    @Autowired
+    public BookingReferenceGenerator(BookingReferenceProperties properties) {
+        this(properties.nodeId(), Clock.systemUTC());
+    }
+
+    BookingReferenceGenerator(int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("The node ID of booking references has to be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    /**
+     * @return a new booking ID, greater than every ID this instance generated before
+     */
+    public synchronized long nextId() {
+        long second = Math.max(0, clock.instant().getEpochSecond() - EPOCH.getEpochSecond());
+        if (second > lastSecond) {
+            lastSecond = second;
+            sequence = 0;
+        } else if (sequence < MAX_SEQUENCE) {
+            sequence++;
+        } else {
+            // the sequence of the second is used up
+            lastSecond++;
+            sequence = 0;
+        }
+        if (lastSecond > MAX_SECONDS) {
+            throw new IllegalStateException("Booking IDs are exhausted");
+        }
+        return lastSecond << (NODE_BITS + SEQUENCE_BITS) | (long) nodeId << SEQUENCE_BITS | sequence;
+    }
+
+    /**
+     * @return the booking reference of the ID
+     */
+    public static String encode(long id) {
+        char[] reference = new char[REFERENCE_LENGTH];
+        for (int i = REFERENCE_LENGTH - 1; i >= 0; i--) {
+            reference[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(reference);
+    }
+
+    /**
+     * @return the booking ID of the reference, or -1 if it is not a generated reference
+     */
+    public static long decode(String reference) {
+        if (reference == null || reference.length() != REFERENCE_LENGTH) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < REFERENCE_LENGTH; i++) {
+            char c = reference.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            id = id << 5 | value;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,14 @@
+package com.execodex.sparrowair2.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the booking reference generator, bound from the {@code booking-reference.*} properties.
+ *
+ * @param nodeId ID of this instance, 0 to {@value BookingReferenceGenerator#MAX_NODE_ID}; instances writing to the same
+ *               database need different IDs for their references to be unique
+ */
+@ConfigurationProperties(prefix = "booking-reference")
+public record BookingReferenceProperties(@DefaultValue("0") int nodeId) {
+}
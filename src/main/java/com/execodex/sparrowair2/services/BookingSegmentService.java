@@ -3,17 +3,26 @@ package com.execodex.sparrowair2.services;
 import com.execodex.sparrowair2.entities.BookingSegment;
 import com.execodex.sparrowair2.entities.Flight;
 import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.model.AdjacentSeatsRequest;
+import com.execodex.sparrowair2.model.ItineraryLeg;
 import com.execodex.sparrowair2.repositories.BookingSegmentRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.ReactiveTransactionManager;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -23,15 +32,23 @@ public class BookingSegmentService {
     private final SeatService seatService;
     private final FlightService flightService;
     private final TransactionalOperator transactionalOperator;
+    private final SeatInventory seatInventory;
+    private final SeatAssignmentService seatAssignmentService;
+    // seats of a group booked side by side, a row has rarely more in one section
+    static final int MAX_ADJACENT_SEATS = 9;
 
     public BookingSegmentService(BookingSegmentRepository bookingSegmentRepository,
                                  SeatService seatService,
                                  FlightService flightService,
-                                 ReactiveTransactionManager transactionManager) {
+                                 ReactiveTransactionManager transactionManager,
+                                 SeatInventory seatInventory,
+                                 SeatAssignmentService seatAssignmentService) {
         this.bookingSegmentRepository = bookingSegmentRepository;
         this.seatService = seatService;
         this.flightService = flightService;
         this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.seatInventory = seatInventory;
+        this.seatAssignmentService = seatAssignmentService;
     }
 
     public Flux<BookingSegment> getAllBookingSegments() {
@@ -53,6 +70,166 @@ public class BookingSegmentService {
     }
 
     public Mono<BookingSegment> createBookingSegment(BookingSegment bookingSegment) {
+        return withSeatClaimed(bookingSegment, () -> saveBookingSegment(bookingSegment));
+    }
+
+    // Reserve the seat and save the booking segment atomically. The seat is claimed with a single conditional UPDATE,
+    // so of any number of concurrent reservations of a seat exactly one wins, and the segment is inserted in the same
+    // transaction: if the insert fails the seat is available again.
+    public Mono<BookingSegment> reserveBookingSegment(BookingSegment bookingSegment) {
+        Long flightId = bookingSegment.getFlightId();
+        Long seatId = bookingSegment.getSeatId();
+        return withSeatClaimed(bookingSegment, () -> transactionalOperator.transactional(
+                        seatService.reserveSeatIfAvailable(flightId, seatId)
+                                .switchIfEmpty(Mono.error(new SeatNotAvailableException("Seat with ID " + seatId + " is not available on flight ID " + flightId)))
+                                .flatMap(seat -> bookingSegmentRepository.insert(bookingSegment))))
+                .doOnSuccess(savedSegment -> logger.info("Reserved seat ID: {} on flight ID: {} with booking segment ID: {}", seatId, flightId, savedSegment.getId()))
+                .doOnError(e -> logger.error("Error reserving seat ID: {} on flight ID: {}", seatId, flightId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Book every leg of an itinerary with a seat of the requested class, or none of them. The seats are picked and
+    // reserved by one UPDATE and the segments inserted by one INSERT, both in a single transaction.
+    public Mono<List<BookingSegment>> bookItinerary(Long bookingId, List<ItineraryLeg> legs) {
+        return Mono.<List<BookingSegment>>defer(() -> {
+            if (bookingId == null || legs == null || legs.isEmpty()) {
+                return Mono.error(new IllegalArgumentException("An itinerary needs a booking ID and at least one leg"));
+            }
+            List<Long> flightIds = legs.stream().map(ItineraryLeg::getFlightId).toList();
+            List<SeatClass> seatClasses = legs.stream().map(ItineraryLeg::getSeatClass).toList();
+            if (flightIds.contains(null) || seatClasses.contains(null) || Set.copyOf(flightIds).size() != flightIds.size()) {
+                return Mono.error(new IllegalArgumentException("Every leg needs a seat class and a flight that no other leg has"));
+            }
+            // a flight the inventory knows to be full fails the itinerary before going to the database
+            for (ItineraryLeg leg : legs) {
+                if (seatInventory.available(leg.getFlightId(), leg.getSeatClass()) == 0) {
+                    return Mono.error(noSeatLeft(leg));
+                }
+            }
+
+            Mono<Tuple2<List<Seat>, List<BookingSegment>>> booked = seatService.reserveFirstAvailableSeats(flightIds, seatClasses)
+                    .collectMap(Seat::getFlightId)
+                    .flatMap(seatsByFlight -> {
+                        for (ItineraryLeg leg : legs) {
+                            if (!seatsByFlight.containsKey(leg.getFlightId())) {
+                                // rolls back the seats reserved for the other legs
+                                return Mono.error(noSeatLeft(leg));
+                            }
+                        }
+                        List<BookingSegment> segments = legs.stream()
+                                .map(leg -> BookingSegment.builder()
+                                        .bookingId(bookingId)
+                                        .flightId(leg.getFlightId())
+                                        .seatId(seatsByFlight.get(leg.getFlightId()).getId())
+                                        .fareClass(leg.getSeatClass().name())
+                                        .build())
+                                .toList();
+                        return bookingSegmentRepository.insertAll(segments)
+                                .collectMap(BookingSegment::getFlightId)
+                                // segments in the order of the legs
+                                .map(segmentsByFlight -> Tuples.of(
+                                        List.copyOf(seatsByFlight.values()),
+                                        flightIds.stream().map(segmentsByFlight::get).toList()));
+                    });
+
+            return transactionalOperator.transactional(booked)
+                    .doOnNext(committed -> committed.getT1().forEach(seatInventory::seatUpdated))
+                    .map(Tuple2::getT2);
+        })
+                .doOnSuccess(segments -> logger.info("Booked itinerary of {} legs for booking ID: {}", segments.size(), bookingId))
+                .doOnError(e -> logger.error("Error booking itinerary for booking ID: {}", bookingId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Book seats next to each other for a group: the best block of adjacent free seats is picked from the flight's
+    // seat grid and claimed in memory, then the seats are reserved by one UPDATE and the segments inserted by one
+    // INSERT in a single transaction. Seats someone else got in the database meanwhile fail the whole group.
+    public Mono<List<BookingSegment>> bookAdjacentSeats(AdjacentSeatsRequest request) {
+        return Mono.<List<BookingSegment>>defer(() -> {
+            if (request.getBookingId() == null || request.getFlightId() == null || request.getSeatClass() == null) {
+                return Mono.error(new IllegalArgumentException("Adjacent seats need a booking ID, a flight ID and a seat class"));
+            }
+            if (request.getSeatCount() < 1 || request.getSeatCount() > MAX_ADJACENT_SEATS) {
+                return Mono.error(new IllegalArgumentException("Between 1 and " + MAX_ADJACENT_SEATS + " adjacent seats can be booked at once"));
+            }
+            Long flightId = request.getFlightId();
+            return seatAssignmentService.claimAdjacentSeats(flightId, request.getSeatClass(), request.getSeatCount(), request.getPreference())
+                    .flatMap(seatIds -> {
+                        List<BookingSegment> segments = seatIds.stream()
+                                .map(seatId -> BookingSegment.builder()
+                                        .bookingId(request.getBookingId())
+                                        .flightId(flightId)
+                                        .seatId(seatId)
+                                        .fareClass(request.getSeatClass().name())
+                                        .build())
+                                .toList();
+                        Mono<List<BookingSegment>> booked = seatService.reserveSeatsIfAvailable(flightId, seatIds)
+                                .count()
+                                .flatMap(reserved -> reserved == seatIds.size()
+                                        ? bookingSegmentRepository.insertAll(segments).collectList()
+                                        : Mono.error(new SeatNotAvailableException("Adjacent seats " + seatIds + " are no longer available on flight ID " + flightId)));
+
+                        AtomicBoolean saved = new AtomicBoolean();
+                        AtomicBoolean rejected = new AtomicBoolean();
+                        return transactionalOperator.transactional(booked)
+                                .doOnNext(savedSegments -> saved.set(true))
+                                .doOnError(SeatNotAvailableException.class, e -> rejected.set(true))
+                                .doFinally(signal -> {
+                                    if (saved.get()) {
+                                        return;
+                                    }
+                                    if (rejected.get()) {
+                                        // the inventory had the seats free when the database didn't, it is out of
+                                        // date; the taken bits may stand for reservations made elsewhere meanwhile
+                                        seatAssignmentService.evict(flightId);
+                                    } else {
+                                        seatAssignmentService.release(flightId, seatIds);
+                                    }
+                                });
+                    });
+        })
+                .doOnSuccess(segments -> logger.info("Booked {} adjacent seats on flight ID: {} for booking ID: {}", segments.size(), request.getFlightId(), request.getBookingId()))
+                .doOnError(e -> logger.error("Error booking adjacent seats on flight ID: {}", request.getFlightId(), e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    private static SeatNotAvailableException noSeatLeft(ItineraryLeg leg) {
+        return new SeatNotAvailableException("No " + leg.getSeatClass() + " seat available on flight ID " + leg.getFlightId());
+    }
+
+    // Claims the seat in memory before going to the database, a seat that is already taken is rejected without a
+    // database round trip. The database has the last word: the seat is given back if the segment isn't saved, unless
+    // the database had the seat taken. Then the taken bit may stand for a reservation made elsewhere meanwhile, so the
+    // flight is evicted and read again rather than the seat freed.
+    private Mono<BookingSegment> withSeatClaimed(BookingSegment bookingSegment, Supplier<Mono<BookingSegment>> save) {
+        return Mono.defer(() -> {
+            SeatInventory.Reservation reservation = seatInventory.tryReserve(bookingSegment.getFlightId(), bookingSegment.getSeatId());
+            if (reservation == SeatInventory.Reservation.TAKEN) {
+                return Mono.error(new SeatNotAvailableException("Seat with ID " + bookingSegment.getSeatId() + " is not available"));
+            }
+            if (reservation == SeatInventory.Reservation.UNKNOWN) {
+                return save.get();
+            }
+            AtomicBoolean saved = new AtomicBoolean();
+            AtomicBoolean rejected = new AtomicBoolean();
+            return save.get()
+                    .doOnNext(savedSegment -> saved.set(true))
+                    .doOnError(SeatNotAvailableException.class, e -> rejected.set(true))
+                    .doFinally(signal -> {
+                        if (saved.get()) {
+                            return;
+                        }
+                        if (rejected.get()) {
+                            seatInventory.evict(bookingSegment.getFlightId());
+                        } else {
+                            seatInventory.release(bookingSegment.getFlightId(), bookingSegment.getSeatId());
+                        }
+                    });
+        });
+    }
+
+    // Checks the flight and the seat in the database, then saves the booking segment and reserves the seat
+    private Mono<BookingSegment> saveBookingSegment(BookingSegment bookingSegment) {
         // before saving it, find if we have the same booking segment by flight ID and seat ID
         // find the flight by flight ID
         Mono<Flight> flightById = flightService.getFlightById(bookingSegment.getFlightId())
@@ -99,70 +276,50 @@ public class BookingSegmentService {
                     }
                     // check if seat is available
                     if (!seat.getStatus().equals(com.execodex.sparrowair2.entities.SeatStatus.AVAILABLE)) {
-                        return Mono.error(new RuntimeException("Seat with ID " + bookingSegment.getSeatId() + " is not available"));
+                        return Mono.error(new SeatNotAvailableException("Seat with ID " + bookingSegment.getSeatId() + " is not available"));
                     }
                     // check if flight is not cancelled
                     if (flight.getStatus().equals("CANCELLED")) {
                         return Mono.error(new RuntimeException("Flight with ID " + bookingSegment.getFlightId() + " is cancelled"));
                     }
 
-                    // If both flight and seat are available, proceed to check for existing booking segments
-                    return checkAndSaveBookingSegment(bookingSegment);
+                    // reserve the seat only if it is still available and insert the segment in one transaction,
+                    // so of concurrent bookings of the seat exactly one wins
+                    Long flightId = bookingSegment.getFlightId();
+                    Long seatId = bookingSegment.getSeatId();
+                    return transactionalOperator.transactional(
+                            seatService.reserveSeatIfAvailable(flightId, seatId)
+                                    .switchIfEmpty(Mono.error(new SeatNotAvailableException("Seat with ID " + seatId + " is not available on flight ID " + flightId)))
+                                    .flatMap(reservedSeat -> bookingSegmentRepository.insert(bookingSegment)));
                 });
 
 
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    protected Mono<BookingSegment> checkAndSaveBookingSegment(BookingSegment bookingSegment) {
-        // Create a transaction with SERIALIZABLE isolation level to ensure no two customers can reserve the same seat
-        System.out.println("Booking segment data: " + bookingSegment.toString());
-        return bookingSegmentRepository
-                .findByFlightIdAndSeatId(bookingSegment.getFlightId(), bookingSegment.getSeatId())
-                .hasElement()
-                .flatMap(exists -> {
-                    if (exists) {
-                        return Mono.error(new RuntimeException("Booking segment already exists for flight ID: " + bookingSegment.getFlightId() + " and seat ID: " + bookingSegment.getSeatId()));
-                    } else {
-                        // log infor about booking segment data
-
-                        // Insert the booking segment
-                        return bookingSegmentRepository.insert(bookingSegment)
-                                .flatMap(savedSegment -> {
-//                                    System.out.println("Created booking segment with ID: " + savedSegment.getId());
-                                    // Update the seat status to RESERVED as part of the same transaction
-                                    return seatService.updateSeatStatus(bookingSegment.getSeatId(), "RESERVED")
-                                            .doOnSuccess(seat -> System.out.println("Updated seat status to RESERVED for seat ID: " + seat.getId()))
-                                            .doOnError(e -> System.err.println("Error updating seat status: " + e.getMessage()))
-                                            .thenReturn(savedSegment); // Return the saved booking segment
-                                })
-                                .doOnError(e -> System.err.println("Error creating booking segment in checkAndSaveBookingSegment: " + e.getMessage()));
-                    }
-                })
-                // The @Transactional annotation will ensure this is executed in a transaction with SERIALIZABLE isolation level
-                ;
-    }
-
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    // Update the booking segment. Moving it to another seat reserves the new seat, saves the segment and releases the
+    // old seat in one transaction, so the segment never ends up with no seat or with both.
     public Mono<BookingSegment> updateBookingSegment(long id, BookingSegment bookingSegment) {
         return bookingSegmentRepository.findById(id)
                 .switchIfEmpty(Mono.error(new RuntimeException("Booking segment not found with ID: " + id)))
                 .flatMap(existingSegment -> {
-
-//                    bookingSegment.setFareClass(existingSegment.getFareClass());
-//                    bookingSegment.setSeatId(existingSegment.getSeatId());
-                    return bookingSegmentRepository.save(bookingSegment)
-                            .doOnSuccess(updatedSegment -> {
-                                System.out.println("Updated booking segment with ID: " + updatedSegment.getId());
-                                // Update the seat status if necessary
-                                seatService.updateSeatStatus(existingSegment.getSeatId(), "AVAILABLE")
-                                        .doOnSuccess(seat -> System.out.println("Updated seat status for seat ID: " + seat.getId()))
-                                        .doOnError(e -> System.err.println("Error updating seat status: " + e.getMessage()));
-                            })
-                            .doOnError(e -> System.err.println("Error updating booking segment: " + e.getMessage()));
-
-
-                });
+                    bookingSegment.setId(id);
+                    if (Objects.equals(existingSegment.getFlightId(), bookingSegment.getFlightId())
+                            && Objects.equals(existingSegment.getSeatId(), bookingSegment.getSeatId())) {
+                        return bookingSegmentRepository.save(bookingSegment);
+                    }
+                    Long flightId = bookingSegment.getFlightId();
+                    Long seatId = bookingSegment.getSeatId();
+                    return withSeatClaimed(bookingSegment, () -> transactionalOperator.transactional(
+                                    seatService.reserveSeatIfAvailable(flightId, seatId)
+                                            .switchIfEmpty(Mono.error(new SeatNotAvailableException("Seat with ID " + seatId + " is not available on flight ID " + flightId)))
+                                            .flatMap(seat -> bookingSegmentRepository.save(bookingSegment))
+                                            .flatMap(savedSegment -> seatService.releaseSeat(existingSegment.getSeatId())
+                                                    .thenReturn(savedSegment))))
+                            .doOnNext(savedSegment -> seatInventory.release(existingSegment.getFlightId(), existingSegment.getSeatId()));
+                })
+                .doOnSuccess(updatedSegment -> logger.info("Updated booking segment with ID: {}", id))
+                .doOnError(e -> logger.error("Error updating booking segment with ID: {}", id, e))
+                .onErrorResume(e -> Mono.error(e));
     }
 
     public Mono<BookingSegment> createBookingSegment2(BookingSegment bookingSegment) {
@@ -208,21 +365,22 @@ public class BookingSegmentService {
                 });
     }
 
-    public Mono<BookingSegment> deleteBookingSegment(long l) {
-        return bookingSegmentRepository.findById(l)
-                .switchIfEmpty(Mono.error(new RuntimeException("Booking segment not found with ID: " + l)))
-                .flatMap(existingSegment -> {
-                    Long seatId = existingSegment.getSeatId();
-                    // Update the seat status to "AVAILABLE" before deleting the booking segment
-                    return seatService.updateSeatStatus(seatId, "AVAILABLE")
-                            .doOnSuccess(seat -> System.out.println("Updated seat status for seat ID: " + seat.getId()))
-                            .doOnError(e -> System.err.println("Error updating seat status: " + e.getMessage()))
-                            .then(Mono.just(existingSegment)); // Return the existing segment for further processing
-                })
-                .flatMap(existingSegment -> bookingSegmentRepository
-                        .delete(existingSegment)
-                        .then(Mono.just(existingSegment))
-                        .doOnSuccess(deletedSegment -> System.out.println("Deleted booking segment with ID: " + deletedSegment.getId()))
-                        .doOnError(e -> System.err.println("Error deleting booking segment: " + e.getMessage())));
+    // Delete the booking segment and release its seat with a single statement
+    public Mono<BookingSegment> deleteBookingSegment(long id) {
+        return bookingSegmentRepository.deleteAndReleaseSeat(id)
+                .switchIfEmpty(Mono.error(new RuntimeException("Booking segment not found with ID: " + id)))
+                .doOnNext(deletedSegment -> seatInventory.release(deletedSegment.getFlightId(), deletedSegment.getSeatId()))
+                .doOnSuccess(deletedSegment -> logger.info("Deleted booking segment with ID: {} and released seat ID: {}", id, deletedSegment.getSeatId()))
+                .doOnError(e -> logger.error("Error deleting booking segment with ID: {}", id, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Cancel all segments of the booking and release their seats with a single statement, emits the deleted segments
+    public Flux<BookingSegment> cancelBookingSegments(Long bookingId) {
+        return bookingSegmentRepository.deleteByBookingIdAndReleaseSeats(bookingId)
+                .doOnNext(deletedSegment -> seatInventory.release(deletedSegment.getFlightId(), deletedSegment.getSeatId()))
+                .doOnComplete(() -> logger.info("Cancelled the booking segments of booking ID: {}", bookingId))
+                .doOnError(e -> logger.error("Error cancelling the booking segments of booking ID: {}", bookingId, e))
+                .onErrorResume(e -> Flux.error(e));
     }
 }
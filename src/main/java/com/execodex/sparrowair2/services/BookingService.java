@@ -9,15 +9,19 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 @Service
 public class BookingService {
 
     // Assuming you have a BookingRepository similar to SeatRepository
     private final BookingRepository bookingRepository;
+    private final BookingReferenceGenerator bookingReferenceGenerator;
     private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
 
-    public BookingService(BookingRepository bookingRepository) {
+    public BookingService(BookingRepository bookingRepository, BookingReferenceGenerator bookingReferenceGenerator) {
         this.bookingRepository = bookingRepository;
+        this.bookingReferenceGenerator = bookingReferenceGenerator;
     }
 
     public Flux<Booking> getAllBookings() {
@@ -29,8 +33,21 @@ public class BookingService {
                 });
     }
 
+    // Create the booking. Without a booking reference it gets a generated ID and the reference of that ID, which is
+    // unique without checking the database
     public Mono<Booking> createBooking(Booking booking) {
-        return bookingRepository.insert(booking)
+        return Mono.defer(() -> {
+                    if (booking.getBookingReference() != null && !booking.getBookingReference().isBlank()) {
+                        return bookingRepository.insert(booking);
+                    }
+                    long id = bookingReferenceGenerator.nextId();
+                    booking.setId(id);
+                    booking.setBookingReference(BookingReferenceGenerator.encode(id));
+                    if (booking.getCreatedAt() == null) {
+                        booking.setCreatedAt(LocalDateTime.now());
+                    }
+                    return bookingRepository.insertWithId(booking);
+                })
                 .doOnSuccess(b -> logger.info("Created booking with ID: {}", b.getId()))
                 .doOnError(e -> {
                     if (e instanceof DuplicateKeyException) {
@@ -51,8 +68,14 @@ public class BookingService {
                 });
     }
 
+    // A generated reference is decoded to the ID of its booking, other references are looked up by reference
     public Mono<Booking> getBookingByReference(String bookingReference) {
-        return bookingRepository.findByBookingReference(bookingReference)
+        long id = BookingReferenceGenerator.decode(bookingReference);
+        Mono<Booking> byId = id >= 0
+                ? bookingRepository.findById(id).filter(booking -> bookingReference.equalsIgnoreCase(booking.getBookingReference()))
+                : Mono.empty();
+        return byId
+                .switchIfEmpty(Mono.defer(() -> bookingRepository.findByBookingReference(bookingReference)))
                 .doOnError(e -> logger.error("Error retrieving booking with reference: {}", bookingReference, e))
                 .onErrorResume(e -> {
                     logger.error("Error retrieving booking with reference: {}", bookingReference, e);
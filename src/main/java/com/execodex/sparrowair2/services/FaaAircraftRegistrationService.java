@@ -2,6 +2,7 @@ package com.execodex.sparrowair2.services;
 
 import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
 import com.execodex.sparrowair2.repositories.FaaAircraftRegistrationRepository;
+import com.execodex.sparrowair2.services.caa.FaaRegistrationFingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
@@ -11,10 +12,22 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
 @Service
 public class FaaAircraftRegistrationService {
 
     private static final Logger logger = LoggerFactory.getLogger(FaaAircraftRegistrationService.class);
+    // registrations written by one statement, and statements running at once: the full FAA file of some 300k rows
+    // takes about 60 statements, leaving most of the connection pool to the other requests
+    static final int LOAD_BATCH_SIZE = 5000;
+    private static final int LOAD_CONCURRENCY = 4;
+    // single-row inserts running at once for bulkInsertFaaAircraftRegistrations
+    private static final int BULK_INSERT_CONCURRENCY = 8;
     private final FaaAircraftRegistrationRepository faaAircraftRegistrationRepository;
 
     public FaaAircraftRegistrationService(FaaAircraftRegistrationRepository faaAircraftRegistrationRepository) {
@@ -141,14 +154,106 @@ public class FaaAircraftRegistrationService {
     }
 
     /**
-     * Bulk insert FAA aircraft registrations
+     * Load FAA aircraft registrations, e.g. the whole FAA MASTER file. Registrations are written in batches of
+     * {@value #LOAD_BATCH_SIZE}, each with a single INSERT from column arrays; N-Numbers that already exist are skipped.
+     * The source is read only as fast as the batches are written. Each registration is stored with its
+     * {@link FaaRegistrationFingerprint}, for {@link #syncFaaAircraftRegistrations} to compare the next file against.
+     * @param registrations Flux of FaaAircraftRegistration objects to load
+     * @return the number of registrations inserted
+     */
+    public Mono<Long> loadFaaAircraftRegistrations(Flux<FaaAircraftRegistration> registrations) {
+        long start = System.nanoTime();
+        return registrations
+                .doOnNext(registration -> registration.setRowHash(FaaRegistrationFingerprint.of(registration)))
+                .buffer(LOAD_BATCH_SIZE)
+                .flatMap(faaAircraftRegistrationRepository::insertAll, LOAD_CONCURRENCY)
+                .reduce(0L, Long::sum)
+                .doOnSuccess(inserted -> logger.info("Loaded {} FAA aircraft registrations in {} ms",
+                        inserted, (System.nanoTime() - start) / 1_000_000))
+                .doOnError(e -> logger.error("Error loading FAA aircraft registrations", e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    /**
+     * Sync the FAA aircraft registrations with a new copy of the FAA MASTER file, writing only what changed. The
+     * fingerprint of each registration is compared with the one stored with its N-Number: new and changed
+     * registrations are written in batches of {@value #LOAD_BATCH_SIZE}, unchanged ones are skipped, and once the
+     * whole file is read, the registrations it no longer has are deleted. A registration without a stored fingerprint,
+     * such as one saved through the API, counts as changed. Later lines with the N-Number of an earlier one are
+     * skipped, as the full load does.
+     * <p>
+     * Nothing is deleted if the file had no registrations or lines that could not be read: the registrations of a
+     * skipped line, or of the rest of a truncated file, are not gone from the registry.
+     * <p>
+     * The stored fingerprints and the N-Numbers read are held in memory while the file is read, some tens of MB for
+     * the full registry.
+     * @param registrations Flux of FaaAircraftRegistration objects, the whole file
+     * @param skippedLines  the lines of the file skipped so far, asked once the whole file is read
+     * @return the number of registrations inserted, updated or deleted
+     */
+    public Mono<Long> syncFaaAircraftRegistrations(Flux<FaaAircraftRegistration> registrations, LongSupplier skippedLines) {
+        long start = System.nanoTime();
+        AtomicLong inserted = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        AtomicLong unchanged = new AtomicLong();
+        AtomicLong deleted = new AtomicLong();
+        return faaAircraftRegistrationRepository.findAllRowHashes()
+                .flatMap(rowHashes -> {
+                    Set<String> seen = new HashSet<>();
+                    return registrations
+                            .filter(registration -> {
+                                String nNumber = registration.getNNumber();
+                                if (!seen.add(nNumber)) {
+                                    return false;
+                                }
+                                long rowHash = FaaRegistrationFingerprint.of(registration);
+                                registration.setRowHash(rowHash);
+                                boolean stored = rowHashes.containsKey(nNumber);
+                                Long storedRowHash = rowHashes.remove(nNumber);
+                                if (!stored) {
+                                    inserted.incrementAndGet();
+                                    return true;
+                                }
+                                if (storedRowHash != null && storedRowHash == rowHash) {
+                                    unchanged.incrementAndGet();
+                                    return false;
+                                }
+                                updated.incrementAndGet();
+                                return true;
+                            })
+                            .buffer(LOAD_BATCH_SIZE)
+                            .flatMap(faaAircraftRegistrationRepository::upsertAll, LOAD_CONCURRENCY)
+                            .reduce(0L, Long::sum)
+                            // the N-Numbers left were not in the file
+                            .flatMap(written -> {
+                                long skipped = skippedLines.getAsLong();
+                                if (seen.isEmpty() || skipped > 0) {
+                                    logger.warn("Not deleting {} FAA aircraft registrations missing from the file: {} registrations read, {} lines skipped",
+                                            rowHashes.size(), seen.size(), skipped);
+                                    return Mono.just(written);
+                                }
+                                return Flux.fromIterable(new ArrayList<>(rowHashes.keySet()))
+                                        .buffer(LOAD_BATCH_SIZE)
+                                        .concatMap(faaAircraftRegistrationRepository::deleteAllByNNumber)
+                                        .doOnNext(deleted::addAndGet)
+                                        .reduce(written, Long::sum);
+                            });
+                })
+                .doOnSuccess(written -> logger.info("Synced FAA aircraft registrations in {} ms: {} inserted, {} updated, {} unchanged, {} deleted",
+                        (System.nanoTime() - start) / 1_000_000, inserted.get(), updated.get(), unchanged.get(), deleted.get()))
+                .doOnError(e -> logger.error("Error syncing FAA aircraft registrations", e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    /**
+     * Bulk insert FAA aircraft registrations one by one, use {@link #loadFaaAircraftRegistrations} for large files
      * @param registrations Flux of FaaAircraftRegistration objects to insert
      * @return Flux of inserted FaaAircraftRegistration objects
      */
     public Flux<FaaAircraftRegistration> bulkInsertFaaAircraftRegistrations(Flux<FaaAircraftRegistration> registrations) {
         return registrations
                 .flatMap(registration -> faaAircraftRegistrationRepository.insert(registration)
-                        .doOnSuccess(r -> logger.info("Created FAA aircraft registration with N-Number: {}", r.getNNumber()))
+                        .doOnSuccess(r -> logger.debug("Created FAA aircraft registration with N-Number: {}", r.getNNumber()))
                         .doOnError(e -> {
                             if (e instanceof DuplicateKeyException) {
                                 logger.warn("Duplicate key error when creating FAA aircraft registration with N-Number: {}", registration.getNNumber());
@@ -162,7 +267,7 @@ public class FaaAircraftRegistrationService {
                                 return Mono.empty();
                             }
                             return Mono.error(e);
-                        })
+                        }), BULK_INSERT_CONCURRENCY
                 )
                 .doOnComplete(() -> logger.info("Completed bulk insertion of FAA aircraft registrations"));
     }
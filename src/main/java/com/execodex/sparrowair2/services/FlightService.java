@@ -1,7 +1,9 @@
 package com.execodex.sparrowair2.services;
 
 import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.model.AirportDestinations;
 import com.execodex.sparrowair2.repositories.FlightRepository;
+import com.execodex.sparrowair2.services.computing.RouteGraphService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
@@ -16,11 +18,14 @@ public class FlightService {
     private final FlightRepository flightRepository;
     private final AirlineFleetService airlineFleetService;
     private final SeatService seatService;
+    private final RouteGraphService routeGraphService;
 
-    public FlightService(FlightRepository flightRepository, AirlineFleetService airlineFleetService, SeatService seatService) {
+    public FlightService(FlightRepository flightRepository, AirlineFleetService airlineFleetService, SeatService seatService,
+                         RouteGraphService routeGraphService) {
         this.flightRepository = flightRepository;
         this.airlineFleetService = airlineFleetService;
         this.seatService = seatService;
+        this.routeGraphService = routeGraphService;
     }
 
     // Get all flights
@@ -47,6 +52,7 @@ public class FlightService {
     public Mono<Flight> createFlight(Flight flight) {
         return flightRepository.insert(flight)
                 .doOnSuccess(f -> logger.info("Created flight with ID: {}", f.getId()))
+                .doOnNext(routeGraphService::flightSaved)
                 .doOnError(e -> {
                     if (e instanceof DuplicateKeyException) {
                         logger.error("Duplicate key error when creating flight", e);
@@ -112,6 +118,7 @@ public class FlightService {
 
                         // Save the updated flight first
                         return flightRepository.save(flight)
+                                .doOnNext(routeGraphService::flightSaved)
                                 .flatMap(updatedFlight -> {
                                     // Delete existing seats
                                     return seatService.deleteByFlightId(id)
@@ -153,6 +160,7 @@ public class FlightService {
                     } else {
                         // If airlineFleetId hasn't changed, just save the flight
                         return flightRepository.save(flight)
+                                .doOnNext(routeGraphService::flightSaved)
                                 .doOnSuccess(f -> logger.info("Updated flight with ID: {}", f.getId()))
                                 .doOnError(e -> logger.error("Error updating flight with ID: {}", id, e));
                     }
@@ -160,7 +168,8 @@ public class FlightService {
                 .switchIfEmpty(Mono.defer(() -> {
                     // If the flight doesn't exist, just save it (this should not happen in normal operation)
                     logger.warn("Attempted to update non-existent flight with ID: {}", id);
-                    return flightRepository.save(flight);
+                    return flightRepository.save(flight)
+                            .doOnNext(routeGraphService::flightSaved);
                 }))
                 .onErrorResume(e -> Mono.error(e));
     }
@@ -172,6 +181,7 @@ public class FlightService {
                     // First delete all seats associated with the flight
                     return seatService.deleteByFlightId(id)
                             .then(flightRepository.delete(flight))
+                            .doOnSuccess(v -> routeGraphService.flightDeleted(id))
                             .doOnSuccess(v -> logger.info("Deleted flight with ID: {}", id))
                             .doOnError(e -> logger.error("Error deleting flight with ID: {}", id, e))
                             .onErrorResume(e -> Mono.error(e));
@@ -216,6 +226,20 @@ public class FlightService {
                 });
     }
 
+    // Get the arrival airports of all flights, grouped by departure airport, in a single query
+    public Flux<AirportDestinations> getDestinationsByDepartureAirport() {
+        return flightRepository.findDestinationsGroupedByDepartureAirport()
+                .doOnError(e -> logger.error("Error retrieving destinations by departure airport", e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
+    // Get all flights ordered by departure airport, so they can be grouped while streaming
+    public Flux<Flight> getAllFlightsOrderedByDepartureAirport() {
+        return flightRepository.findAllByOrderByDepartureAirportIcaoAscIdAsc()
+                .doOnError(e -> logger.error("Error retrieving flights ordered by departure airport", e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
     public Flux<Flight> getAllFlightsToAirportCode(String airportCode) {
         return flightRepository.findByArrivalAirportIcao(airportCode)
                 .doOnError(e -> logger.error("Error retrieving flights to airport: {}", airportCode, e))
@@ -0,0 +1,98 @@
+package com.execodex.sparrowair2.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of deadlines, each identified by a {@code long} key.
+ * <p>
+ * Time is cut into ticks, and a deadline goes to the slot of its tick modulo the number of slots, so scheduling and
+ * cancelling are O(1) whatever the number of pending deadlines. {@link #advance} only visits the slots of the
+ * ticks elapsed since the previous call; a deadline more than one turn of the wheel away stays in its slot until its
+ * turn comes. Cancelled deadlines are dropped lazily, when their slot is visited.
+ * <p>
+ * Thread-safe, all methods synchronize on the wheel.
+ */
+final class HashedTimingWheel {
+
+    private record Timeout(long key, long deadlineTick) {
+    }
+
+    private final long tickMillis;
+    private final List<Timeout>[] slots;
+    private final int mask;
+    // the live timeout of each key, a timeout in a slot that isn't in here was cancelled or replaced
+    private final Map<Long, Timeout> pending = new HashMap<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis duration of a tick, deadlines are rounded up to it
+     * @param slotCount  number of slots, rounded up to a power of two
+     * @param nowMillis  current time, the wheel starts at its tick
+     */
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("The tick must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.slots = new List[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the deadline of the key, replacing the one it had. A deadline in the past expires on the next advance.
+     */
+    synchronized void schedule(long key, long deadlineMillis) {
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Timeout timeout = new Timeout(key, deadlineTick);
+        pending.put(key, timeout);
+        slots[(int) (deadlineTick & mask)].add(timeout);
+    }
+
+    synchronized void cancel(long key) {
+        pending.remove(key);
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Moves the wheel to the current time.
+     *
+     * @return the keys whose deadline passed, each only once
+     */
+    synchronized List<Long> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<Long> expired = new ArrayList<>();
+        if (nowTick <= currentTick) {
+            return expired;
+        }
+        // a full turn or more elapsed: every slot has to be visited, once
+        long ticks = Math.min(nowTick - currentTick, slots.length);
+        for (long tick = nowTick - ticks + 1; tick <= nowTick; tick++) {
+            Iterator<Timeout> timeouts = slots[(int) (tick & mask)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout timeout = timeouts.next();
+                if (pending.get(timeout.key()) != timeout) {
+                    timeouts.remove();
+                } else if (timeout.deadlineTick() <= nowTick) {
+                    timeouts.remove();
+                    pending.remove(timeout.key());
+                    expired.add(timeout.key());
+                }
+            }
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+}
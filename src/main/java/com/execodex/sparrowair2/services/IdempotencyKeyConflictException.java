@@ -0,0 +1,16 @@
+package com.execodex.sparrowair2.services;
+
+// The Idempotency-Key is taken: its request is still being processed, or it was sent with a different request
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    private final boolean inProgress;
+
+    public IdempotencyKeyConflictException(String message, boolean inProgress) {
+        super(message);
+        this.inProgress = inProgress;
+    }
+
+    public boolean isInProgress() {
+        return inProgress;
+    }
+}
@@ -0,0 +1,22 @@
+package com.execodex.sparrowair2.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of Idempotency-Key handling, bound from the {@code idempotency.*} properties.
+ *
+ * @param ttl             how long the response to a key is kept for retries
+ * @param cacheSize       responses kept in memory, the most recently used; older ones are read from the database
+ * @param pendingTimeout  after that long, a key whose request never completed (e.g. the instance died) can be reused
+ * @param cleanupInterval how often expired keys are deleted from the database
+ */
+@ConfigurationProperties(prefix = "idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("PT24H") Duration ttl,
+        @DefaultValue("10000") int cacheSize,
+        @DefaultValue("PT1M") Duration pendingTimeout,
+        @DefaultValue("PT1H") Duration cleanupInterval) {
+}
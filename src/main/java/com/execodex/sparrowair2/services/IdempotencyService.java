@@ -0,0 +1,238 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.IdempotencyKey;
+import com.execodex.sparrowair2.repositories.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Requests sent with an Idempotency-Key: the first one with a key runs, its response is stored, and retries with the
+ * same key get that response back without running again.
+ * <p>
+ * A key is taken by inserting it into the {@code idempotency_keys} table, so only one instance runs a request even
+ * if its retries reach several. The response is written to the row once the request succeeded; a failed request
+ * gives its key up, so it can be retried. Responses are also kept in memory for the {@code idempotency.cache-size}
+ * most recently used keys, and retries arriving while the request still runs on this instance wait for its response.
+ * Keys expire after {@code idempotency.ttl} and are deleted every {@code idempotency.cleanup-interval}.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * A response as stored for a key.
+     *
+     * @param replayed whether it is the stored response of an earlier request
+     */
+    public record StoredResponse(int status, String contentType, String body, boolean replayed) {
+
+        StoredResponse replay() {
+            return replayed ? this : new StoredResponse(status, contentType, body, true);
+        }
+    }
+
+    private record Completed(String requestHash, StoredResponse response, LocalDateTime expiresAt) {
+    }
+
+    private record InFlight(String requestHash, Mono<StoredResponse> response) {
+    }
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    private final Clock clock;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // least recently used first, guarded by itself
+    private final Map<String, Completed> completed;
+
+    @Autowired
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                              IdempotencyProperties properties) {
+        this(idempotencyKeyRepository, objectMapper, properties, Clock.systemDefaultZone());
+    }
+
+    IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                       IdempotencyProperties properties, Clock clock) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.clock = clock;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > properties.cacheSize();
+            }
+        };
+    }
+
+    /**
+     * Runs the action once per key and scope, its result becomes the body of the response with the given status.
+     *
+     * @param scope   what the key is for, e.g. the method and path of the request; the same key may be used once per scope
+     * @param request the request, a retry has to send the same one
+     * @return the response, empty if the action completed empty; fails with an
+     * {@link IdempotencyKeyConflictException} if the key is in use by another request
+     */
+    public Mono<StoredResponse> execute(String scope, String key, Object request, HttpStatus status, Mono<?> action) {
+        return Mono.defer(() -> {
+            String requestHash = hash(scope, request);
+            String cacheKey = scope + ' ' + key;
+
+            Completed done = cached(cacheKey);
+            if (done != null) {
+                return replay(key, done.requestHash(), requestHash, done.response());
+            }
+            InFlight started = new InFlight(requestHash, claimAndRun(scope, key, requestHash, status, action)
+                    .doFinally(signal -> inFlight.remove(cacheKey))
+                    .cache());
+            InFlight running = inFlight.putIfAbsent(cacheKey, started);
+            if (running == null) {
+                return started.response();
+            }
+            // a retry of a request still running here
+            if (!running.requestHash().equals(requestHash)) {
+                return Mono.error(mismatch(key));
+            }
+            return running.response().map(StoredResponse::replay);
+        });
+    }
+
+    // Serialized response of an action, the way the handlers write it
+    private StoredResponse toResponse(HttpStatus status, Object body) {
+        if (body instanceof String text) {
+            return new StoredResponse(status.value(), MediaType.TEXT_PLAIN_VALUE, text, false);
+        }
+        try {
+            return new StoredResponse(status.value(), MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsString(body), false);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the response", e);
+        }
+    }
+
+    private Mono<StoredResponse> claimAndRun(String scope, String key, String requestHash, HttpStatus status, Mono<?> action) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return idempotencyKeyRepository.claim(scope, key, requestHash, now, now.plus(properties.ttl()),
+                        now.minus(properties.pendingTimeout()))
+                // only a key not claimed is looked up, an action completing empty is not a conflict
+                .map(claimed -> run(scope, key, requestHash, status, action, claimed))
+                .switchIfEmpty(Mono.fromSupplier(() -> stored(scope, key, requestHash)))
+                .flatMap(response -> response)
+                .doOnError(e -> logger.error("Error processing request with Idempotency-Key {}", key, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Runs the action under the claimed key. The key is given up if the action fails or completes empty, but not if
+    // storing its response fails: the action took effect, the key stays pending until it times out.
+    private Mono<StoredResponse> run(String scope, String key, String requestHash, HttpStatus status, Mono<?> action,
+                                     IdempotencyKey claimed) {
+        return action
+                .map(result -> toResponse(status, result))
+                .onErrorResume(e -> release(claimed).then(Mono.error(e)))
+                .switchIfEmpty(Mono.defer(() -> release(claimed)))
+                .flatMap(response -> idempotencyKeyRepository.complete(claimed.getId(), response.status(),
+                                response.contentType(), response.body())
+                        .doOnNext(updated -> remember(scope + ' ' + key, requestHash, response, claimed.getExpiresAt()))
+                        .thenReturn(response));
+    }
+
+    // The response of a key another request has taken
+    private Mono<StoredResponse> stored(String scope, String key, String requestHash) {
+        return idempotencyKeyRepository.findByScopeAndIdempotencyKey(scope, key)
+                .filter(existing -> existing.getStatusCode() != null)
+                .flatMap(existing -> {
+                    StoredResponse response = new StoredResponse(existing.getStatusCode(), existing.getContentType(),
+                            existing.getResponseBody(), true);
+                    if (existing.getRequestHash().equals(requestHash)) {
+                        remember(scope + ' ' + key, requestHash, response, existing.getExpiresAt());
+                    }
+                    return replay(key, existing.getRequestHash(), requestHash, response);
+                })
+                .switchIfEmpty(Mono.error(new IdempotencyKeyConflictException(
+                        "A request with Idempotency-Key " + key + " is still being processed", true)));
+    }
+
+    // Gives the key up, the request didn't complete
+    private <T> Mono<T> release(IdempotencyKey claimed) {
+        return idempotencyKeyRepository.deleteById(claimed.getId())
+                .doOnError(e -> logger.error("Error releasing Idempotency-Key {}", claimed.getIdempotencyKey(), e))
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.empty());
+    }
+
+    private Mono<StoredResponse> replay(String key, String storedHash, String requestHash, StoredResponse response) {
+        if (!storedHash.equals(requestHash)) {
+            return Mono.error(mismatch(key));
+        }
+        logger.info("Replaying the response to Idempotency-Key {}", key);
+        return Mono.just(response.replay());
+    }
+
+    private IdempotencyKeyConflictException mismatch(String key) {
+        return new IdempotencyKeyConflictException("Idempotency-Key " + key + " was already used with a different request", false);
+    }
+
+    private Completed cached(String cacheKey) {
+        synchronized (completed) {
+            Completed done = completed.get(cacheKey);
+            if (done != null && !done.expiresAt().isAfter(LocalDateTime.now(clock))) {
+                completed.remove(cacheKey);
+                return null;
+            }
+            return done;
+        }
+    }
+
+    private void remember(String cacheKey, String requestHash, StoredResponse response, LocalDateTime expiresAt) {
+        synchronized (completed) {
+            completed.put(cacheKey, new Completed(requestHash, response, expiresAt));
+        }
+    }
+
+    // SHA-256 of the scope and the request as JSON
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint the request", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT1H}", initialDelayString = "${idempotency.cleanup-interval:PT1H}")
+    public void deleteExpiredKeys() {
+        Mono.defer(() -> idempotencyKeyRepository.deleteExpired(LocalDateTime.now(clock)))
+                .subscribe(
+                        keys -> {
+                            if (keys > 0) {
+                                logger.info("Deleted {} expired idempotency keys", keys);
+                            }
+                        },
+                        e -> logger.error("Error deleting expired idempotency keys", e));
+        synchronized (completed) {
+            LocalDateTime now = LocalDateTime.now(clock);
+            completed.values().removeIf(done -> !done.expiresAt().isAfter(now));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.model.ImportJobProgress;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An import run by {@link ImportJobService}: its status, and counters the import updates as it goes.
+ * <p>
+ * The rows an import reads are counted by passing them through {@link #track}, rows it has to skip or failed to
+ * write are reported with {@link #rowFailed}. The rows written are the count the import completes with.
+ */
+public final class ImportJob {
+
+    public enum Status {
+        // waiting for one of the concurrent imports to finish
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final String id;
+    private final String type;
+    private final Instant createdAt;
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final Sinks.One<Boolean> cancellation = Sinks.one();
+    private final Sinks.One<ImportJob> completion = Sinks.one();
+    // guarded by this
+    private Status status = Status.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long rowsWritten;
+    private String error;
+
+    ImportJob(String id, String type, Instant createdAt) {
+        this.id = id;
+        this.type = type;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Counts the rows as they go by.
+     */
+    public <T> Flux<T> track(Flux<T> rows) {
+        return rows.doOnNext(row -> rowsRead.incrementAndGet());
+    }
+
+    public void rowFailed() {
+        rowsFailed.incrementAndGet();
+    }
+
+    /**
+     * @return the job once it is finished, whatever its outcome
+     */
+    public Mono<ImportJob> completion() {
+        return completion.asMono();
+    }
+
+    // Rows read per second since the start, up to the end if the job is finished
+    public synchronized ImportJobProgress progress(Instant now) {
+        double rowsPerSecond = 0;
+        if (startedAt != null) {
+            long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : now).toMillis();
+            rowsPerSecond = millis > 0 ? rowsRead.get() * 1000.0 / millis : 0;
+        }
+        return new ImportJobProgress(id, type, status, rowsRead.get(), rowsWritten, rowsFailed.get(), rowsPerSecond,
+                createdAt, startedAt, finishedAt, error);
+    }
+
+    synchronized Instant finishedAt() {
+        return finishedAt;
+    }
+
+    Mono<Boolean> cancellation() {
+        return cancellation.asMono();
+    }
+
+    // False if the job was cancelled while queued
+    synchronized boolean start(Instant now) {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = now;
+        return true;
+    }
+
+    // False if the job is finished already
+    boolean cancel(Instant now) {
+        if (!finish(Status.CANCELLED, 0, null, now)) {
+            return false;
+        }
+        cancellation.tryEmitValue(true);
+        return true;
+    }
+
+    boolean finish(Status outcome, long written, String failure, Instant now) {
+        synchronized (this) {
+            if (status.isFinished()) {
+                return false;
+            }
+            status = outcome;
+            rowsWritten = written;
+            error = failure;
+            finishedAt = now;
+        }
+        completion.tryEmitValue(this);
+        return true;
+    }
+}
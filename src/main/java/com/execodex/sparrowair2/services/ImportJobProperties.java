@@ -0,0 +1,20 @@
+package com.execodex.sparrowair2.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of import jobs, bound from the {@code import-jobs.*} properties.
+ *
+ * @param maxConcurrent   imports running at the same time, more are queued
+ * @param retention       how long a finished job can still be looked up
+ * @param cleanupInterval how often finished jobs past their retention are dropped
+ */
+@ConfigurationProperties(prefix = "import-jobs")
+public record ImportJobProperties(
+        @DefaultValue("2") int maxConcurrent,
+        @DefaultValue("PT1H") Duration retention,
+        @DefaultValue("PT5M") Duration cleanupInterval) {
+}
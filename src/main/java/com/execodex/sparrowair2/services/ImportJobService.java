@@ -0,0 +1,135 @@
+package com.execodex.sparrowair2.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the imports running in the background, such as uploaded files, so that their progress can be looked
+ * up and they can be cancelled.
+ * <p>
+ * At most {@code import-jobs.max-concurrent} imports run at a time, the others are queued in the order they were
+ * submitted. An import is a {@code Mono} of the rows it wrote; it reads its rows with backpressure, so a queued or
+ * slow import holds back its input rather than buffering it. Cancelling a job cancels its subscription. Jobs are
+ * kept in memory, finished ones for {@code import-jobs.retention}.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final ImportJobProperties properties;
+    private final Clock clock;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // guarded by this
+    private final Deque<Runnable> queued = new ArrayDeque<>();
+    private int running;
+
+    @Autowired
+    public ImportJobService(ImportJobProperties properties) {
+        this(properties, Clock.systemDefaultZone());
+    }
+
+    ImportJobService(ImportJobProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts the import, or queues it if as many as allowed are running already.
+     *
+     * @param type     what is imported, e.g. {@code faa-aircraft-registrations}
+     * @param importer builds the import for its job, completing with the number of rows written
+     */
+    public ImportJob submit(String type, Function<ImportJob, Mono<Long>> importer) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, clock.instant());
+        jobs.put(job.getId(), job);
+        Runnable start = () -> run(job, importer);
+        synchronized (this) {
+            if (running >= properties.maxConcurrent()) {
+                queued.add(start);
+                logger.info("Queued {} import job {}", type, job.getId());
+                return job;
+            }
+            running++;
+        }
+        start.run();
+        return job;
+    }
+
+    public ImportJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Cancels the job, if it isn't finished yet.
+     *
+     * @return the job, or null if there is none with the ID
+     */
+    public ImportJob cancel(String id) {
+        ImportJob job = jobs.get(id);
+        if (job != null && job.cancel(clock.instant())) {
+            logger.info("Cancelled {} import job {}", job.getType(), id);
+        }
+        return job;
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    private void run(ImportJob job, Function<ImportJob, Mono<Long>> importer) {
+        if (!job.start(clock.instant())) {
+            startNext();
+            return;
+        }
+        logger.info("Started {} import job {}", job.getType(), job.getId());
+        Mono.defer(() -> importer.apply(job))
+                .takeUntilOther(job.cancellation())
+                .subscribe(
+                        written -> job.finish(ImportJob.Status.COMPLETED, written, null, clock.instant()),
+                        e -> {
+                            logger.error("Error in {} import job {}", job.getType(), job.getId(), e);
+                            job.finish(ImportJob.Status.FAILED, 0, e.getMessage(), clock.instant());
+                            startNext();
+                        },
+                        () -> {
+                            // also when cancelled, then the job is finished already
+                            job.finish(ImportJob.Status.COMPLETED, 0, null, clock.instant());
+                            logger.info("Finished {} import job {}: {}", job.getType(), job.getId(), job.getStatus());
+                            startNext();
+                        });
+    }
+
+    private void startNext() {
+        Runnable next;
+        synchronized (this) {
+            next = queued.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    // Drop the jobs that finished longer than the retention ago
+    @Scheduled(fixedDelayString = "${import-jobs.cleanup-interval:PT5M}", initialDelayString = "${import-jobs.cleanup-interval:PT5M}")
+    public void dropFinishedJobs() {
+        Instant cutoff = clock.instant().minus(properties.retention());
+        jobs.values().removeIf(job -> job.finishedAt() != null && job.finishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,135 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.model.SeatPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the best available block of adjacent seats on a flight and claims it in the {@link SeatInventory}.
+ * <p>
+ * The {@link SeatGrid} of a flight is built on first use, from the seat configuration of its fleet and its seats,
+ * which are loaded into the inventory at the same time. A grid is only used while the inventory has the seats it
+ * was built with, the seats of a flight change with its fleet. The free seats are read from the inventory, so a scan
+ * doesn't go to the database; the caller writes the claimed seats through and {@link #release releases} them if
+ * that fails.
+ */
+@Service
+public class SeatAssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatAssignmentService.class);
+    // grids are small, this only bounds memory with many flights
+    private static final int MAX_GRIDS = 4096;
+    // scans lost to a concurrent claim before giving up
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final SeatService seatService;
+    private final FlightService flightService;
+    private final AirlineFleetService airlineFleetService;
+    private final SeatInventory seatInventory;
+    private final Map<Long, BuiltGrid> grids = new ConcurrentHashMap<>();
+
+    // a grid and the generation of the inventory's seats it was built with
+    private record BuiltGrid(SeatGrid grid, long generation) {
+    }
+
+    public SeatAssignmentService(SeatService seatService, FlightService flightService,
+                                 AirlineFleetService airlineFleetService, SeatInventory seatInventory) {
+        this.seatService = seatService;
+        this.flightService = flightService;
+        this.airlineFleetService = airlineFleetService;
+        this.seatInventory = seatInventory;
+    }
+
+    // Claim the best block of count adjacent free seats of the class; fails if the flight has none
+    public Mono<List<Long>> claimAdjacentSeats(Long flightId, SeatClass seatClass, int count, SeatPreference preference) {
+        return grid(flightId)
+                .flatMap(grid -> {
+                    for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+                        long[] block = grid.findBlock(seatClass, count, preference, seatId -> seatInventory.isAvailable(flightId, seatId));
+                        if (block == null) {
+                            break;
+                        }
+                        List<Long> claimed = claim(flightId, block);
+                        if (claimed != null) {
+                            return Mono.just(claimed);
+                        }
+                    }
+                    return Mono.error(new SeatNotAvailableException("No " + count + " adjacent " + seatClass + " seats available on flight ID " + flightId));
+                })
+                .doOnSuccess(seatIds -> logger.info("Claimed adjacent seats {} on flight ID: {}", seatIds, flightId))
+                .doOnError(e -> logger.error("Error claiming {} adjacent seats on flight ID: {}", count, flightId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Give the claimed seats back, e.g. when writing them through failed before the database had them taken; if it
+    // had, evict the flight instead
+    public void release(Long flightId, List<Long> seatIds) {
+        seatIds.forEach(seatId -> seatInventory.release(flightId, seatId));
+    }
+
+    // Forget what is known of the flight's seats, they are read again from the database on the next claim
+    public void evict(Long flightId) {
+        grids.remove(flightId);
+        seatInventory.evict(flightId);
+    }
+
+    // All seats of the block or none: seats claimed before one that was taken meanwhile are given back
+    private List<Long> claim(Long flightId, long[] block) {
+        List<Long> claimed = new ArrayList<>(block.length);
+        for (long seatId : block) {
+            SeatInventory.Reservation reservation = seatInventory.tryReserve(flightId, seatId);
+            if (reservation != SeatInventory.Reservation.RESERVED) {
+                release(flightId, claimed);
+                if (reservation == SeatInventory.Reservation.UNKNOWN) {
+                    // the seats of the flight changed since the grid was built
+                    grids.remove(flightId);
+                }
+                return null;
+            }
+            claimed.add(seatId);
+        }
+        return claimed;
+    }
+
+    // The grid of the flight; rebuilt when the inventory dropped or reloaded the flight, as its seats may have changed
+    private Mono<SeatGrid> grid(Long flightId) {
+        return Mono.defer(() -> {
+            BuiltGrid cached = grids.get(flightId);
+            if (cached != null && cached.generation() == seatInventory.generation(flightId)) {
+                return Mono.just(cached.grid());
+            }
+            return flightService.getFlightById(flightId)
+                    .switchIfEmpty(Mono.error(new IllegalArgumentException("Flight not found with ID: " + flightId)))
+                    .flatMap(this::seatConfiguration)
+                    .zipWith(seatService.getSeatsByFlightId(flightId).collectList())
+                    .map(configurationAndSeats -> {
+                        seatInventory.loadIfAbsent(flightId, configurationAndSeats.getT2());
+                        SeatGrid built = SeatGrid.of(configurationAndSeats.getT1(), configurationAndSeats.getT2());
+                        if (grids.size() >= MAX_GRIDS) {
+                            grids.clear();
+                        }
+                        grids.put(flightId, new BuiltGrid(built, seatInventory.generation(flightId)));
+                        return built;
+                    });
+        });
+    }
+
+    // Seat configuration of the fleet flying the flight, empty string (the default layout) if it has none
+    private Mono<String> seatConfiguration(Flight flight) {
+        if (flight.getAirlineFleetId() == null) {
+            return Mono.just("");
+        }
+        return airlineFleetService.getAirlineFleetById(flight.getAirlineFleetId())
+                .map(airlineFleet -> airlineFleet.getSeatConfiguration() != null ? airlineFleet.getSeatConfiguration() : "")
+                .defaultIfEmpty("");
+    }
+}
@@ -0,0 +1,174 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.model.SeatPreference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * The seats of a flight laid out in rows and columns, per seat class, to find seats next to each other.
+ * <p>
+ * Columns come from the seat configuration ("3-4-3": ten columns in three sections split by aisles) and the row
+ * and column of a seat from its row number and letter, or from its seat number for seats that don't have them
+ * ("15A, ECONOMY, Window" is row 15, column A). Finding a block of
+ * adjacent seats turns each row into a bitmask of its free columns and ANDs it with itself shifted by one column
+ * per extra seat: a bit left set is the first column of a free block. Blocks are confined to a section, a group is
+ * never split by an aisle, so a group wider than the widest section finds no block.
+ * <p>
+ * A grid only holds the layout, immutable once built; which seats are free is asked from the caller on every scan.
+ */
+final class SeatGrid {
+
+    private static final int[] DEFAULT_SECTIONS = {3, 3};
+
+    private final int columns;
+    // validStarts[n]: columns a block of n seats can start at without crossing an aisle
+    private final long[] validStarts;
+    private final long windowColumns;
+    private final long aisleColumns;
+    // per seat class ordinal, rows front to back, each row its seat IDs by column (0 where there is no seat)
+    private final long[][][] rows;
+
+    private SeatGrid(int[] sections, long[][][] rows) {
+        this.columns = Arrays.stream(sections).sum();
+        this.rows = rows;
+
+        validStarts = new long[columns + 1];
+        long aisles = 0;
+        int sectionStart = 0;
+        for (int s = 0; s < sections.length; s++) {
+            int sectionEnd = sectionStart + sections[s];
+            for (int n = 1; n <= sections[s]; n++) {
+                for (int start = sectionStart; start + n <= sectionEnd; start++) {
+                    validStarts[n] |= 1L << start;
+                }
+            }
+            if (s < sections.length - 1) {
+                aisles |= 1L << (sectionEnd - 1) | 1L << sectionEnd;
+            }
+            sectionStart = sectionEnd;
+        }
+        windowColumns = 1L | 1L << (columns - 1);
+        aisleColumns = aisles & ~windowColumns;
+    }
+
+    /**
+     * Lays out the seats of a flight. Seats without a row and a column in the configuration are left out.
+     */
+    static SeatGrid of(String seatConfiguration, List<Seat> seats) {
+        int[] sections = parseSections(seatConfiguration);
+        int columns = Arrays.stream(sections).sum();
+
+        List<TreeMap<Integer, long[]>> rowsByClass = new ArrayList<>();
+        for (int c = 0; c < SeatClass.values().length; c++) {
+            rowsByClass.add(new TreeMap<>());
+        }
+        for (Seat seat : seats) {
+            if (seat.getId() == null || seat.getSeatClass() == null) {
+                continue;
+            }
+            SeatMapTemplate.fillPlacement(seat);
+            if (seat.getRowNumber() == null || seat.getSeatLetter() == null || seat.getSeatLetter().isEmpty()) {
+                continue;
+            }
+            int column = seat.getSeatLetter().charAt(0) - 'A';
+            if (column < 0 || column >= columns) {
+                continue;
+            }
+            int row = seat.getRowNumber();
+            rowsByClass.get(seat.getSeatClass().ordinal())
+                    .computeIfAbsent(row, r -> new long[columns])[column] = seat.getId();
+        }
+
+        long[][][] rows = new long[rowsByClass.size()][][];
+        for (int c = 0; c < rows.length; c++) {
+            rows[c] = rowsByClass.get(c).values().toArray(new long[0][]);
+        }
+        return new SeatGrid(sections, rows);
+    }
+
+    /**
+     * Finds the front-most block of adjacent free seats of the class, preferring a block with a seat of the
+     * preferred position anywhere in the cabin over a block without one further forward.
+     *
+     * @param isFree whether the seat of that ID is free, asked once per seat scanned
+     * @return the seat IDs of the block, left to right, or null if there is none
+     */
+    long[] findBlock(SeatClass seatClass, int count, SeatPreference preference, LongPredicate isFree) {
+        if (count < 1 || count > columns) {
+            return null;
+        }
+        long preferred = switch (preference == null ? SeatPreference.ANY : preference) {
+            case WINDOW -> windowColumns;
+            case AISLE -> aisleColumns;
+            case ANY -> -1L;
+        };
+        // starts of the blocks that cover a preferred column
+        long coveringPreferred = 0;
+        for (int k = 0; k < count; k++) {
+            coveringPreferred |= preferred >>> k;
+        }
+
+        long[] fallbackRow = null;
+        int fallbackStart = -1;
+        for (long[] row : rows[seatClass.ordinal()]) {
+            long free = 0;
+            for (int column = 0; column < columns; column++) {
+                if (row[column] != 0 && isFree.test(row[column])) {
+                    free |= 1L << column;
+                }
+            }
+            long blockStarts = free;
+            for (int k = 1; k < count && blockStarts != 0; k++) {
+                blockStarts &= free >>> k;
+            }
+            blockStarts &= validStarts[count];
+            if (blockStarts == 0) {
+                continue;
+            }
+            if ((blockStarts & coveringPreferred) != 0) {
+                return block(row, Long.numberOfTrailingZeros(blockStarts & coveringPreferred), count);
+            }
+            if (fallbackRow == null) {
+                fallbackRow = row;
+                fallbackStart = Long.numberOfTrailingZeros(blockStarts);
+            }
+        }
+        return fallbackRow != null ? block(fallbackRow, fallbackStart, count) : null;
+    }
+
+    private static long[] block(long[] row, int start, int count) {
+        long[] seatIds = new long[count];
+        System.arraycopy(row, start, seatIds, 0, count);
+        return seatIds;
+    }
+
+    // Widths of the sections between aisles, "2-4-2" is {2, 4, 2}; parts that aren't numbers are ignored
+    private static int[] parseSections(String seatConfiguration) {
+        if (seatConfiguration == null || seatConfiguration.isEmpty()) {
+            return DEFAULT_SECTIONS;
+        }
+        List<Integer> sections = new ArrayList<>();
+        int total = 0;
+        for (String part : seatConfiguration.split("-")) {
+            try {
+                int width = Integer.parseInt(part.trim());
+                if (width > 0) {
+                    sections.add(width);
+                    total += width;
+                }
+            } catch (NumberFormatException e) {
+                // same leniency as the seat map, which logs it
+            }
+        }
+        if (sections.isEmpty() || total > Long.SIZE) {
+            return DEFAULT_SECTIONS;
+        }
+        return sections.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
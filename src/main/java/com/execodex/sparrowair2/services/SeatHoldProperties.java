@@ -0,0 +1,24 @@
+package com.execodex.sparrowair2.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of seat holds, bound from the {@code seat-holds.*} properties.
+ *
+ * @param defaultTtl        how long a seat is held when the caller doesn't say
+ * @param maxTtl            longest hold allowed
+ * @param tickInterval      resolution of the expiry timing wheel, holds are released at most that late
+ * @param wheelSize         number of slots of the timing wheel
+ * @param reconcileInterval how often expired holds missed by the wheel (e.g. set by another instance) are released
+ */
+@ConfigurationProperties(prefix = "seat-holds")
+public record SeatHoldProperties(
+        @DefaultValue("PT10M") Duration defaultTtl,
+        @DefaultValue("PT30M") Duration maxTtl,
+        @DefaultValue("PT1S") Duration tickInterval,
+        @DefaultValue("1024") int wheelSize,
+        @DefaultValue("PT5M") Duration reconcileInterval) {
+}
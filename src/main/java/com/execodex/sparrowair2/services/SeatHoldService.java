@@ -0,0 +1,165 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.repositories.SeatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seat holds: a seat locked for a checkout for a limited time, in {@code HOLD} status until it expires.
+ * <p>
+ * Expirations are driven by an in-memory {@link HashedTimingWheel} ticking every {@code seat-holds.tick-interval},
+ * the seats whose hold expired during a tick are released together by a single UPDATE. After a restart the wheel is
+ * rebuilt from the held seats, and every {@code seat-holds.reconcile-interval} all expired holds still in the
+ * database are released, whoever placed them.
+ */
+@Service
+public class SeatHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatHoldService.class);
+    // ID lists of an expiry batch stay well within the bind parameters of a statement
+    private static final int RELEASE_BATCH_SIZE = 500;
+
+    private final SeatRepository seatRepository;
+    private final SeatInventory seatInventory;
+    private final SeatHoldProperties properties;
+    private final Clock clock;
+    private final HashedTimingWheel expirations;
+
+    @Autowired
+    public SeatHoldService(SeatRepository seatRepository, SeatInventory seatInventory, SeatHoldProperties properties) {
+        this(seatRepository, seatInventory, properties, Clock.systemDefaultZone());
+    }
+
+    SeatHoldService(SeatRepository seatRepository, SeatInventory seatInventory, SeatHoldProperties properties, Clock clock) {
+        this.seatRepository = seatRepository;
+        this.seatInventory = seatInventory;
+        this.properties = properties;
+        this.clock = clock;
+        this.expirations = new HashedTimingWheel(properties.tickInterval().toMillis(), properties.wheelSize(), clock.millis());
+    }
+
+    // Hold the seat for the given time, or the default one if null; fails if the seat is not available
+    public Mono<Seat> holdSeat(Long seatId, Duration ttl) {
+        return Mono.defer(() -> {
+                    Duration holdFor = ttl != null ? ttl : properties.defaultTtl();
+                    if (holdFor.isNegative() || holdFor.isZero() || holdFor.compareTo(properties.maxTtl()) > 0) {
+                        return Mono.error(new IllegalArgumentException("A hold lasts more than 0 and at most " + properties.maxTtl()));
+                    }
+                    return seatRepository.holdIfAvailable(seatId, LocalDateTime.now(clock).plus(holdFor));
+                })
+                .switchIfEmpty(Mono.error(new SeatNotAvailableException("Seat with ID " + seatId + " is not available")))
+                .doOnNext(seat -> {
+                    seatInventory.seatUpdated(seat);
+                    expirations.schedule(seat.getId(), toMillis(seat.getHoldExpiresAt()));
+                })
+                .doOnSuccess(seat -> logger.info("Held seat ID: {} until {}", seatId, seat.getHoldExpiresAt()))
+                .doOnError(e -> logger.error("Error holding seat ID: {}", seatId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Turn the hold into a reservation; fails if the seat is not held or its hold expired
+    public Mono<Seat> confirmHold(Long seatId) {
+        return Mono.defer(() -> seatRepository.confirmHold(seatId, LocalDateTime.now(clock)))
+                .switchIfEmpty(Mono.error(new SeatNotAvailableException("Seat with ID " + seatId + " has no hold to confirm")))
+                .doOnNext(seat -> {
+                    expirations.cancel(seat.getId());
+                    seatInventory.seatUpdated(seat);
+                })
+                .doOnSuccess(seat -> logger.info("Confirmed hold of seat ID: {}", seatId))
+                .doOnError(e -> logger.error("Error confirming hold of seat ID: {}", seatId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Release the hold of the seat, empty if the seat was not held
+    public Mono<Seat> releaseHold(Long seatId) {
+        return seatRepository.releaseHold(seatId)
+                .doOnNext(seat -> {
+                    expirations.cancel(seat.getId());
+                    seatInventory.seatUpdated(seat);
+                })
+                .doOnSuccess(seat -> logger.info("Released hold of seat ID: {}", seatId))
+                .doOnError(e -> logger.error("Error releasing hold of seat ID: {}", seatId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Put the holds found in the database back on the wheel, those that expired while the application was down
+    // are released on the next tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHoldsOnStartup() {
+        seatRepository.findHeld()
+                .filter(seat -> seat.getHoldExpiresAt() != null)
+                .doOnNext(seat -> expirations.schedule(seat.getId(), toMillis(seat.getHoldExpiresAt())))
+                .count()
+                .subscribe(
+                        holds -> logger.info("Loaded {} seat holds", holds),
+                        e -> logger.error("Error loading seat holds", e));
+    }
+
+    @Scheduled(fixedDelayString = "${seat-holds.tick-interval:PT1S}")
+    public void expireHolds() {
+        releaseExpiredHolds().subscribe(
+                seats -> {
+                    if (seats > 0) {
+                        logger.info("Released {} expired seat holds", seats);
+                    }
+                },
+                e -> logger.error("Error releasing expired seat holds", e));
+    }
+
+    @Scheduled(fixedDelayString = "${seat-holds.reconcile-interval:PT5M}", initialDelayString = "${seat-holds.reconcile-interval:PT5M}")
+    public void reconcileHolds() {
+        Mono.defer(() -> seatRepository.releaseAllExpiredHolds(LocalDateTime.now(clock))
+                        .doOnNext(this::released)
+                        .count())
+                .subscribe(
+                        seats -> {
+                            if (seats > 0) {
+                                logger.info("Reconciliation released {} expired seat holds", seats);
+                            }
+                        },
+                        e -> logger.error("Error reconciling seat holds", e));
+    }
+
+    // Releases the holds whose deadline passed on the wheel, a batch of seats per statement
+    Mono<Long> releaseExpiredHolds() {
+        return Mono.defer(() -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            List<Long> expired = expirations.advance(clock.millis());
+            if (expired.isEmpty()) {
+                return Mono.just(0L);
+            }
+            return Flux.range(0, (expired.size() + RELEASE_BATCH_SIZE - 1) / RELEASE_BATCH_SIZE)
+                    .concatMap(batch -> seatRepository.releaseExpiredHolds(expired.subList(
+                            batch * RELEASE_BATCH_SIZE,
+                            Math.min(expired.size(), (batch + 1) * RELEASE_BATCH_SIZE)), now))
+                    .doOnNext(this::released)
+                    .count();
+        });
+    }
+
+    int pendingHolds() {
+        return expirations.size();
+    }
+
+    private void released(Seat seat) {
+        expirations.cancel(seat.getId());
+        seatInventory.seatUpdated(seat);
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,293 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.model.SeatAvailability;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process view of which seats are taken, per flight, so that reserving a seat someone else already holds is
+ * rejected without a database round trip.
+ * <p>
+ * Every flight has a bitset of its seats, grouped by seat class, and counts of the available and held seats of each
+ * class, so the {@link #availability} of a flight is read without looking at its seats.
+ * Bits are flipped with compare-and-set, so of any number of concurrent reservations of a seat exactly one wins,
+ * without locking. The database stays the source of truth: a won reservation still has to be written through, and
+ * is {@link #release released} again if that fails. Flights and seats the inventory doesn't know about are
+ * {@link Reservation#UNKNOWN}, callers then rely on the database alone.
+ * <p>
+ * {@link SeatService} loads the inventory from the {@code seats} table on startup and reports every seat it
+ * creates, updates or deletes, {@link SeatHoldService} every seat it holds or releases; held seats count as taken.
+ * Seat changes written by another instance or directly to the database are not seen, the database checks of the
+ * write-through catch those.
+ */
+@Component
+public class SeatInventory {
+
+    public enum Reservation {
+        // the seat was available and is now held by the caller
+        RESERVED,
+        // the seat is already taken
+        TAKEN,
+        // the inventory doesn't know the flight or the seat
+        UNKNOWN
+    }
+
+    private static final int CLASS_COUNT = SeatClass.values().length;
+
+    private final Map<Long, FlightSeats> flights = new ConcurrentHashMap<>();
+    // numbers the loads of flights, for their generation
+    private final AtomicLong loads = new AtomicLong();
+
+    // The seats of a flight; the seat set is fixed, only the taken bits and available counts change
+    private static final class FlightSeats {
+        private final long generation;
+        // seat IDs in ascending order, and the slot of each in the bitset
+        private final long[] seatIds;
+        private final int[] slots;
+        // slots of a class are contiguous: classStart[c] inclusive to classStart[c + 1] exclusive, c the class ordinal
+        private final int[] classStart;
+        private final long[] slotSeatIds;
+        private final AtomicLongArray taken;
+        // held seats are taken too, their bit is also set in here
+        private final AtomicLongArray held;
+        private final AtomicIntegerArray available;
+        private final AtomicIntegerArray heldCount;
+
+        private FlightSeats(List<Seat> seats, long generation) {
+            this.generation = generation;
+            Seat[] bySlot = seats.toArray(new Seat[0]);
+            Arrays.sort(bySlot, Comparator.comparing((Seat seat) -> seat.getSeatClass().ordinal()).thenComparing(Seat::getId));
+            slotSeatIds = new long[bySlot.length];
+            classStart = new int[CLASS_COUNT + 1];
+            taken = new AtomicLongArray((bySlot.length + 63) >>> 6);
+            held = new AtomicLongArray((bySlot.length + 63) >>> 6);
+            available = new AtomicIntegerArray(CLASS_COUNT);
+            heldCount = new AtomicIntegerArray(CLASS_COUNT);
+            for (int slot = 0; slot < bySlot.length; slot++) {
+                Seat seat = bySlot[slot];
+                slotSeatIds[slot] = seat.getId();
+                classStart[seat.getSeatClass().ordinal() + 1]++;
+                if (seat.getStatus() == SeatStatus.AVAILABLE) {
+                    available.incrementAndGet(seat.getSeatClass().ordinal());
+                } else {
+                    taken.set(slot >>> 6, taken.get(slot >>> 6) | 1L << slot);
+                }
+                if (seat.getStatus() == SeatStatus.HOLD) {
+                    held.set(slot >>> 6, held.get(slot >>> 6) | 1L << slot);
+                    heldCount.incrementAndGet(seat.getSeatClass().ordinal());
+                }
+            }
+            for (int c = 0; c < CLASS_COUNT; c++) {
+                classStart[c + 1] += classStart[c];
+            }
+
+            Integer[] order = new Integer[bySlot.length];
+            for (int slot = 0; slot < order.length; slot++) {
+                order[slot] = slot;
+            }
+            Arrays.sort(order, Comparator.comparingLong(slot -> slotSeatIds[slot]));
+            seatIds = new long[order.length];
+            slots = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                seatIds[i] = slotSeatIds[order[i]];
+                slots[i] = order[i];
+            }
+        }
+
+        private int slotOf(long seatId) {
+            int i = Arrays.binarySearch(seatIds, seatId);
+            return i >= 0 ? slots[i] : -1;
+        }
+
+        private int classOf(int slot) {
+            int c = 0;
+            while (slot >= classStart[c + 1]) {
+                c++;
+            }
+            return c;
+        }
+
+        // Sets the bit of the slot, false if it was set already
+        private boolean take(int slot) {
+            int word = slot >>> 6;
+            long mask = 1L << slot;
+            long current;
+            do {
+                current = taken.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!taken.compareAndSet(word, current, current | mask));
+            available.decrementAndGet(classOf(slot));
+            return true;
+        }
+
+        // Clears the bit of the slot, false if it was clear already
+        private boolean free(int slot) {
+            int word = slot >>> 6;
+            long mask = 1L << slot;
+            long current;
+            do {
+                current = taken.get(word);
+                if ((current & mask) == 0) {
+                    return false;
+                }
+            } while (!taken.compareAndSet(word, current, current & ~mask));
+            available.incrementAndGet(classOf(slot));
+            return true;
+        }
+
+        // Sets or clears the held bit of the slot
+        private void markHeld(int slot, boolean isHeld) {
+            int word = slot >>> 6;
+            long mask = 1L << slot;
+            long current;
+            do {
+                current = held.get(word);
+                if (((current & mask) != 0) == isHeld) {
+                    return;
+                }
+            } while (!held.compareAndSet(word, current, current ^ mask));
+            heldCount.addAndGet(classOf(slot), isHeld ? 1 : -1);
+        }
+    }
+
+    /**
+     * Replaces what the inventory knows about the flight by its seats as they are in the database.
+     */
+    public void load(Long flightId, List<Seat> seats) {
+        flights.put(flightId, new FlightSeats(seats, loads.incrementAndGet()));
+    }
+
+    /**
+     * Like {@link #load}, unless the flight was loaded already, e.g. by seats created while loading on startup.
+     */
+    public void loadIfAbsent(Long flightId, List<Seat> seats) {
+        flights.computeIfAbsent(flightId, id -> new FlightSeats(seats, loads.incrementAndGet()));
+    }
+
+    /**
+     * Forgets the flight, its seats are unknown until it is loaded again.
+     */
+    public void evict(Long flightId) {
+        flights.remove(flightId);
+    }
+
+    public boolean isLoaded(Long flightId) {
+        return flights.containsKey(flightId);
+    }
+
+    /**
+     * Tells the loads of the flight apart: it changes whenever the flight is loaded again, e.g. with the seats of
+     * another fleet.
+     *
+     * @return the generation of the flight's seats, or -1 if the flight is not loaded
+     */
+    public long generation(Long flightId) {
+        FlightSeats seats = flightId != null ? flights.get(flightId) : null;
+        return seats != null ? seats.generation : -1;
+    }
+
+    /**
+     * Marks the seat as taken if it is available.
+     */
+    public Reservation tryReserve(Long flightId, Long seatId) {
+        FlightSeats seats = flightId != null ? flights.get(flightId) : null;
+        int slot = seats != null && seatId != null ? seats.slotOf(seatId) : -1;
+        if (slot < 0) {
+            return Reservation.UNKNOWN;
+        }
+        return seats.take(slot) ? Reservation.RESERVED : Reservation.TAKEN;
+    }
+
+    /**
+     * @return whether the seat is available, false if the inventory doesn't know the flight or the seat
+     */
+    public boolean isAvailable(Long flightId, Long seatId) {
+        FlightSeats seats = flightId != null ? flights.get(flightId) : null;
+        int slot = seats != null && seatId != null ? seats.slotOf(seatId) : -1;
+        return slot >= 0 && (seats.taken.get(slot >>> 6) & 1L << slot) == 0;
+    }
+
+    /**
+     * Marks the seat as available again, e.g. when writing a won reservation through to the database failed. The
+     * bit is cleared whoever set it: a seat the database rejected as taken is not released, its flight is
+     * {@link #evict evicted} instead.
+     */
+    public void release(Long flightId, Long seatId) {
+        FlightSeats seats = flightId != null ? flights.get(flightId) : null;
+        int slot = seats != null && seatId != null ? seats.slotOf(seatId) : -1;
+        if (slot >= 0) {
+            seats.free(slot);
+            seats.markHeld(slot, false);
+        }
+    }
+
+    /**
+     * Brings the seat in line with its status as saved in the database. A seat the inventory doesn't have means
+     * the seats of its flight changed, so the flight is evicted.
+     */
+    public void seatUpdated(Seat seat) {
+        FlightSeats seats = seat.getFlightId() != null ? flights.get(seat.getFlightId()) : null;
+        if (seats == null) {
+            return;
+        }
+        int slot = seats.slotOf(seat.getId());
+        if (slot < 0) {
+            evict(seat.getFlightId());
+        } else if (seat.getStatus() == SeatStatus.AVAILABLE) {
+            seats.free(slot);
+            seats.markHeld(slot, false);
+        } else {
+            seats.take(slot);
+            seats.markHeld(slot, seat.getStatus() == SeatStatus.HOLD);
+        }
+    }
+
+    /**
+     * @return the number of available seats of the class on the flight, or -1 if the flight is not loaded
+     */
+    public int available(Long flightId, SeatClass seatClass) {
+        FlightSeats seats = flights.get(flightId);
+        return seats != null ? seats.available.get(seatClass.ordinal()) : -1;
+    }
+
+    /**
+     * Counts of the seats of the flight by class, for the classes it has seats of. Seats that are neither available
+     * nor held, reserved or booked, count as reserved. The counts of a class are read one after the other, under
+     * concurrent changes they may be off by the seats changing meanwhile.
+     *
+     * @return the counts, or null if the flight is not loaded
+     */
+    public List<SeatAvailability> availability(Long flightId) {
+        FlightSeats seats = flightId != null ? flights.get(flightId) : null;
+        if (seats == null) {
+            return null;
+        }
+        List<SeatAvailability> availability = new ArrayList<>();
+        for (SeatClass seatClass : SeatClass.values()) {
+            int c = seatClass.ordinal();
+            int total = seats.classStart[c + 1] - seats.classStart[c];
+            if (total == 0) {
+                continue;
+            }
+            int available = seats.available.get(c);
+            int held = seats.heldCount.get(c);
+            int reserved = Math.max(0, total - available - held);
+            availability.add(new SeatAvailability(flightId, seatClass, available, reserved, held));
+        }
+        return availability;
+    }
+}
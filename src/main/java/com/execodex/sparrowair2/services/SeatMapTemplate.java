@@ -0,0 +1,186 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The seats of a cabin layout, computed once: seat numbers, classes, rows, letters and positions, first class to
+ * economy.
+ * <p>
+ * A template only depends on its {@link Layout}, the seat configuration ("3-3", "2-4-2") and the number of seats
+ * of each class, so every flight flown with the same layout shares it and materializing its seats only stamps
+ * the flight ID in. Templates are immutable and safe to share between threads.
+ */
+final class SeatMapTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatMapTemplate.class);
+    // "15A, ECONOMY, Window": row, letter and, if there, position
+    private static final Pattern SEAT_NUMBER = Pattern.compile("^(\\d+)([A-Z])(?:\\s*,[^,]*,\\s*(\\w+))?");
+
+    // Cabin layout a template is compiled for, negative counts are treated as 0
+    record Layout(String seatConfiguration, int firstClassCount, int businessCount, int premiumEconomyCount, int economyCount) {
+        Layout {
+            firstClassCount = Math.max(0, firstClassCount);
+            businessCount = Math.max(0, businessCount);
+            premiumEconomyCount = Math.max(0, premiumEconomyCount);
+            economyCount = Math.max(0, economyCount);
+        }
+    }
+
+    private final String[] seatNumbers;
+    private final SeatClass[] seatClasses;
+    private final int[] rowNumbers;
+    private final String[] seatLetters;
+    private final SeatPosition[] positions;
+
+    private SeatMapTemplate(String[] seatNumbers, SeatClass[] seatClasses, int[] rowNumbers, String[] seatLetters, SeatPosition[] positions) {
+        this.seatNumbers = seatNumbers;
+        this.seatClasses = seatClasses;
+        this.rowNumbers = rowNumbers;
+        this.seatLetters = seatLetters;
+        this.positions = positions;
+    }
+
+    static SeatMapTemplate compile(Layout layout) {
+        int size = layout.firstClassCount() + layout.businessCount() + layout.premiumEconomyCount() + layout.economyCount();
+        SeatMapTemplate template = new SeatMapTemplate(new String[size], new SeatClass[size], new int[size], new String[size], new SeatPosition[size]);
+
+        // the configuration is parsed once, positions are looked up by seat letter
+        int seatsPerRow = calculateSeatsPerRow(layout.seatConfiguration());
+        SeatPosition[] rowPositions = new SeatPosition[seatsPerRow];
+        for (int seatIndex = 0; seatIndex < seatsPerRow; seatIndex++) {
+            rowPositions[seatIndex] = determinePosition(seatIndex, seatsPerRow, layout.seatConfiguration());
+        }
+
+        int seat = 0;
+        seat = template.addSeatsOfClass(seat, layout.firstClassCount(), SeatClass.FIRST_CLASS, rowPositions);
+        seat = template.addSeatsOfClass(seat, layout.businessCount(), SeatClass.BUSINESS, rowPositions);
+        seat = template.addSeatsOfClass(seat, layout.premiumEconomyCount(), SeatClass.PREMIUM_ECONOMY, rowPositions);
+        template.addSeatsOfClass(seat, layout.economyCount(), SeatClass.ECONOMY, rowPositions);
+        return template;
+    }
+
+    int size() {
+        return seatNumbers.length;
+    }
+
+    // New AVAILABLE seats of the flight, one per seat of the template
+    List<Seat> materialize(Long flightId) {
+        List<Seat> seats = new ArrayList<>(seatNumbers.length);
+        for (int i = 0; i < seatNumbers.length; i++) {
+            seats.add(Seat.builder()
+                    .flightId(flightId)
+                    .seatNumber(seatNumbers[i])
+                    .seatClass(seatClasses[i])
+                    .rowNumber(rowNumbers[i])
+                    .seatLetter(seatLetters[i])
+                    .position(positions[i])
+                    .status(SeatStatus.AVAILABLE)
+                    .build());
+        }
+        return seats;
+    }
+
+    /**
+     * Fills in the row, letter and position of a seat that has none from its seat number, as far as the number has
+     * them, e.g. for seats created one by one.
+     */
+    static void fillPlacement(Seat seat) {
+        if (seat.getSeatNumber() == null || seat.getRowNumber() != null) {
+            return;
+        }
+        Matcher matcher = SEAT_NUMBER.matcher(seat.getSeatNumber().trim());
+        if (!matcher.find()) {
+            return;
+        }
+        int row;
+        try {
+            row = Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (row > Short.MAX_VALUE) {
+            return;
+        }
+        seat.setRowNumber(row);
+        seat.setSeatLetter(matcher.group(2));
+        if (seat.getPosition() == null && matcher.group(3) != null) {
+            for (SeatPosition position : SeatPosition.values()) {
+                if (position.getDisplayName().equalsIgnoreCase(matcher.group(3))) {
+                    seat.setPosition(position);
+                }
+            }
+        }
+    }
+
+    // Seat numbers restart at row 1 for every class, format: "15A, ECONOMY, Window"
+    private int addSeatsOfClass(int first, int count, SeatClass seatClass, SeatPosition[] rowPositions) {
+        int seatsPerRow = rowPositions.length;
+        String suffix = ", " + seatClass + ", ";
+        for (int i = 0; i < count; i++) {
+            int row = i / seatsPerRow + 1;
+            int seatIndex = i % seatsPerRow;
+            String seatLetter = String.valueOf((char) ('A' + seatIndex));
+            seatNumbers[first + i] = row + seatLetter + suffix + rowPositions[seatIndex].getDisplayName();
+            seatClasses[first + i] = seatClass;
+            rowNumbers[first + i] = row;
+            seatLetters[first + i] = seatLetter;
+            positions[first + i] = rowPositions[seatIndex];
+        }
+        return first + count;
+    }
+
+    // Total seats per row based on configuration, e.g. "3-3" = 6, "2-3-2" = 7
+    private static int calculateSeatsPerRow(String seatConfiguration) {
+        if (seatConfiguration == null || seatConfiguration.isEmpty()) {
+            return 6; // Default to 3-3 configuration (6 seats per row)
+        }
+
+        int total = 0;
+        for (String part : seatConfiguration.split("-")) {
+            try {
+                total += Integer.parseInt(part);
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid seat configuration part: {}", part);
+            }
+        }
+
+        return total > 0 ? total : 6; // Default to 6 if parsing fails
+    }
+
+    // Whether the seat at that index of the row is a window, middle, or aisle seat
+    private static SeatPosition determinePosition(int seatIndex, int seatsPerRow, String seatConfiguration) {
+        if (seatConfiguration == null || seatConfiguration.isEmpty()) {
+            return SeatPosition.UNKNOWN;
+        }
+
+        // First or last seat in the row
+        if (seatIndex == 0 || seatIndex == seatsPerRow - 1) {
+            return SeatPosition.WINDOW;
+        }
+
+        // Seats on either side of a section boundary are aisle seats
+        int currentPosition = 0;
+        for (String section : seatConfiguration.split("-")) {
+            try {
+                currentPosition += Integer.parseInt(section);
+                if (seatIndex == currentPosition - 1 || seatIndex == currentPosition) {
+                    return SeatPosition.AISLE;
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid seat configuration section: {}", section);
+            }
+        }
+
+        return SeatPosition.MIDDLE;
+    }
+}
@@ -0,0 +1,9 @@
+package com.execodex.sparrowair2.services;
+
+// The seat is taken, or can't be booked on its flight; the caller has to pick another seat
+public class SeatNotAvailableException extends RuntimeException {
+
+    public SeatNotAvailableException(String message) {
+        super(message);
+    }
+}
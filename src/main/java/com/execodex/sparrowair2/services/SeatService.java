@@ -2,25 +2,56 @@ package com.execodex.sparrowair2.services;
 
 import com.execodex.sparrowair2.entities.Seat;
 import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
 import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.model.SeatAvailability;
 import com.execodex.sparrowair2.repositories.SeatRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 @Service
 public class SeatService {
 
     private static final Logger logger = LoggerFactory.getLogger(SeatService.class);
     private final SeatRepository seatRepository;
     private final FlightService flightService;
-
-    public SeatService(SeatRepository seatRepository, @Lazy FlightService flightService) {
+    private final SeatInventory seatInventory;
+    // fleets share a handful of cabin layouts
+    private static final int MAX_SEAT_MAP_TEMPLATES = 1024;
+    private final Map<SeatMapTemplate.Layout, SeatMapTemplate> seatMapTemplates = new ConcurrentHashMap<>();
+    // flights of one availability call, and of one query loading the flights the inventory doesn't have
+    static final int MAX_AVAILABILITY_FLIGHTS = 10_000;
+    private static final int AVAILABILITY_LOAD_BATCH_SIZE = 1000;
+
+    public SeatService(SeatRepository seatRepository, @Lazy FlightService flightService, SeatInventory seatInventory) {
         this.seatRepository = seatRepository;
         this.flightService = flightService;
+        this.seatInventory = seatInventory;
+    }
+
+    // Load the seat inventory of every flight in the background, reservations fall back to the database until then
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSeatInventoryOnStartup() {
+        seatRepository.findAllByOrderByFlightIdAscIdAsc()
+                .bufferUntilChanged(Seat::getFlightId)
+                .doOnNext(seats -> seatInventory.loadIfAbsent(seats.get(0).getFlightId(), seats))
+                .count()
+                .subscribe(
+                        flights -> logger.info("Seat inventory loaded for {} flights", flights),
+                        e -> logger.error("Error loading the seat inventory", e));
     }
 
     // Get all seats
@@ -53,6 +84,53 @@ public class SeatService {
                 });
     }
 
+    // Seat counts by class of each flight, from the seat inventory; flights it doesn't have are loaded into it first,
+    // flights without seats are left out
+    public Flux<SeatAvailability> getAvailability(Collection<Long> flightIds) {
+        return Flux.defer(() -> {
+                    LinkedHashSet<Long> distinctIds = new LinkedHashSet<>(flightIds);
+                    distinctIds.remove(null);
+                    if (distinctIds.size() > MAX_AVAILABILITY_FLIGHTS) {
+                        return Flux.error(new IllegalArgumentException("At most " + MAX_AVAILABILITY_FLIGHTS + " flights per call"));
+                    }
+                    List<Long> missing = new ArrayList<>();
+                    for (Long flightId : distinctIds) {
+                        if (!seatInventory.isLoaded(flightId)) {
+                            missing.add(flightId);
+                        }
+                    }
+                    return Flux.fromIterable(missing)
+                            .buffer(AVAILABILITY_LOAD_BATCH_SIZE)
+                            .concatMap(seatRepository::findByFlightIdInOrderByFlightIdAscIdAsc)
+                            .bufferUntilChanged(Seat::getFlightId)
+                            .doOnNext(seats -> seatInventory.loadIfAbsent(seats.get(0).getFlightId(), seats))
+                            .thenMany(Flux.fromIterable(distinctIds))
+                            .concatMapIterable(flightId -> {
+                                List<SeatAvailability> availability = seatInventory.availability(flightId);
+                                return availability != null ? availability : List.of();
+                            });
+                })
+                .doOnError(e -> logger.error("Error retrieving seat availability for {} flights", flightIds.size(), e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
+    // Available seats of a flight, of the class and in the position if given, filtered by the database
+    public Flux<Seat> getAvailableSeats(Long flightId, SeatClass seatClass, SeatPosition position) {
+        Flux<Seat> seats;
+        if (seatClass != null && position != null) {
+            seats = seatRepository.findByFlightIdAndSeatClassAndStatusAndPositionOrderByIdAsc(flightId, seatClass, SeatStatus.AVAILABLE, position);
+        } else if (seatClass != null) {
+            seats = seatRepository.findByFlightIdAndSeatClassAndStatusOrderByIdAsc(flightId, seatClass, SeatStatus.AVAILABLE);
+        } else if (position != null) {
+            seats = seatRepository.findByFlightIdAndStatusAndPositionOrderByIdAsc(flightId, SeatStatus.AVAILABLE, position);
+        } else {
+            seats = seatRepository.findByFlightIdAndStatusOrderByIdAsc(flightId, SeatStatus.AVAILABLE);
+        }
+        return seats
+                .doOnError(e -> logger.error("Error retrieving available seats for flight ID: {}", flightId, e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
     // Create a new seat
     public Mono<Seat> createSeat(Seat seat) {
         return seatRepository.findByFlightIdAndSeatNumber(seat.getFlightId(), seat.getSeatNumber())
@@ -62,31 +140,36 @@ public class SeatService {
                         logger.error("Seat with flight ID: {} and seat number: {} already exists", seat.getFlightId(), seat.getSeatNumber());
                         return Mono.empty();
                     }
-                    return seatRepository.insert(seat);
+                    // written like the seats of a seat map, with the row, letter and position columns
+                    SeatMapTemplate.fillPlacement(seat);
+                    return seatRepository.insertAll(List.of(seat)).next();
                 })
+                .doOnNext(seatInventory::seatUpdated)
                 .doOnSuccess(s -> logger.info("Created seat"))
                 .doOnError(e -> logger.error("Error creating seat", e))
                 .onErrorResume(e -> Mono.error(e));
     }
 
     // Create multiple seats for a flight
+    // The whole seat map is built in memory and written with a few multi-row inserts, seats that already exist are skipped
     public Flux<Seat> createSeatsForFlight(Long flightId, int firstClassCount, int businessCount, int premiumEconomyCount, int economyCount, String seatConfiguration) {
         logger.info("Creating seats for flight ID: {}, with seat configuration: {}", flightId, seatConfiguration);
 
-        // Create first class seats
-        Flux<Seat> firstClassSeats = createSeatsOfClass(flightId, firstClassCount, SeatClass.FIRST_CLASS, seatConfiguration);
-
-        // Create business class seats
-        Flux<Seat> businessSeats = createSeatsOfClass(flightId, businessCount, SeatClass.BUSINESS, seatConfiguration);
-
-        // Create premium economy seats
-        Flux<Seat> premiumEconomySeats = createSeatsOfClass(flightId, premiumEconomyCount, SeatClass.PREMIUM_ECONOMY, seatConfiguration);
-
-        // Create economy seats
-        Flux<Seat> economySeats = createSeatsOfClass(flightId, economyCount, SeatClass.ECONOMY, seatConfiguration);
-
-        // Combine all seat creation operations
-        return Flux.concat(firstClassSeats, businessSeats, premiumEconomySeats, economySeats);
+        List<Seat> seats = buildSeatMap(flightId, firstClassCount, businessCount, premiumEconomyCount, economyCount, seatConfiguration);
+        return seatRepository.insertAll(seats)
+                .collectList()
+                .doOnNext(inserted -> {
+                    // only a flight whose seats were all created here is fully known
+                    if (inserted.size() == seats.size()) {
+                        seatInventory.load(flightId, inserted);
+                    } else {
+                        seatInventory.evict(flightId);
+                    }
+                })
+                .flatMapMany(Flux::fromIterable)
+                .doOnComplete(() -> logger.info("Created seats for flight ID: {}", flightId))
+                .doOnError(e -> logger.error("Error creating seats for flight ID: {}", flightId, e))
+                .onErrorResume(e -> Flux.error(e));
     }
 
     // Overloaded method for backward compatibility
@@ -95,104 +178,30 @@ public class SeatService {
         return createSeatsForFlight(flightId, firstClassCount, businessCount, premiumEconomyCount, economyCount, "3-3");
     }
 
-    // Helper method to create seats of a specific class
-    private Flux<Seat> createSeatsOfClass(Long flightId, int count, SeatClass seatClass, String seatConfiguration) {
-        if (count <= 0) {
-            return Flux.empty();
-        }
-
-        return Flux.range(1, count)
-                .flatMap(i -> {
-                    String seatNumber = generateSeatNumber(seatClass, i, seatConfiguration);
-                    Seat seat = Seat.builder()
-                            .flightId(flightId)
-                            .seatNumber(seatNumber)
-                            .seatClass(seatClass)
-                            .status(SeatStatus.AVAILABLE)
-                            .build();
-                    return createSeat(seat);
-                });
-    }
-
-    // Overloaded method for backward compatibility
-    private Flux<Seat> createSeatsOfClass(Long flightId, int count, SeatClass seatClass) {
-        return createSeatsOfClass(flightId, count, seatClass, "3-3");
-    }
-
-    // Helper method to generate seat numbers based on class, index, and seat configuration
-    private String generateSeatNumber(SeatClass seatClass, int index, String seatConfiguration) {
-        // Calculate row and seat letter
-        int seatsPerRow = calculateSeatsPerRow(seatConfiguration);
-        int row = (index - 1) / seatsPerRow + 1;
-        int seatIndex = (index - 1) % seatsPerRow;
-
-        // Convert seat index to letter (A, B, C, etc.)
-        char seatLetter = (char) ('A' + seatIndex);
-
-        // Determine if it's a window seat
-        String position = determinePosition(seatLetter, seatConfiguration);
-
-        // Format: "15A, Economy, Window"
-        return row + String.valueOf(seatLetter) + ", " + seatClass.toString() + ", " + position;
+    // Build the seats of a flight, first class to economy, without touching the database
+    List<Seat> buildSeatMap(Long flightId, int firstClassCount, int businessCount, int premiumEconomyCount, int economyCount, String seatConfiguration) {
+        return seatMapTemplate(new SeatMapTemplate.Layout(seatConfiguration, firstClassCount, businessCount, premiumEconomyCount, economyCount))
+                .materialize(flightId);
     }
 
-    // Helper method to calculate total seats per row based on configuration
-    private int calculateSeatsPerRow(String seatConfiguration) {
-        if (seatConfiguration == null || seatConfiguration.isEmpty()) {
-            return 6; // Default to 3-3 configuration (6 seats per row)
+    // Template of the layout, compiled on first use and shared by all flights with the same layout
+    SeatMapTemplate seatMapTemplate(SeatMapTemplate.Layout layout) {
+        SeatMapTemplate template = seatMapTemplates.get(layout);
+        if (template != null) {
+            return template;
         }
-
-        // Sum up all numbers in the configuration (e.g., "3-3" = 6, "2-3-2" = 7)
-        int total = 0;
-        for (String part : seatConfiguration.split("-")) {
-            try {
-                total += Integer.parseInt(part);
-            } catch (NumberFormatException e) {
-                logger.warn("Invalid seat configuration part: {}", part);
-            }
+        if (seatMapTemplates.size() >= MAX_SEAT_MAP_TEMPLATES) {
+            // only ad-hoc layouts get that many, start over rather than grow forever
+            seatMapTemplates.clear();
         }
-
-        return total > 0 ? total : 6; // Default to 6 if parsing fails
-    }
-
-    // Helper method to determine if a seat is window, middle, or aisle
-    private String determinePosition(char seatLetter, String seatConfiguration) {
-        if (seatConfiguration == null || seatConfiguration.isEmpty()) {
-            return "Unknown";
-        }
-
-        String[] sections = seatConfiguration.split("-");
-        int seatIndex = seatLetter - 'A';
-
-        // Check if it's a window seat (first or last seat in the row)
-        if (seatIndex == 0 || seatIndex == calculateSeatsPerRow(seatConfiguration) - 1) {
-            return "Window";
-        }
-
-        // Calculate section boundaries to determine aisle seats
-        int currentPosition = 0;
-        for (String section : sections) {
-            try {
-                int sectionSize = Integer.parseInt(section);
-                currentPosition += sectionSize;
-
-                // If we're at a section boundary (except the last one), it's an aisle seat
-                if (seatIndex == currentPosition - 1 || seatIndex == currentPosition) {
-                    return "Aisle";
-                }
-            } catch (NumberFormatException e) {
-                logger.warn("Invalid seat configuration section: {}", section);
-            }
-        }
-
-        // If not window or aisle, it's a middle seat
-        return "Middle";
+        return seatMapTemplates.computeIfAbsent(layout, SeatMapTemplate::compile);
     }
 
     // Delete seats by flight ID
     public Mono<Void> deleteByFlightId(Long flightId) {
         logger.info("Deleting seats for flight ID: {}", flightId);
         return seatRepository.deleteByFlightId(flightId)
+                .doOnSuccess(v -> seatInventory.evict(flightId))
                 .doOnSuccess(v -> logger.info("Deleted seats for flight ID: {}", flightId))
                 .doOnError(e -> logger.error("Error deleting seats for flight ID: {}", flightId, e))
                 .onErrorResume(e -> Mono.error(e));
@@ -217,17 +226,51 @@ public class SeatService {
                     existingSeat.setStatus(seat.getStatus());
                     return seatRepository.save(existingSeat);
                 })
+                .doOnNext(seatInventory::seatUpdated)
                 .doOnSuccess(s -> logger.info("Updated seat with ID: {}", s.getId()))
                 .doOnError(e -> logger.error("Error updating seat with ID: {}", id, e))
                 .onErrorResume(e -> Mono.error(e));
     }
 
+    // Reserve the seat if it is available, empty if it is taken, unknown or its flight is cancelled
+    public Mono<Seat> reserveSeatIfAvailable(Long flightId, Long seatId) {
+        return seatRepository.reserveIfAvailable(flightId, seatId)
+                .doOnNext(seatInventory::seatUpdated)
+                .doOnError(e -> logger.error("Error reserving seat with ID: {} on flight ID: {}", seatId, flightId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
+    // Reserve those of the seats that are available in one statement, the seats reserved are not reported to the
+    // inventory: the caller claimed them there already
+    public Flux<Seat> reserveSeatsIfAvailable(Long flightId, List<Long> seatIds) {
+        return seatRepository.reserveAllIfAvailable(flightId, seatIds)
+                .doOnError(e -> logger.error("Error reserving seats {} on flight ID: {}", seatIds, flightId, e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
+    // Reserve a seat of the class on every flight in one statement, the seats reserved are not reported to the
+    // inventory: the caller does that once its transaction is committed
+    public Flux<Seat> reserveFirstAvailableSeats(List<Long> flightIds, List<SeatClass> seatClasses) {
+        return seatRepository.reserveFirstAvailable(flightIds, seatClasses)
+                .doOnError(e -> logger.error("Error reserving seats on flight IDs: {}", flightIds, e))
+                .onErrorResume(e -> Flux.error(e));
+    }
+
+    // Make a reserved or booked seat available again, empty if it isn't. The seat is not reported to the inventory:
+    // the caller does that once its transaction is committed
+    public Mono<Seat> releaseSeat(Long seatId) {
+        return seatRepository.releaseReserved(seatId)
+                .doOnError(e -> logger.error("Error releasing seat with ID: {}", seatId, e))
+                .onErrorResume(e -> Mono.error(e));
+    }
+
     public Mono<Seat> updateSeatStatus(Long id, String status) {
         return seatRepository.findById(id)
                 .flatMap(existingSeat -> {
                     existingSeat.setStatus(SeatStatus.valueOf(status));
                     return seatRepository.save(existingSeat);
                 })
+                .doOnNext(seatInventory::seatUpdated)
                 .doOnSuccess(s -> logger.info("Updated seat status with ID: {}", s.getId()))
                 .doOnError(e -> logger.error("Error updating seat status with ID: {}", id, e))
                 .onErrorResume(e -> Mono.error(e));
@@ -0,0 +1,328 @@
+package com.execodex.sparrowair2.services.caa;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Byte-level CSV tokenizer for input arriving in chunks, such as the {@link DataBuffer}s of an upload.
+ * <p>
+ * Fields are found by scanning the bytes of a chunk in place: a row is handed out as the offsets of its fields into
+ * the chunk, and only the fields read with {@link Row#string} become Strings. The bytes of a row are copied only when
+ * it spans chunks, its start is then carried over to the next chunk, or when the chunk is direct memory. Fields may
+ * be quoted, with {@code ""} for a quote, and may then hold commas and line breaks. Lines end with LF or CRLF.
+ * <p>
+ * Not thread-safe, a tokenizer reads one input.
+ */
+public final class CsvTokenizer {
+
+    // a longer line is taken for a broken file rather than buffered
+    static final int MAX_LINE_LENGTH = 1 << 16;
+
+    // eight bytes of an array at a time, to skip over the bytes that are neither a separator nor a quote
+    private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long COMMAS = ONES * ',';
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long CARRIAGE_RETURNS = ONES * '\r';
+    private static final long QUOTES = ONES * '"';
+    private static final long SPACES = ONES * ' ';
+
+    /**
+     * A row of fields, as offsets into the bytes it was read from; only valid until the callback it was passed to
+     * returns.
+     */
+    public static final class Row {
+        private byte[] source;
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private boolean[] quoted = new boolean[64];
+        private int count;
+        private byte[] scratch = new byte[256];
+
+        private Row() {
+        }
+
+        public int fieldCount() {
+            return count;
+        }
+
+        /**
+         * @return the field without the spaces around it, or unquoted if it was quoted
+         */
+        public String string(int field) {
+            if (quoted[field]) {
+                return unquote(field);
+            }
+            return decode(starts[field], ends[field]);
+        }
+
+        /**
+         * @return the bytes {@code from} to {@code to} of an unquoted field, without the spaces around them
+         */
+        public String string(int field, int from, int to) {
+            int start = starts[field];
+            return decode(Math.min(start + from, ends[field]), Math.min(start + to, ends[field]));
+        }
+
+        private void add(int start, int end, boolean isQuoted) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                quoted = Arrays.copyOf(quoted, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            quoted[count] = isQuoted;
+            count++;
+        }
+
+        // Moves the offsets of the fields read so far, when the row is carried over
+        private void rebase(int offset) {
+            for (int field = 0; field < count; field++) {
+                starts[field] += offset;
+                ends[field] += offset;
+            }
+        }
+
+        private String decode(int start, int end) {
+            while (start < end && (source[start] & 0xff) <= ' ') {
+                start++;
+            }
+            // fixed-width fields are padded with spaces at the end
+            while (end - start >= 8 && (long) WORDS.get(source, end - 8) == SPACES) {
+                end -= 8;
+            }
+            while (end > start && (source[end - 1] & 0xff) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                return "";
+            }
+            return new String(source, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        // The field between its quotes, with its "" turned into "
+        private String unquote(int field) {
+            int start = starts[field] + 1;
+            int end = ends[field];
+            while (end > start && source[end - 1] != '"') {
+                end--;
+            }
+            if (end > start) {
+                end--;
+            }
+            if (scratch.length < end - start) {
+                scratch = new byte[Math.max(end - start, scratch.length * 2)];
+            }
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                scratch[length++] = source[i];
+                if (source[i] == '"' && i + 1 < end && source[i + 1] == '"') {
+                    i++;
+                }
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final Row row = new Row();
+    // the start of a row that didn't end in the chunk it started in
+    private byte[] carry = new byte[1024];
+    private int carryLength;
+    private boolean carrying;
+    // the bytes of the last direct chunk
+    private byte[] copy = new byte[0];
+    // scan state, kept across chunks
+    private int fieldStart;
+    private boolean fieldQuoted;
+    private boolean inQuotes;
+    private boolean quotePending;
+    private boolean pendingCr;
+
+    /**
+     * Reads the readable bytes of the buffer, without consuming or releasing it.
+     *
+     * @param rows gets every row that ended in the buffer
+     */
+    public void feed(DataBuffer buffer, Consumer<Row> rows) {
+        try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+            while (chunks.hasNext()) {
+                feed(chunks.next(), rows);
+            }
+        }
+    }
+
+    /**
+     * Reads the bytes from the position to the limit of the chunk, without moving its position. A heap chunk is read
+     * in its array, a direct one is copied in bulk to an array first.
+     *
+     * @param rows gets every row that ended in the chunk
+     */
+    public void feed(ByteBuffer chunk, Consumer<Row> rows) {
+        if (chunk.hasArray()) {
+            scan(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.arrayOffset() + chunk.limit(), rows);
+            return;
+        }
+        int length = chunk.remaining();
+        if (copy.length < length) {
+            copy = new byte[length];
+        }
+        chunk.get(chunk.position(), copy, 0, length);
+        scan(copy, 0, length, rows);
+    }
+
+    // The state is kept in locals while scanning, and stored back for the next chunk
+    private void scan(byte[] bytes, int from, int limit, Consumer<Row> rows) {
+        int lineStart = from;
+        // offsets of a carried row continue those of the carry
+        int shift = carrying ? carryLength - from : 0;
+        int fieldStart = carrying ? this.fieldStart : from;
+        boolean fieldQuoted = this.fieldQuoted;
+        boolean inQuotes = this.inQuotes;
+        boolean quotePending = this.quotePending;
+        boolean pendingCr = this.pendingCr;
+        for (int i = from; i < limit; i++) {
+            if (!inQuotes) {
+                int special = nextSpecial(bytes, i, limit);
+                if (special > i) {
+                    // none of the bytes skipped was a carriage return
+                    pendingCr = false;
+                    i = special;
+                    if (i == limit) {
+                        break;
+                    }
+                }
+            }
+            byte b = bytes[i];
+            if (inQuotes) {
+                if (!quotePending) {
+                    quotePending = b == '"';
+                    continue;
+                }
+                quotePending = false;
+                if (b == '"') {
+                    continue;
+                }
+                // the quote closed the field, b follows it
+                inQuotes = false;
+            }
+            if (b > ',') {
+                pendingCr = false;
+            } else if (b == ',') {
+                row.add(fieldStart, i + shift, fieldQuoted);
+                fieldStart = i + 1 + shift;
+                fieldQuoted = false;
+                pendingCr = false;
+            } else if (b == '\n') {
+                row.add(fieldStart, i + shift - (pendingCr ? 1 : 0), fieldQuoted);
+                if (carrying) {
+                    append(bytes, from, i);
+                    row.source = carry;
+                    carrying = false;
+                    shift = 0;
+                } else {
+                    row.source = bytes;
+                }
+                emit(rows);
+                lineStart = i + 1;
+                fieldStart = i + 1;
+                fieldQuoted = false;
+                pendingCr = false;
+            } else if (b == '\r') {
+                pendingCr = true;
+            } else {
+                pendingCr = false;
+                if (b == '"' && i + shift == fieldStart) {
+                    inQuotes = true;
+                    fieldQuoted = true;
+                }
+            }
+        }
+        if (carrying) {
+            append(bytes, from, limit);
+        } else if (lineStart < limit) {
+            carryLength = 0;
+            append(bytes, lineStart, limit);
+            row.rebase(-lineStart);
+            fieldStart -= lineStart;
+            carrying = true;
+        }
+        this.fieldStart = fieldStart;
+        this.fieldQuoted = fieldQuoted;
+        this.inQuotes = inQuotes;
+        this.quotePending = quotePending;
+        this.pendingCr = pendingCr;
+    }
+
+    // The index of the first separator or quote from the index on, or the limit if there is none
+    private static int nextSpecial(byte[] bytes, int i, int limit) {
+        for (; i + 8 <= limit; i += 8) {
+            long word = (long) WORDS.get(bytes, i);
+            // a byte is zero in a word xor'ed with a byte it equals; the lowest flagged byte is the first one found
+            long found = zeroBytes(word ^ COMMAS) | zeroBytes(word ^ LINE_FEEDS)
+                    | zeroBytes(word ^ CARRIAGE_RETURNS) | zeroBytes(word ^ QUOTES);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            byte b = bytes[i];
+            if (b == ',' || b == '\n' || b == '\r' || b == '"') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGH_BITS;
+    }
+
+    /**
+     * Ends the input, the last row may have no line break.
+     *
+     * @param rows gets the last row, if there is one
+     */
+    public void finish(Consumer<Row> rows) {
+        if (carrying) {
+            row.add(fieldStart, carryLength - (pendingCr ? 1 : 0), fieldQuoted);
+            row.source = carry;
+            emit(rows);
+        }
+        carrying = false;
+        carryLength = 0;
+        fieldQuoted = false;
+        inQuotes = false;
+        quotePending = false;
+        pendingCr = false;
+    }
+
+    private void emit(Consumer<Row> rows) {
+        try {
+            rows.accept(row);
+        } finally {
+            row.count = 0;
+            row.source = null;
+        }
+    }
+
+    private void append(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (carryLength + length > MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("CSV line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carryLength + length, carry.length * 2));
+        }
+        System.arraycopy(bytes, from, carry, carryLength, length);
+        carryLength += length;
+    }
+}
@@ -0,0 +1,168 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the FAA aircraft registry MASTER file, as it is streamed, into registrations.
+ * <p>
+ * The file is CSV with one fixed-width field per column, the first line is its header. Lines are tokenized by
+ * {@link CsvTokenizer} on the bytes of the buffers, so the only Strings made are the trimmed values of the
+ * registrations; the fields come out as {@link FaaAircraftRegistration#parseAircraftRegistrationFromCsvLine2} reads
+ * them from a line. Lines with fewer fields than a registration has are skipped.
+ */
+public final class FaaMasterFileParser {
+    private static final Logger logger = LoggerFactory.getLogger(FaaMasterFileParser.class);
+
+    static final int FIELD_COUNT = 34;
+    // bytes of a chunk of memory handed to the tokenizer at a time, so that the copy it makes of direct memory
+    // stays small
+    private static final int SLICE_SIZE = 64 * 1024;
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer();
+    private final Runnable onSkipped;
+    private List<FaaAircraftRegistration> parsed = new ArrayList<>();
+    private boolean headerSkipped;
+    private long skipped;
+
+    FaaMasterFileParser() {
+        this(() -> {
+        });
+    }
+
+    FaaMasterFileParser(Runnable onSkipped) {
+        this.onSkipped = onSkipped;
+    }
+
+    /**
+     * Parses the content of a MASTER file; the buffers are released once read.
+     */
+    public static Flux<FaaAircraftRegistration> parse(Flux<DataBuffer> content) {
+        return parse(content, () -> {
+        });
+    }
+
+    /**
+     * Like {@link #parse(Flux)}, reporting every line skipped to {@code onSkipped}.
+     */
+    public static Flux<FaaAircraftRegistration> parse(Flux<DataBuffer> content, Runnable onSkipped) {
+        return Flux.defer(() -> {
+            FaaMasterFileParser parser = new FaaMasterFileParser(onSkipped);
+            return content
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .concatMapIterable(parser::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(parser.finish())))
+                    .doOnComplete(() -> warnSkipped(parser.skipped));
+        });
+    }
+
+    /**
+     * Parses a chunk of whole lines of a MASTER file, such as a region of a mapped file; the chunks of a file can be
+     * parsed at the same time. The lines skipped are only reported to {@code onSkipped}, the caller warns of them once
+     * for the whole file with {@link #warnSkipped}.
+     *
+     * @param header whether the chunk starts with the header line of the file
+     */
+    static List<FaaAircraftRegistration> parse(ByteBuffer chunk, boolean header, Runnable onSkipped) {
+        FaaMasterFileParser parser = new FaaMasterFileParser(onSkipped);
+        parser.headerSkipped = !header;
+        for (int from = chunk.position(); from < chunk.limit(); from += SLICE_SIZE) {
+            parser.tokenizer.feed(chunk.slice(from, Math.min(SLICE_SIZE, chunk.limit() - from)), parser::addRow);
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Reads the buffer and releases it.
+     *
+     * @return the registrations of the lines that ended in the buffer
+     */
+    List<FaaAircraftRegistration> feed(DataBuffer buffer) {
+        try {
+            tokenizer.feed(buffer, this::addRow);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return drain();
+    }
+
+    /**
+     * @return the registration of the last line, if it had no line break
+     */
+    List<FaaAircraftRegistration> finish() {
+        tokenizer.finish(this::addRow);
+        return drain();
+    }
+
+    static void warnSkipped(long skipped) {
+        if (skipped > 0) {
+            logger.warn("Skipped {} lines of the FAA MASTER file with fewer than {} fields", skipped, FIELD_COUNT);
+        }
+    }
+
+    private List<FaaAircraftRegistration> drain() {
+        List<FaaAircraftRegistration> registrations = parsed;
+        parsed = new ArrayList<>();
+        return registrations;
+    }
+
+    private void addRow(CsvTokenizer.Row row) {
+        if (!headerSkipped) {
+            headerSkipped = true;
+        } else if (row.fieldCount() >= FIELD_COUNT) {
+            parsed.add(toRegistration(row));
+        } else if (row.fieldCount() > 1 || !row.string(0).isEmpty()) {
+            skipped++;
+            onSkipped.run();
+        }
+    }
+
+    // The CERTIFICATION field holds the airworthiness classification in its first character, the operations after it
+    static FaaAircraftRegistration toRegistration(CsvTokenizer.Row row) {
+        return FaaAircraftRegistration.builder()
+                .nNumber(row.string(0))
+                .serialNumber(row.string(1))
+                .aircraftMfrModelCode(row.string(2))
+                .engineMfrModelCode(row.string(3))
+                .yearManufactured(row.string(4))
+                .typeRegistrant(row.string(5))
+                .registrantName(row.string(6))
+                .street1(row.string(7))
+                .street2(row.string(8))
+                .registrantCity(row.string(9))
+                .registrantState(row.string(10))
+                .registrantZipCode(row.string(11))
+                .registrantRegion(row.string(12))
+                .countyMail(row.string(13))
+                .countryMail(row.string(14))
+                .lastActivityDate(row.string(15))
+                .certificateIssueDate(row.string(16))
+                .airworthinessClassificationCode(row.string(17, 0, 1))
+                .approvedOperationCodes(row.string(17, 1, 10))
+                .typeAircraft(row.string(18))
+                .typeEngine(row.string(19))
+                .statusCode(row.string(20))
+                .modeSCode(row.string(21))
+                .fractionalOwnership(row.string(22))
+                .airworthinessDate(row.string(23))
+                .otherName1(row.string(24))
+                .otherName2(row.string(25))
+                .otherName3(row.string(26))
+                .otherName4(row.string(27))
+                .otherName5(row.string(28))
+                .expirationDate(row.string(29))
+                .uniqueId(row.string(30))
+                .kitMfr(row.string(31))
+                .kitModel(row.string(32))
+                .modeScodeHex(row.string(33))
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Fingerprint of the fields of an FAA aircraft registration, to tell whether a row of a new MASTER file differs from
+ * the one loaded before without comparing them field by field.
+ * <p>
+ * It is the {@link XxHash64} of the UTF-8 bytes of the fields after the N-Number, which is the key, each trimmed and
+ * with null taken as blank, separated by the unit separator so that a value moving to the next field changes it.
+ */
+public final class FaaRegistrationFingerprint {
+
+    private static final char SEPARATOR = '\u001F';
+
+    // The fields in the order of the file
+    private static final List<Function<FaaAircraftRegistration, String>> FIELDS = List.of(
+            FaaAircraftRegistration::getSerialNumber,
+            FaaAircraftRegistration::getAircraftMfrModelCode,
+            FaaAircraftRegistration::getEngineMfrModelCode,
+            FaaAircraftRegistration::getYearManufactured,
+            FaaAircraftRegistration::getTypeRegistrant,
+            FaaAircraftRegistration::getRegistrantName,
+            FaaAircraftRegistration::getStreet1,
+            FaaAircraftRegistration::getStreet2,
+            FaaAircraftRegistration::getRegistrantCity,
+            FaaAircraftRegistration::getRegistrantState,
+            FaaAircraftRegistration::getRegistrantZipCode,
+            FaaAircraftRegistration::getRegistrantRegion,
+            FaaAircraftRegistration::getCountyMail,
+            FaaAircraftRegistration::getCountryMail,
+            FaaAircraftRegistration::getLastActivityDate,
+            FaaAircraftRegistration::getCertificateIssueDate,
+            FaaAircraftRegistration::getAirworthinessClassificationCode,
+            FaaAircraftRegistration::getApprovedOperationCodes,
+            FaaAircraftRegistration::getTypeAircraft,
+            FaaAircraftRegistration::getTypeEngine,
+            FaaAircraftRegistration::getStatusCode,
+            FaaAircraftRegistration::getModeSCode,
+            FaaAircraftRegistration::getFractionalOwnership,
+            FaaAircraftRegistration::getAirworthinessDate,
+            FaaAircraftRegistration::getOtherName1,
+            FaaAircraftRegistration::getOtherName2,
+            FaaAircraftRegistration::getOtherName3,
+            FaaAircraftRegistration::getOtherName4,
+            FaaAircraftRegistration::getOtherName5,
+            FaaAircraftRegistration::getExpirationDate,
+            FaaAircraftRegistration::getUniqueId,
+            FaaAircraftRegistration::getKitMfr,
+            FaaAircraftRegistration::getKitModel,
+            FaaAircraftRegistration::getModeScodeHex);
+
+    private FaaRegistrationFingerprint() {
+    }
+
+    public static long of(FaaAircraftRegistration registration) {
+        StringBuilder fields = new StringBuilder(640);
+        for (Function<FaaAircraftRegistration, String> field : FIELDS) {
+            String value = field.apply(registration);
+            if (value != null) {
+                fields.append(value.trim());
+            }
+            fields.append(SEPARATOR);
+        }
+        byte[] bytes = fields.toString().getBytes(StandardCharsets.UTF_8);
+        return XxHash64.hash(bytes, 0, bytes.length, 0);
+    }
+}
@@ -0,0 +1,131 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads a FAA aircraft registry MASTER file from disk, for bulk loads of the full registry.
+ * <p>
+ * The file is mapped into memory in chunks of about {@value #DEFAULT_CHUNK_SIZE} bytes, each ending after a line
+ * break, and the chunks are parsed by {@link FaaMasterFileParser} in parallel on a scheduler. A MASTER file has no
+ * quoted fields, so every line break ends a line. The registrations come out in the order of the file, and a chunk is
+ * only mapped and parsed once the registrations before it are being consumed: a slow consumer holds back the parsing,
+ * at most the registrations of a few chunks are held in memory.
+ */
+public final class MappedFaaMasterFileReader {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFaaMasterFileReader.class);
+
+    // some 6000 lines, enough that a chunk is mostly parsing
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    // bytes read at a time looking for the line break ending a chunk, a few lines
+    private static final int LINE_END_WINDOW = 4096;
+
+    private record Chunk(MappedByteBuffer bytes, boolean first) {
+    }
+
+    private MappedFaaMasterFileReader() {
+    }
+
+    /**
+     * Reads the MASTER file, parsing as many chunks at a time as the parallel scheduler has threads.
+     */
+    public static Flux<FaaAircraftRegistration> read(Path file) {
+        return read(file, () -> {
+        });
+    }
+
+    /**
+     * Like {@link #read(Path)}, reporting every line skipped to {@code onSkipped}, from the threads parsing the chunks.
+     * The count of lines skipped is logged once the whole file is read.
+     */
+    public static Flux<FaaAircraftRegistration> read(Path file, Runnable onSkipped) {
+        return read(file, DEFAULT_CHUNK_SIZE, Schedulers.DEFAULT_POOL_SIZE, Schedulers.parallel(), onSkipped);
+    }
+
+    /**
+     * @param chunkSize   bytes of a chunk, up to the line break after them
+     * @param parallelism chunks parsed at a time, and parsed ahead of the consumer
+     * @param scheduler   the scheduler the chunks are parsed on
+     */
+    static Flux<FaaAircraftRegistration> read(Path file, int chunkSize, int parallelism, Scheduler scheduler,
+                                              Runnable onSkipped) {
+        return Flux.defer(() -> {
+            // the chunks are parsed apart, their skipped lines are counted for the whole file
+            LongAdder skipped = new LongAdder();
+            Runnable countSkipped = () -> {
+                skipped.increment();
+                onSkipped.run();
+            };
+            return Flux.using(
+                            () -> FileChannel.open(file, StandardOpenOption.READ),
+                            channel -> chunks(channel, chunkSize)
+                                    .flatMapSequential(chunk -> Mono
+                                            .fromCallable(() -> FaaMasterFileParser.parse(chunk.bytes(), chunk.first(), countSkipped))
+                                            .subscribeOn(scheduler), parallelism, 1)
+                                    // one chunk of registrations at a time, or the chunks parsed ahead would not be bounded
+                                    .concatMapIterable(registrations -> registrations, 1),
+                            channel -> close(channel, file))
+                    .doOnComplete(() -> FaaMasterFileParser.warnSkipped(skipped.sum()));
+        });
+    }
+
+    // Maps the file a chunk at a time, as the chunks are requested
+    private static Flux<Chunk> chunks(FileChannel channel, int chunkSize) {
+        return Flux.generate(() -> 0L, (start, sink) -> {
+            try {
+                long size = channel.size();
+                if (start >= size) {
+                    sink.complete();
+                    return start;
+                }
+                long end = lineEnd(channel, Math.min(start + chunkSize, size), size);
+                sink.next(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start == 0));
+                return end;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // The position after the first line break from the position on, or the end of the file
+    private static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(LINE_END_WINDOW);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // The chunks mapped stay readable once the channel is closed
+    private static void close(FileChannel channel, Path file) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close FAA MASTER file {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * All scheduled flights of a {@link RouteGraph}, sorted by departure time, for the Connection Scan Algorithm (CSA).
+ * <p>
+ * Every flight is a connection {@code from -> to} with a departure and an arrival time (epoch seconds,
+ * the schedule's local date-times are read as UTC). The earliest arrival query scans the sorted arrays
+ * once, starting at the first departure after the requested time, and stops as soon as no later
+ * departure can improve the arrival at the target.
+ */
+public final class ConnectionTimetable {
+
+    private final RouteGraph graph;
+    private final int[] from;
+    private final int[] to;
+    private final long[] departures;
+    private final long[] arrivals;
+    private final Flight[] flights;
+    private final long[] minConnectionSeconds; // per airport index
+
+    private ConnectionTimetable(RouteGraph graph, int[] from, int[] to, long[] departures, long[] arrivals,
+                                Flight[] flights, long[] minConnectionSeconds) {
+        this.graph = graph;
+        this.from = from;
+        this.to = to;
+        this.departures = departures;
+        this.arrivals = arrivals;
+        this.flights = flights;
+        this.minConnectionSeconds = minConnectionSeconds;
+    }
+
+    /**
+     * Builds the timetable of a graph.
+     * Flights without a schedule, cancelled flights and flights not arriving after they depart are left out.
+     * Since every flight takes time, a flight can only feed flights sorted after it, which is what makes a single scan enough.
+     *
+     * @param graph                the graph to take the flights from
+     * @param minConnectionSeconds the minimum connection time, in seconds, for an airport ICAO code
+     * @return the timetable
+     */
+    public static ConnectionTimetable build(RouteGraph graph, ToLongFunction<String> minConnectionSeconds) {
+        List<Integer> edges = new ArrayList<>(graph.edgeCount());
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            Flight flight = graph.flight(edge);
+            if (flight.getScheduledDeparture() == null || flight.getScheduledArrival() == null
+                    || "CANCELLED".equalsIgnoreCase(flight.getStatus())
+                    || !flight.getScheduledArrival().isAfter(flight.getScheduledDeparture())) {
+                continue;
+            }
+            edges.add(edge);
+        }
+        edges.sort(Comparator.comparing(edge -> graph.flight(edge).getScheduledDeparture()));
+
+        int count = edges.size();
+        int[] from = new int[count];
+        int[] to = new int[count];
+        long[] departures = new long[count];
+        long[] arrivals = new long[count];
+        Flight[] flights = new Flight[count];
+        for (int i = 0; i < count; i++) {
+            Flight flight = graph.flight(edges.get(i));
+            from[i] = graph.indexOf(flight.getDepartureAirportIcao());
+            to[i] = graph.target(edges.get(i));
+            departures[i] = toEpochSecond(flight.getScheduledDeparture());
+            arrivals[i] = toEpochSecond(flight.getScheduledArrival());
+            flights[i] = flight;
+        }
+
+        long[] connectionSeconds = new long[graph.airportCount()];
+        for (int airport = 0; airport < graph.airportCount(); airport++) {
+            connectionSeconds[airport] = minConnectionSeconds.applyAsLong(graph.airport(airport).getIcaoCode());
+        }
+
+        return new ConnectionTimetable(graph, from, to, departures, arrivals, flights, connectionSeconds);
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the graph this timetable was built from
+     */
+    public RouteGraph graph() {
+        return graph;
+    }
+
+    public int connectionCount() {
+        return flights.length;
+    }
+
+    /**
+     * Finds the itinerary reaching the target as early as possible, leaving the source not before {@code departureAfter}.
+     * At every intermediate airport the next flight must depart at least the minimum connection time
+     * of that airport after the previous flight arrived.
+     *
+     * @return the flights of the itinerary, or an empty list if the target cannot be reached
+     */
+    public List<Flight> earliestArrival(int source, int target, LocalDateTime departureAfter) {
+        if (source == target) {
+            return new ArrayList<>();
+        }
+
+        long[] earliest = new long[graph.airportCount()];
+        int[] arrivedWith = new int[graph.airportCount()];
+        Arrays.fill(earliest, Long.MAX_VALUE);
+        Arrays.fill(arrivedWith, -1);
+        long start = toEpochSecond(departureAfter);
+        earliest[source] = start;
+
+        for (int c = firstDepartureNotBefore(start); c < flights.length; c++) {
+            // no flight departing from now on can arrive earlier than what we already have
+            if (departures[c] >= earliest[target]) {
+                break;
+            }
+            int airport = from[c];
+            if (earliest[airport] == Long.MAX_VALUE) {
+                continue;
+            }
+            long readyAt = airport == source ? start : earliest[airport] + minConnectionSeconds[airport];
+            if (departures[c] >= readyAt && arrivals[c] < earliest[to[c]]) {
+                earliest[to[c]] = arrivals[c];
+                arrivedWith[to[c]] = c;
+            }
+        }
+
+        if (arrivedWith[target] < 0) {
+            return new ArrayList<>();
+        }
+        List<Flight> itinerary = new ArrayList<>();
+        for (int airport = target; airport != source; airport = from[arrivedWith[airport]]) {
+            itinerary.add(flights[arrivedWith[airport]]);
+        }
+        Collections.reverse(itinerary);
+        return itinerary;
+    }
+
+    // binary search on the sorted departures
+    private int firstDepartureNotBefore(long time) {
+        int low = 0;
+        int high = departures.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (departures[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
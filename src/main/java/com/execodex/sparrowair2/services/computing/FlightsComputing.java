@@ -5,21 +5,40 @@ import com.execodex.sparrowair2.entities.skybrary.AirportNew;
 import com.execodex.sparrowair2.entities.Flight;
 import com.execodex.sparrowair2.services.AirportNewService;
 import com.execodex.sparrowair2.services.FlightService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class FlightsComputing {
+    private static final Logger logger = LoggerFactory.getLogger(FlightsComputing.class);
     private final AirportNewService airportNewService;
     private final FlightService flightService;
-    private Map<AirportNew, List<AirportNew>> airportListMap = new HashMap<>();
-
-    public FlightsComputing(AirportNewService airportNewService, FlightService flightService) {
+    private final RouteGraphService routeGraphService;
+    private final FlightsComputingProperties properties;
+    // latest flights matrix and the graph it was built from, replaced as a whole (copy-on-write)
+    private final AtomicReference<MatrixSnapshot> flightsMatrix = new AtomicReference<>();
+    // rebuild in progress, shared by all callers asking for the matrix meanwhile
+    private final AtomicReference<Mono<MatrixSnapshot>> matrixRefresh = new AtomicReference<>();
+    private final AtomicLong matrixVersion = new AtomicLong();
+    // timetable of the latest graph snapshot, rebuilt lazily when the graph changes
+    private volatile ConnectionTimetable timetable;
+
+    public FlightsComputing(AirportNewService airportNewService, FlightService flightService, RouteGraphService routeGraphService,
+                            FlightsComputingProperties properties) {
         this.airportNewService = airportNewService;
         this.flightService = flightService;
+        this.routeGraphService = routeGraphService;
+        this.properties = properties;
     }
     // This class is responsible for computing flight-related data
     // it will show a matrix of all flights between airports
@@ -28,6 +47,9 @@ public class FlightsComputing {
     // then we need to get all the flights between airports
     // then we need to compute the matrix of flights between airports
 
+    private record MatrixSnapshot(FlightsMatrix matrix, RouteGraph graph) {
+    }
+
     /**
      * Computes a matrix of flights between airports.
      * Returns a map where each key is an airport and the value is a list of airports
@@ -36,13 +58,20 @@ public class FlightsComputing {
      * @return A Mono emitting a map of airports to their destination airports
      */
     public Mono<Map<AirportNew, List<AirportNew>>> computeFlightsMatrix() {
-        // If we already have computed the matrix, return it
-        if (!airportListMap.isEmpty()) {
-            return Mono.just(airportListMap);
-        }
+        return getFlightsMatrix().map(FlightsMatrix::destinations);
+    }
 
-        return refreshFlightsMatrix()
-                .doOnNext(matrix -> airportListMap = matrix);
+    /**
+     * Returns the current flights matrix with its version, building it first if this has not happened yet.
+     * Once built, the matrix is kept up to date in the background, see {@link #refreshStaleFlightsMatrix()}.
+     *
+     * @return A Mono emitting the flights matrix
+     */
+    public Mono<FlightsMatrix> getFlightsMatrix() {
+        return Mono.defer(() -> {
+            MatrixSnapshot snapshot = flightsMatrix.get();
+            return snapshot != null ? Mono.just(snapshot) : joinOrStartMatrixRefresh();
+        }).map(MatrixSnapshot::matrix);
     }
 
     /**
@@ -52,70 +81,242 @@ public class FlightsComputing {
      * @return A Mono emitting the refreshed flights matrix
      */
     public Mono<Map<AirportNew, List<AirportNew>>> refreshFlightsMatrix() {
-        Map<String, AirportNew> airportMap = new HashMap<>();
+        return Mono.defer(() -> {
+            Mono<MatrixSnapshot> inProgress = matrixRefresh.get();
+            if (inProgress == null) {
+                return joinOrStartMatrixRefresh();
+            }
+            // the rebuild in progress might have started before the caller's changes, so rebuild again after it
+            return inProgress.onErrorResume(e -> Mono.empty()).then(joinOrStartMatrixRefresh());
+        }).map(snapshot -> snapshot.matrix().destinations());
+    }
 
-        // First, get all airports and create a map of ICAO code to Airport
-        return airportNewService.getAllAirports()
-                .collectMap(AirportNew::getIcaoCode, airport -> airport)
-                .flatMap(airports -> {
-                    airportMap.putAll(airports);
+    // Rebuilds the matrix when the route graph changed since it was built, so readers don't pay for the rebuild
+    @Scheduled(fixedDelayString = "${flights-computing.matrix-refresh-interval:PT30S}")
+    public void refreshStaleFlightsMatrix() {
+        MatrixSnapshot snapshot = flightsMatrix.get();
+        if (snapshot == null) {
+            return; // nobody asked for the matrix yet
+        }
+        routeGraphService.getGraph()
+                .filter(graph -> graph != snapshot.graph())
+                .flatMap(graph -> joinOrStartMatrixRefresh())
+                .subscribe(
+                        refreshed -> logger.debug("Flights matrix refreshed to version {}", refreshed.matrix().version()),
+                        e -> logger.error("Error refreshing the flights matrix", e));
+    }
 
-                    // Get all flights
-                    return flightService.getAllFlights()
-                            .collectMultimap(Flight::getDepartureAirportIcao, flight -> flight.getArrivalAirportIcao());
-                })
-                .map(flightMap -> {
-                    Map<AirportNew, List<AirportNew>> result = new HashMap<>();
-
-                    // For each airport, find all its destination airports
-                    for (String departureIcao : airportMap.keySet()) {
-                        AirportNew departureAirport = airportMap.get(departureIcao);
-                        List<AirportNew> destinationAirports = new ArrayList<>();
-
-                        // Get all destination ICAO codes for this departure airport
-                        if (flightMap.containsKey(departureIcao)) {
-                            for (String arrivalIcao : flightMap.get(departureIcao)) {
-                                AirportNew arrivalAirport = airportMap.get(arrivalIcao);
-                                if (arrivalAirport != null) {
-                                    destinationAirports.add(arrivalAirport);
-                                }
-                            }
-                        }
+    // Concurrent callers share the same rebuild instead of each building the matrix
+    private Mono<MatrixSnapshot> joinOrStartMatrixRefresh() {
+        return Mono.defer(() -> {
+            Mono<MatrixSnapshot> inProgress = matrixRefresh.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+            Mono<MatrixSnapshot> refresh = routeGraphService.getGraph()
+                    .map(this::buildFlightsMatrix)
+                    // keep the newest matrix, should an older rebuild ever finish last
+                    .map(built -> flightsMatrix.accumulateAndGet(built, (previous, next) ->
+                            previous == null || next.matrix().version() > previous.matrix().version() ? next : previous))
+                    .doOnTerminate(() -> matrixRefresh.set(null))
+                    .cache();
+            if (!matrixRefresh.compareAndSet(null, refresh)) {
+                // another caller started a rebuild in the meantime
+                return joinOrStartMatrixRefresh();
+            }
+            return refresh;
+        });
+    }
 
-                        result.put(departureAirport, destinationAirports);
-                    }
+    // The route graph already holds all airports and flights in memory, so the matrix is built without querying the database
+    private MatrixSnapshot buildFlightsMatrix(RouteGraph graph) {
+        Map<AirportNew, List<AirportNew>> destinations = new HashMap<>(graph.airportCount() * 2);
 
-                    return result;
-                });
+        // For each airport, find all its destination airports
+        for (int airport = 0; airport < graph.airportCount(); airport++) {
+            List<AirportNew> destinationAirports = new ArrayList<>(graph.edgeEnd(airport) - graph.edgeStart(airport));
+            for (int edge = graph.edgeStart(airport); edge < graph.edgeEnd(airport); edge++) {
+                destinationAirports.add(graph.airport(graph.target(edge)));
+            }
+            destinations.put(graph.airport(airport), Collections.unmodifiableList(destinationAirports));
+        }
+
+        FlightsMatrix matrix = new FlightsMatrix(matrixVersion.incrementAndGet(), Collections.unmodifiableMap(destinations));
+        return new MatrixSnapshot(matrix, graph);
     }
 
+    // One map per departure airport, with the arrival airports of its flights
+    // A single GROUP BY query, each row is emitted as soon as it is read
     public Flux<Map<String, Collection<String>>> airpotToAirportsIcao() {
-
-        Flux<String> airportIcaoCodes = airportNewService.getAllAirports().map(AirportNew::getIcaoCode);
-        Flux<Map<String, Collection<String>>> airpotToAirportsFlights =
-                airportIcaoCodes
-                        .flatMap(airportIcaoCode -> flightService
-                                .getAllFlightsFromAirportCode(airportIcaoCode)
-                                .collectMultimap(flight -> flight.getDepartureAirportIcao(),
-                                        flight -> flight.getArrivalAirportIcao())
-                        );
-        return airpotToAirportsFlights;
+        return flightService.getDestinationsByDepartureAirport()
+                .map(destinations -> Map.<String, Collection<String>>of(
+                        destinations.getDepartureAirportIcao(), List.of(destinations.getArrivalAirportIcaos())));
     }
 
+    // One map per departure airport, with its flights
+    // A single query ordered by departure airport, each group is emitted as soon as the next departure airport shows up
     public Flux<Map<String, Collection<Flight>>> airpotsToFlights() {
+        return flightService.getAllFlightsOrderedByDepartureAirport()
+                .bufferUntilChanged(Flight::getDepartureAirportIcao)
+                .map(flights -> Map.<String, Collection<Flight>>of(flights.get(0).getDepartureAirportIcao(), flights));
+    }
 
-        Flux<String> airportIcaoCodes = airportNewService.getAllAirports().map(AirportNew::getIcaoCode);
-        Flux<Map<String, Collection<Flight>>> airpotToAirportsFlights =
-                airportIcaoCodes
-                        .flatMap(airportIcaoCode -> flightService
-                                .getAllFlightsFromAirportCode(airportIcaoCode)
-                                .collectMultimap(flight -> flight.getDepartureAirportIcao(),
-                                        flight -> flight)
-                        );
-        return airpotToAirportsFlights;
+    /**
+     * Finds a route between two airports with the given search strategy.
+     * {@link RouteSearchStrategy#BFS} and {@link RouteSearchStrategy#BIDIRECTIONAL} search the in-memory graph
+     * (see RouteGraphService) for the route with the fewest legs, up to {@code maxHops} legs.
+     * {@link RouteSearchStrategy#DFS} is the original search, it ignores {@code maxHops}.
+     *
+     * @return A Mono emitting the flights of the route, empty list if there is none
+     */
+    public Mono<List<Flight>> getRoute(AirportNew departureAirport, AirportNew arrivalAirport, RouteSearchStrategy strategy, int maxHops) {
+        if (strategy == RouteSearchStrategy.DFS) {
+            return getRoute(departureAirport, arrivalAirport);
+        }
+        // If departure and arrival are the same, return empty route
+        if (departureAirport.getIcaoCode().equals(arrivalAirport.getIcaoCode())) {
+            return Mono.just(new ArrayList<>());
+        }
+
+        return routeGraphService.getGraph()
+                .map(graph -> {
+                    int source = graph.indexOf(departureAirport.getIcaoCode());
+                    int target = graph.indexOf(arrivalAirport.getIcaoCode());
+                    if (source < 0 || target < 0) {
+                        return new ArrayList<Flight>(); // One of the airports is unknown, there is no route
+                    }
+                    return strategy == RouteSearchStrategy.BFS
+                            ? applyBreadthFirstSearch(source, target, graph, maxHops)
+                            : applyBidirectionalSearch(source, target, graph, maxHops);
+                });
+    }
+
+    // Breadth-first search, level by level, so the first time the target is reached it is with the fewest legs
+    // The queue is a plain int array: every airport is enqueued at most once
+    private List<Flight> applyBreadthFirstSearch(int source, int target, RouteGraph graph, int maxHops) {
+        int[] previousEdges = new int[graph.airportCount()];
+        boolean[] visited = new boolean[graph.airportCount()];
+        Arrays.fill(previousEdges, -1);
+        visited[source] = true;
+
+        int[] queue = new int[graph.airportCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+
+        for (int hops = 0; hops < maxHops && head < tail; hops++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int current = queue[head++];
+                for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                    int neighbor = graph.target(edge);
+                    if (visited[neighbor]) {
+                        continue;
+                    }
+                    visited[neighbor] = true;
+                    previousEdges[neighbor] = edge;
+                    if (neighbor == target) {
+                        return pathTo(target, source, previousEdges, graph);
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return new ArrayList<>(); // not reachable within maxHops legs
+    }
+
+    // Breadth-first search from the departure (over outgoing flights) and from the arrival (over incoming flights),
+    // always expanding a whole level of the smaller frontier, until the two searches meet.
+    // Each side only has to go about half the depth, which visits far fewer airports on a well connected network.
+    private List<Flight> applyBidirectionalSearch(int source, int target, RouteGraph graph, int maxHops) {
+        int airportCount = graph.airportCount();
+        int[] forwardDepth = new int[airportCount];   // legs from the source, -1 if not reached
+        int[] backwardDepth = new int[airportCount];  // legs to the target, -1 if not reached
+        int[] previousEdges = new int[airportCount];  // edge arriving at the airport on the way from the source
+        int[] nextEdges = new int[airportCount];      // edge leaving the airport on the way to the target
+        Arrays.fill(forwardDepth, -1);
+        Arrays.fill(backwardDepth, -1);
+        forwardDepth[source] = 0;
+        backwardDepth[target] = 0;
+
+        int[] forwardQueue = new int[airportCount];
+        int[] backwardQueue = new int[airportCount];
+        int forwardHead = 0, forwardTail = 0, backwardHead = 0, backwardTail = 0;
+        forwardQueue[forwardTail++] = source;
+        backwardQueue[backwardTail++] = target;
+
+        int bestLength = Integer.MAX_VALUE;
+        int meetingEdge = -1;
+        for (int hops = 0; hops < maxHops && forwardHead < forwardTail && backwardHead < backwardTail; hops++) {
+            if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+                int levelEnd = forwardTail;
+                while (forwardHead < levelEnd) {
+                    int current = forwardQueue[forwardHead++];
+                    for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                        int neighbor = graph.target(edge);
+                        if (backwardDepth[neighbor] >= 0) {
+                            int length = forwardDepth[current] + 1 + backwardDepth[neighbor];
+                            if (length < bestLength) {
+                                bestLength = length;
+                                meetingEdge = edge;
+                            }
+                        } else if (forwardDepth[neighbor] < 0) {
+                            forwardDepth[neighbor] = forwardDepth[current] + 1;
+                            previousEdges[neighbor] = edge;
+                            forwardQueue[forwardTail++] = neighbor;
+                        }
+                    }
+                }
+            } else {
+                int levelEnd = backwardTail;
+                while (backwardHead < levelEnd) {
+                    int current = backwardQueue[backwardHead++];
+                    for (int i = graph.incomingStart(current); i < graph.incomingEnd(current); i++) {
+                        int edge = graph.incomingEdge(i);
+                        int neighbor = graph.source(edge);
+                        if (forwardDepth[neighbor] >= 0) {
+                            int length = forwardDepth[neighbor] + 1 + backwardDepth[current];
+                            if (length < bestLength) {
+                                bestLength = length;
+                                meetingEdge = edge;
+                            }
+                        } else if (backwardDepth[neighbor] < 0) {
+                            backwardDepth[neighbor] = backwardDepth[current] + 1;
+                            nextEdges[neighbor] = edge;
+                            backwardQueue[backwardTail++] = neighbor;
+                        }
+                    }
+                }
+            }
+            // The first level where the searches meet contains the shortest route, no need to look further
+            if (meetingEdge >= 0) {
+                break;
+            }
+        }
+
+        if (meetingEdge < 0) {
+            return new ArrayList<>(); // not reachable within maxHops legs
+        }
+        List<Flight> path = pathTo(graph.source(meetingEdge), source, previousEdges, graph);
+        path.add(graph.flight(meetingEdge));
+        for (int current = graph.target(meetingEdge); current != target; current = graph.target(nextEdges[current])) {
+            path.add(graph.flight(nextEdges[current]));
+        }
+        return path;
+    }
+
+    // Follows the previous edges back from an airport to the source, returns the flights in travel order
+    private List<Flight> pathTo(int airport, int source, int[] previousEdges, RouteGraph graph) {
+        List<Flight> path = new ArrayList<>();
+        for (int current = airport; current != source; current = graph.source(previousEdges[current])) {
+            path.add(graph.flight(previousEdges[current]));
+        }
+        Collections.reverse(path);
+        return path;
     }
 
     // this method will determine the route from one airport to another and will return the list Flights
+    // it queries the database for every airport it explores, prefer getRoute with RouteSearchStrategy.BFS
     public Mono<List<Flight>> getRoute(AirportNew departureAirport, AirportNew arrivalAirport) {
         // If departure and arrival are the same, return empty route
         if (departureAirport.getIcaoCode().equals(arrivalAirport.getIcaoCode())) {
@@ -205,111 +406,143 @@ public class FlightsComputing {
 
 
     // Using Dijkstra's algorithm to find the minimum cost route
+    // The graph is resident in memory (see RouteGraphService), so no database query is needed here
     public Mono<List<Flight>> getRouteMinimumCost(AirportNew departureAirport, AirportNew arrivalAirport){
         // If departure and arrival are the same, return empty route
         if (departureAirport.getIcaoCode().equals(arrivalAirport.getIcaoCode())) {
             return Mono.just(new ArrayList<>());
         }
 
-        // Get all airports and flights to build the graph
-        Mono<List<Flight>> result = airportNewService.getAllAirports()
-                .collectList()
-                .flatMap(airports -> {
-                    // Create a map of ICAO code to Airport for easy lookup
-                    Map<String, AirportNew> airportMap = new HashMap<>();
-                    for (AirportNew airport : airports) {
-                        airportMap.put(airport.getIcaoCode(), airport);
-                    }
-
-                    // Get all flights to build the graph
-                    return flightService.getAllFlights()
-                            .collectList()
-                            .map(flights -> {
-                                // Apply Dijkstra's algorithm to find the shortest path
-                                return applyDijkstra(departureAirport, arrivalAirport, airports, flights, airportMap);
-                            });
-                });
-        return result;
+        return routeGraphService.getGraph()
+                .map(graph -> applyDijkstra(departureAirport, arrivalAirport, graph));
     }
 
-    private List<Flight> applyDijkstra(AirportNew source, AirportNew target, List<AirportNew> airports, List<Flight> flights, Map<String, AirportNew> airportMap) {
-        // Create a map of airport ICAO code to its outgoing flights
-        Map<String, List<Flight>> outgoingFlights = new HashMap<>();
-        for (Flight flight : flights) {
-            outgoingFlights.computeIfAbsent(flight.getDepartureAirportIcao(), k -> new ArrayList<>()).add(flight);
+    // Dijkstra's algorithm with a binary heap, O((V + E) log V)
+    // distances, previous flights and previous airports are kept in arrays indexed by airport, and the search stops as soon as the target is settled
+    private List<Flight> applyDijkstra(AirportNew source, AirportNew target, RouteGraph graph) {
+        int sourceIndex = graph.indexOf(source.getIcaoCode());
+        int targetIndex = graph.indexOf(target.getIcaoCode());
+        if (sourceIndex < 0 || targetIndex < 0) {
+            return new ArrayList<>(); // One of the airports is unknown, there is no path
         }
 
         // Initialize distances with infinity for all airports except the source
-        Map<String, Double> distances = new HashMap<>();
-        Map<String, Flight> previousFlights = new HashMap<>();
-        Set<String> unvisited = new HashSet<>();
-
-        for (AirportNew airport : airports) {
-            String icaoCode = airport.getIcaoCode();
-            distances.put(icaoCode, Double.MAX_VALUE);
-            unvisited.add(icaoCode);
-        }
-        distances.put(source.getIcaoCode(), 0.0);
-
-        // Dijkstra's algorithm
-        while (!unvisited.isEmpty()) {
-            // Find the unvisited airport with the smallest distance
-            String current = null;
-            double smallestDistance = Double.MAX_VALUE;
-            for (String icaoCode : unvisited) {
-                double distance = distances.get(icaoCode);
-                if (distance < smallestDistance) {
-                    smallestDistance = distance;
-                    current = icaoCode;
-                }
-            }
-
-            // If we've reached the target or there's no path to any remaining unvisited airports
-            if (current == null || current.equals(target.getIcaoCode())) {
+        double[] distances = new double[graph.airportCount()];
+        int[] previousEdges = new int[graph.airportCount()];
+        int[] previousAirports = new int[graph.airportCount()];
+        boolean[] settled = new boolean[graph.airportCount()];
+        Arrays.fill(distances, Double.MAX_VALUE);
+        Arrays.fill(previousEdges, -1);
+        distances[sourceIndex] = 0.0;
+
+        IndexedMinHeap queue = new IndexedMinHeap(graph.airportCount());
+        queue.insertOrDecrease(sourceIndex, 0.0);
+
+        while (!queue.isEmpty()) {
+            // The airport with the smallest distance, its distance is now final
+            int current = queue.poll();
+            settled[current] = true;
+
+            // If we've reached the target we're done
+            if (current == targetIndex) {
                 break;
             }
 
-            // Remove the current airport from unvisited
-            unvisited.remove(current);
-
-            // Get the current airport
-            AirportNew currentAirport = airportMap.get(current);
-
-            // Update distances to neighbors
-            List<Flight> currentOutgoingFlights = outgoingFlights.getOrDefault(current, Collections.emptyList());
-            for (Flight flight : currentOutgoingFlights) {
-                String neighborIcao = flight.getArrivalAirportIcao();
-                if (!unvisited.contains(neighborIcao)) {
+            // Update distances to neighbors, the edge weights are precomputed in the graph
+            for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                int neighbor = graph.target(edge);
+                if (settled[neighbor]) {
                     continue; // Skip already visited airports
                 }
 
-                AirportNew neighborAirport = airportMap.get(neighborIcao);
-                double distance = airportNewService.distance(currentAirport, neighborAirport);
-                double newDistance = distances.get(current) + distance;
-
-                if (newDistance < distances.get(neighborIcao)) {
-                    distances.put(neighborIcao, newDistance);
-                    previousFlights.put(neighborIcao, flight);
+                double newDistance = distances[current] + graph.weight(edge);
+                if (newDistance < distances[neighbor]) {
+                    distances[neighbor] = newDistance;
+                    previousEdges[neighbor] = edge;
+                    previousAirports[neighbor] = current;
+                    queue.insertOrDecrease(neighbor, newDistance);
                 }
             }
         }
 
         // Reconstruct the path
         List<Flight> path = new ArrayList<>();
-        String current = target.getIcaoCode();
 
         // If there's no path to the target
-        if (!previousFlights.containsKey(current)) {
+        if (previousEdges[targetIndex] < 0) {
             return path; // Return empty path
         }
 
-        // Build the path by following the previous flights
-        while (!current.equals(source.getIcaoCode())) {
-            Flight flight = previousFlights.get(current);
-            path.add(0, flight); // Add to the beginning of the list
-            current = flight.getDepartureAirportIcao();
+        // Build the path by following the previous flights back to the airports they depart from
+        int current = targetIndex;
+        while (current != sourceIndex) {
+            path.add(graph.flight(previousEdges[current]));
+            current = previousAirports[current];
         }
+        Collections.reverse(path);
 
         return path;
     }
+
+    /**
+     * Finds up to {@code k} alternative routes between two airports, shortest first, using Yen's algorithm.
+     * Routes have no loops, at most {@code maxLegs} flights, and their length is the great-circle distance
+     * of their flights (the same weights as {@link #getRouteMinimumCost}).
+     * <p>
+     * The search is CPU bound, so it runs on the parallel scheduler rather than on the calling event loop,
+     * and it stops at the {@code flights-computing.k-shortest-routes-deadline}, returning the routes found by then.
+     *
+     * @return A Mono emitting the routes, an empty list if there is none
+     */
+    public Mono<List<List<Flight>>> getKShortestRoutes(AirportNew departureAirport, AirportNew arrivalAirport, int k, int maxLegs) {
+        // If departure and arrival are the same, there is no route to look for
+        if (departureAirport.getIcaoCode().equals(arrivalAirport.getIcaoCode())) {
+            return Mono.just(new ArrayList<>());
+        }
+
+        return routeGraphService.getGraph()
+                .publishOn(Schedulers.parallel())
+                .map(graph -> {
+                    int source = graph.indexOf(departureAirport.getIcaoCode());
+                    int target = graph.indexOf(arrivalAirport.getIcaoCode());
+                    if (source < 0 || target < 0) {
+                        return new ArrayList<List<Flight>>(); // One of the airports is unknown, there is no route
+                    }
+                    long deadline = System.nanoTime() + properties.kShortestRoutesDeadline().toNanos();
+                    // a route without loops can't have more legs than there are other airports
+                    int legs = Math.min(maxLegs, graph.airportCount() - 1);
+                    return new KShortestRoutes(graph, legs, deadline).find(source, target, k);
+                });
+    }
+
+    // Using the Connection Scan Algorithm to find the itinerary arriving the earliest, respecting the flight schedules
+    // Unlike getRoute and getRouteMinimumCost, every connecting flight departs after the previous one landed,
+    // plus the minimum connection time of the airport (see FlightsComputingProperties)
+    public Mono<List<Flight>> getEarliestArrival(AirportNew departureAirport, AirportNew arrivalAirport, LocalDateTime departureAfter) {
+        // If departure and arrival are the same, return empty route
+        if (departureAirport.getIcaoCode().equals(arrivalAirport.getIcaoCode())) {
+            return Mono.just(new ArrayList<>());
+        }
+
+        return routeGraphService.getGraph()
+                .map(this::timetableOf)
+                .map(connections -> {
+                    RouteGraph graph = connections.graph();
+                    int source = graph.indexOf(departureAirport.getIcaoCode());
+                    int target = graph.indexOf(arrivalAirport.getIcaoCode());
+                    if (source < 0 || target < 0) {
+                        return new ArrayList<Flight>(); // One of the airports is unknown, there is no route
+                    }
+                    return connections.earliestArrival(source, target, departureAfter);
+                });
+    }
+
+    private ConnectionTimetable timetableOf(RouteGraph graph) {
+        ConnectionTimetable current = timetable;
+        if (current == null || current.graph() != graph) {
+            current = ConnectionTimetable.build(graph, icaoCode -> properties.minConnectionTime(icaoCode).toSeconds());
+            timetable = current;
+        }
+        return current;
+    }
 }
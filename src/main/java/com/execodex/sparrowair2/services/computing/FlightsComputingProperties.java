@@ -0,0 +1,31 @@
+package com.execodex.sparrowair2.services.computing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the route computations, bound from the {@code flights-computing.*} properties.
+ *
+ * @param minConnectionTime          minimum time between landing and the next departure at an airport
+ * @param minConnectionTimeByAirport overrides of the minimum connection time, by airport ICAO code
+ * @param maxHops                    default maximum number of legs of a route found by the fewest-legs searches
+ * @param kShortestRoutesDeadline    time budget of a k-shortest routes search, the routes found by then are returned
+ */
+@ConfigurationProperties(prefix = "flights-computing")
+public record FlightsComputingProperties(
+        @DefaultValue("PT45M") Duration minConnectionTime,
+        Map<String, Duration> minConnectionTimeByAirport,
+        @DefaultValue("6") int maxHops,
+        @DefaultValue("PT1S") Duration kShortestRoutesDeadline) {
+
+    public FlightsComputingProperties {
+        minConnectionTimeByAirport = minConnectionTimeByAirport == null ? Map.of() : Map.copyOf(minConnectionTimeByAirport);
+    }
+
+    public Duration minConnectionTime(String icaoCode) {
+        return minConnectionTimeByAirport.getOrDefault(icaoCode, minConnectionTime);
+    }
+}
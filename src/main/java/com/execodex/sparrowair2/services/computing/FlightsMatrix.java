@@ -0,0 +1,15 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the airports reachable with a direct flight from each airport.
+ *
+ * @param version      increases every time the matrix is rebuilt, so callers can tell two snapshots apart
+ * @param destinations for each airport, the arrival airport of each of its flights
+ */
+public record FlightsMatrix(long version, Map<AirportNew, List<AirportNew>> destinations) {
+}
@@ -0,0 +1,158 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Great-circle distances between airports, in kilometers, without the trigonometry of the Haversine formula
+ * on every call.
+ * <p>
+ * Every airport seen gets an index and its position is stored once as a unit vector, in structure-of-arrays
+ * form ({@code x[]}, {@code y[]}, {@code z[]}). The distance between two airports is then
+ * {@code R * atan2(|u x v|, u . v)}, and it is memoized per airport pair in a primitive long-keyed map,
+ * so the many flights sharing a route, and every rebuild of the route graph, reuse the same value.
+ * <p>
+ * The coordinates an airport was registered with are kept too: when an airport comes in with different
+ * coordinates, its vector is recomputed and all memoized distances involving it are dropped.
+ * <p>
+ * Memoized distances are read lock-free as long as nothing is being written (optimistic {@link StampedLock} read),
+ * registering airports and memoizing new distances take the write lock.
+ */
+public final class GreatCircleDistanceCache {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+    // once that many distances are memoized the memo starts over, so arbitrary queries can't grow it forever
+    private static final int MAX_MEMOIZED_DISTANCES = 1 << 20;
+
+    // all arrays have the same length, the capacity; replaced by a bigger copy when full
+    private record Positions(double[] latitudes, double[] longitudes, double[] x, double[] y, double[] z) {
+        Positions(int capacity) {
+            this(new double[capacity], new double[capacity], new double[capacity], new double[capacity], new double[capacity]);
+        }
+
+        Positions grow() {
+            int capacity = latitudes.length * 2;
+            return new Positions(Arrays.copyOf(latitudes, capacity), Arrays.copyOf(longitudes, capacity),
+                    Arrays.copyOf(x, capacity), Arrays.copyOf(y, capacity), Arrays.copyOf(z, capacity));
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    // an index is only published here after its position is written, so lock-free readers never see an index out of bounds
+    private final Map<String, Integer> indexByIcao = new ConcurrentHashMap<>();
+    private Positions positions = new Positions(256); // guarded by lock
+    private int airportCount;                          // guarded by lock
+    private final LongDoubleHashMap memo = new LongDoubleHashMap(1024); // guarded by lock
+
+    /**
+     * @return the great-circle distance between the two airports, in kilometers
+     */
+    public double distance(AirportNew from, AirportNew to) {
+        // fast path: both airports known with the same coordinates and their distance memoized, all read without locking
+        Integer fromIndex = indexByIcao.get(from.getIcaoCode());
+        Integer toIndex = indexByIcao.get(to.getIcaoCode());
+        if (fromIndex != null && toIndex != null) {
+            long stamp = lock.tryOptimisticRead();
+            Positions current = positions;
+            if (hasPosition(current, fromIndex, from) && hasPosition(current, toIndex, to)) {
+                double distance = fromIndex.equals(toIndex) ? 0.0 : memo.get(keyOf(fromIndex, toIndex));
+                if (lock.validate(stamp) && !Double.isNaN(distance)) {
+                    return distance;
+                }
+            }
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int i = register(from);
+            int j = register(to);
+            if (i == j) {
+                return 0.0;
+            }
+            long key = keyOf(i, j);
+            double distance = memo.get(key);
+            if (Double.isNaN(distance)) {
+                distance = EARTH_RADIUS_KM * centralAngle(positions, i, j);
+                if (memo.size() >= MAX_MEMOIZED_DISTANCES) {
+                    memo.clear();
+                }
+                memo.put(key, distance);
+            }
+            return distance;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the number of memoized airport pairs
+     */
+    public int memoizedDistances() {
+        long stamp = lock.readLock();
+        try {
+            return memo.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // The distance is symmetric, so the pair is keyed with the smaller index first; the key is never 0 as the indexes differ
+    private static long keyOf(int i, int j) {
+        return i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+    }
+
+    // Index of the airport, adding it if it is new or updating it if its coordinates changed; called with the write lock held
+    private int register(AirportNew airport) {
+        Integer existing = indexByIcao.get(airport.getIcaoCode());
+        if (existing != null) {
+            int index = existing;
+            if (!hasPosition(positions, index, airport)) {
+                // the airport moved: new vector, and forget every distance to or from it
+                setPosition(index, airport);
+                memo.removeIf(key -> (int) (key >>> 32) == index || (int) key == index);
+            }
+            return index;
+        }
+
+        int index = airportCount;
+        if (index == positions.latitudes().length) {
+            positions = positions.grow();
+        }
+        setPosition(index, airport);
+        airportCount++;
+        indexByIcao.put(airport.getIcaoCode(), index);
+        return index;
+    }
+
+    private void setPosition(int index, AirportNew airport) {
+        double latitude = Math.toRadians(airport.getLatitude());
+        double longitude = Math.toRadians(airport.getLongitude());
+        positions.latitudes()[index] = airport.getLatitude();
+        positions.longitudes()[index] = airport.getLongitude();
+        positions.x()[index] = Math.cos(latitude) * Math.cos(longitude);
+        positions.y()[index] = Math.cos(latitude) * Math.sin(longitude);
+        positions.z()[index] = Math.sin(latitude);
+    }
+
+    private static boolean hasPosition(Positions positions, int index, AirportNew airport) {
+        return positions.latitudes()[index] == airport.getLatitude()
+                && positions.longitudes()[index] == airport.getLongitude();
+    }
+
+    // Angle between the two unit vectors, atan2 of the cross and dot products is accurate for small and large angles alike
+    private static double centralAngle(Positions positions, int i, int j) {
+        double[] x = positions.x();
+        double[] y = positions.y();
+        double[] z = positions.z();
+        double crossX = y[i] * z[j] - z[i] * y[j];
+        double crossY = z[i] * x[j] - x[i] * z[j];
+        double crossZ = x[i] * y[j] - y[i] * x[j];
+        double cross = Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+        double dot = x[i] * x[j] + y[i] * y[j] + z[i] * z[j];
+        return Math.atan2(cross, dot);
+    }
+}
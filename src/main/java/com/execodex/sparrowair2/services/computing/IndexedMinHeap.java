@@ -0,0 +1,104 @@
+package com.execodex.sparrowair2.services.computing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the ints {@code 0..capacity-1} (airport indexes), keyed by a double priority.
+ * <p>
+ * Unlike {@link java.util.PriorityQueue} it supports decreasing the priority of an element already
+ * in the heap, so every airport is in the heap at most once, and it stores everything in primitive
+ * arrays, so no boxing happens while Dijkstra's algorithm runs.
+ */
+final class IndexedMinHeap {
+
+    private final int[] heap;       // heap[i] = element at heap slot i
+    private final int[] position;   // position[element] = heap slot of the element, -1 if not in the heap
+    private final double[] priority; // priority[element]
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.priority = new double[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int element) {
+        return position[element] >= 0;
+    }
+
+    /**
+     * Inserts the element, or lowers its priority if it is already in the heap with a higher one.
+     */
+    void insertOrDecrease(int element, double newPriority) {
+        int slot = position[element];
+        if (slot < 0) {
+            slot = size++;
+            heap[slot] = element;
+            position[element] = slot;
+        } else if (newPriority >= priority[element]) {
+            return;
+        }
+        priority[element] = newPriority;
+        siftUp(slot);
+    }
+
+    /**
+     * Removes and returns the element with the lowest priority.
+     */
+    int poll() {
+        int min = heap[0];
+        position[min] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int slot) {
+        int element = heap[slot];
+        double key = priority[element];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) >>> 1;
+            int parent = heap[parentSlot];
+            if (priority[parent] <= key) {
+                break;
+            }
+            heap[slot] = parent;
+            position[parent] = slot;
+            slot = parentSlot;
+        }
+        heap[slot] = element;
+        position[element] = slot;
+    }
+
+    private void siftDown(int slot) {
+        int element = heap[slot];
+        double key = priority[element];
+        int half = size >>> 1;
+        while (slot < half) {
+            int childSlot = 2 * slot + 1;
+            int rightSlot = childSlot + 1;
+            if (rightSlot < size && priority[heap[rightSlot]] < priority[heap[childSlot]]) {
+                childSlot = rightSlot;
+            }
+            int child = heap[childSlot];
+            if (key <= priority[child]) {
+                break;
+            }
+            heap[slot] = child;
+            position[child] = slot;
+            slot = childSlot;
+        }
+        heap[slot] = element;
+        position[element] = slot;
+    }
+}
@@ -0,0 +1,186 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Yen's algorithm for the {@code k} shortest loopless routes between two airports of a {@link RouteGraph},
+ * with at most {@code maxLegs} flights each. The length of a route is the sum of its edge weights, the
+ * great-circle distances of its flights.
+ * <p>
+ * Every spur path is searched with a hop-bounded Bellman-Ford, layer by layer, so the leg limit is exact
+ * (a plain Dijkstra can't bound the number of legs). The search checks its deadline before every spur
+ * path and, once it is past, returns the routes found so far.
+ */
+final class KShortestRoutes {
+
+    private final RouteGraph graph;
+    private final int maxLegs;
+    private final long deadlineNanos;
+    // reused by every spur search
+    private final boolean[] bannedAirports;
+    private final boolean[] bannedEdges;
+
+    // a route as the edges of the graph it takes, with its total distance
+    private record Route(int[] edges, double distance) {
+    }
+
+    KShortestRoutes(RouteGraph graph, int maxLegs, long deadlineNanos) {
+        this.graph = graph;
+        this.maxLegs = maxLegs;
+        this.deadlineNanos = deadlineNanos;
+        this.bannedAirports = new boolean[graph.airportCount()];
+        this.bannedEdges = new boolean[graph.edgeCount()];
+    }
+
+    /**
+     * @return up to {@code k} routes, shortest first, fewer if there are no more routes or the deadline passed
+     */
+    List<List<Flight>> find(int source, int target, int k) {
+        List<Route> found = new ArrayList<>();
+        Route shortest = shortestRoute(source, target, maxLegs);
+        if (shortest == null) {
+            return new ArrayList<>();
+        }
+        found.add(shortest);
+
+        PriorityQueue<Route> candidates = new PriorityQueue<>((a, b) -> Double.compare(a.distance(), b.distance()));
+        Set<List<Integer>> seen = new HashSet<>();
+        seen.add(edgeList(shortest.edges()));
+
+        search:
+        while (found.size() < k) {
+            int[] previous = found.get(found.size() - 1).edges();
+            // deviate from the previous route at each of its airports in turn
+            for (int i = 0; i < previous.length; i++) {
+                if (System.nanoTime() - deadlineNanos > 0) {
+                    break search;
+                }
+                int spurAirport = graph.source(previous[i]);
+
+                // the flights taken by already found routes sharing the same first i flights can't be taken again
+                for (Route route : found) {
+                    if (route.edges().length > i && Arrays.equals(route.edges(), 0, i, previous, 0, i)) {
+                        bannedEdges[route.edges()[i]] = true;
+                    }
+                }
+                // the airports before the spur airport can't be visited again, the routes have no loops
+                double rootDistance = 0;
+                for (int j = 0; j < i; j++) {
+                    bannedAirports[graph.source(previous[j])] = true;
+                    rootDistance += graph.weight(previous[j]);
+                }
+
+                Route spur = shortestRoute(spurAirport, target, maxLegs - i);
+                if (spur != null) {
+                    int[] edges = new int[i + spur.edges().length];
+                    System.arraycopy(previous, 0, edges, 0, i);
+                    System.arraycopy(spur.edges(), 0, edges, i, spur.edges().length);
+                    if (seen.add(edgeList(edges))) {
+                        candidates.add(new Route(edges, rootDistance + spur.distance()));
+                    }
+                }
+
+                Arrays.fill(bannedEdges, false);
+                Arrays.fill(bannedAirports, false);
+            }
+
+            if (candidates.isEmpty()) {
+                break;
+            }
+            found.add(candidates.poll());
+        }
+
+        List<List<Flight>> routes = new ArrayList<>(found.size());
+        for (Route route : found) {
+            List<Flight> flights = new ArrayList<>(route.edges().length);
+            for (int edge : route.edges()) {
+                flights.add(graph.flight(edge));
+            }
+            routes.add(flights);
+        }
+        return routes;
+    }
+
+    // Hop-bounded Bellman-Ford: layer h holds the shortest distances using at most h flights.
+    // Only the airports improved in the previous layer are relaxed again.
+    // Weights are positive, so the shortest route within the bound never has a loop.
+    private Route shortestRoute(int source, int target, int legs) {
+        if (legs < 1) {
+            return null;
+        }
+        int airportCount = graph.airportCount();
+        double[][] distances = new double[legs + 1][];
+        int[][] previousEdges = new int[legs + 1][]; // edge improving the airport in that layer, -1 if unchanged
+        distances[0] = new double[airportCount];
+        Arrays.fill(distances[0], Double.MAX_VALUE);
+        distances[0][source] = 0.0;
+
+        int[] frontier = {source};
+        int layer = 0;
+        while (layer < legs && frontier.length > 0) {
+            double[] before = distances[layer];
+            double[] after = before.clone();
+            int[] improvedBy = new int[airportCount];
+            Arrays.fill(improvedBy, -1);
+            int[] nextFrontier = new int[airportCount];
+            int nextSize = 0;
+
+            for (int current : frontier) {
+                for (int edge = graph.edgeStart(current); edge < graph.edgeEnd(current); edge++) {
+                    int neighbor = graph.target(edge);
+                    if (bannedEdges[edge] || bannedAirports[neighbor]) {
+                        continue;
+                    }
+                    double distance = before[current] + graph.weight(edge);
+                    if (distance < after[neighbor]) {
+                        if (improvedBy[neighbor] < 0) {
+                            nextFrontier[nextSize++] = neighbor;
+                        }
+                        after[neighbor] = distance;
+                        improvedBy[neighbor] = edge;
+                    }
+                }
+            }
+
+            layer++;
+            distances[layer] = after;
+            previousEdges[layer] = improvedBy;
+            frontier = Arrays.copyOf(nextFrontier, nextSize);
+        }
+
+        if (distances[layer][target] == Double.MAX_VALUE) {
+            return null;
+        }
+
+        // walk back through the layers, an airport not improved in a layer kept its route from the layer before
+        List<Integer> edges = new ArrayList<>();
+        int current = target;
+        for (int h = layer; current != source; h--) {
+            int edge = previousEdges[h][current];
+            if (edge >= 0) {
+                edges.add(edge);
+                current = graph.source(edge);
+            }
+        }
+        int[] route = new int[edges.size()];
+        for (int i = 0; i < route.length; i++) {
+            route[i] = edges.get(route.length - 1 - i);
+        }
+        return new Route(route, distances[layer][target]);
+    }
+
+    private static List<Integer> edgeList(int[] edges) {
+        List<Integer> list = new ArrayList<>(edges.length);
+        for (int edge : edges) {
+            list.add(edge);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,119 @@
+package com.execodex.sparrowair2.services.computing;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Open addressing (linear probing) hash map from {@code long} keys to {@code double} values, without boxing.
+ * <p>
+ * Key {@code 0} marks an empty slot and can't be stored. The map is not thread-safe, but every resize,
+ * removal or clear swaps in a new table, and the table is never more than half full, so a lookup racing
+ * with a writer can return a wrong answer but never fails or loops forever. That is what allows
+ * {@link GreatCircleDistanceCache} to read it under an optimistic lock.
+ */
+final class LongDoubleHashMap {
+
+    private record Table(long[] keys, double[] values) {
+        Table(int capacity) {
+            this(new long[capacity], new double[capacity]);
+        }
+    }
+
+    private Table table;
+    private int size;
+
+    LongDoubleHashMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the value of the key, or {@link Double#NaN} if the key is not in the map
+     */
+    double get(long key) {
+        Table current = table;
+        long[] keys = current.keys();
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+            long candidate = keys[slot];
+            if (candidate == key) {
+                return current.values()[slot];
+            }
+            if (candidate == 0) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    void put(long key, double value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+        if (2 * (size + 1) > table.keys().length) {
+            table = rehash(table.keys().length * 2, k -> true);
+        }
+        if (insert(table, key, value)) {
+            size++;
+        }
+    }
+
+    /**
+     * Removes all entries whose key matches the predicate.
+     */
+    void removeIf(LongPredicate predicate) {
+        table = rehash(table.keys().length, predicate.negate());
+    }
+
+    void clear() {
+        table = new Table(table.keys().length);
+        size = 0;
+    }
+
+    // Copies the entries to keep into a new table, which is only published once complete
+    private Table rehash(int capacity, LongPredicate keep) {
+        Table rehashed = new Table(capacity);
+        int kept = 0;
+        long[] keys = table.keys();
+        double[] values = table.values();
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0 && keep.test(keys[slot])) {
+                insert(rehashed, keys[slot], values[slot]);
+                kept++;
+            }
+        }
+        size = kept;
+        return rehashed;
+    }
+
+    // The value is written before the key, readers racing with a writer still have to validate their lock
+    private static boolean insert(Table table, long key, double value) {
+        long[] keys = table.keys();
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                table.values()[slot] = value;
+                return false;
+            }
+            if (keys[slot] == 0) {
+                table.values()[slot] = value;
+                keys[slot] = key;
+                return true;
+            }
+        }
+    }
+
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads consecutive keys
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,418 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Immutable, int-indexed snapshot of the flight network.
+ * <p>
+ * Airports are numbered {@code 0..airportCount()-1} and the outgoing flights of airport {@code i}
+ * are stored in compressed sparse row (CSR) form: edges {@code edgeStart(i)} (inclusive) to
+ * {@code edgeEnd(i)} (exclusive) of the {@code targets}, {@code weights} and {@code flights} arrays.
+ * Edge weights are the great-circle distances in kilometers, computed once when the edge is added.
+ * <p>
+ * The {@code with...}/{@code without...} methods never modify this instance, they return a new
+ * snapshot that shares the untouched arrays, so readers can keep using an old snapshot while
+ * a newer one is published. Each of them copies the arrays it changes, O(airports + flights);
+ * {@link #withChanges} applies many changes for the cost of one rebuild.
+ */
+public final class RouteGraph {
+
+    private final AirportNew[] airports;
+    private final Map<String, Integer> indexByIcao;
+    private final int[] offsets;   // length airportCount + 1
+    private final int[] targets;   // length edgeCount
+    private final double[] weights; // length edgeCount
+    private final Flight[] flights; // length edgeCount
+    private final ToDoubleBiFunction<AirportNew, AirportNew> distance;
+    // incoming flights per airport, only built when a search walks the graph backwards
+    private volatile Incoming incoming;
+
+    // reverse CSR: edges incomingEdges[offsets[i]..offsets[i+1]) arrive at airport i, sources[edge] is the departure airport of an edge
+    private record Incoming(int[] offsets, int[] edges, int[] sources) {
+    }
+
+    /**
+     * A change to the flight network, applied with {@link #withChanges}.
+     */
+    public sealed interface Change {
+    }
+
+    public record FlightSaved(Flight flight) implements Change {
+    }
+
+    public record FlightDeleted(Long flightId) implements Change {
+    }
+
+    public record AirportSaved(AirportNew airport) implements Change {
+    }
+
+    public record AirportDeleted(String icaoCode) implements Change {
+    }
+
+    private RouteGraph(AirportNew[] airports, Map<String, Integer> indexByIcao, int[] offsets, int[] targets,
+                       double[] weights, Flight[] flights, ToDoubleBiFunction<AirportNew, AirportNew> distance) {
+        this.airports = airports;
+        this.indexByIcao = indexByIcao;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.flights = flights;
+        this.distance = distance;
+    }
+
+    /**
+     * Builds a graph from all airports and flights.
+     * Flights whose departure or arrival airport is unknown are ignored.
+     *
+     * @param airports all airports, they become the nodes of the graph
+     * @param flights  all flights, they become the edges of the graph
+     * @param distance the weight function, usually {@code AirportNewService::distance}
+     * @return the graph
+     */
+    public static RouteGraph build(Collection<AirportNew> airports, Collection<Flight> flights,
+                                   ToDoubleBiFunction<AirportNew, AirportNew> distance) {
+        AirportNew[] nodes = airports.toArray(new AirportNew[0]);
+        Map<String, Integer> index = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) {
+            index.put(nodes[i].getIcaoCode(), i);
+        }
+
+        // count the outgoing flights of every airport, then lay them out row by row
+        int[] offsets = new int[nodes.length + 1];
+        for (Flight flight : flights) {
+            Integer from = index.get(flight.getDepartureAirportIcao());
+            if (from != null && index.containsKey(flight.getArrivalAirportIcao())) {
+                offsets[from + 1]++;
+            }
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int edgeCount = offsets[nodes.length];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        Flight[] edgeFlights = new Flight[edgeCount];
+        int[] next = Arrays.copyOf(offsets, nodes.length);
+        for (Flight flight : flights) {
+            Integer from = index.get(flight.getDepartureAirportIcao());
+            Integer to = index.get(flight.getArrivalAirportIcao());
+            if (from == null || to == null) {
+                continue;
+            }
+            int edge = next[from]++;
+            targets[edge] = to;
+            weights[edge] = distance.applyAsDouble(nodes[from], nodes[to]);
+            edgeFlights[edge] = flight;
+        }
+
+        return new RouteGraph(nodes, index, offsets, targets, weights, edgeFlights, distance);
+    }
+
+    public int airportCount() {
+        return airports.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return the index of the airport, or -1 if the airport is not part of the graph
+     */
+    public int indexOf(String icaoCode) {
+        Integer index = indexByIcao.get(icaoCode);
+        return index != null ? index : -1;
+    }
+
+    public AirportNew airport(int index) {
+        return airports[index];
+    }
+
+    public int edgeStart(int airportIndex) {
+        return offsets[airportIndex];
+    }
+
+    public int edgeEnd(int airportIndex) {
+        return offsets[airportIndex + 1];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public double weight(int edge) {
+        return weights[edge];
+    }
+
+    public Flight flight(int edge) {
+        return flights[edge];
+    }
+
+    /**
+     * @return the index of the departure airport of the edge
+     */
+    public int source(int edge) {
+        return incoming().sources()[edge];
+    }
+
+    public int incomingStart(int airportIndex) {
+        return incoming().offsets()[airportIndex];
+    }
+
+    public int incomingEnd(int airportIndex) {
+        return incoming().offsets()[airportIndex + 1];
+    }
+
+    /**
+     * @return the edge at position {@code i} of the incoming flights, see {@link #incomingStart(int)}
+     */
+    public int incomingEdge(int i) {
+        return incoming().edges()[i];
+    }
+
+    // The graph is immutable, so if two threads race here they build the same index and either one may win
+    private Incoming incoming() {
+        Incoming result = incoming;
+        if (result == null) {
+            int[] sources = new int[targets.length];
+            int[] incomingOffsets = new int[airports.length + 1];
+            for (int from = 0; from < airports.length; from++) {
+                for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+                    sources[edge] = from;
+                    incomingOffsets[targets[edge] + 1]++;
+                }
+            }
+            for (int i = 0; i < airports.length; i++) {
+                incomingOffsets[i + 1] += incomingOffsets[i];
+            }
+            int[] incomingEdges = new int[targets.length];
+            int[] next = Arrays.copyOf(incomingOffsets, airports.length);
+            for (int edge = 0; edge < targets.length; edge++) {
+                incomingEdges[next[targets[edge]]++] = edge;
+            }
+            result = new Incoming(incomingOffsets, incomingEdges, sources);
+            incoming = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a graph where the given flight is added, or replaced if a flight with the same id already exists.
+     * If one of the airports of the flight is unknown, the flight is only removed.
+     */
+    public RouteGraph withFlight(Flight flight) {
+        RouteGraph graph = withoutFlight(flight.getId());
+        int from = graph.indexOf(flight.getDepartureAirportIcao());
+        int to = graph.indexOf(flight.getArrivalAirportIcao());
+        if (from < 0 || to < 0) {
+            return graph;
+        }
+        return graph.insertEdge(from, to, flight);
+    }
+
+    /**
+     * Returns a graph without the flight with the given id, or this graph if there is no such flight.
+     */
+    public RouteGraph withoutFlight(Long flightId) {
+        if (flightId == null) {
+            return this;
+        }
+        for (int edge = 0; edge < flights.length; edge++) {
+            if (flightId.equals(flights[edge].getId())) {
+                return removeEdge(edge);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a graph where the given airport is added, or replaced if it already exists.
+     * When an existing airport is replaced, the weights of all its flights are recomputed,
+     * since its coordinates might have changed.
+     */
+    public RouteGraph withAirport(AirportNew airport) {
+        Integer existing = indexByIcao.get(airport.getIcaoCode());
+        if (existing == null) {
+            AirportNew[] newAirports = Arrays.copyOf(airports, airports.length + 1);
+            newAirports[airports.length] = airport;
+            Map<String, Integer> newIndex = new HashMap<>(indexByIcao);
+            newIndex.put(airport.getIcaoCode(), airports.length);
+            int[] newOffsets = Arrays.copyOf(offsets, offsets.length + 1);
+            newOffsets[offsets.length] = targets.length;
+            return new RouteGraph(newAirports, newIndex, newOffsets, targets, weights, flights, distance);
+        }
+
+        int node = existing;
+        AirportNew[] newAirports = airports.clone();
+        newAirports[node] = airport;
+        double[] newWeights = weights.clone();
+        for (int from = 0; from < newAirports.length; from++) {
+            for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+                if (from == node || targets[edge] == node) {
+                    newWeights[edge] = distance.applyAsDouble(newAirports[from], newAirports[targets[edge]]);
+                }
+            }
+        }
+        return new RouteGraph(newAirports, indexByIcao, offsets, targets, newWeights, flights, distance);
+    }
+
+    /**
+     * Returns a graph without the given airport and its flights, or this graph if the airport is unknown.
+     * Airports are rarely deleted, so the graph is simply rebuilt from the remaining nodes and edges.
+     * The flights are dropped for good: adding the airport again doesn't bring them back. The flights
+     * table references the airports, so an airport that still has flights can't be deleted anyway.
+     */
+    public RouteGraph withoutAirport(String icaoCode) {
+        Integer removed = indexByIcao.get(icaoCode);
+        if (removed == null) {
+            return this;
+        }
+        List<AirportNew> remaining = new ArrayList<>(airports.length - 1);
+        for (AirportNew airport : airports) {
+            if (!Objects.equals(airport.getIcaoCode(), icaoCode)) {
+                remaining.add(airport);
+            }
+        }
+        return build(remaining, Arrays.asList(flights), distance);
+    }
+
+    /**
+     * Returns a graph with the changes applied in order: the same airports and flights as applying them one
+     * after the other with the {@code with...}/{@code without...} methods. A single change is applied that way;
+     * several are applied to the airports and flights, and the graph is rebuilt once rather than copied once
+     * per change.
+     */
+    public RouteGraph withChanges(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        if (changes.size() == 1) {
+            return with(changes.get(0));
+        }
+
+        Map<String, AirportNew> newAirports = new LinkedHashMap<>(airports.length * 2);
+        for (AirportNew airport : airports) {
+            newAirports.put(airport.getIcaoCode(), airport);
+        }
+        Map<Long, Flight> newFlights = new LinkedHashMap<>(flights.length * 2);
+        // flights without an id can't be replaced or deleted, they are only kept
+        List<Flight> unidentified = new ArrayList<>();
+        for (Flight flight : flights) {
+            if (flight.getId() != null) {
+                newFlights.put(flight.getId(), flight);
+            } else {
+                unidentified.add(flight);
+            }
+        }
+
+        for (Change change : changes) {
+            if (change instanceof FlightSaved saved) {
+                Flight flight = saved.flight();
+                boolean known = newAirports.containsKey(flight.getDepartureAirportIcao())
+                        && newAirports.containsKey(flight.getArrivalAirportIcao());
+                if (flight.getId() == null) {
+                    if (known) {
+                        unidentified.add(flight);
+                    }
+                } else if (known) {
+                    newFlights.put(flight.getId(), flight);
+                } else {
+                    newFlights.remove(flight.getId());
+                }
+            } else if (change instanceof FlightDeleted deleted) {
+                if (deleted.flightId() != null) {
+                    newFlights.remove(deleted.flightId());
+                }
+            } else if (change instanceof AirportSaved saved) {
+                newAirports.put(saved.airport().getIcaoCode(), saved.airport());
+            } else if (change instanceof AirportDeleted deleted && newAirports.remove(deleted.icaoCode()) != null) {
+                String icaoCode = deleted.icaoCode();
+                newFlights.values().removeIf(flight -> icaoCode.equals(flight.getDepartureAirportIcao())
+                        || icaoCode.equals(flight.getArrivalAirportIcao()));
+                unidentified.removeIf(flight -> icaoCode.equals(flight.getDepartureAirportIcao())
+                        || icaoCode.equals(flight.getArrivalAirportIcao()));
+            }
+        }
+
+        List<Flight> remaining = new ArrayList<>(newFlights.values());
+        remaining.addAll(unidentified);
+        return build(newAirports.values(), remaining, distance);
+    }
+
+    private RouteGraph with(Change change) {
+        if (change instanceof FlightSaved saved) {
+            return withFlight(saved.flight());
+        }
+        if (change instanceof FlightDeleted deleted) {
+            return withoutFlight(deleted.flightId());
+        }
+        if (change instanceof AirportSaved saved) {
+            return withAirport(saved.airport());
+        }
+        return withoutAirport(((AirportDeleted) change).icaoCode());
+    }
+
+    private RouteGraph insertEdge(int from, int to, Flight flight) {
+        int position = offsets[from + 1];
+        int[] newTargets = insert(targets, position, to);
+        double[] newWeights = new double[weights.length + 1];
+        System.arraycopy(weights, 0, newWeights, 0, position);
+        newWeights[position] = distance.applyAsDouble(airports[from], airports[to]);
+        System.arraycopy(weights, position, newWeights, position + 1, weights.length - position);
+        Flight[] newFlights = new Flight[flights.length + 1];
+        System.arraycopy(flights, 0, newFlights, 0, position);
+        newFlights[position] = flight;
+        System.arraycopy(flights, position, newFlights, position + 1, flights.length - position);
+
+        int[] newOffsets = offsets.clone();
+        for (int i = from + 1; i < newOffsets.length; i++) {
+            newOffsets[i]++;
+        }
+        return new RouteGraph(airports, indexByIcao, newOffsets, newTargets, newWeights, newFlights, distance);
+    }
+
+    private RouteGraph removeEdge(int edge) {
+        int[] newTargets = remove(targets, edge);
+        double[] newWeights = new double[weights.length - 1];
+        System.arraycopy(weights, 0, newWeights, 0, edge);
+        System.arraycopy(weights, edge + 1, newWeights, edge, weights.length - edge - 1);
+        Flight[] newFlights = new Flight[flights.length - 1];
+        System.arraycopy(flights, 0, newFlights, 0, edge);
+        System.arraycopy(flights, edge + 1, newFlights, edge, flights.length - edge - 1);
+
+        int[] newOffsets = offsets.clone();
+        for (int i = 1; i < newOffsets.length; i++) {
+            if (newOffsets[i] > edge) {
+                newOffsets[i]--;
+            }
+        }
+        return new RouteGraph(airports, indexByIcao, newOffsets, newTargets, newWeights, newFlights, distance);
+    }
+
+    private static int[] insert(int[] array, int position, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        return result;
+    }
+
+    private static int[] remove(int[] array, int position) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+        return result;
+    }
+}
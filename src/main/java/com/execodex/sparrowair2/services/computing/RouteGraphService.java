@@ -0,0 +1,152 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.repositories.AirportNewRepository;
+import com.execodex.sparrowair2.repositories.FlightRepository;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the {@link RouteGraph} resident in memory, so route queries never have to touch the database.
+ * <p>
+ * The graph is loaded once when the application is ready and then kept up to date by
+ * {@code FlightService} and {@code AirportNewService}, which report every change they make.
+ * Changes are applied copy-on-write: readers always see a complete, consistent snapshot.
+ */
+@Service
+public class RouteGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteGraphService.class);
+    private final AirportNewRepository airportNewRepository;
+    private final FlightRepository flightRepository;
+    private final AirportNewService airportNewService;
+
+    private final AtomicReference<RouteGraph> current = new AtomicReference<>();
+    private final AtomicReference<Mono<RouteGraph>> loading = new AtomicReference<>();
+    // changes reported while a load is in progress, replayed on top of the freshly loaded graph in one rebuild
+    private final List<RouteGraph.Change> pendingChanges = new ArrayList<>();
+
+    // AirportNewService reports its changes to this service, hence the lazy reference back to it
+    public RouteGraphService(AirportNewRepository airportNewRepository, FlightRepository flightRepository,
+                             @Lazy AirportNewService airportNewService) {
+        this.airportNewRepository = airportNewRepository;
+        this.flightRepository = flightRepository;
+        this.airportNewService = airportNewService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload().subscribe(
+                graph -> logger.info("Route graph loaded with {} airports and {} flights", graph.airportCount(), graph.edgeCount()),
+                e -> logger.error("Error loading the route graph", e));
+    }
+
+    /**
+     * Returns the current graph, loading it first if this has not happened yet.
+     *
+     * @return A Mono emitting the current route graph
+     */
+    public Mono<RouteGraph> getGraph() {
+        return Mono.defer(() -> {
+            RouteGraph graph = current.get();
+            return graph != null ? Mono.just(graph) : joinOrStartLoad();
+        });
+    }
+
+    /**
+     * Rebuilds the graph from the database, e.g. after data was written without going through the services.
+     *
+     * @return A Mono emitting the reloaded route graph
+     */
+    public Mono<RouteGraph> reload() {
+        return Mono.defer(() -> {
+            Mono<RouteGraph> inProgress = loading.get();
+            if (inProgress == null) {
+                return joinOrStartLoad();
+            }
+            // the load in progress might have read the database before the caller's changes, so load again after it
+            return inProgress.onErrorResume(e -> Mono.empty()).then(joinOrStartLoad());
+        });
+    }
+
+    // Concurrent callers share the same load instead of each reading all airports and flights
+    private Mono<RouteGraph> joinOrStartLoad() {
+        return Mono.defer(() -> {
+            Mono<RouteGraph> inProgress = loading.get();
+            if (inProgress != null) {
+                return inProgress;
+            }
+            Mono<RouteGraph> load = loadFromDatabase()
+                    .doOnTerminate(() -> loading.set(null))
+                    .cache();
+            if (!loading.compareAndSet(null, load)) {
+                // another caller started a load in the meantime
+                return joinOrStartLoad();
+            }
+            return load;
+        });
+    }
+
+    private Mono<RouteGraph> loadFromDatabase() {
+        Mono<Void> startRecording = Mono.fromRunnable(() -> {
+            synchronized (pendingChanges) {
+                pendingChanges.clear();
+            }
+        });
+        return startRecording.then(Mono.zip(
+                        airportNewRepository.findAll().collectList(),
+                        flightRepository.findAll().collectList()))
+                .map(tuple -> RouteGraph.build(tuple.getT1(), tuple.getT2(), airportNewService::distance))
+                .map(graph -> {
+                    synchronized (pendingChanges) {
+                        graph = graph.withChanges(pendingChanges);
+                        pendingChanges.clear();
+                        current.set(graph);
+                    }
+                    return graph;
+                })
+                .doOnError(e -> logger.error("Error loading the route graph", e));
+    }
+
+    // Called after a flight was created or updated
+    public void flightSaved(Flight flight) {
+        apply(new RouteGraph.FlightSaved(flight));
+    }
+
+    // Called after a flight was deleted
+    public void flightDeleted(Long flightId) {
+        apply(new RouteGraph.FlightDeleted(flightId));
+    }
+
+    // Called after an airport was created or updated
+    public void airportSaved(AirportNew airport) {
+        apply(new RouteGraph.AirportSaved(airport));
+    }
+
+    // Called after an airport was deleted
+    public void airportDeleted(String icaoCode) {
+        apply(new RouteGraph.AirportDeleted(icaoCode));
+    }
+
+    // All changes are idempotent, so applying one both to the old graph and again on a freshly loaded one is harmless
+    private void apply(RouteGraph.Change change) {
+        synchronized (pendingChanges) {
+            if (loading.get() != null) {
+                pendingChanges.add(change);
+            }
+        }
+        List<RouteGraph.Change> changes = List.of(change);
+        current.updateAndGet(graph -> graph == null ? null : graph.withChanges(changes));
+    }
+}
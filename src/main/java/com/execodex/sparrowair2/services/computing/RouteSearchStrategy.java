@@ -0,0 +1,31 @@
+package com.execodex.sparrowair2.services.computing;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * How {@link FlightsComputing#getRoute(com.execodex.sparrowair2.entities.skybrary.AirportNew,
+ * com.execodex.sparrowair2.entities.skybrary.AirportNew, RouteSearchStrategy, int)} looks for a route.
+ */
+public enum RouteSearchStrategy {
+    // breadth-first search from the departure airport, returns the route with the fewest legs
+    BFS,
+    // breadth-first search from both ends, meeting in the middle, returns the route with the fewest legs
+    BIDIRECTIONAL,
+    // the original depth-first search, returns the first route found, querying the database while it searches
+    DFS;
+
+    /**
+     * @param value the strategy name, case-insensitive
+     * @return the strategy
+     * @throws IllegalArgumentException if there is no strategy with this name
+     */
+    public static RouteSearchStrategy fromParameter(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown route search strategy '" + value + "', expected one of "
+                    + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+        }
+    }
+}
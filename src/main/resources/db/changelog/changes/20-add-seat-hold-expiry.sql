@@ -0,0 +1,8 @@
+-- liquibase formatted sql
+
+-- changeset execodex:20
+-- Seats in HOLD status are held until hold_expires_at
+ALTER TABLE seats ADD COLUMN hold_expires_at TIMESTAMP;
+
+-- Finding the holds to release after a restart only looks at held seats
+CREATE INDEX idx_seats_hold_expires_at ON seats (hold_expires_at) WHERE status = 'HOLD';
@@ -0,0 +1,21 @@
+-- liquibase formatted sql
+
+-- changeset execodex:21
+-- Row, letter and position of a seat as columns, so seats can be filtered by them without parsing seat_number
+ALTER TABLE seats ADD COLUMN row_num SMALLINT;
+ALTER TABLE seats ADD COLUMN seat_letter CHAR(1);
+ALTER TABLE seats ADD COLUMN position VARCHAR(10);
+
+-- Existing seats, from seat numbers such as '15A, ECONOMY, Window' (or just '15A')
+UPDATE seats
+SET row_num     = substring(seat_number FROM '^([0-9]{1,4})[A-Z]')::SMALLINT,
+    seat_letter = substring(seat_number FROM '^[0-9]{1,4}([A-Z])'),
+    position    = CASE lower(trim(split_part(seat_number, ',', 3)))
+                      WHEN 'window' THEN 'WINDOW'
+                      WHEN 'middle' THEN 'MIDDLE'
+                      WHEN 'aisle' THEN 'AISLE'
+                      WHEN 'unknown' THEN 'UNKNOWN'
+                  END;
+
+-- Seats of a flight by class and status, e.g. the available economy seats, are an index scan
+CREATE INDEX idx_seats_flight_class_status ON seats (flight_id, class, status);
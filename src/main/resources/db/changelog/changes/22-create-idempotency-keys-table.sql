@@ -0,0 +1,20 @@
+-- liquibase formatted sql
+
+-- changeset execodex:22
+-- Responses of requests sent with an Idempotency-Key, so a retry gets the same response instead of running again.
+-- status_code is NULL while the first request is being processed.
+CREATE TABLE idempotency_keys (
+    id BIGSERIAL PRIMARY KEY,
+    scope VARCHAR(100) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status_code INT,
+    content_type VARCHAR(100),
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_idempotency_keys_scope_key UNIQUE (scope, idempotency_key)
+);
+
+-- Expired keys are deleted periodically
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
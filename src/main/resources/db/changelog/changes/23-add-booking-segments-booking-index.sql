@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset execodex:23
+-- The segments of a booking are cancelled together, by booking ID
+CREATE INDEX idx_booking_segments_booking_id ON booking_segments (booking_id);
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset execodex:24
+-- Fingerprint of the fields of a registration as last loaded from the FAA MASTER file, so that a new file only
+-- writes the rows that changed; NULL for rows written otherwise
+ALTER TABLE faa_aircraft_registration ADD COLUMN row_hash BIGINT;
@@ -3,6 +3,7 @@ package com.execodex.sparrowair2.routes;
 import com.execodex.sparrowair2.entities.BookingSegment;
 import com.execodex.sparrowair2.handlers.BookingSegmentHandler;
 import com.execodex.sparrowair2.services.BookingSegmentService;
+import com.execodex.sparrowair2.services.IdempotencyService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
@@ -18,6 +19,9 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
@@ -30,6 +34,9 @@ public class BookingSegmentRouteTest {
     @MockBean
     private BookingSegmentService bookingSegmentService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Test
     public void testGetAllBookingSegments() {
         // Create test booking segments
@@ -151,4 +158,33 @@ public class BookingSegmentRouteTest {
                 .expectBody(BookingSegment.class)
                 .isEqualTo(updatedBookingSegment);
     }
+
+    @Test
+    public void testRetryWithIdempotencyKeyGetsTheStoredResponse() {
+        BookingSegment bookingSegment = BookingSegment.builder()
+                .bookingId(1L)
+                .flightId(100L)
+                .seatId(200L)
+                .fareClass("Economy")
+                .build();
+
+        // Mock the response stored for the key by the first request
+        when(idempotencyService.execute(eq("POST /booking-segments/reserve"), eq("retry-1"), any(), any(), any()))
+                .thenReturn(Mono.just(new IdempotencyService.StoredResponse(201, MediaType.APPLICATION_JSON_VALUE,
+                        "{\"id\":1,\"bookingId\":1,\"flightId\":100,\"seatId\":200,\"fareClass\":\"Economy\"}", true)));
+
+        webTestClient.post()
+                .uri("/booking-segments/reserve")
+                .header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(bookingSegment), BookingSegment.class)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Idempotent-Replayed", "true")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.seatId").isEqualTo(200);
+
+        verify(bookingSegmentService, never()).reserveBookingSegment(any(BookingSegment.class));
+    }
 }
@@ -0,0 +1,88 @@
+package com.execodex.sparrowair2.routes;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import com.execodex.sparrowair2.handlers.FaaAircraftRegistrationHandler;
+import com.execodex.sparrowair2.model.ImportJobProgress;
+import com.execodex.sparrowair2.services.FaaAircraftRegistrationService;
+import com.execodex.sparrowair2.services.ImportJob;
+import com.execodex.sparrowair2.services.ImportJobProperties;
+import com.execodex.sparrowair2.services.ImportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class FaaAircraftRegistrationRoutesTest {
+
+    private static final String MASTER_FILE = "stuff/data/faa/master-100.txt";
+
+    private WebTestClient webTestClient;
+    private FaaAircraftRegistrationService mockService;
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        // one import at a time, the others are queued
+        importJobService = new ImportJobService(new ImportJobProperties(1, Duration.ofHours(1), Duration.ofMinutes(5)));
+        mockService = Mockito.mock(FaaAircraftRegistrationService.class);
+
+        FaaAircraftRegistrationRoutes routes = new FaaAircraftRegistrationRoutes(
+                new FaaAircraftRegistrationHandler(mockService, importJobService));
+
+        webTestClient = WebTestClient
+                .bindToRouterFunction(routes.faaAircraftRegistrationRoutesFunction())
+                .build();
+    }
+
+    @Test
+    void testUploadQueuedBehindRunningImportReadsTheWholeFile() throws IOException {
+        // the rows the import reads are all written
+        when(mockService.loadFaaAircraftRegistrations(any()))
+                .thenAnswer(invocation -> invocation.<Flux<FaaAircraftRegistration>>getArgument(0).count());
+        long rows = new ClassPathResource(MASTER_FILE).getContentAsString(StandardCharsets.UTF_8).lines().skip(1).count();
+
+        Sinks.One<Long> running = Sinks.one();
+        importJobService.submit("faa-aircraft-registrations", importJob -> running.asMono());
+
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ClassPathResource(MASTER_FILE));
+        ImportJobProgress queued = webTestClient.post()
+                .uri("/faa-aircraft-registrations/upload")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(ImportJobProgress.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(ImportJob.Status.QUEUED, queued.getStatus());
+
+        // the upload was answered, its job only starts now
+        running.tryEmitValue(0L);
+
+        StepVerifier.create(importJobService.getJob(queued.getId()).completion())
+                .assertNext(job -> {
+                    ImportJobProgress progress = job.progress(importJobService.now());
+                    assertEquals(ImportJob.Status.COMPLETED, progress.getStatus());
+                    assertEquals(rows, progress.getRowsRead());
+                    assertEquals(rows, progress.getRowsWritten());
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+}
@@ -5,6 +5,7 @@ import com.execodex.sparrowair2.entities.*;
 import com.execodex.sparrowair2.entities.skybrary.Aircraft;
 import com.execodex.sparrowair2.entities.skybrary.AirportNew;
 import com.execodex.sparrowair2.repositories.*;
+import com.execodex.sparrowair2.services.computing.RouteGraphService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +41,9 @@ public class FlightsComputingRoutesTest extends AbstractTestcontainersTest {
     @Autowired
     private AirlineFleetRepository airlineFleetRepository;
 
+    @Autowired
+    private RouteGraphService routeGraphService;
+
     @BeforeEach
     public void setUp() {
         // Clear existing flights
@@ -221,6 +225,10 @@ public class FlightsComputingRoutesTest extends AbstractTestcontainersTest {
         flightRepository.findByAirlineIcaoCodeAndFlightNumber("AFR", "AF789")
                 .switchIfEmpty(Mono.defer(() -> flightRepository.save(flight3)))
                 .block();
+
+        // The flights above were written straight through the repositories, bypassing FlightService,
+        // so the in-memory route graph has to be reloaded to see them
+        routeGraphService.reload().block();
     }
 
     @Test
@@ -272,6 +280,47 @@ public class FlightsComputingRoutesTest extends AbstractTestcontainersTest {
                 });
     }
 
+    @Test
+    public void testGetAirportToAirportsFlightsAsNdjson() {
+        // One line per departure airport, with its destinations from a single grouped query
+        List<Map> lines = webTestClient.get()
+                .uri("/flights-computing/airport-to-airports")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Map.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assert lines != null;
+        assert lines.contains(Map.of("EGLL", List.of("KJFK", "LFPG"))) : "Expected EGLL -> [KJFK, LFPG], got " + lines;
+        assert lines.contains(Map.of("LFPG", List.of("KJFK"))) : "Expected LFPG -> [KJFK], got " + lines;
+        assert lines.size() == 2 : "Expected one line per departure airport, got " + lines;
+    }
+
+    @Test
+    public void testGetAirportsToFlights() {
+        webTestClient.get()
+                .uri("/flights-computing/airports-to-flights")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Map.class)
+                .consumeWith(response -> {
+                    List<Map> airports = response.getResponseBody();
+                    assert airports != null && airports.size() == 2 : "Expected one entry per departure airport, got " + airports;
+                    for (Map<String, List<?>> airport : airports) {
+                        if (airport.containsKey("EGLL")) {
+                            assert airport.get("EGLL").size() == 2 : "Expected the two flights from EGLL";
+                        } else {
+                            assert airport.get("LFPG").size() == 1 : "Expected the flight from LFPG";
+                        }
+                    }
+                });
+    }
+
     @Test
     public void testGetRoute() {
         // Test route from London to Paris
@@ -334,6 +383,41 @@ public class FlightsComputingRoutesTest extends AbstractTestcontainersTest {
                 });
     }
 
+    @Test
+    public void testGetRouteWithStrategy() {
+        // Both fewest-legs strategies pick the direct flight from London to New York
+        for (String strategy : List.of("bfs", "bidirectional")) {
+            webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/flights-computing/route")
+                            .queryParam("departure", "EGLL")
+                            .queryParam("arrival", "KJFK")
+                            .queryParam("strategy", strategy)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Flight.class)
+                    .consumeWith(response -> {
+                        List<Flight> flights = response.getResponseBody();
+                        assert flights != null && flights.size() == 1 : "Expected the direct flight with strategy " + strategy;
+                        assert flights.get(0).getFlightNumber().equals("BA456") : "Expected flight BA456";
+                    });
+        }
+
+        // An unknown strategy is rejected
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/flights-computing/route")
+                        .queryParam("departure", "EGLL")
+                        .queryParam("arrival", "KJFK")
+                        .queryParam("strategy", "astar")
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     public void testGetRouteMinimumCost() {
         // Test minimum cost route from London to Paris
@@ -395,4 +479,32 @@ public class FlightsComputingRoutesTest extends AbstractTestcontainersTest {
                         "Expected the route to end at KJFK";
                 });
     }
+
+    @Test
+    public void testGetKShortestRoutesRejectsMaxLegsAboveMaxHops() {
+        // flights-computing.max-hops is 6; a larger maxLegs, up to the largest int, is a bad request rather than a search
+        for (String maxLegs : List.of("7", String.valueOf(Integer.MAX_VALUE))) {
+            webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/flights-computing/k-shortest-routes")
+                            .queryParam("departure", "EGLL")
+                            .queryParam("arrival", "KJFK")
+                            .queryParam("maxLegs", maxLegs)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/flights-computing/k-shortest-routes")
+                        .queryParam("departure", "EGLL")
+                        .queryParam("arrival", "KJFK")
+                        .queryParam("maxLegs", "6")
+                        .build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
 }
@@ -22,7 +22,7 @@ class AirportNew2ServiceTest {
                 .longitude(-73.8740)
                 .build();
 
-        AirportNewService airportService = new AirportNewService(null);
+        AirportNewService airportService = new AirportNewService(null, null);
 
         double distance = airportService.distance(airport21, airport);
 
@@ -44,7 +44,7 @@ class AirportNew2ServiceTest {
                 .longitude(139.7798)
                 .build();
 
-        AirportNewService airportService = new AirportNewService(null);
+        AirportNewService airportService = new AirportNewService(null, null);
 
         double distance = airportService.distance(airport21, airport);
 
@@ -60,7 +60,7 @@ class AirportNew2ServiceTest {
                 .longitude(-87.9073)
                 .build();
 
-        AirportNewService airportService = new AirportNewService(null);
+        AirportNewService airportService = new AirportNewService(null, null);
 
         double distance = airportService.distance(airport, airport);
 
@@ -84,7 +84,7 @@ class AirportNew2ServiceTest {
                 .build();
 
 
-        AirportNewService airportService = new AirportNewService(null);
+        AirportNewService airportService = new AirportNewService(null, null);
         double distance = airportService.distance(airport21, airport);
         assertTrue(distance > 0);
         assertEquals(1600, distance, 50.0);
@@ -0,0 +1,56 @@
+package com.execodex.sparrowair2.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingReferenceGeneratorTest {
+
+    private static final Clock NOW = Clock.fixed(Instant.parse("2026-03-01T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void referencesDecodeToTheirId() {
+        BookingReferenceGenerator generator = new BookingReferenceGenerator(5, NOW);
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.nextId();
+            String reference = BookingReferenceGenerator.encode(id);
+            assertEquals(BookingReferenceGenerator.REFERENCE_LENGTH, reference.length());
+            assertEquals(id, BookingReferenceGenerator.decode(reference));
+            assertEquals(id, BookingReferenceGenerator.decode(reference.toLowerCase()));
+        }
+        // legacy references are no generated references
+        assertEquals(-1, BookingReferenceGenerator.decode("BK12345"));
+        assertEquals(-1, BookingReferenceGenerator.decode("BK12345-AB"));
+        assertEquals(-1, BookingReferenceGenerator.decode(null));
+    }
+
+    @Test
+    void idsStayUniqueWhenTheSequenceOfASecondIsUsedUp() {
+        BookingReferenceGenerator generator = new BookingReferenceGenerator(0, NOW);
+        Set<Long> ids = new HashSet<>();
+        long previous = -1;
+        // more than a second's worth with the clock standing still
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void nodesGenerateDifferentIdsInTheSameSecond() {
+        long first = new BookingReferenceGenerator(1, NOW).nextId();
+        long second = new BookingReferenceGenerator(2, NOW).nextId();
+        assertTrue(first != second);
+        assertThrows(IllegalArgumentException.class, () -> new BookingReferenceGenerator(64, NOW));
+    }
+}
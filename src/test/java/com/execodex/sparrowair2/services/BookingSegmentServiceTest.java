@@ -5,22 +5,35 @@ import com.execodex.sparrowair2.entities.Flight;
 import com.execodex.sparrowair2.entities.Seat;
 import com.execodex.sparrowair2.entities.SeatClass;
 import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.model.AdjacentSeatsRequest;
+import com.execodex.sparrowair2.model.SeatPreference;
 import com.execodex.sparrowair2.repositories.BookingSegmentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.ReactiveTransaction;
 import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class BookingSegmentServiceTest {
@@ -37,6 +50,12 @@ class BookingSegmentServiceTest {
     @Mock
     private ReactiveTransactionManager transactionManager;
 
+    @Spy
+    private SeatInventory seatInventory = new SeatInventory();
+
+    @Mock
+    private SeatAssignmentService seatAssignmentService;
+
     @InjectMocks
     private BookingSegmentService bookingSegmentService;
 
@@ -84,14 +103,8 @@ class BookingSegmentServiceTest {
 
     @Test
     void testDeleteBookingSegment_Success() {
-        // Mock repository findById to return the test booking segment
-        when(bookingSegmentRepository.findById(1L)).thenReturn(Mono.just(testBookingSegment));
-
-        // Mock seatService.updateSeatStatus to return the test seat
-        when(seatService.updateSeatStatus(anyLong(), anyString())).thenReturn(Mono.just(testSeat));
-
-        // Mock repository delete to return empty Mono
-        when(bookingSegmentRepository.delete(any(BookingSegment.class))).thenReturn(Mono.empty());
+        // Mock the statement deleting the segment and releasing its seat
+        when(bookingSegmentRepository.deleteAndReleaseSeat(1L)).thenReturn(Mono.just(testBookingSegment));
 
         // Test the deleteBookingSegment method
         StepVerifier.create(bookingSegmentService.deleteBookingSegment(1L))
@@ -119,38 +132,25 @@ class BookingSegmentServiceTest {
                 .seatClass(SeatClass.ECONOMY)
                 .status(SeatStatus.BOOKED)
                 .build();
+        seatInventory.load(201L, List.of(bookedSeat));
 
-        Seat availableSeat = Seat.builder()
-                .id(301L)
-                .flightId(201L)
-                .seatNumber("16A")
-                .seatClass(SeatClass.ECONOMY)
-                .status(SeatStatus.AVAILABLE)
-                .build();
-
-        // Mock repository findById to return the booked segment
-        when(bookingSegmentRepository.findById(2L)).thenReturn(Mono.just(bookedSegment));
-
-        // Mock seatService.updateSeatStatus to verify it's called with the correct parameters
-        // and return the seat with AVAILABLE status
-        when(seatService.updateSeatStatus(301L, "AVAILABLE")).thenReturn(Mono.just(availableSeat));
-
-        // Mock repository delete to return empty Mono
-        when(bookingSegmentRepository.delete(any(BookingSegment.class))).thenReturn(Mono.empty());
+        // Mock the statement deleting the segment and releasing its seat
+        when(bookingSegmentRepository.deleteAndReleaseSeat(2L)).thenReturn(Mono.just(bookedSegment));
 
         // Test the deleteBookingSegment method
         StepVerifier.create(bookingSegmentService.deleteBookingSegment(2L))
                 .expectNext(bookedSegment)
                 .verifyComplete();
 
-        // Verify that seatService.updateSeatStatus was called with the correct parameters
-        org.mockito.Mockito.verify(seatService).updateSeatStatus(301L, "AVAILABLE");
+        // The seat is released by the same statement, not by a separate update, and is available in the inventory again
+        verify(seatService, never()).updateSeatStatus(anyLong(), anyString());
+        assertTrue(seatInventory.isAvailable(201L, 301L));
     }
 
     @Test
     void testDeleteBookingSegment_NotFound() {
-        // Mock repository findById to return empty Mono (segment not found)
-        when(bookingSegmentRepository.findById(999L)).thenReturn(Mono.empty());
+        // Mock the statement deleting nothing (segment not found)
+        when(bookingSegmentRepository.deleteAndReleaseSeat(999L)).thenReturn(Mono.empty());
 
         // Test the deleteBookingSegment method with non-existent ID
         StepVerifier.create(bookingSegmentService.deleteBookingSegment(999L))
@@ -158,6 +158,32 @@ class BookingSegmentServiceTest {
                 .verify();
     }
 
+    @Test
+    void testCancelBookingSegments_ReleasesEverySeat() {
+        Seat otherSeat = Seat.builder()
+                .id(301L)
+                .flightId(200L)
+                .seatNumber("15B")
+                .seatClass(SeatClass.ECONOMY)
+                .status(SeatStatus.RESERVED)
+                .build();
+        testSeat.setStatus(SeatStatus.RESERVED);
+        seatInventory.load(200L, List.of(testSeat, otherSeat));
+        BookingSegment otherSegment = BookingSegment.builder()
+                .id(2L)
+                .bookingId(100L)
+                .flightId(200L)
+                .seatId(301L)
+                .build();
+        when(bookingSegmentRepository.deleteByBookingIdAndReleaseSeats(100L))
+                .thenReturn(Flux.just(testBookingSegment, otherSegment));
+
+        StepVerifier.create(bookingSegmentService.cancelBookingSegments(100L))
+                .expectNext(testBookingSegment, otherSegment)
+                .verifyComplete();
+        assertEquals(2, seatInventory.available(200L, SeatClass.ECONOMY));
+    }
+
     @Test
     void testGetBookingSegmentByFlightIdAndSeatId_Success() {
         // Mock repository findByFlightIdAndSeatId to return the test booking segment
@@ -178,13 +204,7 @@ class BookingSegmentServiceTest {
         // Mock seatService to return the test seat
         when(seatService.getSeatById(300L)).thenReturn(Mono.just(testSeat));
 
-        // Mock repository findByFlightIdAndSeatId to return empty Mono (no existing booking segment)
-        when(bookingSegmentRepository.findByFlightIdAndSeatId(200L, 300L)).thenReturn(Mono.empty());
-
-        // Mock repository insert to return the test booking segment
-        when(bookingSegmentRepository.insert(any(BookingSegment.class))).thenReturn(Mono.just(testBookingSegment));
-
-        // Mock seatService.updateSeatStatus to return a seat with RESERVED status
+        // Mock seatService.reserveSeatIfAvailable to return a seat with RESERVED status
         Seat reservedSeat = Seat.builder()
                 .id(300L)
                 .flightId(200L)
@@ -192,7 +212,10 @@ class BookingSegmentServiceTest {
                 .seatClass(SeatClass.ECONOMY)
                 .status(SeatStatus.RESERVED)
                 .build();
-        when(seatService.updateSeatStatus(300L, "RESERVED")).thenReturn(Mono.just(reservedSeat));
+        when(seatService.reserveSeatIfAvailable(200L, 300L)).thenReturn(Mono.just(reservedSeat));
+
+        // Mock repository insert to return the test booking segment
+        when(bookingSegmentRepository.insert(any(BookingSegment.class))).thenReturn(Mono.just(testBookingSegment));
 
         // Test the createBookingSegment method
         StepVerifier.create(bookingSegmentService.createBookingSegment(testBookingSegment))
@@ -283,21 +306,122 @@ class BookingSegmentServiceTest {
         // Mock seatService to return the available seat
         when(seatService.getSeatById(300L)).thenReturn(Mono.just(availableSeat));
 
-        // Mock repository findByFlightIdAndSeatId to return empty Mono (no existing booking segment)
-        when(bookingSegmentRepository.findByFlightIdAndSeatId(200L, 300L)).thenReturn(Mono.empty());
+        // Mock seatService.reserveSeatIfAvailable to return the reserved seat
+        when(seatService.reserveSeatIfAvailable(200L, 300L)).thenReturn(Mono.just(reservedSeat));
 
         // Mock repository insert to return the test booking segment
         when(bookingSegmentRepository.insert(any(BookingSegment.class))).thenReturn(Mono.just(testBookingSegment));
 
-        // Mock seatService.updateSeatStatus to return the reserved seat
-        when(seatService.updateSeatStatus(300L, "RESERVED")).thenReturn(Mono.just(reservedSeat));
-
         // Test the createBookingSegment method
         StepVerifier.create(bookingSegmentService.createBookingSegment(testBookingSegment))
                 .expectNext(testBookingSegment)
                 .verifyComplete();
 
-        // Verify that seatService.updateSeatStatus was called with the correct parameters
-        org.mockito.Mockito.verify(seatService).updateSeatStatus(300L, "RESERVED");
+        // Verify that the seat was reserved only if still available, not overwritten
+        verify(seatService).reserveSeatIfAvailable(200L, 300L);
+        verify(seatService, never()).updateSeatStatus(anyLong(), anyString());
+    }
+
+    @Test
+    void testCreateBookingSegment_SeatTakenMeanwhileIsNotBooked() {
+        // the seat was available when read but another booking reserved it before the update
+        seatInventory.load(200L, List.of(testSeat));
+        when(flightService.getFlightById(200L)).thenReturn(Mono.just(testFlight));
+        when(seatService.getSeatById(300L)).thenReturn(Mono.just(testSeat));
+        when(seatService.reserveSeatIfAvailable(200L, 300L)).thenReturn(Mono.empty());
+
+        StepVerifier.create(bookingSegmentService.createBookingSegment(testBookingSegment))
+                .expectError(SeatNotAvailableException.class)
+                .verify();
+
+        verify(bookingSegmentRepository, never()).insert(any(BookingSegment.class));
+        // the seat is not freed in the inventory, the flight is read again from the database
+        assertEquals(false, seatInventory.isLoaded(200L));
+    }
+
+    @Test
+    void testCreateBookingSegment_TakenSeatRejectedByInventory() {
+        Seat reservedSeat = Seat.builder()
+                .id(300L)
+                .flightId(200L)
+                .seatNumber("15A")
+                .seatClass(SeatClass.ECONOMY)
+                .status(SeatStatus.RESERVED)
+                .build();
+        seatInventory.load(200L, List.of(reservedSeat));
+
+        StepVerifier.create(bookingSegmentService.createBookingSegment(testBookingSegment))
+                .expectErrorMatches(throwable ->
+                    throwable instanceof RuntimeException &&
+                    throwable.getMessage().contains("Seat with ID 300 is not available"))
+                .verify();
+
+        // rejected before looking anything up
+        verify(flightService, never()).getFlightById(anyLong());
+        verify(seatService, never()).getSeatById(anyLong());
+    }
+
+    @Test
+    void testCreateBookingSegment_InventoryReleasesSeatWhenWriteThroughFails() {
+        seatInventory.load(200L, List.of(testSeat));
+        when(flightService.getFlightById(200L)).thenReturn(Mono.just(testFlight));
+        when(seatService.getSeatById(300L)).thenReturn(Mono.just(testSeat));
+        when(seatService.reserveSeatIfAvailable(200L, 300L)).thenReturn(Mono.just(testSeat));
+        when(bookingSegmentRepository.insert(any(BookingSegment.class))).thenReturn(Mono.error(new RuntimeException("insert failed")));
+
+        StepVerifier.create(bookingSegmentService.createBookingSegment(testBookingSegment))
+                .expectErrorMessage("insert failed")
+                .verify();
+
+        // the seat can be reserved again
+        assertEquals(SeatInventory.Reservation.RESERVED, seatInventory.tryReserve(200L, 300L));
+    }
+
+    @Test
+    void testBookAdjacentSeats_EvictsTheFlightWhenTheDatabaseHasTheSeatsTaken() {
+        // a transaction to run in, rolled back by the mocked manager
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        AdjacentSeatsRequest request = new AdjacentSeatsRequest(100L, 200L, SeatClass.ECONOMY, 2, SeatPreference.WINDOW);
+        when(seatAssignmentService.claimAdjacentSeats(200L, SeatClass.ECONOMY, 2, SeatPreference.WINDOW))
+                .thenReturn(Mono.just(List.of(300L, 301L)));
+        // only one of the two seats was still available
+        when(seatService.reserveSeatsIfAvailable(200L, List.of(300L, 301L))).thenReturn(Flux.just(testSeat));
+
+        StepVerifier.create(bookingSegmentService.bookAdjacentSeats(request))
+                .expectError(SeatNotAvailableException.class)
+                .verify();
+
+        verify(bookingSegmentRepository, never()).insertAll(anyList());
+        verify(seatAssignmentService, never()).release(anyLong(), anyList());
+        verify(seatAssignmentService).evict(200L);
+    }
+
+    @Test
+    void testBookAdjacentSeats_GivesTheSeatsBackWhenTheInsertFails() {
+        // a transaction to run in, rolled back by the mocked manager
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        AdjacentSeatsRequest request = new AdjacentSeatsRequest(100L, 200L, SeatClass.ECONOMY, 2, SeatPreference.WINDOW);
+        when(seatAssignmentService.claimAdjacentSeats(200L, SeatClass.ECONOMY, 2, SeatPreference.WINDOW))
+                .thenReturn(Mono.just(List.of(300L, 301L)));
+        when(seatService.reserveSeatsIfAvailable(200L, List.of(300L, 301L))).thenReturn(Flux.just(testSeat, testSeat));
+        when(bookingSegmentRepository.insertAll(anyList())).thenReturn(Flux.error(new RuntimeException("insert failed")));
+
+        StepVerifier.create(bookingSegmentService.bookAdjacentSeats(request))
+                .expectErrorMessage("insert failed")
+                .verify();
+
+        // the reservations were rolled back, the seats are free again
+        verify(seatAssignmentService).release(200L, List.of(300L, 301L));
+        verify(seatAssignmentService, never()).evict(anyLong());
+    }
+
+    @Test
+    void testBookAdjacentSeats_RejectsGroupsTooLarge() {
+        AdjacentSeatsRequest request = new AdjacentSeatsRequest(100L, 200L, SeatClass.ECONOMY, 10, null);
+
+        StepVerifier.create(bookingSegmentService.bookAdjacentSeats(request))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(seatAssignmentService, never()).claimAdjacentSeats(anyLong(), any(), anyInt(), any());
     }
 }
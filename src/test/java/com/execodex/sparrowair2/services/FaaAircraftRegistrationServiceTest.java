@@ -2,17 +2,34 @@ package com.execodex.sparrowair2.services;
 
 import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
 import com.execodex.sparrowair2.repositories.FaaAircraftRegistrationRepository;
+import com.execodex.sparrowair2.services.caa.FaaMasterFileParser;
+import com.execodex.sparrowair2.services.caa.FaaRegistrationFingerprint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.dao.DuplicateKeyException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -192,4 +209,114 @@ class FaaAircraftRegistrationServiceTest {
         StepVerifier.create(result)
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoadFaaAircraftRegistrations_WritesInBatches() {
+        // Every registration of a batch is new
+        when(faaAircraftRegistrationRepository.insertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        int count = FaaAircraftRegistrationService.LOAD_BATCH_SIZE * 2 + 1;
+        Flux<FaaAircraftRegistration> registrations = Flux.range(0, count)
+                .map(i -> FaaAircraftRegistration.builder().nNumber(String.valueOf(i)).build());
+
+        StepVerifier.create(faaAircraftRegistrationService.loadFaaAircraftRegistrations(registrations))
+                .expectNext((long) count)
+                .verifyComplete();
+
+        // Two full batches and the rest, no single-row inserts
+        verify(faaAircraftRegistrationRepository, times(3)).insertAll(anyList());
+        verify(faaAircraftRegistrationRepository, times(0)).insert(any(FaaAircraftRegistration.class));
+    }
+
+    @Test
+    void testSyncFaaAircraftRegistrations_WritesOnlyChanges() {
+        FaaAircraftRegistration unchanged = FaaAircraftRegistration.builder().nNumber("1").registrantName("SAME").build();
+        FaaAircraftRegistration changed = FaaAircraftRegistration.builder().nNumber("2").registrantName("NEW").build();
+        FaaAircraftRegistration added = FaaAircraftRegistration.builder().nNumber("3").registrantName("ADDED").build();
+        FaaAircraftRegistration edited = FaaAircraftRegistration.builder().nNumber("4").registrantName("EDITED").build();
+        FaaAircraftRegistration repeated = FaaAircraftRegistration.builder().nNumber("3").registrantName("AGAIN").build();
+
+        Map<String, Long> rowHashes = new HashMap<>();
+        rowHashes.put("1", FaaRegistrationFingerprint.of(unchanged));
+        rowHashes.put("2", FaaRegistrationFingerprint.of(FaaAircraftRegistration.builder().registrantName("OLD").build()));
+        // saved through the API, without a fingerprint
+        rowHashes.put("4", null);
+        // no longer in the file
+        rowHashes.put("5", 42L);
+        when(faaAircraftRegistrationRepository.findAllRowHashes()).thenReturn(Mono.just(rowHashes));
+        when(faaAircraftRegistrationRepository.upsertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+        when(faaAircraftRegistrationRepository.deleteAllByNNumber(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        StepVerifier.create(faaAircraftRegistrationService.syncFaaAircraftRegistrations(
+                        Flux.just(unchanged, changed, added, edited, repeated), () -> 0))
+                .expectNext(4L)
+                .verifyComplete();
+
+        ArgumentCaptor<List<FaaAircraftRegistration>> written = ArgumentCaptor.forClass(List.class);
+        verify(faaAircraftRegistrationRepository).upsertAll(written.capture());
+        assertEquals(List.of(changed, added, edited), written.getValue());
+        assertEquals(FaaRegistrationFingerprint.of(changed), changed.getRowHash());
+        verify(faaAircraftRegistrationRepository).deleteAllByNNumber(List.of("5"));
+        verify(faaAircraftRegistrationRepository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testSyncFaaAircraftRegistrations_DeletesNothingWhenFileFails() {
+        Map<String, Long> rowHashes = new HashMap<>();
+        rowHashes.put("5", 42L);
+        when(faaAircraftRegistrationRepository.findAllRowHashes()).thenReturn(Mono.just(rowHashes));
+        when(faaAircraftRegistrationRepository.upsertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        Flux<FaaAircraftRegistration> registrations = Flux.concat(
+                Flux.just(FaaAircraftRegistration.builder().nNumber("1").build()),
+                Flux.error(new IllegalStateException("broken file")));
+
+        StepVerifier.create(faaAircraftRegistrationService.syncFaaAircraftRegistrations(registrations, () -> 0))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        verify(faaAircraftRegistrationRepository, never()).deleteAllByNNumber(anyList());
+    }
+
+    @Test
+    void testSyncFaaAircraftRegistrations_DeletesNothingWhenLinesWereSkipped() throws IOException {
+        String[] lines = new String(new ClassPathResource("stuff/data/faa/master-100.txt").getContentAsByteArray(), StandardCharsets.UTF_8)
+                .split("\r\n");
+        // the second registration is cut short, its line is skipped
+        String content = lines[0] + "\r\n" + lines[1] + "\r\n" + lines[2].substring(0, 20) + "\r\n" + lines[3] + "\r\n";
+        AtomicLong skipped = new AtomicLong();
+        Flux<FaaAircraftRegistration> registrations = FaaMasterFileParser.parse(
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8))),
+                skipped::incrementAndGet);
+
+        Map<String, Long> rowHashes = new HashMap<>();
+        rowHashes.put(FaaAircraftRegistration.parseAircraftRegistrationFromCsvLine2(lines[2]).getNNumber(), 42L);
+        when(faaAircraftRegistrationRepository.findAllRowHashes()).thenReturn(Mono.just(rowHashes));
+        when(faaAircraftRegistrationRepository.upsertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<?>>getArgument(0).size()));
+
+        StepVerifier.create(faaAircraftRegistrationService.syncFaaAircraftRegistrations(registrations, skipped::get))
+                .expectNext(2L)
+                .verifyComplete();
+
+        assertEquals(1, skipped.get());
+        verify(faaAircraftRegistrationRepository, never()).deleteAllByNNumber(anyList());
+    }
+
+    @Test
+    void testSyncFaaAircraftRegistrations_DeletesNothingWhenFileIsEmpty() {
+        Map<String, Long> rowHashes = new HashMap<>();
+        rowHashes.put("5", 42L);
+        when(faaAircraftRegistrationRepository.findAllRowHashes()).thenReturn(Mono.just(rowHashes));
+
+        StepVerifier.create(faaAircraftRegistrationService.syncFaaAircraftRegistrations(Flux.empty(), () -> 0))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(faaAircraftRegistrationRepository, never()).deleteAllByNNumber(anyList());
+    }
+}
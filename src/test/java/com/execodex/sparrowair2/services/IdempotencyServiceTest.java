@@ -0,0 +1,189 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.BookingSegment;
+import com.execodex.sparrowair2.entities.IdempotencyKey;
+import com.execodex.sparrowair2.repositories.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "POST /booking-segments/reserve";
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final IdempotencyProperties properties = new IdempotencyProperties(
+            Duration.ofHours(24), 100, Duration.ofMinutes(1), Duration.ofHours(1));
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, new ObjectMapper(), properties);
+    }
+
+    private BookingSegment segment(Long seatId) {
+        return BookingSegment.builder()
+                .bookingId(1L)
+                .flightId(100L)
+                .seatId(seatId)
+                .build();
+    }
+
+    // the action of a request, counting how often it ran
+    private Mono<BookingSegment> reserve(BookingSegment segment) {
+        return Mono.fromCallable(() -> {
+            runs.incrementAndGet();
+            return BookingSegment.builder()
+                    .id(7L)
+                    .bookingId(segment.getBookingId())
+                    .flightId(segment.getFlightId())
+                    .seatId(segment.getSeatId())
+                    .build();
+        });
+    }
+
+    private IdempotencyKey claimed() {
+        return IdempotencyKey.builder()
+                .id(1L)
+                .scope(SCOPE)
+                .idempotencyKey("key-1")
+                .expiresAt(LocalDateTime.now().plusHours(24))
+                .build();
+    }
+
+    @Test
+    void retryGetsTheStoredResponseWithoutRunningAgain() {
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.complete(eq(1L), anyInt(), anyString(), anyString())).thenReturn(Mono.just(1));
+        BookingSegment segment = segment(200L);
+
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment, HttpStatus.CREATED, reserve(segment)))
+                .assertNext(response -> {
+                    assertEquals(201, response.status());
+                    assertEquals(false, response.replayed());
+                })
+                .verifyComplete();
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment(200L), HttpStatus.CREATED, reserve(segment)))
+                .assertNext(response -> {
+                    assertEquals(201, response.status());
+                    assertEquals(true, response.replayed());
+                })
+                .verifyComplete();
+
+        assertEquals(1, runs.get());
+        verify(idempotencyKeyRepository, times(1)).claim(anyString(), anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void keyReusedWithAnotherRequestIsRejected() {
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.complete(eq(1L), anyInt(), anyString(), anyString())).thenReturn(Mono.just(1));
+        idempotencyService.execute(SCOPE, "key-1", segment(200L), HttpStatus.CREATED, reserve(segment(200L))).block();
+
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment(201L), HttpStatus.CREATED, reserve(segment(201L))))
+                .expectErrorMatches(e -> e instanceof IdempotencyKeyConflictException conflict && !conflict.isInProgress())
+                .verify();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyTakenByAnotherInstanceReplaysItsStoredResponse() {
+        BookingSegment segment = segment(200L);
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.complete(eq(1L), anyInt(), anyString(), anyString())).thenReturn(Mono.just(1));
+        IdempotencyService.StoredResponse first = idempotencyService
+                .execute(SCOPE, "key-1", segment, HttpStatus.CREATED, reserve(segment)).block();
+        ArgumentCaptor<String> requestHash = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyKeyRepository).claim(eq(SCOPE), eq("key-1"), requestHash.capture(), any(), any(), any());
+
+        // the retry reaches another instance, only the database has the response
+        IdempotencyKey stored = claimed();
+        stored.setRequestHash(requestHash.getValue());
+        stored.setStatusCode(first.status());
+        stored.setContentType(first.contentType());
+        stored.setResponseBody(first.body());
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any())).thenReturn(Mono.empty());
+        when(idempotencyKeyRepository.findByScopeAndIdempotencyKey(SCOPE, "key-1")).thenReturn(Mono.just(stored));
+        IdempotencyService otherInstance = new IdempotencyService(idempotencyKeyRepository, new ObjectMapper(), properties);
+
+        StepVerifier.create(otherInstance.execute(SCOPE, "key-1", segment, HttpStatus.CREATED, reserve(segment)))
+                .assertNext(response -> {
+                    assertEquals(first.body(), response.body());
+                    assertEquals(true, response.replayed());
+                })
+                .verifyComplete();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestGivesItsKeyUp() {
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.deleteById(anyLong())).thenReturn(Mono.empty());
+
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment(200L), HttpStatus.CREATED,
+                        Mono.error(new SeatNotAvailableException("Seat with ID 200 is not available"))))
+                .expectError(SeatNotAvailableException.class)
+                .verify();
+        verify(idempotencyKeyRepository).deleteById(1L);
+        verify(idempotencyKeyRepository, never()).complete(anyLong(), anyInt(), anyString(), anyString());
+    }
+
+    @Test
+    void requestCompletingEmptyGivesItsKeyUpWithoutConflict() {
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.deleteById(anyLong())).thenReturn(Mono.empty());
+
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment(200L), HttpStatus.CREATED, Mono.empty()))
+                .verifyComplete();
+        verify(idempotencyKeyRepository).deleteById(1L);
+        verify(idempotencyKeyRepository, never()).findByScopeAndIdempotencyKey(anyString(), anyString());
+    }
+
+    @Test
+    void responseNotStoredKeepsTheKeyOfTheRequestThatRan() {
+        when(idempotencyKeyRepository.claim(eq(SCOPE), eq("key-1"), anyString(), any(), any(), any()))
+                .thenReturn(Mono.just(claimed()));
+        when(idempotencyKeyRepository.complete(eq(1L), anyInt(), anyString(), anyString()))
+                .thenReturn(Mono.error(new RuntimeException("connection lost")));
+        BookingSegment segment = segment(200L);
+
+        StepVerifier.create(idempotencyService.execute(SCOPE, "key-1", segment, HttpStatus.CREATED, reserve(segment)))
+                .expectErrorMessage("connection lost")
+                .verify();
+        // the seat was reserved, a retry must not run it again before the key times out
+        assertEquals(1, runs.get());
+        verify(idempotencyKeyRepository, never()).deleteById(anyLong());
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.model.ImportJobProgress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportJobServiceTest {
+
+    // a clock the test moves forward by hand
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.parse("2025-06-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final TestClock clock = new TestClock();
+    private ImportJobService importJobService;
+
+    @BeforeEach
+    void setUp() {
+        importJobService = new ImportJobService(new ImportJobProperties(1, Duration.ofHours(1), Duration.ofMinutes(5)), clock);
+    }
+
+    @Test
+    void testJobCountsRowsAndRate() {
+        ImportJob job = importJobService.submit("test", importJob -> importJob.track(Flux.range(0, 100))
+                .doOnNext(row -> {
+                    if (row % 10 == 0) {
+                        importJob.rowFailed();
+                    }
+                })
+                .doOnComplete(() -> clock.advance(Duration.ofSeconds(2)))
+                .count()
+                .map(rows -> rows - 10));
+
+        ImportJobProgress progress = job.progress(clock.instant());
+        assertEquals(ImportJob.Status.COMPLETED, progress.getStatus());
+        assertEquals(100, progress.getRowsRead());
+        assertEquals(90, progress.getRowsWritten());
+        assertEquals(10, progress.getRowsFailed());
+        assertEquals(50.0, progress.getRowsPerSecond());
+        assertSame(job, importJobService.getJob(job.getId()));
+    }
+
+    @Test
+    void testJobsBeyondTheLimitAreQueued() {
+        Sinks.One<Long> first = Sinks.one();
+        ImportJob running = importJobService.submit("test", importJob -> first.asMono());
+        ImportJob queued = importJobService.submit("test", importJob -> Mono.just(7L));
+
+        assertEquals(ImportJob.Status.RUNNING, running.getStatus());
+        assertEquals(ImportJob.Status.QUEUED, queued.getStatus());
+
+        first.tryEmitValue(3L);
+        assertEquals(ImportJob.Status.COMPLETED, running.getStatus());
+        StepVerifier.create(queued.completion())
+                .assertNext(job -> assertEquals(7L, job.progress(clock.instant()).getRowsWritten()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testFailedJobRecordsErrorAndStartsNext() {
+        Sinks.One<Long> first = Sinks.one();
+        ImportJob failing = importJobService.submit("test", importJob -> first.asMono());
+        ImportJob next = importJobService.submit("test", importJob -> Mono.just(1L));
+
+        first.tryEmitError(new IllegalStateException("broken file"));
+
+        ImportJobProgress progress = failing.progress(clock.instant());
+        assertEquals(ImportJob.Status.FAILED, progress.getStatus());
+        assertEquals("broken file", progress.getError());
+        assertEquals(ImportJob.Status.COMPLETED, next.getStatus());
+    }
+
+    @Test
+    void testCancelStopsRunningJob() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ImportJob job = importJobService.submit("test", importJob -> Mono.<Long>never()
+                .doOnCancel(() -> cancelled.set(true)));
+
+        assertSame(job, importJobService.cancel(job.getId()));
+
+        assertTrue(cancelled.get());
+        assertEquals(ImportJob.Status.CANCELLED, job.getStatus());
+        // the slot is free again
+        assertEquals(ImportJob.Status.COMPLETED, importJobService.submit("test", importJob -> Mono.just(1L)).getStatus());
+        assertNull(importJobService.cancel("unknown"));
+    }
+
+    @Test
+    void testCancelledQueuedJobNeverStarts() {
+        Sinks.One<Long> first = Sinks.one();
+        importJobService.submit("test", importJob -> first.asMono());
+        AtomicBoolean started = new AtomicBoolean();
+        ImportJob queued = importJobService.submit("test", importJob -> {
+            started.set(true);
+            return Mono.just(1L);
+        });
+
+        importJobService.cancel(queued.getId());
+        first.tryEmitValue(1L);
+
+        assertFalse(started.get());
+        assertEquals(ImportJob.Status.CANCELLED, queued.getStatus());
+    }
+
+    @Test
+    void testFinishedJobsAreDroppedAfterRetention() {
+        ImportJob job = importJobService.submit("test", importJob -> Mono.just(1L));
+
+        clock.advance(Duration.ofMinutes(59));
+        importJobService.dropFinishedJobs();
+        assertSame(job, importJobService.getJob(job.getId()));
+
+        clock.advance(Duration.ofMinutes(2));
+        importJobService.dropFinishedJobs();
+        assertNull(importJobService.getJob(job.getId()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.AirlineFleet;
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.model.SeatPreference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+class SeatAssignmentServiceTest {
+
+    @Mock
+    private SeatService seatService;
+
+    @Mock
+    private FlightService flightService;
+
+    @Mock
+    private AirlineFleetService airlineFleetService;
+
+    private final SeatInventory seatInventory = new SeatInventory();
+    private SeatAssignmentService seatAssignmentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        seatAssignmentService = new SeatAssignmentService(seatService, flightService, airlineFleetService, seatInventory);
+        when(airlineFleetService.getAirlineFleetById(1L))
+                .thenReturn(Mono.just(AirlineFleet.builder().id(1L).seatConfiguration("2-4-2").build()));
+        when(airlineFleetService.getAirlineFleetById(2L))
+                .thenReturn(Mono.just(AirlineFleet.builder().id(2L).seatConfiguration("3-3").build()));
+    }
+
+    // the seats of a flight flown by a fleet, IDs from firstId on
+    private static List<Seat> seats(String seatConfiguration, long firstId) {
+        List<Seat> seats = SeatMapTemplate.compile(new SeatMapTemplate.Layout(seatConfiguration, 0, 0, 0, 24)).materialize(200L);
+        for (int i = 0; i < seats.size(); i++) {
+            seats.get(i).setId(firstId + i);
+        }
+        return seats;
+    }
+
+    private void flownBy(Long airlineFleetId, List<Seat> seats) {
+        when(flightService.getFlightById(200L)).thenReturn(Mono.just(Flight.builder().id(200L).airlineFleetId(airlineFleetId).build()));
+        when(seatService.getSeatsByFlightId(200L)).thenReturn(Flux.fromIterable(seats));
+    }
+
+    @Test
+    void testAdjacentSeatsAfterTheFleetChanged() {
+        flownBy(1L, seats("2-4-2", 1));
+        StepVerifier.create(seatAssignmentService.claimAdjacentSeats(200L, SeatClass.ECONOMY, 2, SeatPreference.ANY))
+                .expectNext(List.of(1L, 2L))
+                .verifyComplete();
+
+        // the fleet changes: the seats are deleted and those of the new fleet created, as FlightService does
+        List<Seat> newSeats = seats("3-3", 101);
+        seatInventory.evict(200L);
+        seatInventory.load(200L, newSeats);
+        flownBy(2L, newSeats);
+
+        // a block of the new seats, not none because the grid still had the deleted ones
+        StepVerifier.create(seatAssignmentService.claimAdjacentSeats(200L, SeatClass.ECONOMY, 3, SeatPreference.ANY))
+                .expectNext(List.of(101L, 102L, 103L))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,73 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.model.SeatPreference;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SeatGridTest {
+
+    // 2 business rows of "2-4-2" and 4 economy rows, seat IDs numbered like the seat map creates them
+    private static List<Seat> seats() {
+        List<Seat> seats = SeatMapTemplate.compile(new SeatMapTemplate.Layout("2-4-2", 0, 16, 0, 32)).materialize(1L);
+        for (int i = 0; i < seats.size(); i++) {
+            seats.get(i).setId(i + 1L);
+        }
+        return seats;
+    }
+
+    private static long[] ids(long... ids) {
+        return ids;
+    }
+
+    @Test
+    void testFrontMostBlockWithinASection() {
+        SeatGrid grid = SeatGrid.of("2-4-2", seats());
+
+        // business row 1 is seats 1-8, row 2 seats 9-16; economy starts at 17
+        assertArrayEquals(ids(1, 2), grid.findBlock(SeatClass.BUSINESS, 2, SeatPreference.ANY, seatId -> true));
+        assertArrayEquals(ids(3, 4, 5), grid.findBlock(SeatClass.BUSINESS, 3, SeatPreference.ANY, seatId -> true));
+        // economy rows start at row 1 again, after the business seats
+        assertArrayEquals(ids(19, 20, 21, 22), grid.findBlock(SeatClass.ECONOMY, 4, SeatPreference.ANY, seatId -> true));
+        // no section is 5 seats wide, blocks don't cross an aisle
+        assertNull(grid.findBlock(SeatClass.BUSINESS, 5, SeatPreference.ANY, seatId -> true));
+    }
+
+    @Test
+    void testTakenSeatsAreSkipped() {
+        SeatGrid grid = SeatGrid.of("2-4-2", seats());
+        Set<Long> taken = Set.of(4L, 5L, 11L);
+
+        // the middle section of row 1 only has 3 and 6 left, row 2 has 12-14 next to each other
+        assertArrayEquals(ids(12, 13, 14), grid.findBlock(SeatClass.BUSINESS, 3, SeatPreference.ANY, seatId -> !taken.contains(seatId)));
+        assertNull(grid.findBlock(SeatClass.BUSINESS, 1, SeatPreference.ANY, seatId -> false));
+    }
+
+    @Test
+    void testPreferenceIsPreferredNotRequired() {
+        SeatGrid grid = SeatGrid.of("2-4-2", seats());
+
+        // in "3-3" the aisle seats are C and D
+        List<Seat> narrowBody = SeatMapTemplate.compile(new SeatMapTemplate.Layout("3-3", 0, 0, 0, 12)).materialize(1L);
+        for (int i = 0; i < narrowBody.size(); i++) {
+            narrowBody.get(i).setId(i + 1L);
+        }
+        SeatGrid narrowBodyGrid = SeatGrid.of("3-3", narrowBody);
+        assertArrayEquals(ids(1), narrowBodyGrid.findBlock(SeatClass.ECONOMY, 1, SeatPreference.ANY, seatId -> true));
+        assertArrayEquals(ids(3), narrowBodyGrid.findBlock(SeatClass.ECONOMY, 1, SeatPreference.AISLE, seatId -> true));
+        assertArrayEquals(ids(5, 6), narrowBodyGrid.findBlock(SeatClass.ECONOMY, 2, SeatPreference.WINDOW, seatId -> seatId != 1L));
+
+        // window seats taken in row 1, the window pair of row 2 wins over the middle of row 1
+        Set<Long> windows = Set.of(1L, 8L);
+        assertArrayEquals(ids(9, 10), grid.findBlock(SeatClass.BUSINESS, 2, SeatPreference.WINDOW, seatId -> !windows.contains(seatId)));
+        // no window pair anywhere: the front-most pair
+        Set<Long> allWindows = Set.of(1L, 8L, 9L, 16L);
+        assertArrayEquals(ids(3, 4), grid.findBlock(SeatClass.BUSINESS, 2, SeatPreference.WINDOW, seatId -> !allWindows.contains(seatId)));
+    }
+}
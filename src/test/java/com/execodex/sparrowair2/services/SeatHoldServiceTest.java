@@ -0,0 +1,145 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.repositories.SeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatHoldServiceTest {
+
+    // a clock the test moves forward by hand
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.parse("2025-06-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    private final SeatInventory seatInventory = new SeatInventory();
+    private final TestClock clock = new TestClock();
+    private SeatHoldService seatHoldService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SeatHoldProperties properties = new SeatHoldProperties(
+                Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1), 64, Duration.ofMinutes(5));
+        seatHoldService = new SeatHoldService(seatRepository, seatInventory, properties, clock);
+    }
+
+    private Seat seat(SeatStatus status, LocalDateTime holdExpiresAt) {
+        return Seat.builder()
+                .id(1L)
+                .flightId(7L)
+                .seatNumber("1A, ECONOMY, Window")
+                .seatClass(SeatClass.ECONOMY)
+                .status(status)
+                .holdExpiresAt(holdExpiresAt)
+                .build();
+    }
+
+    @Test
+    void expiredHoldIsReleased() {
+        LocalDateTime expiresAt = LocalDateTime.now(clock).plusMinutes(10);
+        seatInventory.load(7L, List.of(seat(SeatStatus.AVAILABLE, null)));
+        when(seatRepository.holdIfAvailable(1L, expiresAt)).thenReturn(Mono.just(seat(SeatStatus.HOLD, expiresAt)));
+        when(seatRepository.releaseExpiredHolds(eq(List.of(1L)), any())).thenReturn(Flux.just(seat(SeatStatus.AVAILABLE, null)));
+
+        StepVerifier.create(seatHoldService.holdSeat(1L, null))
+                .expectNextMatches(seat -> seat.getStatus() == SeatStatus.HOLD)
+                .verifyComplete();
+        assertEquals(0, seatInventory.available(7L, SeatClass.ECONOMY));
+
+        // not yet expired
+        clock.advance(Duration.ofMinutes(9));
+        StepVerifier.create(seatHoldService.releaseExpiredHolds())
+                .expectNext(0L)
+                .verifyComplete();
+        verify(seatRepository, never()).releaseExpiredHolds(anyCollection(), any());
+
+        clock.advance(Duration.ofMinutes(1));
+        StepVerifier.create(seatHoldService.releaseExpiredHolds())
+                .expectNext(1L)
+                .verifyComplete();
+        assertEquals(0, seatHoldService.pendingHolds());
+        assertEquals(1, seatInventory.available(7L, SeatClass.ECONOMY));
+    }
+
+    @Test
+    void confirmedHoldDoesNotExpire() {
+        LocalDateTime expiresAt = LocalDateTime.now(clock).plusMinutes(5);
+        when(seatRepository.holdIfAvailable(1L, expiresAt)).thenReturn(Mono.just(seat(SeatStatus.HOLD, expiresAt)));
+        when(seatRepository.confirmHold(eq(1L), any())).thenReturn(Mono.just(seat(SeatStatus.RESERVED, null)));
+
+        StepVerifier.create(seatHoldService.holdSeat(1L, Duration.ofMinutes(5)).then(seatHoldService.confirmHold(1L)))
+                .expectNextMatches(seat -> seat.getStatus() == SeatStatus.RESERVED)
+                .verifyComplete();
+        assertEquals(0, seatHoldService.pendingHolds());
+
+        clock.advance(Duration.ofMinutes(6));
+        StepVerifier.create(seatHoldService.releaseExpiredHolds())
+                .expectNext(0L)
+                .verifyComplete();
+        verify(seatRepository, never()).releaseExpiredHolds(anyCollection(), any());
+    }
+
+    @Test
+    void holdLongerThanMaxTtlIsRejected() {
+        StepVerifier.create(seatHoldService.holdSeat(1L, Duration.ofHours(1)))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verify(seatRepository, never()).holdIfAvailable(any(), any());
+    }
+
+    @Test
+    void unavailableSeatIsNotHeld() {
+        when(seatRepository.holdIfAvailable(eq(1L), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(seatHoldService.holdSeat(1L, null))
+                .expectError(SeatNotAvailableException.class)
+                .verify();
+        assertEquals(0, seatHoldService.pendingHolds());
+    }
+}
@@ -0,0 +1,116 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.model.SeatAvailability;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatInventoryTest {
+
+    private static Seat seat(long id, SeatClass seatClass, SeatStatus status) {
+        return Seat.builder()
+                .id(id)
+                .flightId(1L)
+                .seatNumber(id + "A")
+                .seatClass(seatClass)
+                .status(status)
+                .build();
+    }
+
+    @Test
+    void testReserveAndRelease() {
+        SeatInventory inventory = new SeatInventory();
+        inventory.load(1L, List.of(
+                seat(12, SeatClass.ECONOMY, SeatStatus.AVAILABLE),
+                seat(10, SeatClass.BUSINESS, SeatStatus.RESERVED),
+                seat(11, SeatClass.ECONOMY, SeatStatus.AVAILABLE)));
+
+        assertEquals(2, inventory.available(1L, SeatClass.ECONOMY));
+        assertEquals(0, inventory.available(1L, SeatClass.BUSINESS));
+        assertEquals(-1, inventory.available(2L, SeatClass.ECONOMY));
+
+        assertEquals(SeatInventory.Reservation.TAKEN, inventory.tryReserve(1L, 10L));
+        assertEquals(SeatInventory.Reservation.RESERVED, inventory.tryReserve(1L, 11L));
+        assertEquals(SeatInventory.Reservation.TAKEN, inventory.tryReserve(1L, 11L));
+        assertEquals(SeatInventory.Reservation.UNKNOWN, inventory.tryReserve(1L, 13L));
+        assertEquals(SeatInventory.Reservation.UNKNOWN, inventory.tryReserve(2L, 11L));
+        assertEquals(1, inventory.available(1L, SeatClass.ECONOMY));
+
+        inventory.release(1L, 11L);
+        inventory.seatUpdated(seat(10, SeatClass.BUSINESS, SeatStatus.AVAILABLE));
+        assertEquals(2, inventory.available(1L, SeatClass.ECONOMY));
+        assertEquals(1, inventory.available(1L, SeatClass.BUSINESS));
+
+        // a seat the inventory doesn't have means the flight's seats changed
+        inventory.seatUpdated(seat(13, SeatClass.ECONOMY, SeatStatus.AVAILABLE));
+        assertFalse(inventory.isLoaded(1L));
+    }
+
+    @Test
+    void testAvailabilityCounts() {
+        SeatInventory inventory = new SeatInventory();
+        inventory.load(1L, List.of(
+                seat(1, SeatClass.ECONOMY, SeatStatus.AVAILABLE),
+                seat(2, SeatClass.ECONOMY, SeatStatus.HOLD),
+                seat(3, SeatClass.ECONOMY, SeatStatus.BOOKED),
+                seat(4, SeatClass.ECONOMY, SeatStatus.AVAILABLE),
+                seat(5, SeatClass.BUSINESS, SeatStatus.AVAILABLE)));
+
+        List<SeatAvailability> availability = inventory.availability(1L);
+        assertEquals(List.of(
+                new SeatAvailability(1L, SeatClass.ECONOMY, 2, 1, 1),
+                new SeatAvailability(1L, SeatClass.BUSINESS, 1, 0, 0)), availability);
+        assertNull(inventory.availability(2L));
+
+        // reserve, hold, confirm the hold and release the reserved seat
+        inventory.tryReserve(1L, 1L);
+        inventory.seatUpdated(seat(4, SeatClass.ECONOMY, SeatStatus.HOLD));
+        inventory.seatUpdated(seat(2, SeatClass.ECONOMY, SeatStatus.RESERVED));
+        assertEquals(new SeatAvailability(1L, SeatClass.ECONOMY, 0, 3, 1), inventory.availability(1L).get(0));
+        inventory.release(1L, 1L);
+        inventory.seatUpdated(seat(4, SeatClass.ECONOMY, SeatStatus.AVAILABLE));
+        assertEquals(new SeatAvailability(1L, SeatClass.ECONOMY, 2, 2, 0), inventory.availability(1L).get(0));
+    }
+
+    @Test
+    void testConcurrentReservationsHaveOneWinnerPerSeat() throws Exception {
+        SeatInventory inventory = new SeatInventory();
+        List<Seat> seats = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            seats.add(seat(id, id <= 20 ? SeatClass.BUSINESS : SeatClass.ECONOMY, SeatStatus.AVAILABLE));
+        }
+        inventory.load(1L, seats);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int client = 0; client < 1000; client++) {
+                long seatId = client % 100 + 1;
+                attempts.add(executor.submit(() -> inventory.tryReserve(1L, seatId) == SeatInventory.Reservation.RESERVED));
+            }
+            int winners = 0;
+            for (Future<Boolean> attempt : attempts) {
+                winners += attempt.get() ? 1 : 0;
+            }
+            assertEquals(100, winners);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, inventory.available(1L, SeatClass.BUSINESS));
+        assertEquals(0, inventory.available(1L, SeatClass.ECONOMY));
+    }
+}
@@ -0,0 +1,246 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.configs.AbstractTestcontainersTest;
+import com.execodex.sparrowair2.entities.*;
+import com.execodex.sparrowair2.entities.skybrary.Aircraft;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.model.ItineraryLeg;
+import com.execodex.sparrowair2.repositories.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class SeatReservationStressTest extends AbstractTestcontainersTest {
+
+    private static final int SEATS = 100;
+    private static final int CLIENTS = 1000;
+
+    @Autowired
+    private BookingSegmentService bookingSegmentService;
+
+    @Autowired
+    private FlightService flightService;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private AirlineRepository airlineRepository;
+
+    @Autowired
+    private AirportNewRepository airportNewRepository;
+
+    @Autowired
+    private AircraftRepository aircraftRepository;
+
+    @Autowired
+    private AirlineFleetRepository airlineFleetRepository;
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private SeatRepository seatRepository;
+
+    @Autowired
+    private PassengerRepository passengerRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingSegmentRepository bookingSegmentRepository;
+
+    private Flight flight;
+    private Booking booking;
+
+    @BeforeEach
+    public void setUp() {
+        airlineRepository.findById("SPX")
+                .switchIfEmpty(airlineRepository.insert(Airline.builder()
+                        .icaoCode("SPX")
+                        .name("Sparrow Air")
+                        .build()))
+                .block();
+        for (String icao : List.of("ZZAA", "ZZBB")) {
+            airportNewRepository.findById(icao)
+                    .switchIfEmpty(airportNewRepository.insert(AirportNew.builder()
+                            .icaoCode(icao)
+                            .name("Test Airport " + icao)
+                            .latitude(0.0)
+                            .longitude(0.0)
+                            .build()))
+                    .block();
+        }
+        aircraftRepository.findById("A320")
+                .switchIfEmpty(aircraftRepository.insert(Aircraft.builder()
+                        .icaoCode("A320")
+                        .name("Airbus A320-200")
+                        .manufacturer("Airbus")
+                        .build()))
+                .block();
+
+        AirlineFleet airlineFleet = airlineFleetRepository.insert(AirlineFleet.builder()
+                .aircraftTypeIcao("A320")
+                .airlineIcao("SPX")
+                .registrationNumber("SP-RWA")
+                .aircraftAge(LocalDate.of(2018, 3, 24))
+                .seatConfiguration("3-3")
+                .firstClassSeats(0)
+                .businessSeats(0)
+                .premiumEconomySeats(0)
+                .economySeats(SEATS)
+                .build()).block();
+
+        // creating the flight creates its seats
+        flight = flightService.createFlight(Flight.builder()
+                .airlineIcaoCode("SPX")
+                .flightNumber("SPX100")
+                .departureAirportIcao("ZZAA")
+                .arrivalAirportIcao("ZZBB")
+                .scheduledDeparture(LocalDateTime.now().plusDays(1))
+                .scheduledArrival(LocalDateTime.now().plusDays(1).plusHours(2))
+                .airlineFleetId(airlineFleet.getId())
+                .status("SCHEDULED")
+                .build()).block();
+
+        Passenger passenger = passengerRepository.insert(Passenger.builder()
+                .firstName("Stress")
+                .lastName("Test")
+                .dateOfBirth(LocalDate.of(1990, 1, 1))
+                .build()).block();
+        booking = bookingRepository.insert(Booking.builder()
+                .bookingReference("STRESS1")
+                .passengerId(passenger.getId())
+                .status("CONFIRMED")
+                .createdAt(LocalDateTime.now())
+                .build()).block();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookingSegmentRepository.deleteAll().block();
+        bookingRepository.deleteById(booking.getId()).block();
+        passengerRepository.deleteById(booking.getPassengerId()).block();
+        flightRepository.findAll()
+                .filter(f -> flight.getAirlineFleetId().equals(f.getAirlineFleetId()))
+                .concatMap(f -> seatRepository.deleteByFlightId(f.getId()).then(flightRepository.deleteById(f.getId())))
+                .blockLast();
+        airlineFleetRepository.deleteById(flight.getAirlineFleetId()).block();
+    }
+
+    private Flight createConnectingFlight() {
+        return flightService.createFlight(Flight.builder()
+                .airlineIcaoCode("SPX")
+                .flightNumber("SPX200")
+                .departureAirportIcao("ZZBB")
+                .arrivalAirportIcao("ZZAA")
+                .scheduledDeparture(flight.getScheduledArrival().plusHours(2))
+                .scheduledArrival(flight.getScheduledArrival().plusHours(4))
+                .airlineFleetId(flight.getAirlineFleetId())
+                .status("SCHEDULED")
+                .build()).block();
+    }
+
+    @Test
+    public void testConcurrentReservationsHaveExactlyOneWinnerPerSeat() {
+        List<Seat> seats = seatRepository.findByFlightId(flight.getId()).collectList().block();
+        assertEquals(SEATS, seats.size());
+        // without the in-process inventory, the conditional UPDATE alone has to pick the winners
+        seatInventory.evict(flight.getId());
+
+        List<Boolean> outcomes = Flux.range(0, CLIENTS)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(client -> bookingSegmentService.reserveBookingSegment(BookingSegment.builder()
+                                .bookingId(booking.getId())
+                                .flightId(flight.getId())
+                                .seatId(seats.get(client % SEATS).getId())
+                                .fareClass("ECONOMY")
+                                .build())
+                        .map(segment -> true)
+                        .onErrorResume(SeatNotAvailableException.class, e -> Mono.just(false)))
+                .sequential()
+                .collectList()
+                .block();
+
+        assertEquals(CLIENTS, outcomes.size());
+        assertEquals(SEATS, outcomes.stream().filter(won -> won).count());
+        assertEquals(SEATS, bookingSegmentRepository.findAll()
+                .filter(segment -> segment.getFlightId().equals(flight.getId()))
+                .map(BookingSegment::getSeatId)
+                .distinct()
+                .count()
+                .block());
+        assertEquals(SEATS, seatRepository.findByFlightId(flight.getId())
+                .filter(seat -> seat.getStatus() == SeatStatus.RESERVED)
+                .count()
+                .block());
+    }
+
+    @Test
+    public void testReservationIsRolledBackWhenTheSegmentCannotBeInserted() {
+        Seat seat = seatRepository.findByFlightId(flight.getId()).blockFirst();
+
+        // a booking that doesn't exist violates the foreign key of the segment, after the seat was claimed
+        Boolean failed = bookingSegmentService.reserveBookingSegment(BookingSegment.builder()
+                        .bookingId(-1L)
+                        .flightId(flight.getId())
+                        .seatId(seat.getId())
+                        .build())
+                .map(segment -> false)
+                .onErrorResume(e -> Mono.just(true))
+                .block();
+
+        assertEquals(Boolean.TRUE, failed);
+        assertEquals(SeatStatus.AVAILABLE, seatRepository.findById(seat.getId()).block().getStatus());
+        assertEquals(SeatInventory.Reservation.RESERVED, seatInventory.tryReserve(flight.getId(), seat.getId()));
+    }
+
+    @Test
+    public void testItineraryIsBookedAtomically() {
+        Flight connectingFlight = createConnectingFlight();
+        List<ItineraryLeg> legs = List.of(
+                new ItineraryLeg(flight.getId(), SeatClass.ECONOMY),
+                new ItineraryLeg(connectingFlight.getId(), SeatClass.ECONOMY));
+
+        // the connecting flight is full, behind the back of the inventory: the first leg has to be rolled back
+        List<Seat> connectingSeats = seatRepository.findByFlightId(connectingFlight.getId()).collectList().block();
+        Flux.fromIterable(connectingSeats)
+                .concatMap(seat -> seatRepository.reserveIfAvailable(connectingFlight.getId(), seat.getId()))
+                .blockLast();
+        seatInventory.evict(connectingFlight.getId());
+
+        Boolean rejected = bookingSegmentService.bookItinerary(booking.getId(), legs)
+                .map(segments -> false)
+                .onErrorResume(SeatNotAvailableException.class, e -> Mono.just(true))
+                .block();
+        assertEquals(Boolean.TRUE, rejected);
+        assertEquals(0L, bookingSegmentRepository.count().block());
+        assertEquals(SEATS, seatRepository.findByFlightId(flight.getId())
+                .filter(seat -> seat.getStatus() == SeatStatus.AVAILABLE)
+                .count()
+                .block());
+
+        // with a seat free again both legs are booked, in the order of the legs
+        seatRepository.save(connectingSeats.get(0)).block();
+        List<BookingSegment> segments = bookingSegmentService.bookItinerary(booking.getId(), legs).block();
+        assertEquals(2, segments.size());
+        assertEquals(flight.getId(), segments.get(0).getFlightId());
+        assertEquals(connectingFlight.getId(), segments.get(1).getFlightId());
+        assertEquals(connectingSeats.get(0).getId(), segments.get(1).getSeatId());
+        assertEquals(SeatStatus.RESERVED, seatRepository.findById(segments.get(0).getSeatId()).block().getStatus());
+    }
+}
@@ -0,0 +1,145 @@
+package com.execodex.sparrowair2.services;
+
+import com.execodex.sparrowair2.entities.Seat;
+import com.execodex.sparrowair2.entities.SeatClass;
+import com.execodex.sparrowair2.entities.SeatPosition;
+import com.execodex.sparrowair2.entities.SeatStatus;
+import com.execodex.sparrowair2.model.SeatAvailability;
+import com.execodex.sparrowair2.repositories.SeatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatServiceTest {
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    @Mock
+    private FlightService flightService;
+
+    @Spy
+    private SeatInventory seatInventory = new SeatInventory();
+
+    @InjectMocks
+    private SeatService seatService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void buildSeatMap() {
+        List<Seat> seats = seatService.buildSeatMap(7L, 2, 0, 0, 11, "3-4-3");
+
+        assertEquals(13, seats.size());
+        assertEquals("1A, FIRST_CLASS, Window", seats.get(0).getSeatNumber());
+        assertEquals("1B, FIRST_CLASS, Middle", seats.get(1).getSeatNumber());
+        assertEquals("1A, ECONOMY, Window", seats.get(2).getSeatNumber());
+        assertEquals("1C, ECONOMY, Aisle", seats.get(4).getSeatNumber());
+        assertEquals("1J, ECONOMY, Window", seats.get(11).getSeatNumber());
+        assertEquals("2A, ECONOMY, Window", seats.get(12).getSeatNumber());
+        assertEquals(13, new HashSet<>(seats.stream().map(Seat::getSeatNumber).toList()).size());
+        seats.forEach(seat -> {
+            assertEquals(7L, seat.getFlightId());
+            assertEquals(SeatStatus.AVAILABLE, seat.getStatus());
+        });
+        assertEquals(SeatClass.ECONOMY, seats.get(12).getSeatClass());
+        // the seat number's parts as columns
+        assertEquals(2, seats.get(12).getRowNumber());
+        assertEquals("A", seats.get(12).getSeatLetter());
+        assertEquals(SeatPosition.AISLE, seats.get(4).getPosition());
+    }
+
+    @Test
+    void seatsCreatedOneByOneGetTheirPlacementFromTheSeatNumber() {
+        Seat seat = Seat.builder().flightId(7L).seatNumber("15C, ECONOMY, Aisle")
+                .seatClass(SeatClass.ECONOMY).status(SeatStatus.AVAILABLE).build();
+        when(seatRepository.findByFlightIdAndSeatNumber(7L, "15C, ECONOMY, Aisle")).thenReturn(Mono.empty());
+        when(seatRepository.insertAll(List.of(seat))).thenReturn(Flux.just(seat));
+
+        StepVerifier.create(seatService.createSeat(seat))
+                .expectNextMatches(created -> created.getRowNumber() == 15
+                        && "C".equals(created.getSeatLetter())
+                        && created.getPosition() == SeatPosition.AISLE)
+                .verifyComplete();
+    }
+
+    @Test
+    void seatMapTemplatesAreSharedByLayout() {
+        SeatMapTemplate template = seatService.seatMapTemplate(new SeatMapTemplate.Layout("2-4-2", 0, 24, 0, 200));
+
+        assertSame(template, seatService.seatMapTemplate(new SeatMapTemplate.Layout("2-4-2", 0, 24, 0, 200)));
+        assertNotSame(template, seatService.seatMapTemplate(new SeatMapTemplate.Layout("3-3", 0, 24, 0, 200)));
+        assertEquals(224, template.size());
+
+        // only the flight ID differs between the seats of two flights
+        List<Seat> first = template.materialize(1L);
+        List<Seat> second = template.materialize(2L);
+        assertEquals(first.get(30).getSeatNumber(), second.get(30).getSeatNumber());
+        assertEquals(2L, second.get(30).getFlightId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createSeatsForFlightInsertsTheWholeSeatMapAtOnce() {
+        AtomicLong ids = new AtomicLong();
+        when(seatRepository.insertAll(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable((List<Seat>) invocation.getArgument(0))
+                        .doOnNext(seat -> seat.setId(ids.incrementAndGet())));
+
+        StepVerifier.create(seatService.createSeatsForFlight(7L, 8, 42, 0, 304, "3-4-3"))
+                .expectNextCount(354)
+                .verifyComplete();
+
+        ArgumentCaptor<List<Seat>> seats = ArgumentCaptor.forClass(List.class);
+        verify(seatRepository, times(1)).insertAll(seats.capture());
+        assertEquals(354, seats.getValue().size());
+        verify(seatRepository, never()).findByFlightIdAndSeatNumber(7L, "1A, FIRST_CLASS, Window");
+        assertTrue(seatInventory.isLoaded(7L));
+    }
+
+    @Test
+    void availabilityLoadsTheFlightsTheInventoryDoesNotHave() {
+        seatInventory.load(1L, List.of(Seat.builder().id(10L).flightId(1L).seatNumber("1A, ECONOMY, Window")
+                .seatClass(SeatClass.ECONOMY).status(SeatStatus.AVAILABLE).build()));
+        when(seatRepository.findByFlightIdInOrderByFlightIdAscIdAsc(List.of(2L, 3L)))
+                .thenReturn(Flux.just(Seat.builder().id(20L).flightId(2L).seatNumber("1A, BUSINESS, Window")
+                        .seatClass(SeatClass.BUSINESS).status(SeatStatus.RESERVED).build()));
+
+        StepVerifier.create(seatService.getAvailability(List.of(2L, 1L, 3L, 2L)))
+                .expectNext(new SeatAvailability(2L, SeatClass.BUSINESS, 0, 1, 0))
+                .expectNext(new SeatAvailability(1L, SeatClass.ECONOMY, 1, 0, 0))
+                .verifyComplete();
+        assertTrue(seatInventory.isLoaded(2L));
+
+        // loaded now, served from memory
+        StepVerifier.create(seatService.getAvailability(List.of(2L)))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(seatRepository, times(1)).findByFlightIdInOrderByFlightIdAscIdAsc(anyCollection());
+    }
+}
@@ -0,0 +1,84 @@
+package com.execodex.sparrowair2.services.caa;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvTokenizerTest {
+
+    // The fields of every row, with the input fed in chunks of the given size
+    private static List<List<String>> tokenize(String input, int chunkSize) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        List<List<String>> rows = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += chunkSize) {
+            tokenizer.feed(ByteBuffer.wrap(bytes, from, Math.min(chunkSize, bytes.length - from)), row -> rows.add(fields(row)));
+        }
+        tokenizer.finish(row -> rows.add(fields(row)));
+        return rows;
+    }
+
+    private static List<String> fields(CsvTokenizer.Row row) {
+        List<String> fields = new ArrayList<>();
+        for (int field = 0; field < row.fieldCount(); field++) {
+            fields.add(row.string(field));
+        }
+        return fields;
+    }
+
+    @Test
+    void testTokenizeTrimsFieldsAndEndsLinesOnLfOrCrlf() {
+        String input = "  N1 ,SERIAL  ,,\r\nN2,ÉCOLE,x\n";
+        for (int chunkSize = 1; chunkSize <= input.length(); chunkSize++) {
+            assertEquals(List.of(
+                    List.of("N1", "SERIAL", "", ""),
+                    List.of("N2", "ÉCOLE", "x")), tokenize(input, chunkSize), "chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    void testTokenizeQuotedFields() {
+        String input = "\"a,b\",\"say \"\"hi\"\"\",\"two\r\nlines\"\r\n\"\",plain \"quote\"\r\n";
+        for (int chunkSize = 1; chunkSize <= input.length(); chunkSize++) {
+            assertEquals(List.of(
+                    List.of("a,b", "say \"hi\"", "two\r\nlines"),
+                    List.of("", "plain \"quote\"")), tokenize(input, chunkSize), "chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    void testFinishEmitsLastLineWithoutBreak() {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), tokenize("a,b\nc,d", 3));
+        assertEquals(List.of(List.of("a", "b")), tokenize("a,b\r\n", 2));
+    }
+
+    @Test
+    void testStringRangeOfField() {
+        List<String> parts = new ArrayList<>();
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        tokenizer.feed(ByteBuffer.wrap("x,1T    \n".getBytes(StandardCharsets.UTF_8)), row -> {
+            parts.add(row.string(1, 0, 1));
+            parts.add(row.string(1, 1, 10));
+            parts.add(row.string(1, 20, 30));
+        });
+        assertEquals(List.of("1", "T", ""), parts);
+    }
+
+    @Test
+    void testTooLongLineIsRejected() {
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        ByteBuffer chunk = ByteBuffer.allocate(CsvTokenizer.MAX_LINE_LENGTH / 2);
+        tokenizer.feed(chunk.duplicate(), row -> {
+        });
+        tokenizer.feed(chunk.duplicate(), row -> {
+        });
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.feed(chunk.duplicate(), row -> {
+        }));
+    }
+}
@@ -0,0 +1,60 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FaaMasterFileParserTest {
+
+    private static final String MASTER_FILE = "stuff/data/faa/master-100.txt";
+
+    private static Flux<DataBuffer> buffers(byte[] bytes, int size) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += size) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, from, Math.min(from + size, bytes.length))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    @Test
+    void testParseMatchesLineParser() throws IOException {
+        byte[] bytes = new ClassPathResource(MASTER_FILE).getContentAsByteArray();
+        List<FaaAircraftRegistration> expected = new String(bytes, StandardCharsets.UTF_8).lines()
+                .skip(1)
+                .map(FaaAircraftRegistration::parseAircraftRegistrationFromCsvLine2)
+                .toList();
+        assertEquals(99, expected.size());
+
+        // buffers that cut lines anywhere, between CR and LF too, and one buffer with the whole file
+        for (int size : new int[]{1, 7, 612, 613, 614, 4096, bytes.length}) {
+            StepVerifier.create(FaaMasterFileParser.parse(buffers(bytes, size)).collectList())
+                    .assertNext(registrations -> assertEquals(expected, registrations, "buffers of " + size + " bytes"))
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void testParseSkipsShortLinesAndReadsLastLineWithoutBreak() throws IOException {
+        String[] lines = new String(new ClassPathResource(MASTER_FILE).getContentAsByteArray(), StandardCharsets.UTF_8)
+                .split("\r\n");
+        String content = lines[0] + "\r\n" + lines[1] + "\r\n\r\nNOT,A,REGISTRATION\r\n" + lines[2];
+
+        StepVerifier.create(FaaMasterFileParser.parse(buffers(content.getBytes(StandardCharsets.UTF_8), 100)))
+                .expectNext(FaaAircraftRegistration.parseAircraftRegistrationFromCsvLine2(lines[1]))
+                .expectNext(FaaAircraftRegistration.parseAircraftRegistrationFromCsvLine2(lines[2]))
+                .verifyComplete();
+    }
+}
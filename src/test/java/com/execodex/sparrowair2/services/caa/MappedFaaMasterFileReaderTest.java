@@ -0,0 +1,79 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedFaaMasterFileReaderTest {
+
+    private static final String MASTER_FILE = "stuff/data/faa/master-100.txt";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReadMatchesLineParserInFileOrder() throws IOException {
+        byte[] bytes = new ClassPathResource(MASTER_FILE).getContentAsByteArray();
+        Path file = Files.write(directory.resolve("MASTER.txt"), bytes);
+        List<FaaAircraftRegistration> expected = new String(bytes, StandardCharsets.UTF_8).lines()
+                .skip(1)
+                .map(FaaAircraftRegistration::parseAircraftRegistrationFromCsvLine2)
+                .toList();
+
+        // a chunk per line, chunks ending mid-line and a chunk with the whole file
+        for (int chunkSize : new int[]{1, 612, 613, 5000, MappedFaaMasterFileReader.DEFAULT_CHUNK_SIZE}) {
+            StepVerifier.create(MappedFaaMasterFileReader.read(file, chunkSize, 4, Schedulers.parallel(), () -> {
+                    }).collectList())
+                    .assertNext(registrations -> assertEquals(expected, registrations, "chunks of " + chunkSize + " bytes"))
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void testReadHonoursDemandAndCancel() throws IOException {
+        Path file = Files.write(directory.resolve("MASTER.txt"), new ClassPathResource(MASTER_FILE).getContentAsByteArray());
+
+        StepVerifier.create(MappedFaaMasterFileReader.read(file, 1, 2, Schedulers.parallel(), () -> {
+                }), 0)
+                .expectSubscription()
+                .thenRequest(3)
+                .expectNextCount(3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testReadReportsSkippedLinesOfEveryChunk() throws IOException {
+        String[] lines = new String(new ClassPathResource(MASTER_FILE).getContentAsByteArray(), StandardCharsets.UTF_8)
+                .split("\r\n");
+        String content = lines[0] + "\r\nNOT,A,REGISTRATION\r\n" + lines[1] + "\r\nSHORT\r\n" + lines[2] + "\r\n";
+        Path file = Files.writeString(directory.resolve("MASTER.txt"), content);
+        AtomicLong skipped = new AtomicLong();
+
+        // a chunk per line, the skipped lines are in different chunks
+        StepVerifier.create(MappedFaaMasterFileReader.read(file, 1, 2, Schedulers.parallel(), skipped::incrementAndGet))
+                .expectNextCount(2)
+                .verifyComplete();
+        assertEquals(2, skipped.get());
+    }
+
+    @Test
+    void testReadMissingFileFails() {
+        StepVerifier.create(MappedFaaMasterFileReader.read(directory.resolve("MISSING.txt")))
+                .expectError(NoSuchFileException.class)
+                .verify();
+    }
+}
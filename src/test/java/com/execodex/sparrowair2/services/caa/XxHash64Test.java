@@ -0,0 +1,51 @@
+package com.execodex.sparrowair2.services.caa;
+
+import com.execodex.sparrowair2.entities.caa.FaaAircraftRegistration;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class XxHash64Test {
+
+    private static long hash(String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        return XxHash64.hash(bytes, 0, bytes.length, 0);
+    }
+
+    @Test
+    void testHashMatchesReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        // long enough for the four lanes
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    void testHashOfRangeIgnoresBytesAround() {
+        byte[] bytes = "xxNobody inspects the spammish repetitionyy".getBytes(StandardCharsets.UTF_8);
+        assertEquals(hash("Nobody inspects the spammish repetition"), XxHash64.hash(bytes, 2, bytes.length - 4, 0));
+    }
+
+    @Test
+    void testFingerprintIgnoresPaddingButNotFieldBoundaries() {
+        FaaAircraftRegistration registration = FaaAircraftRegistration.builder()
+                .nNumber("10020").serialNumber("20044C").registrantName("STEPHENS DAVID SR").build();
+        long fingerprint = FaaRegistrationFingerprint.of(registration);
+
+        registration.setRegistrantName("STEPHENS DAVID SR   ");
+        registration.setStreet1("");
+        assertEquals(fingerprint, FaaRegistrationFingerprint.of(registration));
+
+        // the N-Number is the key, not part of the fingerprint
+        registration.setNNumber("10021");
+        assertEquals(fingerprint, FaaRegistrationFingerprint.of(registration));
+
+        registration.setRegistrantName("STEPHENS DAVID");
+        registration.setStreet1("SR");
+        assertNotEquals(fingerprint, FaaRegistrationFingerprint.of(registration));
+    }
+}
@@ -0,0 +1,82 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionTimetableTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    private final AirportNewService airportService = new AirportNewService(null, null);
+    private List<AirportNew> airports;
+
+    @BeforeEach
+    void setUp() {
+        airports = List.of(
+                AirportNew.builder().icaoCode("EGLL").latitude(51.4775).longitude(-0.4614).build(),
+                AirportNew.builder().icaoCode("LFPG").latitude(49.0097).longitude(2.5479).build(),
+                AirportNew.builder().icaoCode("KJFK").latitude(40.6413).longitude(-73.7781).build());
+    }
+
+    private Flight flight(long id, String departure, String arrival, int departureHour, int arrivalHour, String status) {
+        return Flight.builder()
+                .id(id)
+                .departureAirportIcao(departure)
+                .arrivalAirportIcao(arrival)
+                .scheduledDeparture(DAY.plusHours(departureHour))
+                .scheduledArrival(DAY.plusHours(arrivalHour))
+                .status(status)
+                .build();
+    }
+
+    private List<Long> earliestArrival(ConnectionTimetable timetable, String departure, String arrival, LocalDateTime departureAfter) {
+        RouteGraph graph = timetable.graph();
+        return timetable.earliestArrival(graph.indexOf(departure), graph.indexOf(arrival), departureAfter)
+                .stream()
+                .map(Flight::getId)
+                .toList();
+    }
+
+    @Test
+    void testMinimumConnectionTimeIsEnforced() {
+        List<Flight> flights = List.of(
+                flight(1, "EGLL", "LFPG", 8, 9, "SCHEDULED"),
+                flight(2, "LFPG", "KJFK", 9, 17, "SCHEDULED"),  // departs right at the arrival of flight 1
+                flight(3, "LFPG", "KJFK", 11, 19, "SCHEDULED"),
+                flight(4, "EGLL", "KJFK", 10, 20, "SCHEDULED"));
+        RouteGraph graph = RouteGraph.build(airports, flights, airportService::distance);
+
+        // without a connection time flight 2 can be caught
+        ConnectionTimetable noConnectionTime = ConnectionTimetable.build(graph, icao -> 0);
+        assertEquals(List.of(1L, 2L), earliestArrival(noConnectionTime, "EGLL", "KJFK", DAY));
+
+        // with one hour at LFPG the traveller has to wait for flight 3
+        ConnectionTimetable oneHour = ConnectionTimetable.build(graph, icao -> "LFPG".equals(icao) ? 3600 : 0);
+        assertEquals(List.of(1L, 3L), earliestArrival(oneHour, "EGLL", "KJFK", DAY));
+
+        // leaving after flight 1 departed, only the direct flight is left
+        assertEquals(List.of(4L), earliestArrival(oneHour, "EGLL", "KJFK", DAY.plusHours(9)));
+    }
+
+    @Test
+    void testUnusableFlightsAreLeftOut() {
+        List<Flight> flights = List.of(
+                flight(1, "EGLL", "KJFK", 8, 16, "CANCELLED"),
+                flight(2, "EGLL", "LFPG", 9, 9, "SCHEDULED"),
+                Flight.builder().id(3L).departureAirportIcao("EGLL").arrivalAirportIcao("KJFK").build());
+        ConnectionTimetable timetable = ConnectionTimetable.build(
+                RouteGraph.build(airports, flights, airportService::distance), icao -> 0);
+
+        assertEquals(0, timetable.connectionCount());
+        assertTrue(earliestArrival(timetable, "EGLL", "KJFK", DAY).isEmpty());
+    }
+}
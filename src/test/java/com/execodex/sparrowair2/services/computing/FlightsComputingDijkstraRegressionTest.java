@@ -0,0 +1,188 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.datademo.skybrary.AirportDataDemo;
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the heap based Dijkstra of {@link FlightsComputing#getRouteMinimumCost} with the original
+ * map based implementation, on the SkyBrary airports dataset and a random (but seeded) set of flights.
+ */
+class FlightsComputingDijkstraRegressionTest {
+
+    private static final int FLIGHT_COUNT = 20_000;
+    private static final int QUERY_COUNT = 25;
+
+    private final AirportNewService airportNewService = new AirportNewService(null, null);
+    private List<AirportNew> airports;
+    private List<Flight> flights;
+    private FlightsComputing flightsComputing;
+
+    @BeforeEach
+    void setUp() {
+        airports = AirportDataDemo.getDemoAirportsFromFile("stuff/data/airports/iaka_airports.jsonl")
+                .collectList()
+                .block();
+        assertNotNull(airports);
+        assertFalse(airports.isEmpty(), "Expected the airports dataset to be loaded");
+
+        Random random = new Random(42);
+        flights = new ArrayList<>();
+        for (long id = 1; id <= FLIGHT_COUNT; id++) {
+            AirportNew departure = airports.get(random.nextInt(airports.size()));
+            AirportNew arrival = airports.get(random.nextInt(airports.size()));
+            flights.add(Flight.builder()
+                    .id(id)
+                    .departureAirportIcao(departure.getIcaoCode())
+                    .arrivalAirportIcao(arrival.getIcaoCode())
+                    .build());
+        }
+
+        RouteGraphService routeGraphService = mock(RouteGraphService.class);
+        when(routeGraphService.getGraph())
+                .thenReturn(Mono.just(RouteGraph.build(airports, flights, airportNewService::distance)));
+        flightsComputing = new FlightsComputing(airportNewService, null, routeGraphService,
+                new FlightsComputingProperties(Duration.ofMinutes(45), null, 6, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testSameDistancesAsTheOriginalImplementation() {
+        Map<String, AirportNew> airportMap = new HashMap<>();
+        for (AirportNew airport : airports) {
+            airportMap.put(airport.getIcaoCode(), airport);
+        }
+
+        Random random = new Random(7);
+        int routesFound = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            AirportNew source = airports.get(random.nextInt(airports.size()));
+            AirportNew target = airports.get(random.nextInt(airports.size()));
+            if (source.getIcaoCode().equals(target.getIcaoCode())) {
+                continue;
+            }
+
+            List<Flight> expected = originalDijkstra(source, target, airports, flights, airportMap);
+            List<Flight> actual = flightsComputing.getRouteMinimumCost(source, target).block();
+            assertNotNull(actual);
+
+            // with ties both implementations may pick different flights, but the total distance must be the same
+            assertEquals(expected.isEmpty(), actual.isEmpty(), "Reachability differs for " + source.getIcaoCode() + " -> " + target.getIcaoCode());
+            assertEquals(routeDistance(expected, airportMap), routeDistance(actual, airportMap), 1e-6,
+                    "Distance differs for " + source.getIcaoCode() + " -> " + target.getIcaoCode());
+            assertConnected(actual, source, target);
+            if (!actual.isEmpty()) {
+                routesFound++;
+            }
+        }
+        assertTrue(routesFound > 0, "Expected at least one of the random queries to have a route");
+    }
+
+    @Test
+    void testSameAirportReturnsEmptyRoute() {
+        AirportNew airport = airports.get(0);
+        List<Flight> route = flightsComputing.getRouteMinimumCost(airport, airport).block();
+        assertNotNull(route);
+        assertTrue(route.isEmpty());
+    }
+
+    private double routeDistance(List<Flight> route, Map<String, AirportNew> airportMap) {
+        double total = 0;
+        for (Flight flight : route) {
+            total += airportNewService.distance(airportMap.get(flight.getDepartureAirportIcao()), airportMap.get(flight.getArrivalAirportIcao()));
+        }
+        return total;
+    }
+
+    private void assertConnected(List<Flight> route, AirportNew source, AirportNew target) {
+        if (route.isEmpty()) {
+            return;
+        }
+        assertEquals(source.getIcaoCode(), route.get(0).getDepartureAirportIcao());
+        assertEquals(target.getIcaoCode(), route.get(route.size() - 1).getArrivalAirportIcao());
+        for (int i = 1; i < route.size(); i++) {
+            assertEquals(route.get(i - 1).getArrivalAirportIcao(), route.get(i).getDepartureAirportIcao());
+        }
+    }
+
+    // The original implementation of FlightsComputing.applyDijkstra, kept here as the reference
+    private List<Flight> originalDijkstra(AirportNew source, AirportNew target, List<AirportNew> airports, List<Flight> flights, Map<String, AirportNew> airportMap) {
+        Map<String, List<Flight>> outgoingFlights = new HashMap<>();
+        for (Flight flight : flights) {
+            outgoingFlights.computeIfAbsent(flight.getDepartureAirportIcao(), k -> new ArrayList<>()).add(flight);
+        }
+
+        Map<String, Double> distances = new HashMap<>();
+        Map<String, Flight> previousFlights = new HashMap<>();
+        Set<String> unvisited = new HashSet<>();
+
+        for (AirportNew airport : airports) {
+            String icaoCode = airport.getIcaoCode();
+            distances.put(icaoCode, Double.MAX_VALUE);
+            unvisited.add(icaoCode);
+        }
+        distances.put(source.getIcaoCode(), 0.0);
+
+        while (!unvisited.isEmpty()) {
+            String current = null;
+            double smallestDistance = Double.MAX_VALUE;
+            for (String icaoCode : unvisited) {
+                double distance = distances.get(icaoCode);
+                if (distance < smallestDistance) {
+                    smallestDistance = distance;
+                    current = icaoCode;
+                }
+            }
+
+            if (current == null || current.equals(target.getIcaoCode())) {
+                break;
+            }
+
+            unvisited.remove(current);
+
+            AirportNew currentAirport = airportMap.get(current);
+
+            List<Flight> currentOutgoingFlights = outgoingFlights.getOrDefault(current, Collections.emptyList());
+            for (Flight flight : currentOutgoingFlights) {
+                String neighborIcao = flight.getArrivalAirportIcao();
+                if (!unvisited.contains(neighborIcao)) {
+                    continue;
+                }
+
+                AirportNew neighborAirport = airportMap.get(neighborIcao);
+                double distance = airportNewService.distance(currentAirport, neighborAirport);
+                double newDistance = distances.get(current) + distance;
+
+                if (newDistance < distances.get(neighborIcao)) {
+                    distances.put(neighborIcao, newDistance);
+                    previousFlights.put(neighborIcao, flight);
+                }
+            }
+        }
+
+        List<Flight> path = new ArrayList<>();
+        String current = target.getIcaoCode();
+
+        if (!previousFlights.containsKey(current)) {
+            return path;
+        }
+
+        while (!current.equals(source.getIcaoCode())) {
+            Flight flight = previousFlights.get(current);
+            path.add(0, flight);
+            current = flight.getDepartureAirportIcao();
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,83 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlightsComputingMatrixTest {
+
+    private final AirportNewService airportNewService = new AirportNewService(null, null);
+    private final RouteGraphService routeGraphService = mock(RouteGraphService.class);
+    private AirportNew lhr;
+    private AirportNew cdg;
+    private RouteGraph graph;
+    private FlightsComputing flightsComputing;
+
+    @BeforeEach
+    void setUp() {
+        lhr = AirportNew.builder().icaoCode("EGLL").latitude(51.4775).longitude(-0.4614).build();
+        cdg = AirportNew.builder().icaoCode("LFPG").latitude(49.0097).longitude(2.5479).build();
+        graph = RouteGraph.build(List.of(lhr, cdg),
+                List.of(Flight.builder().id(1L).departureAirportIcao("EGLL").arrivalAirportIcao("LFPG").build()),
+                airportNewService::distance);
+        flightsComputing = new FlightsComputing(airportNewService, null, routeGraphService,
+                new FlightsComputingProperties(Duration.ofMinutes(45), null, 6, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testConcurrentFirstRequestsShareOneBuild() {
+        Sinks.One<RouteGraph> loading = Sinks.one();
+        when(routeGraphService.getGraph()).thenReturn(loading.asMono());
+
+        Mono<FlightsMatrix> first = flightsComputing.getFlightsMatrix().cache();
+        Mono<FlightsMatrix> second = flightsComputing.getFlightsMatrix().cache();
+        first.subscribe();
+        second.subscribe();
+        loading.tryEmitValue(graph);
+
+        FlightsMatrix matrix = first.block();
+        assertNotNull(matrix);
+        assertSame(matrix, second.block());
+        assertEquals(1, matrix.version());
+        assertEquals(List.of(cdg), matrix.destinations().get(lhr));
+        assertEquals(List.of(), matrix.destinations().get(cdg));
+        verify(routeGraphService, times(1)).getGraph();
+    }
+
+    @Test
+    void testStaleMatrixIsRebuiltInTheBackground() {
+        when(routeGraphService.getGraph()).thenReturn(Mono.just(graph));
+        FlightsMatrix matrix = flightsComputing.getFlightsMatrix().block();
+        assertNotNull(matrix);
+
+        // nothing changed, the matrix is kept
+        flightsComputing.refreshStaleFlightsMatrix();
+        assertSame(matrix, flightsComputing.getFlightsMatrix().block());
+
+        // a flight was added, the next scheduled check rebuilds the matrix
+        RouteGraph changed = graph.withFlight(Flight.builder().id(2L).departureAirportIcao("LFPG").arrivalAirportIcao("EGLL").build());
+        when(routeGraphService.getGraph()).thenReturn(Mono.just(changed));
+        flightsComputing.refreshStaleFlightsMatrix();
+
+        FlightsMatrix refreshed = flightsComputing.getFlightsMatrix().block();
+        assertNotNull(refreshed);
+        assertEquals(matrix.version() + 1, refreshed.version());
+        assertEquals(List.of(lhr), refreshed.destinations().get(cdg));
+        assertEquals(List.of(cdg), matrix.destinations().get(lhr)); // the old snapshot is untouched
+    }
+}
@@ -0,0 +1,96 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlightsComputingRouteSearchTest {
+
+    private final AirportNewService airportNewService = new AirportNewService(null, null);
+    private Map<String, AirportNew> airports;
+    private FlightsComputing flightsComputing;
+
+    @BeforeEach
+    void setUp() {
+        airports = List.of("A", "B", "C", "D", "E", "F").stream()
+                .map(code -> AirportNew.builder().icaoCode(code).latitude(0.0).longitude(code.charAt(0) - 'A').build())
+                .collect(Collectors.toMap(AirportNew::getIcaoCode, Function.identity()));
+
+        // A -> B -> C -> D -> E is the long way round, A -> F -> E the short one
+        List<Flight> flights = new ArrayList<>();
+        String[][] legs = {{"A", "B"}, {"B", "C"}, {"C", "D"}, {"D", "E"}, {"A", "F"}, {"F", "E"}, {"E", "A"}};
+        for (int i = 0; i < legs.length; i++) {
+            flights.add(Flight.builder().id((long) i).departureAirportIcao(legs[i][0]).arrivalAirportIcao(legs[i][1]).build());
+        }
+
+        RouteGraphService routeGraphService = mock(RouteGraphService.class);
+        when(routeGraphService.getGraph())
+                .thenReturn(Mono.just(RouteGraph.build(airports.values(), flights, airportNewService::distance)));
+        flightsComputing = new FlightsComputing(airportNewService, null, routeGraphService,
+                new FlightsComputingProperties(Duration.ofMinutes(45), null, 6, Duration.ofSeconds(1)));
+    }
+
+    private List<String> legs(String departure, String arrival, RouteSearchStrategy strategy, int maxHops) {
+        return legs(flightsComputing.getRoute(airports.get(departure), airports.get(arrival), strategy, maxHops).block());
+    }
+
+    private List<String> legs(List<Flight> route) {
+        return route.stream()
+                .map(flight -> flight.getDepartureAirportIcao() + flight.getArrivalAirportIcao())
+                .toList();
+    }
+
+    @Test
+    void testFewestLegsRoute() {
+        for (RouteSearchStrategy strategy : List.of(RouteSearchStrategy.BFS, RouteSearchStrategy.BIDIRECTIONAL)) {
+            assertEquals(List.of("AF", "FE"), legs("A", "E", strategy, 6), strategy.name());
+            assertEquals(List.of("AB", "BC", "CD"), legs("A", "D", strategy, 6), strategy.name());
+            assertEquals(List.of("DE", "EA", "AB"), legs("D", "B", strategy, 6), strategy.name());
+        }
+    }
+
+    @Test
+    void testMaxHopsBoundsTheSearch() {
+        for (RouteSearchStrategy strategy : List.of(RouteSearchStrategy.BFS, RouteSearchStrategy.BIDIRECTIONAL)) {
+            assertEquals(List.of("AB", "BC", "CD"), legs("A", "D", strategy, 3), strategy.name());
+            assertTrue(legs("A", "D", strategy, 2).isEmpty(), strategy.name());
+            assertTrue(legs("A", "E", strategy, 1).isEmpty(), strategy.name());
+        }
+    }
+
+    @Test
+    void testKShortestRoutes() {
+        // the airports are laid out on the equator by letter, so the four legs via B, C and D are shorter than the detour via F
+        List<List<Flight>> routes = flightsComputing.getKShortestRoutes(airports.get("A"), airports.get("E"), 3, 6).block();
+        assertEquals(List.of(List.of("AB", "BC", "CD", "DE"), List.of("AF", "FE")), routes.stream().map(this::legs).toList());
+
+        routes = flightsComputing.getKShortestRoutes(airports.get("A"), airports.get("E"), 3, 3).block();
+        assertEquals(List.of(List.of("AF", "FE")), routes.stream().map(this::legs).toList());
+
+        routes = flightsComputing.getKShortestRoutes(airports.get("A"), airports.get("E"), 1, 6).block();
+        assertEquals(1, routes.size());
+    }
+
+    @Test
+    void testStrategyFromParameter() {
+        assertEquals(RouteSearchStrategy.BIDIRECTIONAL, RouteSearchStrategy.fromParameter("bidirectional"));
+        assertEquals(RouteSearchStrategy.BFS, RouteSearchStrategy.fromParameter("BFS"));
+        assertThrows(IllegalArgumentException.class, () -> RouteSearchStrategy.fromParameter("astar"));
+    }
+}
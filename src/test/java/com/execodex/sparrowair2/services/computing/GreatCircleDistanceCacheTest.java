@@ -0,0 +1,57 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.datademo.skybrary.AirportDataDemo;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class GreatCircleDistanceCacheTest {
+
+    private final AirportNewService airportNewService = new AirportNewService(null, null);
+
+    @Test
+    void testSameDistancesAsHaversine() {
+        List<AirportNew> airports = AirportDataDemo.getDemoAirportsFromFile("stuff/data/airports/iaka_airports.jsonl")
+                .collectList()
+                .block();
+        assertNotNull(airports);
+        assertFalse(airports.isEmpty(), "Expected the airports dataset to be loaded");
+
+        GreatCircleDistanceCache cache = new GreatCircleDistanceCache();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            AirportNew from = airports.get(random.nextInt(airports.size()));
+            AirportNew to = airports.get(random.nextInt(airports.size()));
+            double expected = airportNewService.haversineDistance(from, to);
+            assertEquals(expected, cache.distance(from, to), 1e-6);
+            assertEquals(cache.distance(from, to), cache.distance(to, from)); // memoized once per pair
+        }
+    }
+
+    @Test
+    void testMovedAirportIsInvalidated() {
+        AirportNew lhr = AirportNew.builder().icaoCode("EGLL").latitude(51.4775).longitude(-0.4614).build();
+        AirportNew cdg = AirportNew.builder().icaoCode("LFPG").latitude(49.0097).longitude(2.5479).build();
+        AirportNew jfk = AirportNew.builder().icaoCode("KJFK").latitude(40.6413).longitude(-73.7781).build();
+        GreatCircleDistanceCache cache = new GreatCircleDistanceCache();
+
+        cache.distance(lhr, cdg);
+        cache.distance(lhr, jfk);
+        cache.distance(cdg, jfk);
+        assertEquals(3, cache.memoizedDistances());
+        assertEquals(0.0, cache.distance(lhr, lhr));
+
+        // same ICAO code, new coordinates: the distances from the old position are dropped
+        AirportNew movedCdg = AirportNew.builder().icaoCode("LFPG").latitude(48.7233).longitude(2.3794).build();
+        assertEquals(airportNewService.haversineDistance(lhr, movedCdg), cache.distance(lhr, movedCdg), 1e-6);
+        assertEquals(2, cache.memoizedDistances());
+        assertEquals(airportNewService.haversineDistance(movedCdg, jfk), cache.distance(jfk, movedCdg), 1e-6);
+    }
+}
@@ -0,0 +1,137 @@
+package com.execodex.sparrowair2.services.computing;
+
+import com.execodex.sparrowair2.entities.Flight;
+import com.execodex.sparrowair2.entities.skybrary.AirportNew;
+import com.execodex.sparrowair2.services.AirportNewService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RouteGraphTest {
+
+    private final AirportNewService airportService = new AirportNewService(null, null);
+    private AirportNew lhr;
+    private AirportNew cdg;
+    private AirportNew jfk;
+
+    @BeforeEach
+    void setUp() {
+        lhr = AirportNew.builder().icaoCode("EGLL").latitude(51.4775).longitude(-0.4614).build();
+        cdg = AirportNew.builder().icaoCode("LFPG").latitude(49.0097).longitude(2.5479).build();
+        jfk = AirportNew.builder().icaoCode("KJFK").latitude(40.6413).longitude(-73.7781).build();
+    }
+
+    private Flight flight(long id, String departure, String arrival) {
+        return Flight.builder().id(id).departureAirportIcao(departure).arrivalAirportIcao(arrival).build();
+    }
+
+    private List<String> outgoing(RouteGraph graph, String icaoCode) {
+        List<String> destinations = new ArrayList<>();
+        int airport = graph.indexOf(icaoCode);
+        for (int edge = graph.edgeStart(airport); edge < graph.edgeEnd(airport); edge++) {
+            destinations.add(graph.airport(graph.target(edge)).getIcaoCode());
+        }
+        return destinations;
+    }
+
+    @Test
+    void testBuildLaysOutFlightsPerDepartureAirport() {
+        RouteGraph graph = RouteGraph.build(List.of(lhr, cdg, jfk),
+                List.of(flight(1, "EGLL", "LFPG"), flight(2, "LFPG", "KJFK"), flight(3, "EGLL", "KJFK"), flight(4, "EGLL", "XXXX")),
+                airportService::distance);
+
+        assertEquals(3, graph.airportCount());
+        assertEquals(3, graph.edgeCount()); // the flight to the unknown airport is ignored
+        assertEquals(List.of("LFPG", "KJFK"), outgoing(graph, "EGLL"));
+        assertEquals(List.of("KJFK"), outgoing(graph, "LFPG"));
+        assertEquals(List.of(), outgoing(graph, "KJFK"));
+
+        int edge = graph.edgeStart(graph.indexOf("LFPG"));
+        assertEquals(airportService.distance(cdg, jfk), graph.weight(edge), 1e-9);
+    }
+
+    @Test
+    void testIncrementalFlightChanges() {
+        RouteGraph graph = RouteGraph.build(List.of(lhr, cdg, jfk), List.of(flight(1, "EGLL", "LFPG")), airportService::distance);
+
+        RouteGraph added = graph.withFlight(flight(2, "LFPG", "KJFK"));
+        assertEquals(1, graph.edgeCount()); // the original snapshot is not modified
+        assertEquals(2, added.edgeCount());
+        assertEquals(List.of("KJFK"), outgoing(added, "LFPG"));
+
+        RouteGraph updated = added.withFlight(flight(1, "EGLL", "KJFK"));
+        assertEquals(2, updated.edgeCount());
+        assertEquals(List.of("KJFK"), outgoing(updated, "EGLL"));
+
+        RouteGraph deleted = updated.withoutFlight(2L);
+        assertEquals(1, deleted.edgeCount());
+        assertEquals(List.of(), outgoing(deleted, "LFPG"));
+        assertSame(deleted, deleted.withoutFlight(42L));
+    }
+
+    @Test
+    void testIncrementalAirportChanges() {
+        RouteGraph graph = RouteGraph.build(List.of(lhr, cdg), List.of(flight(1, "EGLL", "LFPG")), airportService::distance);
+
+        RouteGraph added = graph.withAirport(jfk).withFlight(flight(2, "LFPG", "KJFK"));
+        assertEquals(3, added.airportCount());
+        assertEquals(List.of("KJFK"), outgoing(added, "LFPG"));
+
+        // moving an airport recomputes the weights of its flights
+        AirportNew movedCdg = AirportNew.builder().icaoCode("LFPG").latitude(48.7233).longitude(2.3794).build();
+        RouteGraph moved = added.withAirport(movedCdg);
+        int edge = moved.edgeStart(moved.indexOf("EGLL"));
+        assertNotEquals(added.weight(edge), moved.weight(edge));
+        assertEquals(airportService.distance(lhr, movedCdg), moved.weight(edge), 1e-9);
+
+        RouteGraph removed = moved.withoutFlight(2L).withoutAirport("KJFK");
+        assertEquals(2, removed.airportCount());
+        assertEquals(-1, removed.indexOf("KJFK"));
+        assertEquals(List.of("LFPG"), outgoing(removed, "EGLL"));
+    }
+
+    @Test
+    void testBatchedChangesMatchChangesOneByOne() {
+        RouteGraph graph = RouteGraph.build(List.of(lhr, cdg), List.of(flight(1, "EGLL", "LFPG")), airportService::distance);
+        AirportNew movedCdg = AirportNew.builder().icaoCode("LFPG").latitude(48.7233).longitude(2.3794).build();
+
+        RouteGraph batched = graph.withChanges(List.of(
+                new RouteGraph.FlightSaved(flight(3, "EGLL", "KJFK")), // unknown airport yet, so not added
+                new RouteGraph.AirportSaved(jfk),
+                new RouteGraph.FlightSaved(flight(2, "LFPG", "KJFK")),
+                new RouteGraph.FlightSaved(flight(4, "KJFK", "EGLL")),
+                new RouteGraph.AirportSaved(movedCdg),
+                new RouteGraph.FlightDeleted(1L),
+                new RouteGraph.FlightSaved(flight(5, "LFPG", "EGLL"))));
+        RouteGraph oneByOne = graph.withFlight(flight(3, "EGLL", "KJFK"))
+                .withAirport(jfk)
+                .withFlight(flight(2, "LFPG", "KJFK"))
+                .withFlight(flight(4, "KJFK", "EGLL"))
+                .withAirport(movedCdg)
+                .withoutFlight(1L)
+                .withFlight(flight(5, "LFPG", "EGLL"));
+
+        assertEquals(oneByOne.airportCount(), batched.airportCount());
+        assertEquals(oneByOne.edgeCount(), batched.edgeCount());
+        for (String icaoCode : List.of("EGLL", "LFPG", "KJFK")) {
+            assertEquals(oneByOne.indexOf(icaoCode), batched.indexOf(icaoCode));
+            assertEquals(outgoing(oneByOne, icaoCode), outgoing(batched, icaoCode));
+        }
+        int edge = batched.edgeStart(batched.indexOf("LFPG"));
+        assertEquals(airportService.distance(movedCdg, jfk), batched.weight(edge), 1e-9);
+
+        // deleting an airport drops its flights, they don't come back with it
+        RouteGraph readded = batched.withChanges(List.of(
+                new RouteGraph.AirportDeleted("KJFK"),
+                new RouteGraph.AirportSaved(jfk)));
+        assertEquals(3, readded.airportCount());
+        assertEquals(List.of(), outgoing(readded, "KJFK"));
+        assertEquals(List.of("EGLL"), outgoing(readded, "LFPG"));
+    }
+}